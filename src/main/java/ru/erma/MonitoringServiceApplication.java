@@ -2,10 +2,12 @@ package ru.erma;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 import ru.erma.customenableannotation.aop.annotation.EnableCustomLogger;
 
 @SpringBootApplication
 @EnableCustomLogger
+@EnableScheduling
 public class MonitoringServiceApplication {
     public static void main(String[] args) {
         SpringApplication.run(MonitoringServiceApplication.class, args);
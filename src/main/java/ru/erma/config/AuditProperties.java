@@ -0,0 +1,87 @@
+package ru.erma.config;
+
+import lombok.Data;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * This class represents the properties of the asynchronous audit writer and of the audit queries.
+ */
+@Component
+@Data
+public class AuditProperties {
+
+    /**
+     * Whether audit records are queued and written in batches by a background writer instead of on the request thread.
+     */
+    @Value("${audit.async:false}")
+    private boolean async;
+
+    /**
+     * The maximum number of audit records waiting in the queue, further records are handled by the overflow policy.
+     */
+    @Value("${audit.queue-capacity:10000}")
+    private int queueCapacity;
+
+    /**
+     * The maximum number of audit records written in one batch.
+     */
+    @Value("${audit.batch-size:500}")
+    private int batchSize;
+
+    /**
+     * The maximum time (in milliseconds) an audit record waits for its batch to fill up.
+     */
+    @Value("${audit.flush-interval:200}")
+    private long flushInterval;
+
+    /**
+     * What happens to an audit record when the queue is full.
+     */
+    @Value("${audit.overflow-policy:block}")
+    private OverflowPolicy overflowPolicy;
+
+    /**
+     * The file audit records are spilled to, they are written to the database once the writer is idle again.
+     */
+    @Value("${audit.spill-file:audit-spill.ndjson}")
+    private String spillFile;
+
+    /**
+     * The time (in milliseconds) before writing the spilled audit records again after it failed.
+     */
+    @Value("${audit.spill-retry-delay:5000}")
+    private long spillRetryDelay;
+
+    /**
+     * The maximum time (in milliseconds) the shutdown waits for the queue to be drained,
+     * the audit records left in the queue are spilled.
+     */
+    @Value("${audit.shutdown-timeout:30000}")
+    private long shutdownTimeout;
+
+    /**
+     * The number of rows the driver fetches at a time while audit records are exported.
+     * The whole export has to finish within spring.mvc.async.request-timeout, or the response is cut off.
+     */
+    @Value("${audit.fetch-size:1000}")
+    private int fetchSize;
+
+    /**
+     * The policies for audit records that do not fit into the queue.
+     */
+    public enum OverflowPolicy {
+        /**
+         * The request thread waits until the record fits into the queue.
+         */
+        BLOCK,
+        /**
+         * The record is discarded and counted as dropped.
+         */
+        DROP,
+        /**
+         * The record is appended to the spill file.
+         */
+        SPILL
+    }
+}
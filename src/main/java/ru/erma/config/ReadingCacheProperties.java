@@ -0,0 +1,38 @@
+package ru.erma.config;
+
+import lombok.Data;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * This class represents the properties of the cache of reading queries.
+ */
+@Component
+@Data
+public class ReadingCacheProperties {
+
+    /**
+     * Whether the results of reading queries are cached.
+     */
+    @Value("${readings.cache.enabled:true}")
+    private boolean enabled;
+
+    /**
+     * The maximum number of cached query results, the least recently used results are evicted first.
+     */
+    @Value("${readings.cache.maximum-size:10000}")
+    private long maximumSize;
+
+    /**
+     * The time (in milliseconds) after which a cached query result expires.
+     */
+    @Value("${readings.cache.expire-after-write:60000}")
+    private long expireAfterWrite;
+
+    /**
+     * The maximum number of users whose latest reading is kept to check new readings against,
+     * the least recently used users are evicted first.
+     */
+    @Value("${readings.cache.last-readings-size:100000}")
+    private int lastReadingsSize;
+}
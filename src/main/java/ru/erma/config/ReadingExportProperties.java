@@ -0,0 +1,20 @@
+package ru.erma.config;
+
+import lombok.Data;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * This class represents the properties of the streaming export of readings.
+ */
+@Component
+@Data
+public class ReadingExportProperties {
+
+    /**
+     * The number of rows the JDBC driver fetches from the database at a time while streaming readings.
+     * The whole export has to finish within spring.mvc.async.request-timeout, or the response is cut off.
+     */
+    @Value("${readings.export.fetch-size:1000}")
+    private int fetchSize;
+}
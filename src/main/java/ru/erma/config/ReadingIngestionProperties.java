@@ -0,0 +1,49 @@
+package ru.erma.config;
+
+import lombok.Data;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * This class represents the properties of the asynchronous reading ingestion.
+ */
+@Component
+@Data
+public class ReadingIngestionProperties {
+
+    /**
+     * Whether submitted readings are queued and stored in group-commit batches instead of synchronously.
+     */
+    @Value("${readings.ingestion.async:false}")
+    private boolean async;
+
+    /**
+     * The maximum number of readings waiting in the queue, further submissions are rejected.
+     */
+    @Value("${readings.ingestion.queue-capacity:10000}")
+    private int queueCapacity;
+
+    /**
+     * The maximum number of readings stored in one transaction.
+     */
+    @Value("${readings.ingestion.batch-size:500}")
+    private int batchSize;
+
+    /**
+     * The maximum time (in milliseconds) a reading waits for its batch to fill up.
+     */
+    @Value("${readings.ingestion.flush-interval:50}")
+    private long flushInterval;
+
+    /**
+     * The number of most recent receipts kept for status queries.
+     */
+    @Value("${readings.ingestion.receipt-capacity:100000}")
+    private int receiptCapacity;
+
+    /**
+     * The maximum time (in milliseconds) the shutdown waits for the queue to be drained.
+     */
+    @Value("${readings.ingestion.shutdown-timeout:30000}")
+    private long shutdownTimeout;
+}
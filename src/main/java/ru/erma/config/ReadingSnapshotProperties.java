@@ -0,0 +1,32 @@
+package ru.erma.config;
+
+import lombok.Data;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * This class represents the properties of the export of all users' readings for a period.
+ */
+@Component
+@Data
+public class ReadingSnapshotProperties {
+
+    /**
+     * The maximum number of username ranges scanned at the same time, each on its own database connection.
+     * It is shared by all running exports.
+     */
+    @Value("${readings.snapshot.parallelism:4}")
+    private int parallelism;
+
+    /**
+     * The number of username ranges the readings of a period are split into.
+     */
+    @Value("${readings.snapshot.chunks:16}")
+    private int chunks;
+
+    /**
+     * The maximum number of readings of a range buffered before the range is written.
+     */
+    @Value("${readings.snapshot.buffer-size:1000}")
+    private int bufferSize;
+}
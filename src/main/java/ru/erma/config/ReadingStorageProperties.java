@@ -0,0 +1,35 @@
+package ru.erma.config;
+
+import lombok.Data;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * This class represents the properties of the storage of reading values.
+ */
+@Component
+@Data
+public class ReadingStorageProperties {
+
+    /**
+     * How the values of the reading types are stored in the readings table.
+     * The same model is passed to the database migrations, which convert the wide table once the packed model is selected.
+     */
+    @Value("${readings.storage.model:wide}")
+    private Model model;
+
+    /**
+     * The storage models of reading values.
+     */
+    public enum Model {
+        /**
+         * Every reading type is a numeric column of the readings table, adding or removing a type alters the table.
+         */
+        WIDE,
+        /**
+         * The values of a reading are one numeric array indexed by the ids of the reading types,
+         * adding or removing a type only changes the reading_types table.
+         */
+        PACKED
+    }
+}
@@ -0,0 +1,45 @@
+package ru.erma.config;
+
+import lombok.Data;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * This class represents the properties of the changes of the reading types.
+ */
+@Component
+@Data
+public class ReadingStructureProperties {
+
+    /**
+     * The maximum time (in milliseconds) a change of the readings table waits for its lock.
+     * While it waits, every later query of the table waits behind it, so the change gives up early and is retried instead.
+     */
+    @Value("${readings.structure.lock-timeout:2000}")
+    private long lockTimeout;
+
+    /**
+     * The maximum number of attempts of a change of the reading types.
+     */
+    @Value("${readings.structure.max-attempts:8}")
+    private int maxAttempts;
+
+    /**
+     * The time (in milliseconds) before the second attempt of a change, doubled before every further attempt.
+     */
+    @Value("${readings.structure.retry-backoff:200}")
+    private long retryBackoff;
+
+    /**
+     * The time (in milliseconds) between two reconciliations of the reading types with the database,
+     * which pick up changes made by other instances whose notifications were missed.
+     */
+    @Value("${readings.structure.reconcile-interval:60000}")
+    private long reconcileInterval;
+
+    /**
+     * The time (in milliseconds) before listening for changes of the reading types again after the connection was lost.
+     */
+    @Value("${readings.structure.reconnect-delay:5000}")
+    private long reconnectDelay;
+}
@@ -1,10 +1,20 @@
 package ru.erma.dto;
 
 import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.Pattern;
 
 @Schema(description = "Data object representing a request made by an admin in the system")
 public record AdminRequest(
         @Schema(description = "Type of the reading to be added by the admin", example = "temperature")
-        @NotBlank(message = "type should not be blank") String type) {
-}
\ No newline at end of file
+        @NotBlank(message = "type should not be blank")
+        @Pattern(regexp = "[a-z_][a-z0-9_]{0,62}",
+                message = "type should consist of lowercase letters, digits and underscores, start with a letter or an underscore and be at most 63 characters long")
+        String type,
+
+        @Schema(description = "Number of decimal places of the values of the reading type, 3 if not specified", example = "3")
+        @Min(value = 0, message = "Scale should be not less than 0")
+        @Max(value = 6, message = "Scale should be not greater than 6") Integer scale) {
+}
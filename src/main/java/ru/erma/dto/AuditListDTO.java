@@ -0,0 +1,16 @@
+package ru.erma.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.util.List;
+
+@Schema(description = "Data object representing a page of audit records, the most recent first")
+public record AuditListDTO(
+        @Schema(description = "List of audit records")
+        List<AuditDTO> audits,
+
+        @Schema(description = "Cursor of the next page of audit records, absent on the last page", example = "2024-01-01T12:00:00.123456_42")
+        @JsonInclude(JsonInclude.Include.NON_NULL)
+        String nextCursor) {
+}
@@ -0,0 +1,30 @@
+package ru.erma.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+@Schema(description = "Data object representing the statistics of the asynchronous audit writer")
+public record AuditWriterStatsDTO(
+        @Schema(description = "Whether audit records are written asynchronously", example = "true")
+        boolean async,
+
+        @Schema(description = "What happens to audit records that do not fit into the queue", example = "BLOCK")
+        String overflowPolicy,
+
+        @Schema(description = "Number of audit records waiting in the queue", example = "12")
+        int queueDepth,
+
+        @Schema(description = "Maximum number of audit records waiting in the queue", example = "10000")
+        int queueCapacity,
+
+        @Schema(description = "Number of audit records written by the writer", example = "9000")
+        long written,
+
+        @Schema(description = "Number of audit records discarded because the queue was full", example = "0")
+        long dropped,
+
+        @Schema(description = "Number of audit records spilled to the spill file", example = "0")
+        long spilled,
+
+        @Schema(description = "Number of audit records that could not be written", example = "0")
+        long failed) {
+}
@@ -0,0 +1,14 @@
+package ru.erma.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.util.List;
+
+@Schema(description = "Data object representing the consumption of a user computed from the reading history")
+public record ConsumptionReportDTO(
+        @Schema(description = "Consumption of every month that has a previous reading, the oldest first")
+        List<MonthlyConsumptionDTO> months,
+
+        @Schema(description = "Total and average consumption of every year, the oldest first")
+        List<YearlyConsumptionDTO> years) {
+}
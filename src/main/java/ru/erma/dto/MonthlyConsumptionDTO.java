@@ -0,0 +1,16 @@
+package ru.erma.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import ru.erma.model.ReadingValues;
+
+@Schema(description = "Data object representing the consumption of a month, the difference from the previous reading")
+public record MonthlyConsumptionDTO(
+        @Schema(description = "Month of the consumption", example = "2")
+        Integer month,
+
+        @Schema(description = "Year of the consumption", example = "2023")
+        Integer year,
+
+        @Schema(description = "Map of reading types and their consumption", type = "object", example = "{\"cold_water\": 3.5, \"heating\": 12}")
+        ReadingValues consumption) {
+}
@@ -0,0 +1,30 @@
+package ru.erma.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+@Schema(description = "Data object representing the outcome of a single reading from a batch")
+public record ReadingBatchItemResult(
+        @Schema(description = "Position of the reading in the submitted batch", example = "0")
+        int index,
+
+        @Schema(description = "Month of the reading", example = "1")
+        Integer month,
+
+        @Schema(description = "Year of the reading", example = "2022")
+        Integer year,
+
+        @Schema(description = "Outcome of the submission", example = "ACCEPTED")
+        Status status,
+
+        @Schema(description = "Reason why the reading was not accepted", example = "Month should not be null")
+        String message) {
+
+    /**
+     * The possible outcomes of a reading submitted as part of a batch.
+     */
+    public enum Status {
+        ACCEPTED,
+        DUPLICATE,
+        INVALID
+    }
+}
@@ -0,0 +1,15 @@
+package ru.erma.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+
+import java.util.List;
+
+@Schema(description = "Data object representing a batch of readings submitted in one request")
+public record ReadingBatchRequest(
+        @Schema(description = "Readings to be submitted, each item is validated separately")
+        @NotNull(message = "Readings should not be null")
+        @Size(min = 1, max = 1000, message = "Batch should contain from 1 to 1000 readings")
+        List<ReadingRequest> readings) {
+}
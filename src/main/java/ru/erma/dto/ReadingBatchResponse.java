@@ -0,0 +1,20 @@
+package ru.erma.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.util.List;
+
+@Schema(description = "Data object representing the outcome of a batch submission")
+public record ReadingBatchResponse(
+        @Schema(description = "Number of readings that were saved", example = "98")
+        int accepted,
+
+        @Schema(description = "Number of readings that already existed for their month and year", example = "1")
+        int duplicates,
+
+        @Schema(description = "Number of readings rejected by validation", example = "1")
+        int invalid,
+
+        @Schema(description = "Outcome of every reading in the order they were submitted")
+        List<ReadingBatchItemResult> results) {
+}
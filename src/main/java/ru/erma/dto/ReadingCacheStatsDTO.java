@@ -0,0 +1,24 @@
+package ru.erma.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+@Schema(description = "Data object representing the statistics of the cache of reading queries")
+public record ReadingCacheStatsDTO(
+        @Schema(description = "Whether the cache is enabled", example = "true")
+        boolean enabled,
+
+        @Schema(description = "Approximate number of cached query results", example = "120")
+        long size,
+
+        @Schema(description = "Number of queries answered from the cache", example = "9000")
+        long hits,
+
+        @Schema(description = "Number of queries sent to the database", example = "1000")
+        long misses,
+
+        @Schema(description = "Number of results evicted because of the size limit or expiration", example = "40")
+        long evictions,
+
+        @Schema(description = "Share of queries answered from the cache", example = "0.9")
+        double hitRate) {
+}
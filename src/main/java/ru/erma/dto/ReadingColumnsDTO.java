@@ -0,0 +1,122 @@
+package ru.erma.dto;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import io.swagger.v3.oas.annotations.media.Schema;
+import ru.erma.model.Reading;
+import ru.erma.model.ReadingSchema;
+import ru.erma.model.ReadingValues;
+
+import java.io.IOException;
+import java.time.YearMonth;
+import java.util.List;
+
+/**
+ * A list of readings in a columnar shape: the periods of the readings in one array
+ * and the values of every reading type in one array per type, aligned with the periods.
+ * Every reading type name is written once instead of once per reading.
+ * A reading without a value of a type has null at its position in the array of the type.
+ */
+@JsonSerialize(using = ReadingColumnsDTO.Serializer.class)
+@Schema(description = "Data object representing a list of readings in columns", type = "object",
+        example = "{\"months\": [\"2023-02\", \"2023-01\"], \"values\": {\"heating\": [40.5, 38], \"hot_water\": [44, null]}, \"nextCursor\": \"2023-01\"}")
+public record ReadingColumnsDTO(List<Reading> readings, String nextCursor) {
+
+    /**
+     * The media type of a list of readings in columns.
+     */
+    public static final String MEDIA_TYPE = "application/vnd.erma.readings.columnar+json";
+
+    /**
+     * Creates the columnar shape of a list of readings.
+     *
+     * @param readingList the list of readings
+     * @return the same readings in columns
+     */
+    public static ReadingColumnsDTO of(ReadingListDTO readingList) {
+        return new ReadingColumnsDTO(readingList.getReadings(), readingList.getNextCursor());
+    }
+
+    /**
+     * Writes the readings column by column directly from their primitive values.
+     * The reading types are taken from the snapshot of the first reading, in ordinal order,
+     * a type gets an array only if at least one reading has a value of it.
+     */
+    public static final class Serializer extends StdSerializer<ReadingColumnsDTO> {
+
+        public Serializer() {
+            super(ReadingColumnsDTO.class);
+        }
+
+        @Override
+        public void serialize(ReadingColumnsDTO columns, JsonGenerator generator, SerializerProvider provider) throws IOException {
+            List<Reading> readings = columns.readings() == null ? List.of() : columns.readings();
+            generator.writeStartObject(columns);
+            generator.writeArrayFieldStart("months");
+            char[] period = new char[7];
+            for (Reading reading : readings) {
+                writePeriod(generator, reading, period);
+            }
+            generator.writeEndArray();
+            generator.writeObjectFieldStart("values");
+            if (!readings.isEmpty()) {
+                ReadingSchema schema = readings.get(0).getValues().schema();
+                char[] buffer = null;
+                for (int ordinal = 0; ordinal < schema.size(); ordinal++) {
+                    if (!anyPresent(readings, schema, ordinal)) {
+                        continue;
+                    }
+                    generator.writeArrayFieldStart(schema.type(ordinal));
+                    for (Reading reading : readings) {
+                        ReadingValues values = reading.getValues();
+                        int position = values.schema() == schema ? ordinal : values.schema().ordinal(schema.type(ordinal));
+                        if (position >= 0 && values.isPresent(position)) {
+                            buffer = ReadingValues.Serializer.writeDecimal(generator, values.get(position), values.schema(), position, buffer);
+                        } else {
+                            generator.writeNull();
+                        }
+                    }
+                    generator.writeEndArray();
+                }
+            }
+            generator.writeEndObject();
+            if (columns.nextCursor() != null) {
+                generator.writeStringField("nextCursor", columns.nextCursor());
+            }
+            generator.writeEndObject();
+        }
+
+        private static boolean anyPresent(List<Reading> readings, ReadingSchema schema, int ordinal) {
+            for (Reading reading : readings) {
+                ReadingValues values = reading.getValues();
+                int position = values.schema() == schema ? ordinal : values.schema().ordinal(schema.type(ordinal));
+                if (position >= 0 && values.isPresent(position)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * Writes the period of a reading in the yyyy-MM format, years of four digits are formatted into a reused buffer.
+         */
+        private static void writePeriod(JsonGenerator generator, Reading reading, char[] buffer) throws IOException {
+            int year = reading.getYear();
+            int month = reading.getMonth();
+            if (year < 1000 || year > 9999) {
+                generator.writeString(YearMonth.of(year, month).toString());
+                return;
+            }
+            buffer[0] = (char) ('0' + year / 1000);
+            buffer[1] = (char) ('0' + year / 100 % 10);
+            buffer[2] = (char) ('0' + year / 10 % 10);
+            buffer[3] = (char) ('0' + year % 10);
+            buffer[4] = '-';
+            buffer[5] = (char) ('0' + month / 10);
+            buffer[6] = (char) ('0' + month % 10);
+            generator.writeString(buffer, 0, buffer.length);
+        }
+    }
+}
@@ -4,8 +4,7 @@ import io.swagger.v3.oas.annotations.media.Schema;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
-
-import java.util.Map;
+import ru.erma.model.ReadingValues;
 
 @Getter
 @Setter
@@ -18,6 +17,6 @@ public class ReadingDTO {
     @Schema(description = "Year of the reading", example = "2022")
     private Integer year;
 
-    @Schema(description = "Map of reading values", example = "{\"cold_water\": 56, \"heating\": 40, \"hot_water\": 44}")
-    private Map<String,Integer> values;
+    @Schema(description = "Map of reading values", type = "object", example = "{\"cold_water\": 56, \"heating\": 40, \"hot_water\": 44}")
+    private ReadingValues values;
 }
\ No newline at end of file
@@ -0,0 +1,50 @@
+package ru.erma.dto;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.time.LocalDateTime;
+
+@Schema(description = "Data object representing the progress of a bulk import of readings")
+public record ReadingImportDTO(
+        @Schema(description = "Identifier of the import", example = "3f2b8c1e-4a57-4d0e-9a5b-2f6c0e1d7a90")
+        String importId,
+
+        @Schema(description = "Format of the imported data", example = "CSV")
+        String format,
+
+        @Schema(description = "State of the import", example = "COMPLETED")
+        Status status,
+
+        @Schema(description = "Number of rows read so far", example = "1000")
+        long rowsRead,
+
+        @Schema(description = "Number of rows inserted into the readings", example = "990")
+        long imported,
+
+        @Schema(description = "Number of rows skipped because their period already exists", example = "8")
+        long duplicates,
+
+        @Schema(description = "Number of rows skipped because of an unknown user or an invalid period", example = "2")
+        long rejected,
+
+        @Schema(description = "Reason why the import failed", example = "Invalid reading type: gas")
+        String message,
+
+        @Schema(description = "Time the import started", example = "2024-02-18 03:15:17")
+        @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "yyyy-MM-dd HH:mm:ss")
+        LocalDateTime startedAt,
+
+        @Schema(description = "Time the import finished", example = "2024-02-18 03:17:42")
+        @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "yyyy-MM-dd HH:mm:ss")
+        LocalDateTime finishedAt) {
+
+    /**
+     * The possible states of an import.
+     */
+    public enum Status {
+        RUNNING,
+        COMPLETED,
+        FAILED
+    }
+}
@@ -1,5 +1,6 @@
 package ru.erma.dto;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import io.swagger.v3.oas.annotations.media.Schema;
 import lombok.Getter;
 import lombok.Setter;
@@ -13,4 +14,8 @@ import java.util.List;
 public class ReadingListDTO {
     @Schema(description = "List of readings")
     private List<Reading> readings;
+
+    @Schema(description = "Cursor of the next page of the history, absent on the last page", example = "2023-05")
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private String nextCursor;
 }
\ No newline at end of file
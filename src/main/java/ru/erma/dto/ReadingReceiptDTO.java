@@ -0,0 +1,31 @@
+package ru.erma.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+@Schema(description = "Data object representing the receipt of a queued reading")
+public record ReadingReceiptDTO(
+        @Schema(description = "Identifier of the receipt", example = "3f2b8c1e-4a57-4d0e-9a5b-2f6c0e1d7a90")
+        String receiptId,
+
+        @Schema(description = "Month of the reading", example = "1")
+        Integer month,
+
+        @Schema(description = "Year of the reading", example = "2022")
+        Integer year,
+
+        @Schema(description = "Processing status of the reading", example = "PENDING")
+        Status status,
+
+        @Schema(description = "Reason why the reading was not stored", example = "Reading for the specified month and year already exists!")
+        String message) {
+
+    /**
+     * The possible processing states of a queued reading.
+     */
+    public enum Status {
+        PENDING,
+        ACCEPTED,
+        DUPLICATE,
+        FAILED
+    }
+}
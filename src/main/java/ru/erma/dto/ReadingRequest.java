@@ -5,11 +5,15 @@ import jakarta.validation.constraints.Max;
 import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
+import ru.erma.validation.annotation.DateNotInFuture;
 import ru.erma.validation.annotation.ValidReadingValues;
 
+import java.math.BigDecimal;
 import java.util.Map;
+import java.util.Set;
 
 @Schema(description = "Data object representing a request for reading data")
+@DateNotInFuture
 public record ReadingRequest(
         @Schema(description = "Username of the user making the request", example = "john_doe")
         @NotBlank(message = "Username must be not blank.")
@@ -26,7 +30,22 @@ public record ReadingRequest(
         @Min(message = "Year should be not less than 2000", value = 2000)
         Integer year,
 
-        @Schema(description = "Map of reading types and their corresponding values", example = "{\"cold_water\": 56, \"heating\": 40, \"hot_water\": 44}")
+        @Schema(description = "Map of reading types and their corresponding values", example = "{\"cold_water\": 56.125, \"heating\": 40, \"hot_water\": 44.5}")
         @ValidReadingValues
-        Map<String,Integer> values) {
+        Map<String,BigDecimal> values,
+
+        @Schema(description = "Reading types whose meter was replaced or rolled over since the previous reading, their values may be lower than before", example = "[\"hot_water\"]")
+        Set<String> resetTypes) {
+
+    /**
+     * Constructs a new ReadingRequest without reset meters.
+     *
+     * @param username the username of the user
+     * @param month    the month of the readings
+     * @param year     the year of the readings
+     * @param values   the values of the reading types
+     */
+    public ReadingRequest(String username, Integer month, Integer year, Map<String, BigDecimal> values) {
+        this(username, month, year, values, null);
+    }
 }
\ No newline at end of file
@@ -0,0 +1,32 @@
+package ru.erma.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.math.BigDecimal;
+
+@Schema(description = "Data object representing the aggregates of the readings of all users for a reading type in a month")
+public record ReadingSummaryDTO(
+        @Schema(description = "Reading type", example = "heating")
+        String type,
+
+        @Schema(description = "Month of the readings", example = "2")
+        Integer month,
+
+        @Schema(description = "Year of the readings", example = "2023")
+        Integer year,
+
+        @Schema(description = "Sum of the values", example = "1250.5")
+        BigDecimal total,
+
+        @Schema(description = "Number of readings with a value", example = "25")
+        long count,
+
+        @Schema(description = "Average of the values", example = "50.02")
+        BigDecimal average,
+
+        @Schema(description = "Smallest value", example = "12")
+        BigDecimal min,
+
+        @Schema(description = "Largest value", example = "140.125")
+        BigDecimal max) {
+}
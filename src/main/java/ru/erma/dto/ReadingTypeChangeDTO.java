@@ -0,0 +1,53 @@
+package ru.erma.dto;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.time.LocalDateTime;
+
+@Schema(description = "Data object representing the progress of a change of the reading types")
+public record ReadingTypeChangeDTO(
+        @Schema(description = "Identifier of the change", example = "9b1d4f6e-2c3a-4e8b-a0f7-5d6c1b2e3f40")
+        String changeId,
+
+        @Schema(description = "Reading type being changed", example = "gas")
+        String type,
+
+        @Schema(description = "Kind of the change", example = "ADD")
+        Operation operation,
+
+        @Schema(description = "State of the change", example = "COMPLETED")
+        Status status,
+
+        @Schema(description = "Number of attempts made so far, an attempt is retried when the readings table stays locked", example = "1")
+        int attempts,
+
+        @Schema(description = "Reason why the change failed", example = "Reading type gas already exists.")
+        String message,
+
+        @Schema(description = "Time the change was requested", example = "2024-02-18 03:15:17")
+        @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "yyyy-MM-dd HH:mm:ss")
+        LocalDateTime requestedAt,
+
+        @Schema(description = "Time the change finished", example = "2024-02-18 03:15:18")
+        @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "yyyy-MM-dd HH:mm:ss")
+        LocalDateTime finishedAt) {
+
+    /**
+     * The kinds of changes of the reading types.
+     */
+    public enum Operation {
+        ADD,
+        REMOVE
+    }
+
+    /**
+     * The possible states of a change.
+     */
+    public enum Status {
+        PENDING,
+        RUNNING,
+        COMPLETED,
+        FAILED
+    }
+}
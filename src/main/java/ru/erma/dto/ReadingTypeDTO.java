@@ -0,0 +1,32 @@
+package ru.erma.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.math.BigDecimal;
+
+@Schema(description = "Data object representing a reading type with the rules its submitted values are checked against")
+public record ReadingTypeDTO(
+        @Schema(description = "Name of the reading type", example = "heating")
+        String type,
+
+        @Schema(description = "Number of decimal places of the values", example = "3")
+        int scale,
+
+        @Schema(description = "Unit the values are measured in", example = "Gcal")
+        String unit,
+
+        @Schema(description = "Smallest accepted value, not checked if absent", example = "0")
+        BigDecimal minValue,
+
+        @Schema(description = "Largest accepted value, not checked if absent", example = "100000")
+        BigDecimal maxValue,
+
+        @Schema(description = "Largest plausible increase of the value in one month, not checked if absent", example = "50")
+        BigDecimal maxMonthlyDelta,
+
+        @Schema(description = "Whether new values of the reading type are accepted", example = "true")
+        boolean active,
+
+        @Schema(description = "Whether a value must not be lower than the previous one, unless the meter was reset", example = "true")
+        boolean monotonic) {
+}
@@ -0,0 +1,28 @@
+package ru.erma.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.constraints.DecimalMin;
+import jakarta.validation.constraints.Size;
+
+import java.math.BigDecimal;
+
+@Schema(description = "Data object representing the rules of a reading type set by an admin")
+public record ReadingTypeRulesRequest(
+        @Schema(description = "Unit the values are measured in", example = "Gcal")
+        @Size(max = 32, message = "Unit should be at most 32 characters long") String unit,
+
+        @Schema(description = "Smallest accepted value, not checked if absent", example = "0")
+        @DecimalMin(value = "0", message = "Minimum value should not be negative") BigDecimal minValue,
+
+        @Schema(description = "Largest accepted value, not checked if absent", example = "100000")
+        @DecimalMin(value = "0", message = "Maximum value should not be negative") BigDecimal maxValue,
+
+        @Schema(description = "Largest plausible increase of the value in one month, not checked if absent", example = "50")
+        @DecimalMin(value = "0", message = "Maximum monthly delta should not be negative") BigDecimal maxMonthlyDelta,
+
+        @Schema(description = "Whether new values of the reading type are accepted, true if not specified", example = "true")
+        Boolean active,
+
+        @Schema(description = "Whether a value must not be lower than the previous one, unless the meter was reset, true if not specified", example = "true")
+        Boolean monotonic) {
+}
@@ -0,0 +1,19 @@
+package ru.erma.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import ru.erma.model.ReadingValues;
+
+@Schema(description = "Data object representing a reading together with the user it belongs to")
+public record UserReadingDTO(
+        @Schema(description = "Username of the user", example = "test_user")
+        String username,
+
+        @Schema(description = "Month of the reading", example = "1")
+        Integer month,
+
+        @Schema(description = "Year of the reading", example = "2022")
+        Integer year,
+
+        @Schema(description = "Map of reading values", type = "object", example = "{\"cold_water\": 56, \"heating\": 40, \"hot_water\": 44}")
+        ReadingValues values) {
+}
@@ -0,0 +1,16 @@
+package ru.erma.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import ru.erma.model.ReadingValues;
+
+@Schema(description = "Data object representing the consumption of a year")
+public record YearlyConsumptionDTO(
+        @Schema(description = "Year of the consumption", example = "2023")
+        Integer year,
+
+        @Schema(description = "Map of reading types and their total consumption over the year", type = "object", example = "{\"cold_water\": 42, \"heating\": 144}")
+        ReadingValues total,
+
+        @Schema(description = "Map of reading types and their average monthly consumption over the year", type = "object", example = "{\"cold_water\": 3.5, \"heating\": 12}")
+        ReadingValues average) {
+}
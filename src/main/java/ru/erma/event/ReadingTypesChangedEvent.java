@@ -0,0 +1,10 @@
+package ru.erma.event;
+
+/**
+ * This event is published after a reading type has been added to or removed from the readings structure.
+ * Components that cache anything derived from the set of reading types listen to it to drop stale entries.
+ *
+ * @param type the reading type that has been added or removed
+ */
+public record ReadingTypesChangedEvent(String type) {
+}
@@ -0,0 +1,10 @@
+package ru.erma.event;
+
+/**
+ * This event is published after a bulk import of readings has been committed.
+ * An import may add readings of any user, so components caching readings listen to it to drop all their entries.
+ *
+ * @param rowsImported the number of readings inserted by the import
+ */
+public record ReadingsImportedEvent(long rowsImported) {
+}
@@ -0,0 +1,19 @@
+package ru.erma.exception;
+
+/**
+ * The IngestionQueueFullException class is a custom exception class in Java.
+ * It is used to indicate that the reading ingestion queue cannot accept more readings at the moment.
+ * It contains one constructor that takes a message as a parameter.
+ * The message represents the detail message of the exception, which is saved for later retrieval by the Throwable.getMessage() method.
+ */
+public class IngestionQueueFullException extends RuntimeException{
+
+    /**
+     * Constructs a new IngestionQueueFullException with the specified detail message.
+     *
+     * @param message the detail message. The detail message is saved for later retrieval by the Throwable.getMessage() method.
+     */
+    public IngestionQueueFullException(String message) {
+        super(message);
+    }
+}
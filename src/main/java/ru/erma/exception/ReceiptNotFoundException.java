@@ -0,0 +1,19 @@
+package ru.erma.exception;
+
+/**
+ * The ReceiptNotFoundException class is a custom exception class in Java.
+ * It is used to indicate that a receipt of a queued reading was not found in the system.
+ * It contains one constructor that takes a message as a parameter.
+ * The message represents the detail message of the exception, which is saved for later retrieval by the Throwable.getMessage() method.
+ */
+public class ReceiptNotFoundException extends RuntimeException{
+
+    /**
+     * Constructs a new ReceiptNotFoundException with the specified detail message.
+     *
+     * @param message the detail message. The detail message is saved for later retrieval by the Throwable.getMessage() method.
+     */
+    public ReceiptNotFoundException(String message) {
+        super(message);
+    }
+}
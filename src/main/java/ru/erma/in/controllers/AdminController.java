@@ -5,60 +5,157 @@ import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import jakarta.validation.Valid;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import ru.erma.dto.*;
-import ru.erma.exception.TypeNotFoundException;
+import ru.erma.model.AuditFilter;
+import ru.erma.model.ReadingTypeRules;
+import ru.erma.service.AuditExportService;
 import ru.erma.service.AuditService;
+import ru.erma.service.AuditWriterService;
+import ru.erma.service.ReadingImportService;
+import ru.erma.service.ReadingExportService;
+import ru.erma.service.ReadingService;
+import ru.erma.service.ReadingSnapshotService;
 import ru.erma.service.ReadingStructureService;
+import ru.erma.service.ReadingTypeChangeService;
+import ru.erma.service.ReadingSummaryService;
 import ru.erma.service.SecurityService;
 
+import java.io.InputStream;
+import java.time.YearMonth;
 import java.util.List;
 
 
 @RestController
+@Validated
 @RequiredArgsConstructor
 @RequestMapping("/admin")
 public class AdminController {
     private final AuditService auditService;
+    private final AuditExportService auditExportService;
+    private final AuditWriterService auditWriterService;
+    private final ReadingTypeChangeService readingTypeChangeService;
     private final ReadingStructureService readingStructureService;
     private final SecurityService securityService;
+    private final ReadingImportService readingImportService;
+    private final ReadingService readingService;
+    private final ReadingSummaryService readingSummaryService;
+    private final ReadingSnapshotService readingSnapshotService;
 
-    @Operation(summary = "Get all audits")
+    @Operation(summary = "Get audits matching the filters, the most recent first, one page at a time")
     @GetMapping("/audits")
-    public ResponseEntity<List<AuditDTO>> getAllAudits(){
-        return ResponseEntity.ok(auditService.getAllAudits());
+    public ResponseEntity<AuditListDTO> getAudits(@RequestParam(required = false)
+                                                  @Parameter(description = "Username of the user who performed the action")
+                                                      String username,
+                                                  @RequestParam(required = false)
+                                                  @Parameter(description = "Action performed by the user")
+                                                      String action,
+                                                  @RequestParam(required = false)
+                                                  @Parameter(description = "Earliest time of the action, inclusive", example = "2024-01-01T00:00:00")
+                                                      String from,
+                                                  @RequestParam(required = false)
+                                                  @Parameter(description = "Latest time of the action, exclusive", example = "2024-02-01T00:00:00")
+                                                      String to,
+                                                  @RequestParam(defaultValue = "100")
+                                                  @Min(value = 1, message = "Limit should be not less than 1")
+                                                  @Max(value = 1000, message = "Limit should be not greater than 1000")
+                                                  @Parameter(description = "Maximum number of audits in the page")
+                                                      int limit,
+                                                  @RequestParam(required = false)
+                                                  @Parameter(description = "Cursor of the page, the nextCursor of the previous page")
+                                                      String after) {
+        AuditFilter filter = auditService.parseFilter(username, action, from, to);
+        return ResponseEntity.ok(auditService.getAudits(filter, limit, after));
+    }
+
+    @Operation(summary = "Export the audits matching the filters as JSON, streamed as the rows are read")
+    @GetMapping(value = "/audits/export", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> exportJsonAudits(@RequestParam(required = false) @Parameter(description = "Username") String username,
+                                                                  @RequestParam(required = false) @Parameter(description = "Action") String action,
+                                                                  @RequestParam(required = false) @Parameter(description = "Earliest time, inclusive") String from,
+                                                                  @RequestParam(required = false) @Parameter(description = "Latest time, exclusive") String to) {
+        AuditFilter filter = auditService.parseFilter(username, action, from, to);
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(out -> auditExportService.exportAudits(filter, ReadingExportService.Format.JSON, out));
+    }
+
+    @Operation(summary = "Export the audits matching the filters as NDJSON, streamed as the rows are read")
+    @GetMapping(value = "/audits/export", produces = "application/x-ndjson")
+    public ResponseEntity<StreamingResponseBody> exportNdjsonAudits(@RequestParam(required = false) @Parameter(description = "Username") String username,
+                                                                    @RequestParam(required = false) @Parameter(description = "Action") String action,
+                                                                    @RequestParam(required = false) @Parameter(description = "Earliest time, inclusive") String from,
+                                                                    @RequestParam(required = false) @Parameter(description = "Latest time, exclusive") String to) {
+        AuditFilter filter = auditService.parseFilter(username, action, from, to);
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType("application/x-ndjson"))
+                .body(out -> auditExportService.exportAudits(filter, ReadingExportService.Format.NDJSON, out));
+    }
+
+    @Operation(summary = "Get the statistics of the asynchronous audit writer")
+    @GetMapping("/audits/writer")
+    public ResponseEntity<AuditWriterStatsDTO> getAuditWriterStats() {
+        return ResponseEntity.ok(auditWriterService.getStats());
     }
 
     @Operation(summary = "Add a reading type")
     @ApiResponses(value = {
-            @ApiResponse(responseCode = "200", description = "Reading type added successfully"),
-            @ApiResponse(responseCode = "400", description = "Invalid request body")
+            @ApiResponse(responseCode = "202", description = "Addition of the reading type queued, see its progress"),
+            @ApiResponse(responseCode = "400", description = "Invalid request body or existing reading type")
     })
     @PostMapping
-    public ResponseEntity<SuccessResponse> addReadingType(@Valid @RequestBody @Parameter(description = "Admin request")
-                                                              AdminRequest adminRequest){
-        readingStructureService.addReadingType(adminRequest.type());
-        String message = "Reading type added successfully!";
-        return ResponseEntity.ok(new SuccessResponse(message));
-
+    public ResponseEntity<ReadingTypeChangeDTO> addReadingType(@Valid @RequestBody @Parameter(description = "Admin request")
+                                                                   AdminRequest adminRequest){
+        ReadingTypeChangeDTO change = readingTypeChangeService.addReadingType(adminRequest.type(), adminRequest.scale());
+        return ResponseEntity.accepted().body(change);
     }
 
     @Operation(summary = "Remove a reading type")
     @ApiResponses(value = {
-            @ApiResponse(responseCode = "200", description = "Reading type removed successfully"),
+            @ApiResponse(responseCode = "202", description = "Removal of the reading type queued, see its progress"),
             @ApiResponse(responseCode = "404", description = "Reading type not found")
     })
     @DeleteMapping("/{type}")
-    public ResponseEntity<SuccessResponse> removeReadingType(@PathVariable @Parameter(description = "Admin request")
-                                                                 String type){
-        boolean removed = readingStructureService.removeReadingType(type);
-        if(removed) {
-            String message = "Reading type removed successfully!";
-            return ResponseEntity.ok(new SuccessResponse(message));
-        } else throw new TypeNotFoundException("Reading type not found");
+    public ResponseEntity<ReadingTypeChangeDTO> removeReadingType(@PathVariable @Parameter(description = "Admin request")
+                                                                      String type){
+        ReadingTypeChangeDTO change = readingTypeChangeService.removeReadingType(type);
+        return ResponseEntity.accepted().body(change);
+    }
 
+    @Operation(summary = "Get the reading types with their rules")
+    @GetMapping("/types")
+    public ResponseEntity<List<ReadingTypeDTO>> getReadingTypes() {
+        return ResponseEntity.ok(readingStructureService.getReadingTypeDetails());
+    }
+
+    @Operation(summary = "Set the rules of a reading type")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Rules of the reading type changed"),
+            @ApiResponse(responseCode = "400", description = "Invalid request body"),
+            @ApiResponse(responseCode = "404", description = "Reading type not found")
+    })
+    @PutMapping("/types/{type}")
+    public ResponseEntity<SuccessResponse> updateReadingTypeRules(@PathVariable @Parameter(description = "Reading type") String type,
+                                                                  @Valid @RequestBody @Parameter(description = "Rules of the reading type")
+                                                                  ReadingTypeRulesRequest request) {
+        ReadingTypeRules rules = new ReadingTypeRules(request.unit(), request.minValue(), request.maxValue(),
+                request.maxMonthlyDelta(), request.active() == null || request.active(),
+                request.monotonic() == null || request.monotonic());
+        readingStructureService.updateReadingTypeRules(type, rules);
+        return ResponseEntity.ok(new SuccessResponse("Rules of reading type " + type + " successfully changed."));
+    }
+
+    @Operation(summary = "Get the progress of recent changes of the reading types")
+    @GetMapping("/types/changes")
+    public ResponseEntity<List<ReadingTypeChangeDTO>> getReadingTypeChanges() {
+        return ResponseEntity.ok(readingTypeChangeService.getChanges());
     }
 
     @Operation(summary = "Assign admin role to a user")
@@ -73,4 +170,78 @@ public class AdminController {
         String message = "User with username " + assignDTO.username() + " successfully assigned the admin role.";
         return ResponseEntity.ok(new SuccessResponse(message));
     }
+
+    @Operation(summary = "Import readings from a CSV body")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Readings imported, see the counts of imported and skipped rows"),
+            @ApiResponse(responseCode = "400", description = "Invalid header or rows")
+    })
+    @PostMapping(value = "/readings/import", consumes = "text/csv")
+    public ResponseEntity<ReadingImportDTO> importCsvReadings(@Parameter(description = "CSV with a header") InputStream body) {
+        ReadingImportDTO result = readingImportService.importReadings(ReadingImportService.Format.CSV, body);
+        return ResponseEntity.ok(result);
+    }
+
+    @Operation(summary = "Import readings from an NDJSON body")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Readings imported, see the counts of imported and skipped rows"),
+            @ApiResponse(responseCode = "400", description = "Invalid rows")
+    })
+    @PostMapping(value = "/readings/import", consumes = "application/x-ndjson")
+    public ResponseEntity<ReadingImportDTO> importNdjsonReadings(@Parameter(description = "One JSON object per line") InputStream body) {
+        ReadingImportDTO result = readingImportService.importReadings(ReadingImportService.Format.NDJSON, body);
+        return ResponseEntity.ok(result);
+    }
+
+    @Operation(summary = "Get the progress of recent imports")
+    @GetMapping("/readings/imports")
+    public ResponseEntity<List<ReadingImportDTO>> getImports() {
+        return ResponseEntity.ok(readingImportService.getImports());
+    }
+
+    @Operation(summary = "Get the monthly aggregates of the readings of all users per reading type")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Aggregates of the requested periods"),
+            @ApiResponse(responseCode = "400", description = "Invalid period")
+    })
+    @GetMapping("/readings/summary")
+    public ResponseEntity<List<ReadingSummaryDTO>> getReadingSummary(@RequestParam(required = false)
+                                                                     @Parameter(description = "First period in the yyyy-MM format") String from,
+                                                                     @RequestParam(required = false)
+                                                                     @Parameter(description = "Last period in the yyyy-MM format") String to) {
+        return ResponseEntity.ok(readingSummaryService.getSummary(from, to));
+    }
+
+    @Operation(summary = "Rebuild the reading summary from all readings")
+    @PostMapping("/readings/summary/rebuild")
+    public ResponseEntity<SuccessResponse> rebuildReadingSummary() {
+        int rows = readingSummaryService.rebuild();
+        return ResponseEntity.ok(new SuccessResponse("Reading summary rebuilt with " + rows + " rows."));
+    }
+
+    @Operation(summary = "Export the readings of all users for a period as JSON, ordered by username")
+    @GetMapping(value = "/readings/snapshot", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> exportJsonSnapshot(@RequestParam @Parameter(description = "Period, yyyy-MM", example = "2023-06")
+                                                                        String period) {
+        YearMonth yearMonth = readingSnapshotService.parsePeriod(period);
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(out -> readingSnapshotService.exportPeriod(yearMonth, ReadingExportService.Format.JSON, out));
+    }
+
+    @Operation(summary = "Export the readings of all users for a period as NDJSON, ordered by username")
+    @GetMapping(value = "/readings/snapshot", produces = "application/x-ndjson")
+    public ResponseEntity<StreamingResponseBody> exportNdjsonSnapshot(@RequestParam @Parameter(description = "Period, yyyy-MM", example = "2023-06")
+                                                                          String period) {
+        YearMonth yearMonth = readingSnapshotService.parsePeriod(period);
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType("application/x-ndjson"))
+                .body(out -> readingSnapshotService.exportPeriod(yearMonth, ReadingExportService.Format.NDJSON, out));
+    }
+
+    @Operation(summary = "Get the statistics of the reading query cache")
+    @GetMapping("/readings/cache")
+    public ResponseEntity<ReadingCacheStatsDTO> getCacheStats() {
+        return ResponseEntity.ok(readingService.getCacheStats());
+    }
 }
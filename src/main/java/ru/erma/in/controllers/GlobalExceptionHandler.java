@@ -30,6 +30,18 @@ public class GlobalExceptionHandler {
         return createErrorResponse(ex.getMessage(), HttpStatus.NOT_FOUND, request);
     }
 
+    @ExceptionHandler(ReceiptNotFoundException.class)
+    @ResponseStatus(HttpStatus.NOT_FOUND)
+    public ErrorResponse handleReceiptNotFoundException(ReceiptNotFoundException ex ,WebRequest request) {
+        return createErrorResponse(ex.getMessage(), HttpStatus.NOT_FOUND, request);
+    }
+
+    @ExceptionHandler(IngestionQueueFullException.class)
+    @ResponseStatus(HttpStatus.TOO_MANY_REQUESTS)
+    public ErrorResponse handleIngestionQueueFullException(IngestionQueueFullException ex ,WebRequest request) {
+        return createErrorResponse(ex.getMessage(), HttpStatus.TOO_MANY_REQUESTS, request);
+    }
+
     @ExceptionHandler(AuthorizeException.class)
     @ResponseStatus(HttpStatus.UNAUTHORIZED)
     public ErrorResponse handleAuthorizeException(AuthorizeException ex ,WebRequest request) {
@@ -5,46 +5,156 @@ import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import jakarta.validation.Valid;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.util.StringUtils;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
-import ru.erma.dto.ReadingDTO;
-import ru.erma.dto.ReadingListDTO;
-import ru.erma.dto.ReadingRequest;
-import ru.erma.dto.SuccessResponse;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import ru.erma.dto.*;
 import ru.erma.exception.AuthorizeException;
+import ru.erma.exception.NotValidArgumentException;
+import ru.erma.service.ReadingExportService;
 import ru.erma.service.ReadingService;
+import ru.erma.validation.validator.ReadingRequestValidator;
+
+import java.util.Objects;
 
 @RestController
 @RequiredArgsConstructor
 @RequestMapping("/readings")
 @Validated
 public class ReadingController {
+    private static final CacheControl REVALIDATE = CacheControl.noCache().cachePrivate();
+
     private final ReadingService readingService;
+    private final ReadingExportService readingExportService;
+    private final ReadingRequestValidator readingRequestValidator;
 
     @Operation(summary = "Get actual readings")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Actual readings with their entity tag"),
+            @ApiResponse(responseCode = "304", description = "Readings have not changed since the entity tag in If-None-Match")
+    })
     @GetMapping("/actual/{username}")
     public ResponseEntity<ReadingDTO> getActualReadings(@PathVariable @Parameter(description = "Username")
-                                                            String username){
+                                                            String username,
+                                                        WebRequest webRequest){
         validateUsername(username);
 
-        ReadingDTO readingDTO = readingService.getActualReadings(username);
-        return ResponseEntity.ok(readingDTO);
+        String version = readingService.getReadingsVersion(username);
+        String eTag = readingService.getReadingsTag(version, variant(webRequest));
+        if (webRequest.checkNotModified(eTag)) {
+            return notModified();
+        }
+        ReadingDTO readingDTO = readingService.getActualReadings(username, version);
+        return ResponseEntity.ok().eTag(eTag).cacheControl(REVALIDATE).varyBy(HttpHeaders.ACCEPT).body(readingDTO);
     }
 
-    @Operation(summary = "Get readings history")
+    @Operation(summary = "Get readings history, the most recent period first, one page at a time")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Page of the readings history with its entity tag"),
+            @ApiResponse(responseCode = "304", description = "Readings have not changed since the entity tag in If-None-Match")
+    })
     @GetMapping("/history/{username}")
     public ResponseEntity<ReadingListDTO> getReadingsHistory(@PathVariable @Parameter(description = "Username")
-                                                                 String username){
+                                                                 String username,
+                                                             @RequestParam(defaultValue = "100")
+                                                             @Min(value = 1, message = "Limit should be not less than 1")
+                                                             @Max(value = 1000, message = "Limit should be not greater than 1000")
+                                                             @Parameter(description = "Maximum number of readings in the page")
+                                                                 int limit,
+                                                             @RequestParam(required = false)
+                                                             @Parameter(description = "Cursor of the page, the nextCursor of the previous page")
+                                                                 String after,
+                                                             WebRequest webRequest){
+        validateUsername(username);
+
+        String version = readingService.getReadingsVersion(username);
+        String eTag = readingService.getReadingsTag(version, variant(webRequest));
+        if (webRequest.checkNotModified(eTag)) {
+            return notModified();
+        }
+        ReadingListDTO readingListDTO = readingService.getReadingHistory(username, limit, after, version);
+        return ResponseEntity.ok().eTag(eTag).cacheControl(REVALIDATE).varyBy(HttpHeaders.ACCEPT).body(readingListDTO);
+    }
+
+    @Operation(summary = "Export all readings as JSON, streamed as the rows are read")
+    @GetMapping(value = "/export/{username}", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> exportJsonReadings(@PathVariable @Parameter(description = "Username")
+                                                                        String username){
+        validateUsername(username);
+
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(out -> readingExportService.exportReadings(username, ReadingExportService.Format.JSON, out));
+    }
+
+    @Operation(summary = "Export all readings as NDJSON, streamed as the rows are read")
+    @GetMapping(value = "/export/{username}", produces = "application/x-ndjson")
+    public ResponseEntity<StreamingResponseBody> exportNdjsonReadings(@PathVariable @Parameter(description = "Username")
+                                                                          String username){
+        validateUsername(username);
+
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType("application/x-ndjson"))
+                .body(out -> readingExportService.exportReadings(username, ReadingExportService.Format.NDJSON, out));
+    }
+
+    @Operation(summary = "Export all readings as CBOR, streamed as the rows are read")
+    @GetMapping(value = "/export/{username}", produces = "application/cbor")
+    public ResponseEntity<StreamingResponseBody> exportCborReadings(@PathVariable @Parameter(description = "Username")
+                                                                        String username){
+        validateUsername(username);
+
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType("application/cbor"))
+                .body(out -> readingExportService.exportReadings(username, ReadingExportService.Format.CBOR, out));
+    }
+
+    @Operation(summary = "Export all readings in blocks of columns, streamed as the rows are read")
+    @GetMapping(value = "/export/{username}", produces = ReadingColumnsDTO.MEDIA_TYPE)
+    public ResponseEntity<StreamingResponseBody> exportColumnarReadings(@PathVariable @Parameter(description = "Username")
+                                                                            String username){
         validateUsername(username);
 
-        ReadingListDTO readingListDTO = readingService.getReadingHistory(username);
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(ReadingColumnsDTO.MEDIA_TYPE))
+                .body(out -> readingExportService.exportReadings(username, ReadingExportService.Format.COLUMNAR, out));
+    }
+
+    @Operation(summary = "Get readings for a range of periods, both inclusive, the oldest period first")
+    @GetMapping("/{username}")
+    public ResponseEntity<ReadingListDTO> getReadingsBetween(@PathVariable @Parameter(description = "Username") String username,
+                                                             @RequestParam @Parameter(description = "First period, yyyy-MM", example = "2021-07")
+                                                                 String from,
+                                                             @RequestParam @Parameter(description = "Last period, yyyy-MM", example = "2023-06")
+                                                                 String to) {
+        validateUsername(username);
+
+        ReadingListDTO readingListDTO = readingService.getReadingsBetween(username, from, to);
         return ResponseEntity.ok(readingListDTO);
     }
 
+    @Operation(summary = "Get monthly consumption and yearly totals and averages computed from the readings")
+    @GetMapping("/analytics/{username}")
+    public ResponseEntity<ConsumptionReportDTO> getConsumption(@PathVariable @Parameter(description = "Username")
+                                                                   String username){
+        validateUsername(username);
+
+        ConsumptionReportDTO report = readingService.getConsumption(username);
+        return ResponseEntity.ok(report);
+    }
+
     @Operation(summary = "Get readings for a specific month")
     @GetMapping("/{username}/{month}/{year}")
     public ResponseEntity<ReadingListDTO> getReadingsForMonth( @PathVariable @Parameter(description = "Username") String username,
@@ -59,18 +169,74 @@ public class ReadingController {
     @Operation(summary = "Submit readings")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Reading submitted successfully"),
-            @ApiResponse(responseCode = "400", description = "Invalid request body")
+            @ApiResponse(responseCode = "202", description = "Reading queued, see the receipt for the outcome"),
+            @ApiResponse(responseCode = "400", description = "Invalid request body"),
+            @ApiResponse(responseCode = "429", description = "Reading queue is full")
     })
     @PostMapping
-    public ResponseEntity<SuccessResponse> submitReadings(@Valid @RequestBody  @Parameter(description = "Reading request")
+    public ResponseEntity<?> submitReadings(@RequestBody  @Parameter(description = "Reading request")
                                                               ReadingRequest request){
+        String violations = readingRequestValidator.validate(request);
+        if (violations != null) {
+            throw new NotValidArgumentException(violations);
+        }
         validateUsername(request.username());
 
+        if (readingService.isAsyncIngestion()) {
+            ReadingReceiptDTO receipt = readingService.queueReadings(request);
+            return ResponseEntity.accepted().body(receipt);
+        }
         readingService.submitReadings(request);
         String message = "Reading submitted successfully!";
         return ResponseEntity.ok(new SuccessResponse(message));
     }
 
+    @Operation(summary = "Submit a batch of readings")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Batch processed, see the status of every reading"),
+            @ApiResponse(responseCode = "400", description = "Invalid request body")
+    })
+    @PostMapping("/batch")
+    public ResponseEntity<ReadingBatchResponse> submitReadingsBatch(@Valid @RequestBody @Parameter(description = "Reading batch request")
+                                                                        ReadingBatchRequest request){
+        request.readings().stream()
+                .filter(Objects::nonNull)
+                .map(ReadingRequest::username)
+                .filter(StringUtils::hasText)
+                .forEach(this::validateUsername);
+
+        ReadingBatchResponse response = readingService.submitReadingsBatch(request);
+        return ResponseEntity.ok(response);
+    }
+
+    @Operation(summary = "Get the receipt of queued readings")
+    @GetMapping("/receipts/{receiptId}")
+    public ResponseEntity<ReadingReceiptDTO> getReceipt(@PathVariable @Parameter(description = "Receipt id")
+                                                            String receiptId){
+        String username = SecurityContextHolder.getContext().getAuthentication().getName();
+
+        ReadingReceiptDTO receipt = readingService.getReceipt(receiptId, username);
+        return ResponseEntity.ok(receipt);
+    }
+
+    /**
+     * Builds the response to a conditional request whose entity tag still matches,
+     * the entity tag itself is already set by WebRequest.checkNotModified.
+     * The cache control is repeated, so the client keeps revalidating its copy instead of dropping it.
+     */
+    private static <T> ResponseEntity<T> notModified() {
+        return ResponseEntity.status(HttpStatus.NOT_MODIFIED).cacheControl(REVALIDATE).varyBy(HttpHeaders.ACCEPT).build();
+    }
+
+    /**
+     * Identifies the representation negotiated for a request by its Accept header,
+     * so that JSON, CBOR and columnar responses of the same readings get different entity tags.
+     */
+    private static String variant(WebRequest webRequest) {
+        String accept = webRequest.getHeader(HttpHeaders.ACCEPT);
+        return accept == null ? null : Integer.toHexString(accept.hashCode());
+    }
+
     private void validateUsername(String  username) {
         Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
         String usernameFromToken = authentication.getName();
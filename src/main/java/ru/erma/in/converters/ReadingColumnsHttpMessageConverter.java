@@ -0,0 +1,60 @@
+package ru.erma.in.converters;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.stereotype.Component;
+import ru.erma.dto.ReadingColumnsDTO;
+import ru.erma.dto.ReadingListDTO;
+
+import java.io.IOException;
+
+/**
+ * This converter writes a ReadingListDTO in the columnar shape of ReadingColumnsDTO
+ * when the client accepts the columnar media type, so every endpoint returning a list of readings supports it
+ * through content negotiation. It cannot read request bodies.
+ * It never offers its media type on its own, so a client accepting any media type still gets JSON:
+ * the columnar media type is producible only because the JSON converter supports every application/*+json type.
+ */
+@Component
+public class ReadingColumnsHttpMessageConverter extends AbstractHttpMessageConverter<ReadingListDTO> {
+
+    private final ObjectMapper objectMapper;
+
+    public ReadingColumnsHttpMessageConverter(ObjectMapper objectMapper) {
+        super(MediaType.parseMediaType(ReadingColumnsDTO.MEDIA_TYPE));
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    protected boolean supports(Class<?> clazz) {
+        return ReadingListDTO.class.isAssignableFrom(clazz);
+    }
+
+    @Override
+    public boolean canWrite(Class<?> clazz, MediaType mediaType) {
+        return mediaType != null && super.canWrite(clazz, mediaType);
+    }
+
+    @Override
+    protected boolean canRead(MediaType mediaType) {
+        return false;
+    }
+
+    @Override
+    protected ReadingListDTO readInternal(Class<? extends ReadingListDTO> clazz, HttpInputMessage inputMessage) {
+        throw new HttpMessageNotReadableException("Reading lists in columns cannot be read", inputMessage);
+    }
+
+    @Override
+    protected void writeInternal(ReadingListDTO readingList, HttpOutputMessage outputMessage) throws IOException {
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(outputMessage.getBody())) {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            objectMapper.writeValue(generator, ReadingColumnsDTO.of(readingList));
+        }
+    }
+}
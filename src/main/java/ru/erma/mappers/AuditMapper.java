@@ -21,4 +21,12 @@ public interface AuditMapper {
      * @return a list of AuditDTO objects
      */
     List<AuditDTO> toAuditListDTO(List<Audit> audits);
-}
\ No newline at end of file
+
+    /**
+     * This method is used to convert an Audit object into an AuditDTO object.
+     *
+     * @param audit the Audit object to convert
+     * @return an AuditDTO object
+     */
+    AuditDTO toAuditDTO(Audit audit);
+}
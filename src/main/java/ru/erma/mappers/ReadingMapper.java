@@ -1,12 +1,17 @@
 package ru.erma.mappers;
 
+import org.mapstruct.Context;
 import org.mapstruct.Mapper;
 import ru.erma.dto.ReadingDTO;
 import ru.erma.dto.ReadingListDTO;
 import ru.erma.dto.ReadingRequest;
 import ru.erma.model.Reading;
+import ru.erma.model.ReadingSchema;
+import ru.erma.model.ReadingValues;
 
+import java.math.BigDecimal;
 import java.util.List;
+import java.util.Map;
 
 /**
  * This interface is used to map between ReadingRequest, ReadingDTO, ReadingListDTO objects and Reading entities.
@@ -18,13 +23,18 @@ public interface ReadingMapper {
 
     /**
      * This method converts a ReadingRequest object to a Reading entity.
+     * The values of the request are indexed by the ordinals of the given schema.
+     *
      * @param readingRequest the ReadingRequest object
+     * @param schema the snapshot of the reading types
      * @return the Reading entity
      */
-    Reading toReading(ReadingRequest readingRequest);
+    Reading toReading(ReadingRequest readingRequest, @Context ReadingSchema schema);
 
     /**
      * This method converts a Reading entity to a ReadingDTO object.
+     * The values are shared with the Reading entity, they are not copied.
+     *
      * @param reading the Reading entity
      * @return the ReadingDTO object
      */
@@ -43,4 +53,14 @@ public interface ReadingMapper {
         return readingListDTO;
     }
 
-}
\ No newline at end of file
+    /**
+     * This method converts a map of reading types and decimal values to fixed-point ReadingValues indexed by the given schema.
+     *
+     * @param values the map of reading types and values
+     * @param schema the snapshot of the reading types
+     * @return the ReadingValues
+     */
+    default ReadingValues toReadingValues(Map<String, BigDecimal> values, @Context ReadingSchema schema) {
+        return ReadingValues.of(schema, values);
+    }
+}
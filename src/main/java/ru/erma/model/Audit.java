@@ -1,7 +1,6 @@
 package ru.erma.model;
 
 import com.fasterxml.jackson.annotation.JsonFormat;
-import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
@@ -15,13 +14,28 @@ import java.time.LocalDateTime;
  */
 @Getter
 @Setter
-@AllArgsConstructor
 @NoArgsConstructor
 public class Audit {
+   private Long id;
+
    String username;
 
    @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "yyyy-MM-dd HH:mm:ss")
    LocalDateTime timestamp;
 
    private String action;
+
+   /**
+    * Constructs a new audit record, its id is assigned by the database.
+    * The aspect of the audit starter creates the records with this constructor.
+    *
+    * @param username  the username of the user who performed the action
+    * @param timestamp the time the action was performed at
+    * @param action    the action performed by the user
+    */
+   public Audit(String username, LocalDateTime timestamp, String action) {
+      this.username = username;
+      this.timestamp = timestamp;
+      this.action = action;
+   }
 }
@@ -0,0 +1,14 @@
+package ru.erma.model;
+
+import java.time.LocalDateTime;
+
+/**
+ * The AuditCursor record represents the position of the last audit record of a page.
+ * Audit records are ordered by their timestamp and id, most recent first, so the following page starts
+ * with the first record ordered after this position.
+ *
+ * @param timestamp the timestamp of the last audit record of the page
+ * @param id        the id of the last audit record of the page
+ */
+public record AuditCursor(LocalDateTime timestamp, long id) {
+}
@@ -0,0 +1,15 @@
+package ru.erma.model;
+
+import java.time.LocalDateTime;
+
+/**
+ * The AuditFilter record represents the conditions audit records are selected by.
+ * Every condition is optional, a null condition selects all audit records.
+ *
+ * @param username the username of the user who performed the action
+ * @param action   the action performed by the user
+ * @param from     the earliest time of the action, inclusive
+ * @param to       the latest time of the action, exclusive
+ */
+public record AuditFilter(String username, String action, LocalDateTime from, LocalDateTime to) {
+}
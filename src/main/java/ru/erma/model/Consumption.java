@@ -0,0 +1,24 @@
+package ru.erma.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * This class represents the consumption of a user over a month or a whole year.
+ * The consumption of a month is the difference between its reading and the previous reading.
+ * For a month the total and the average are the same, for a year they are the sum and the average of its monthly consumption.
+ */
+@Getter
+@AllArgsConstructor
+public class Consumption {
+    private Integer year;
+
+    /**
+     * The month of the consumption, or null for the consumption of the whole year.
+     */
+    private Integer month;
+
+    private ReadingValues total;
+
+    private ReadingValues average;
+}
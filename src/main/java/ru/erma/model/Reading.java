@@ -4,11 +4,9 @@ import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
 
-import java.util.Map;
-
 /**
  * This class represents a Reading in the system.
- * A Reading has a month, year, and a map of values.
+ * A Reading has a month, year, and the values of its reading types.
  */
 @Getter
 @Setter
@@ -18,5 +16,5 @@ public class Reading {
 
     private Integer year;
 
-    private Map<String,Integer> values;
+    private ReadingValues values;
 }
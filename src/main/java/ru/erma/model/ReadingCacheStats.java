@@ -0,0 +1,21 @@
+package ru.erma.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * This class represents the statistics of the cache of reading queries.
+ */
+@Getter
+@AllArgsConstructor
+public class ReadingCacheStats {
+    private boolean enabled;
+
+    private long size;
+
+    private long hits;
+
+    private long misses;
+
+    private long evictions;
+}
@@ -0,0 +1,19 @@
+package ru.erma.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * This class represents the outcome of a bulk import of readings.
+ * It holds the number of rows read from the source, the number of rows that passed the checks
+ * and the number of rows that were actually inserted.
+ */
+@Getter
+@AllArgsConstructor
+public class ReadingImportResult {
+    private long rowsRead;
+
+    private long rowsValid;
+
+    private long rowsImported;
+}
@@ -0,0 +1,144 @@
+package ru.erma.model;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * This class represents an immutable snapshot of the reading types.
+ * Every reading type has an ordinal, its position in the snapshot, which is used to index the values of a reading,
+ * a scale, the number of decimal places of its values, the SQL expression of its values in the readings table,
+ * and the rules its submitted values are checked against, which are looked up by the ordinal in constant time.
+ * A new snapshot with a higher version is created whenever the reading types change.
+ */
+public final class ReadingSchema {
+
+    /**
+     * The largest supported scale of a reading type.
+     */
+    public static final int MAX_SCALE = 6;
+
+    private static final long[] POWERS_OF_TEN = {1, 10, 100, 1_000, 10_000, 100_000, 1_000_000};
+
+    private final long version;
+
+    private final List<String> types;
+
+    private final List<String> columns;
+
+    private final int[] scales;
+
+    private final long[] factors;
+
+    private final ReadingTypeRules[] rules;
+
+    private final Map<String, Integer> ordinals;
+
+    /**
+     * Constructs a new ReadingSchema.
+     *
+     * @param version the version of the snapshot.
+     * @param readingTypes the reading types in ordinal order.
+     */
+    public ReadingSchema(long version, List<ReadingType> readingTypes) {
+        this.version = version;
+        this.types = readingTypes.stream().map(ReadingType::getName).toList();
+        this.columns = readingTypes.stream().map(ReadingType::getColumn).toList();
+        this.scales = new int[readingTypes.size()];
+        this.factors = new long[readingTypes.size()];
+        this.rules = new ReadingTypeRules[readingTypes.size()];
+        this.ordinals = new HashMap<>();
+        for (int i = 0; i < readingTypes.size(); i++) {
+            scales[i] = readingTypes.get(i).getScale();
+            factors[i] = POWERS_OF_TEN[scales[i]];
+            rules[i] = readingTypes.get(i).getRules();
+            ordinals.put(types.get(i), i);
+        }
+    }
+
+    public long version() {
+        return version;
+    }
+
+    public List<String> types() {
+        return types;
+    }
+
+    public int size() {
+        return types.size();
+    }
+
+    public String type(int ordinal) {
+        return types.get(ordinal);
+    }
+
+    /**
+     * Returns the SQL expression the values of a reading type are stored in within the readings table.
+     * It can be used wherever the readings table or a copy of its columns is selected from.
+     *
+     * @param ordinal the ordinal of the reading type
+     * @return a column name or an element of the array of values
+     */
+    public String column(int ordinal) {
+        return columns.get(ordinal);
+    }
+
+    /**
+     * Returns the scale of a reading type, the number of decimal places of its values.
+     *
+     * @param ordinal the ordinal of the reading type
+     * @return the scale
+     */
+    public int scale(int ordinal) {
+        return scales[ordinal];
+    }
+
+    /**
+     * Returns ten to the power of the scale of a reading type, the number of units of a value in one whole.
+     *
+     * @param ordinal the ordinal of the reading type
+     * @return the factor between a value and its fixed-point representation
+     */
+    public long factor(int ordinal) {
+        return factors[ordinal];
+    }
+
+    /**
+     * Returns the rules the submitted values of a reading type are checked against.
+     *
+     * @param ordinal the ordinal of the reading type
+     * @return the rules
+     */
+    public ReadingTypeRules rules(int ordinal) {
+        return rules[ordinal];
+    }
+
+    /**
+     * Finds the ordinal of a reading type.
+     *
+     * @param type the reading type
+     * @return the ordinal of the reading type, or -1 if the snapshot does not contain it
+     */
+    public int ordinal(String type) {
+        Integer ordinal = ordinals.get(type);
+        return ordinal == null ? -1 : ordinal;
+    }
+
+    public boolean contains(String type) {
+        return ordinals.containsKey(type);
+    }
+
+    /**
+     * Returns the reading types of the snapshot with their scales and rules.
+     *
+     * @return a new list of the reading types in ordinal order
+     */
+    public List<ReadingType> readingTypes() {
+        List<ReadingType> readingTypes = new ArrayList<>(types.size());
+        for (int i = 0; i < types.size(); i++) {
+            readingTypes.add(new ReadingType(types.get(i), scales[i], columns.get(i), rules[i]));
+        }
+        return readingTypes;
+    }
+}
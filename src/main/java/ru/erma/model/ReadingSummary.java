@@ -0,0 +1,27 @@
+package ru.erma.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.math.BigDecimal;
+
+/**
+ * This class represents the aggregates of the readings of all users for one reading type in one month.
+ */
+@Getter
+@AllArgsConstructor
+public class ReadingSummary {
+    private String type;
+
+    private int year;
+
+    private int month;
+
+    private BigDecimal total;
+
+    private long count;
+
+    private BigDecimal min;
+
+    private BigDecimal max;
+}
@@ -0,0 +1,44 @@
+package ru.erma.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * This class represents a reading type in the system.
+ * A reading type has a name, a scale, the number of decimal places stored for its values,
+ * the SQL expression its values are stored in within the readings table:
+ * a column named like the type in the wide storage model, or an element of the array of values in the packed one,
+ * and the rules its submitted values are checked against.
+ */
+@Getter
+@AllArgsConstructor
+public class ReadingType {
+    private String name;
+
+    private int scale;
+
+    private String column;
+
+    private ReadingTypeRules rules;
+
+    /**
+     * Constructs a new ReadingType with the default rules.
+     *
+     * @param name   the name of the reading type.
+     * @param scale  the number of decimal places of its values.
+     * @param column the SQL expression its values are stored in.
+     */
+    public ReadingType(String name, int scale, String column) {
+        this(name, scale, column, ReadingTypeRules.DEFAULT);
+    }
+
+    /**
+     * Constructs a new ReadingType stored in the column named like the type.
+     *
+     * @param name  the name of the reading type.
+     * @param scale the number of decimal places of its values.
+     */
+    public ReadingType(String name, int scale) {
+        this(name, scale, name);
+    }
+}
@@ -0,0 +1,36 @@
+package ru.erma.model;
+
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+
+import java.math.BigDecimal;
+
+/**
+ * This class represents the metadata of a reading type that submitted values are checked against.
+ * A bound that is null is not checked. Values of an inactive reading type are kept and can be read,
+ * but no new values of it are accepted. A value of a monotonic reading type must not be lower than the previous value
+ * of the user, since the meter only counts up, unless the meter was reset.
+ */
+@Getter
+@AllArgsConstructor
+@EqualsAndHashCode
+public class ReadingTypeRules {
+
+    /**
+     * The rules of a monotonic reading type without a unit and bounds that accepts new values.
+     */
+    public static final ReadingTypeRules DEFAULT = new ReadingTypeRules(null, null, null, null, true, true);
+
+    private final String unit;
+
+    private final BigDecimal minValue;
+
+    private final BigDecimal maxValue;
+
+    private final BigDecimal maxMonthlyDelta;
+
+    private final boolean active;
+
+    private final boolean monotonic;
+}
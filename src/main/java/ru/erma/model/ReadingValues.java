@@ -0,0 +1,276 @@
+package ru.erma.model;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.*;
+import java.util.function.ObjLongConsumer;
+
+/**
+ * This class represents the values of a reading.
+ * The values are kept as fixed-point numbers in a primitive array indexed by the ordinals of a ReadingSchema snapshot:
+ * every value is stored unscaled, as the number of units of its reading type's scale, so 12.345 with scale 3 is 12345.
+ * A reading type without a value is marked as absent.
+ * It is serialized to JSON as an object of reading types and decimal values without creating an intermediate map
+ * or BigDecimal instances.
+ */
+@JsonSerialize(using = ReadingValues.Serializer.class)
+@Schema(description = "Map of reading types and their values", type = "object",
+        additionalPropertiesSchema = BigDecimal.class, example = "{\"cold_water\": 56.125, \"heating\": 40, \"hot_water\": 44.5}")
+public final class ReadingValues {
+
+    private static final long ABSENT = Long.MIN_VALUE;
+
+    private final ReadingSchema schema;
+
+    private final long[] values;
+
+    /**
+     * Constructs new ReadingValues without any value.
+     *
+     * @param schema the snapshot of the reading types the values are indexed by.
+     */
+    public ReadingValues(ReadingSchema schema) {
+        this.schema = schema;
+        this.values = new long[schema.size()];
+        Arrays.fill(values, ABSENT);
+    }
+
+    /**
+     * Creates ReadingValues from a map of reading types and decimal values.
+     * Null values are treated as absent.
+     * If the map contains a reading type unknown to the schema, it throws an IllegalArgumentException.
+     * If a value has more decimal places than the scale of its reading type or does not fit, it throws an ArithmeticException.
+     *
+     * @param schema the snapshot of the reading types
+     * @param map    the map of reading types and values
+     * @return the values of the map indexed by the schema
+     */
+    public static ReadingValues of(ReadingSchema schema, Map<String, BigDecimal> map) {
+        ReadingValues readingValues = new ReadingValues(schema);
+        if (map != null) {
+            map.forEach((type, value) -> {
+                if (value != null) {
+                    readingValues.set(type, value);
+                }
+            });
+        }
+        return readingValues;
+    }
+
+    public ReadingSchema schema() {
+        return schema;
+    }
+
+    public boolean isPresent(int ordinal) {
+        return values[ordinal] != ABSENT;
+    }
+
+    /**
+     * Returns the unscaled value of a reading type by its ordinal.
+     * The result is undefined if the value is absent, check it with isPresent first.
+     *
+     * @param ordinal the ordinal of the reading type
+     * @return the value as the number of units of the reading type's scale
+     */
+    public long get(int ordinal) {
+        return values[ordinal];
+    }
+
+    /**
+     * Returns the decimal value of a reading type.
+     *
+     * @param type the reading type
+     * @return the value, or null if the reading type is unknown or has no value
+     */
+    public BigDecimal get(String type) {
+        int ordinal = schema.ordinal(type);
+        return ordinal < 0 || !isPresent(ordinal) ? null : BigDecimal.valueOf(values[ordinal], schema.scale(ordinal));
+    }
+
+    /**
+     * Sets the unscaled value of a reading type by its ordinal.
+     *
+     * @param ordinal the ordinal of the reading type
+     * @param value   the value as the number of units of the reading type's scale
+     */
+    public void set(int ordinal, long value) {
+        values[ordinal] = value;
+    }
+
+    /**
+     * Sets the decimal value of a reading type.
+     * If the reading type is unknown to the schema, it throws an IllegalArgumentException.
+     * If the value has more decimal places than the scale of the reading type or does not fit, it throws an ArithmeticException.
+     *
+     * @param type  the reading type
+     * @param value the value
+     */
+    public void set(String type, BigDecimal value) {
+        int ordinal = schema.ordinal(type);
+        if (ordinal < 0) {
+            throw new IllegalArgumentException("Invalid reading type: " + type);
+        }
+        values[ordinal] = value.movePointRight(schema.scale(ordinal)).longValueExact();
+    }
+
+    /**
+     * Returns the reading types that have a value, in ordinal order.
+     *
+     * @return a list of reading types
+     */
+    public List<String> presentTypes() {
+        List<String> types = new ArrayList<>(values.length);
+        for (int i = 0; i < values.length; i++) {
+            if (values[i] != ABSENT) {
+                types.add(schema.type(i));
+            }
+        }
+        return types;
+    }
+
+    /**
+     * Performs the given action for every reading type that has a value, in ordinal order.
+     *
+     * @param action the action to perform with the reading type and its unscaled value
+     */
+    public void forEach(ObjLongConsumer<String> action) {
+        for (int i = 0; i < values.length; i++) {
+            if (values[i] != ABSENT) {
+                action.accept(schema.type(i), values[i]);
+            }
+        }
+    }
+
+    /**
+     * Converts the values to a map of reading types and decimal values.
+     *
+     * @return a new map in ordinal order
+     */
+    public Map<String, BigDecimal> toMap() {
+        Map<String, BigDecimal> map = new LinkedHashMap<>();
+        for (int i = 0; i < values.length; i++) {
+            if (values[i] != ABSENT) {
+                map.put(schema.type(i), BigDecimal.valueOf(values[i], schema.scale(i)));
+            }
+        }
+        return map;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof ReadingValues other)) {
+            return false;
+        }
+        return schema == other.schema ? Arrays.equals(values, other.values) : toMap().equals(other.toMap());
+    }
+
+    @Override
+    public int hashCode() {
+        return toMap().hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return toMap().toString();
+    }
+
+    /**
+     * Writes ReadingValues as a JSON object directly from the primitive array.
+     * Decimal values are formatted into a reused character buffer, trailing zeros of the fraction are dropped.
+     */
+    public static final class Serializer extends StdSerializer<ReadingValues> {
+
+        public Serializer() {
+            super(ReadingValues.class);
+        }
+
+        @Override
+        public void serialize(ReadingValues readingValues, JsonGenerator generator, SerializerProvider provider) throws IOException {
+            generator.writeStartObject(readingValues);
+            ReadingSchema schema = readingValues.schema;
+            long[] values = readingValues.values;
+            char[] buffer = null;
+            for (int i = 0; i < values.length; i++) {
+                long value = values[i];
+                if (value == ABSENT) {
+                    continue;
+                }
+                generator.writeFieldName(schema.type(i));
+                buffer = writeDecimal(generator, value, schema, i, buffer);
+            }
+            generator.writeEndObject();
+        }
+
+        /**
+         * Writes an unscaled value as a decimal number.
+         * Whole numbers are written as integers. Textual formats get the digits of other values from a character buffer,
+         * binary formats, which would write the digits as a string, get them as a BigDecimal.
+         *
+         * @param generator the generator to write with
+         * @param value     the unscaled value
+         * @param schema    the snapshot of the reading types the value belongs to
+         * @param ordinal   the ordinal of the reading type of the value
+         * @param buffer    a buffer returned by a previous call, or null
+         * @return the buffer to pass to the next call, or null if none was needed yet
+         * @throws IOException if the value cannot be written
+         */
+        public static char[] writeDecimal(JsonGenerator generator, long value, ReadingSchema schema, int ordinal,
+                                          char[] buffer) throws IOException {
+            long factor = schema.factor(ordinal);
+            int scale = schema.scale(ordinal);
+            if (factor == 1 || value % factor == 0) {
+                generator.writeNumber(value / factor);
+            } else if (generator.canWriteBinaryNatively()) {
+                generator.writeNumber(BigDecimal.valueOf(value, scale));
+            } else {
+                if (buffer == null) {
+                    buffer = new char[21];
+                }
+                int length = formatDecimal(value, scale, buffer);
+                generator.writeNumber(buffer, buffer.length - length, length);
+            }
+            return buffer;
+        }
+
+        /**
+         * Formats an unscaled value with a fraction into the end of the buffer.
+         *
+         * @param value  the unscaled value, not a multiple of ten to the power of the scale
+         * @param scale  the number of decimal places
+         * @param buffer the buffer to write into, the value is right aligned
+         * @return the number of characters written
+         */
+        private static int formatDecimal(long value, int scale, char[] buffer) {
+            boolean negative = value < 0;
+            long remaining = Math.abs(value);
+            int position = buffer.length;
+            boolean significant = false;
+            for (int digit = 0; digit < scale; digit++) {
+                int current = (int) (remaining % 10);
+                remaining /= 10;
+                if (current != 0 || significant) {
+                    significant = true;
+                    buffer[--position] = (char) ('0' + current);
+                }
+            }
+            buffer[--position] = '.';
+            do {
+                buffer[--position] = (char) ('0' + remaining % 10);
+                remaining /= 10;
+            } while (remaining > 0);
+            if (negative) {
+                buffer[--position] = '-';
+            }
+            return buffer.length - position;
+        }
+    }
+}
@@ -1,10 +1,14 @@
 package ru.erma.repository;
 
+import ru.erma.model.AuditCursor;
+import ru.erma.model.AuditFilter;
+
 import java.util.List;
+import java.util.function.Consumer;
 
 /**
  * This interface represents a repository for audit.
- * It provides methods to save an audit and to retrieve all audits.
+ * It provides methods to save audits and to retrieve them, all at once, one page at a time or as a stream.
  *
  * @param <E> the type of the audit
  */
@@ -17,10 +21,37 @@ public interface AuditRepository<E> {
      */
     void save(E audit);
 
+    /**
+     * Saves the given audits in one batch.
+     *
+     * @param audits the audits to save
+     */
+    void saveAll(List<E> audits);
+
     /**
      * Retrieves all audits.
      *
      * @return a list of all audits
      */
     List<E> findAll();
+
+    /**
+     * Retrieves a page of the audits matching a filter, ordered by timestamp and id, most recent first.
+     *
+     * @param filter the conditions the audits are selected by
+     * @param after  the position of the last audit of the previous page, or null for the first page
+     * @param limit  the maximum number of audits to retrieve
+     * @return a list of at most limit audits
+     */
+    List<E> findPage(AuditFilter filter, AuditCursor after, int limit);
+
+    /**
+     * Passes every audit matching a filter to the given action as its row is read,
+     * ordered by timestamp and id, most recent first, without loading all audits into memory.
+     * The database only fetches the rows in chunks inside a transaction, so the caller should provide one.
+     *
+     * @param filter the conditions the audits are selected by
+     * @param action the action to perform for every audit
+     */
+    void stream(AuditFilter filter, Consumer<E> action);
 }
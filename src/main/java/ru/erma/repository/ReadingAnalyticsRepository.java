@@ -0,0 +1,21 @@
+package ru.erma.repository;
+
+import ru.erma.model.Consumption;
+
+import java.util.List;
+
+/**
+ * The ReadingAnalyticsRepository interface provides aggregates computed from the readings by the database.
+ */
+public interface ReadingAnalyticsRepository {
+
+    /**
+     * Computes the consumption of a user with a single query.
+     * The result contains the consumption of every month that has a previous reading,
+     * each followed by the consumption of its year after the last month of that year.
+     *
+     * @param username the username of the user
+     * @return the monthly and yearly consumption ordered by year and month
+     */
+    List<Consumption> findConsumptionByUsername(String username);
+}
@@ -0,0 +1,27 @@
+package ru.erma.repository;
+
+import ru.erma.model.ReadingImportResult;
+import ru.erma.model.ReadingSchema;
+
+import java.io.Reader;
+import java.util.List;
+
+/**
+ * The ReadingImportRepository interface provides the bulk import of readings.
+ */
+public interface ReadingImportRepository {
+
+    /**
+     * Streams CSV rows into a staging table and merges them into the readings.
+     * Rows of unknown users, with an invalid period or with values breaking the rules of their reading types are skipped,
+     * rows whose period already exists, in the database or earlier in the source, are skipped as duplicates.
+     * It must be called inside a transaction.
+     *
+     * @param schema  the snapshot of the reading types providing the columns the values are stored in
+     * @param columns the columns of the CSV rows in order, the username, month and year columns followed by reading types
+     *                of the schema in any order
+     * @param rows    the CSV rows without a header
+     * @return the number of read, valid and imported rows
+     */
+    ReadingImportResult importReadings(ReadingSchema schema, List<String> columns, Reader rows);
+}
@@ -2,8 +2,11 @@ package ru.erma.repository;
 
 import ru.erma.model.Reading;
 
+import java.time.YearMonth;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
 
 /**
  * This interface represents a repository for readings.
@@ -15,12 +18,23 @@ import java.util.Optional;
 public interface ReadingRepository<K,E> {
 
     /**
-     * Saves the given reading for the specified username.
+     * Saves the given reading for the specified username, unless a reading for the same month and year already exists.
      *
      * @param username the username for which to save the reading
      * @param reading the reading to save
+     * @return true if the reading was saved, false if a reading for the same month and year already exists
      */
-    void save(K username, E reading);
+    boolean save(K username, E reading);
+
+    /**
+     * Saves all the given readings for the specified username in a single batch,
+     * skipping the readings for which a reading for the same month and year already exists.
+     *
+     * @param username the username for which to save the readings
+     * @param readings the readings to save
+     * @return for every reading, true if it was saved, false if it already existed
+     */
+    boolean[] saveAll(K username, List<E> readings);
 
     /**
      * Retrieves all readings for the specified username.
@@ -30,6 +44,89 @@ public interface ReadingRepository<K,E> {
      */
     List<E> findByUsername(K username);
 
+    /**
+     * Retrieves a page of readings for the specified username, the most recent period first.
+     * The page starts right after the given period, so the cost of a page does not depend on how many pages precede it.
+     *
+     * @param username the username for which to retrieve the readings
+     * @param after the period of the last reading of the previous page, or null for the first page
+     * @param limit the maximum number of readings to retrieve
+     * @return a list of at most limit readings ordered by year and month descending
+     */
+    List<E> findPageByUsername(K username, YearMonth after, int limit);
+
+    /**
+     * Retrieves a page of readings like findPageByUsername, for a caller that has read the version of the readings before.
+     * A repository caching the results must not return a result cached for another version,
+     * so the readings are never older than the version the caller tags them with.
+     *
+     * @param username the username for which to retrieve the readings
+     * @param after the period of the last reading of the previous page, or null for the first page
+     * @param limit the maximum number of readings to retrieve
+     * @param version the version of the readings read by the caller
+     * @return a list of at most limit readings ordered by year and month descending
+     */
+    default List<E> findPageByUsername(K username, YearMonth after, int limit, String version) {
+        return findPageByUsername(username, after, limit);
+    }
+
+    /**
+     * Retrieves the readings for the specified username from one period to another, both inclusive, the oldest period first.
+     *
+     * @param username the username for which to retrieve the readings
+     * @param from the first period of the range
+     * @param to the last period of the range
+     * @return a list of readings ordered by year and month ascending
+     */
+    List<E> findByUsernameBetween(K username, YearMonth from, YearMonth to);
+
+    /**
+     * Passes every reading of the specified username to the given action as the rows arrive from the database,
+     * the most recent period first, without collecting them into a list.
+     * The rows are fetched in chunks only when called inside a transaction, otherwise the driver reads them all at once.
+     *
+     * @param username the username for which to stream the readings
+     * @param action the action to perform with every reading, the reading must not be kept after the action returns
+     */
+    void streamByUsername(K username, Consumer<E> action);
+
+    /**
+     * Splits the usernames having a reading for the specified period into ranges of about the same number of readings.
+     *
+     * @param period the period of the readings
+     * @param chunks the maximum number of ranges
+     * @return the first username of every range in ascending order, empty if there are no readings for the period
+     */
+    List<K> findUsernameBoundaries(YearMonth period, int chunks);
+
+    /**
+     * Passes the reading of every username within a range for the specified period to the given action
+     * as the rows arrive from the database, ordered by username.
+     * The rows are fetched in chunks only when called inside a transaction, otherwise the driver reads them all at once.
+     *
+     * @param period the period of the readings
+     * @param from   the first username of the range, inclusive
+     * @param to     the username following the range, exclusive, or null for a range without an upper bound
+     * @param action the action to perform with the username and its reading, the reading must not be kept after the action returns
+     */
+    void streamByPeriod(YearMonth period, K from, K to, BiConsumer<K, E> action);
+
+    /**
+     * Exports the snapshot of the current transaction, so that other transactions can read the same data.
+     * It must be called inside a repeatable read transaction, which has to stay open until the snapshot is imported.
+     *
+     * @return the identifier of the snapshot
+     */
+    String exportSnapshot();
+
+    /**
+     * Makes the current transaction read the data of an exported snapshot.
+     * It must be the first statement of a repeatable read transaction.
+     *
+     * @param snapshotId the identifier returned by exportSnapshot
+     */
+    void importSnapshot(String snapshotId);
+
     /**
      * Retrieves all readings for the specified username, month, and year.
      *
@@ -47,4 +144,16 @@ public interface ReadingRepository<K,E> {
      * @return an Optional containing the latest reading for the specified username, or an empty Optional if no readings are found
      */
     Optional<Reading> findLatestByUsername(K username);
+
+    /**
+     * Retrieves the latest reading like findLatestByUsername, for a caller that has read the version of the readings before.
+     * A repository caching the results must not return a result cached for another version.
+     *
+     * @param username the username for which to retrieve the latest reading
+     * @param version the version of the readings read by the caller
+     * @return an Optional containing the latest reading for the specified username, or an empty Optional if no readings are found
+     */
+    default Optional<Reading> findLatestByUsername(K username, String version) {
+        return findLatestByUsername(username);
+    }
 }
\ No newline at end of file
@@ -0,0 +1,55 @@
+package ru.erma.repository;
+
+import ru.erma.model.Reading;
+import ru.erma.model.ReadingSchema;
+import ru.erma.model.ReadingSummary;
+
+import java.time.YearMonth;
+import java.util.List;
+
+/**
+ * The ReadingSummaryRepository interface provides the monthly aggregates of the readings of all users per reading type.
+ * The aggregates are maintained incrementally, every inserted reading must be added in the transaction that inserts it.
+ */
+public interface ReadingSummaryRepository {
+
+    /**
+     * Adds newly inserted readings to the aggregates of their reading types and months.
+     *
+     * @param readings the inserted readings
+     */
+    void addAll(List<Reading> readings);
+
+    /**
+     * Recomputes all aggregates from the readings.
+     * Concurrent inserts wait until the rebuild is committed, so none of them is counted twice or lost.
+     * It must be called inside a transaction.
+     *
+     * @param schema the reading types to aggregate
+     * @return the number of aggregates
+     */
+    int rebuild(ReadingSchema schema);
+
+    /**
+     * Removes the aggregates of a reading type.
+     *
+     * @param type the reading type
+     */
+    void removeType(String type);
+
+    /**
+     * Checks whether there are any aggregates at all.
+     *
+     * @return true if there are no aggregates
+     */
+    boolean isEmpty();
+
+    /**
+     * Retrieves the aggregates from one month to another, both inclusive.
+     *
+     * @param from the first month
+     * @param to   the last month
+     * @return the aggregates ordered by year, month and reading type
+     */
+    List<ReadingSummary> findBetween(YearMonth from, YearMonth to);
+}
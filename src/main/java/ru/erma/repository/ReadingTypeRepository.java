@@ -1,33 +1,48 @@
 package ru.erma.repository;
 
+import ru.erma.model.ReadingType;
+import ru.erma.model.ReadingTypeRules;
+
 import java.util.List;
 
 /**
  * The ReadingTypeRepository interface defines the operations that can be performed on the reading types in the database.
- * It provides methods to add and remove columns from the readings table, and to get the reading types from the database.
+ * It provides methods to register and unregister reading types together with the storage of their values,
+ * to change the rules of the reading types, and to get the reading types from the database.
  *
  * @param <E> the type of the reading types.
  */
 public interface ReadingTypeRepository<E> {
 
     /**
-     * Adds a column to the readings table in the database.
+     * Registers a reading type and prepares the storage of its values in the readings table.
+     *
+     * @param name the name of the reading type to add.
+     * @param scale the number of decimal places the values of the reading type are stored with.
+     * @return the registered reading type with the column its values are stored in.
+     */
+    ReadingType addReadingType(E name, int scale);
+
+    /**
+     * Unregisters a reading type and removes the storage of its values from the readings table.
      *
-     * @param columnName the name of the column to add.
+     * @param name the name of the reading type to remove.
      */
-    void addColumnToReadingsTable(E columnName);
+    void removeReadingType(E name);
 
     /**
-     * Removes a column from the readings table in the database.
+     * Replaces the rules of a reading type.
+     * If the reading type does not exist, it throws a TypeNotFoundException.
      *
-     * @param columnName the name of the column to remove.
+     * @param name the name of the reading type.
+     * @param rules the new rules of the reading type.
      */
-    void removeColumnFromReadingsTable(E columnName);
+    void updateReadingTypeRules(E name, ReadingTypeRules rules);
 
     /**
-     * Gets the reading types from the database.
+     * Gets the reading types with their scales and rules from the database.
      *
-     * @return a list of the reading types.
+     * @return a list of the reading types in ordinal order.
      */
-    List<E> getReadingTypesFromDatabase();
-}
\ No newline at end of file
+    List<ReadingType> getReadingTypesFromDatabase();
+}
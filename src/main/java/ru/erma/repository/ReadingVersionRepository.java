@@ -0,0 +1,30 @@
+package ru.erma.repository;
+
+/**
+ * The ReadingVersionRepository interface provides the versions of the readings of the users.
+ * The version of a user is incremented by the database with every statement that changes the readings of the user.
+ * The schema epoch is shared by all users and incremented with every change of the reading types.
+ */
+public interface ReadingVersionRepository {
+
+    /**
+     * Retrieves the version of the readings of a user.
+     *
+     * @param username the username of the user
+     * @return the version, 0 if the readings of the user have never changed
+     */
+    long findVersion(String username);
+
+    /**
+     * Retrieves the schema epoch, which changes with every change of the representation of all readings.
+     *
+     * @return the schema epoch
+     */
+    long findSchemaEpoch();
+
+    /**
+     * Increments the schema epoch, for changes that alter the representation of all readings.
+     * It updates a single row, whatever the number of users.
+     */
+    void incrementSchemaEpoch();
+}
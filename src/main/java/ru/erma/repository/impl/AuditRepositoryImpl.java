@@ -1,49 +1,136 @@
 package ru.erma.repository.impl;
 
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.jdbc.core.RowMapper;
 import org.springframework.stereotype.Repository;
+import ru.erma.config.AuditProperties;
 import ru.erma.model.Audit;
+import ru.erma.model.AuditCursor;
+import ru.erma.model.AuditFilter;
 import ru.erma.repository.AuditRepository;
 
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Consumer;
 
 /**
  * This class implements the AuditRepository interface.
  * It provides methods to save and retrieve audit records from the database.
  * It uses the JdbcTemplate to execute SQL queries.
+ * Pages are selected with keyset pagination on the timestamp and id, so a page costs the same however deep it is.
  */
 @Repository
 public class AuditRepositoryImpl implements AuditRepository<Audit> {
 
+    private static final String INSERT_SQL = "INSERT INTO develop.audits (username, timestamp, action) VALUES (?, ?, ?)";
+
+    private static final String SELECT_SQL = "SELECT id, username, timestamp, action FROM develop.audits";
+
+    private static final String ORDER_SQL = " ORDER BY timestamp DESC, id DESC";
+
+    private static final AuditRowMapper ROW_MAPPER = new AuditRowMapper();
+
     private final JdbcTemplate jdbcTemplate;
 
-    public AuditRepositoryImpl(JdbcTemplate jdbcTemplate) {
+    private final AuditProperties properties;
+
+    public AuditRepositoryImpl(JdbcTemplate jdbcTemplate, AuditProperties properties) {
         this.jdbcTemplate = jdbcTemplate;
+        this.properties = properties;
     }
 
     @Override
     public void save(Audit audit) {
-        String sql = "INSERT INTO develop.audits (username, timestamp, action) VALUES (?, ?, ?)";
-        jdbcTemplate.update(sql, audit.getUsername(), audit.getTimestamp(), audit.getAction());
+        jdbcTemplate.update(INSERT_SQL, audit.getUsername(), audit.getTimestamp(), audit.getAction());
+    }
+
+    @Override
+    public void saveAll(List<Audit> audits) {
+        jdbcTemplate.batchUpdate(INSERT_SQL, audits, audits.size(), (statement, audit) -> {
+            statement.setString(1, audit.getUsername());
+            statement.setObject(2, audit.getTimestamp());
+            statement.setString(3, audit.getAction());
+        });
     }
 
     @Override
     public List<Audit> findAll() {
-        String sql = "SELECT username, timestamp, action FROM develop.audits";
-        return jdbcTemplate.query(sql, new AuditRowMapper());
+        return jdbcTemplate.query(SELECT_SQL, ROW_MAPPER);
+    }
+
+    @Override
+    public List<Audit> findPage(AuditFilter filter, AuditCursor after, int limit) {
+        List<Object> args = new ArrayList<>();
+        String sql = SELECT_SQL + where(filter, after, args) + ORDER_SQL + " LIMIT ?";
+        args.add(limit);
+        return jdbcTemplate.query(sql, ROW_MAPPER, args.toArray());
+    }
+
+    @Override
+    public void stream(AuditFilter filter, Consumer<Audit> action) {
+        List<Object> args = new ArrayList<>();
+        String sql = SELECT_SQL + where(filter, null, args) + ORDER_SQL;
+        jdbcTemplate.query(connection -> {
+            PreparedStatement ps = connection.prepareStatement(sql);
+            ps.setFetchSize(properties.getFetchSize());
+            for (int i = 0; i < args.size(); i++) {
+                ps.setObject(i + 1, args.get(i));
+            }
+            return ps;
+        }, (RowCallbackHandler) resultSet -> action.accept(ROW_MAPPER.mapRow(resultSet, 0)));
+    }
+
+    /**
+     * Builds the WHERE clause of the conditions of a filter and a cursor and adds their arguments to the list.
+     * The cursor condition is preceded by a bound on the timestamp alone, which gives the planner a plain range condition
+     * on the timestamp column of the (timestamp, id) and (username, timestamp, id) btree indexes, usable as an index bound.
+     *
+     * @param filter the conditions the audits are selected by
+     * @param after  the position of the last audit of the previous page, or null
+     * @param args   the list the arguments are added to
+     * @return the WHERE clause, or an empty string if there are no conditions
+     */
+    private static String where(AuditFilter filter, AuditCursor after, List<Object> args) {
+        List<String> conditions = new ArrayList<>();
+        if (filter.username() != null) {
+            conditions.add("username = ?");
+            args.add(filter.username());
+        }
+        if (filter.action() != null) {
+            conditions.add("action = ?");
+            args.add(filter.action());
+        }
+        if (filter.from() != null) {
+            conditions.add("timestamp >= ?");
+            args.add(filter.from());
+        }
+        if (filter.to() != null) {
+            conditions.add("timestamp < ?");
+            args.add(filter.to());
+        }
+        if (after != null) {
+            conditions.add("timestamp <= ?");
+            args.add(after.timestamp());
+            conditions.add("(timestamp, id) < (?, ?)");
+            args.add(after.timestamp());
+            args.add(after.id());
+        }
+        return conditions.isEmpty() ? "" : " WHERE " + String.join(" AND ", conditions);
     }
 
     private static class AuditRowMapper implements RowMapper<Audit> {
         @Override
         public Audit mapRow(ResultSet resultSet, int i) throws SQLException {
             Audit audit = new Audit();
+            audit.setId(resultSet.getLong("id"));
             audit.setUsername(resultSet.getString("username"));
             audit.setTimestamp(resultSet.getTimestamp("timestamp").toLocalDateTime());
             audit.setAction(resultSet.getString("action"));
             return audit;
         }
     }
-}
\ No newline at end of file
+}
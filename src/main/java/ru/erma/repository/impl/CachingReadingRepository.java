@@ -0,0 +1,289 @@
+package ru.erma.repository.impl;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import org.springframework.context.annotation.Primary;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.erma.config.ReadingCacheProperties;
+import ru.erma.event.ReadingTypesChangedEvent;
+import ru.erma.event.ReadingsImportedEvent;
+import ru.erma.model.Reading;
+import ru.erma.model.ReadingCacheStats;
+import ru.erma.model.ReadingSchema;
+import ru.erma.repository.ReadingRepository;
+import ru.erma.service.ReadingStructureService;
+
+import java.time.Duration;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * This class is a read-through cache in front of the ReadingRepositoryImpl.
+ * Query results are cached per username and query, so an entry never holds readings of another user.
+ * Saving readings of a user invalidates exactly the cached queries whose results they can change,
+ * both immediately and, if a transaction is active, again after it commits.
+ * A change of the reading types or a bulk import invalidates the whole cache.
+ * Of the history pages only the first one is cached, later pages are rarely requested twice.
+ * It is cached once per user with the largest page the history requests and sliced to the requested limit.
+ * Streamed readings, period ranges and period snapshots are never cached.
+ * Queries running inside a transaction bypass the cache, since they may see uncommitted data.
+ * A query made with the version of the readings a response is tagged with only returns a result loaded for that version,
+ * so a write committed on another instance, or not yet invalidated on this one, never reaches a response with a newer tag.
+ * Cached readings are shared between callers and must not be modified.
+ */
+@Primary
+@Repository
+public class CachingReadingRepository implements ReadingRepository<String, Reading> {
+
+    private final ReadingRepository<String, Reading> delegate;
+
+    private final ReadingStructureService readingStructureService;
+
+    /**
+     * The number of readings of the cached first history page,
+     * the largest page limit of the reading history and one more reading telling whether a next page exists.
+     */
+    static final int FIRST_PAGE_LIMIT = 1001;
+
+    private final Cache<Key, Entry> cache;
+
+    /**
+     * Constructs a new CachingReadingRepository.
+     *
+     * @param delegate the repository the queries are sent to on a cache miss.
+     * @param readingStructureService the service providing the current reading types.
+     * @param properties the properties of the cache.
+     */
+    public CachingReadingRepository(ReadingRepositoryImpl delegate,
+                                    ReadingStructureService readingStructureService,
+                                    ReadingCacheProperties properties) {
+        this.delegate = delegate;
+        this.readingStructureService = readingStructureService;
+        this.cache = properties.isEnabled()
+                ? Caffeine.newBuilder()
+                        .maximumSize(properties.getMaximumSize())
+                        .expireAfterWrite(Duration.ofMillis(properties.getExpireAfterWrite()))
+                        .recordStats()
+                        .build()
+                : null;
+    }
+
+    @Override
+    public boolean save(String username, Reading reading) {
+        boolean saved = delegate.save(username, reading);
+        if (saved) {
+            invalidate(username, List.of(reading));
+        }
+        return saved;
+    }
+
+    @Override
+    public boolean[] saveAll(String username, List<Reading> readings) {
+        boolean[] inserted = delegate.saveAll(username, readings);
+        List<Reading> saved = new ArrayList<>();
+        for (int i = 0; i < inserted.length; i++) {
+            if (inserted[i]) {
+                saved.add(readings.get(i));
+            }
+        }
+        if (!saved.isEmpty()) {
+            invalidate(username, saved);
+        }
+        return inserted;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public List<Reading> findByUsername(String username) {
+        return (List<Reading>) load(new Key(username, Query.HISTORY, 0, 0), null,
+                () -> List.copyOf(delegate.findByUsername(username)));
+    }
+
+    @Override
+    public List<Reading> findPageByUsername(String username, YearMonth after, int limit) {
+        return findPageByUsername(username, after, limit, null);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public List<Reading> findPageByUsername(String username, YearMonth after, int limit, String version) {
+        if (after != null || limit > FIRST_PAGE_LIMIT) {
+            return delegate.findPageByUsername(username, after, limit);
+        }
+        List<Reading> page = (List<Reading>) load(new Key(username, Query.FIRST_PAGE, 0, 0), version,
+                () -> List.copyOf(delegate.findPageByUsername(username, null, FIRST_PAGE_LIMIT)));
+        return page.size() > limit ? page.subList(0, limit) : page;
+    }
+
+    @Override
+    public List<Reading> findByUsernameBetween(String username, YearMonth from, YearMonth to) {
+        return delegate.findByUsernameBetween(username, from, to);
+    }
+
+    @Override
+    public void streamByUsername(String username, Consumer<Reading> action) {
+        delegate.streamByUsername(username, action);
+    }
+
+    @Override
+    public List<String> findUsernameBoundaries(YearMonth period, int chunks) {
+        return delegate.findUsernameBoundaries(period, chunks);
+    }
+
+    @Override
+    public void streamByPeriod(YearMonth period, String from, String to, BiConsumer<String, Reading> action) {
+        delegate.streamByPeriod(period, from, to, action);
+    }
+
+    @Override
+    public String exportSnapshot() {
+        return delegate.exportSnapshot();
+    }
+
+    @Override
+    public void importSnapshot(String snapshotId) {
+        delegate.importSnapshot(snapshotId);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public List<Reading> findByUsernameAndMonthAndYear(String username, int month, int year) {
+        return (List<Reading>) load(new Key(username, Query.MONTH, month, year), null,
+                () -> List.copyOf(delegate.findByUsernameAndMonthAndYear(username, month, year)));
+    }
+
+    @Override
+    public Optional<Reading> findLatestByUsername(String username) {
+        return findLatestByUsername(username, null);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Optional<Reading> findLatestByUsername(String username, String version) {
+        return (Optional<Reading>) load(new Key(username, Query.LATEST, 0, 0), version,
+                () -> delegate.findLatestByUsername(username));
+    }
+
+    /**
+     * Returns the statistics of the cache.
+     *
+     * @return the current statistics, all zero if the cache is disabled
+     */
+    public ReadingCacheStats getStats() {
+        if (cache == null) {
+            return new ReadingCacheStats(false, 0, 0, 0, 0);
+        }
+        CacheStats stats = cache.stats();
+        return new ReadingCacheStats(true, cache.estimatedSize(), stats.hitCount(), stats.missCount(), stats.evictionCount());
+    }
+
+    /**
+     * Drops all cached results, since they are indexed by a reading types snapshot that is no longer current.
+     *
+     * @param event the event describing the structure change
+     */
+    @EventListener
+    public void onReadingTypesChanged(ReadingTypesChangedEvent event) {
+        invalidateAll();
+    }
+
+    /**
+     * Drops all cached results, since an import may add readings of any user.
+     *
+     * @param event the event describing the import
+     */
+    @EventListener
+    public void onReadingsImported(ReadingsImportedEvent event) {
+        invalidateAll();
+    }
+
+    /**
+     * Returns a cached query result or loads it from the delegate.
+     * A result cached for an older reading types snapshot, or for another version than the requested one, is loaded again.
+     * If another caller replaces it with a result of yet another version meanwhile, the query runs without the cache.
+     *
+     * @param key     the key of the query
+     * @param version the version of the readings the caller has read, or null if any cached result will do
+     * @param loader  the query to run on a cache miss
+     * @return the query result
+     */
+    private Object load(Key key, String version, Supplier<Object> loader) {
+        if (cache == null || TransactionSynchronizationManager.isActualTransactionActive()) {
+            return loader.get();
+        }
+        ReadingSchema schema = readingStructureService.getSchema();
+        Entry entry = cache.get(key, k -> new Entry(schema, version, loader.get()));
+        if (!entry.matches(schema, version)) {
+            cache.asMap().remove(key, entry);
+            entry = cache.get(key, k -> new Entry(schema, version, loader.get()));
+            if (!entry.matches(schema, version)) {
+                return loader.get();
+            }
+        }
+        return entry.value();
+    }
+
+    /**
+     * Drops the cached queries of a user whose results are changed by the given readings.
+     *
+     * @param username the owner of the readings
+     * @param readings the saved readings
+     */
+    private void invalidate(String username, List<Reading> readings) {
+        if (cache == null) {
+            return;
+        }
+        List<Key> keys = new ArrayList<>(readings.size() + 3);
+        keys.add(new Key(username, Query.HISTORY, 0, 0));
+        keys.add(new Key(username, Query.FIRST_PAGE, 0, 0));
+        keys.add(new Key(username, Query.LATEST, 0, 0));
+        for (Reading reading : readings) {
+            keys.add(new Key(username, Query.MONTH, reading.getMonth(), reading.getYear()));
+        }
+        cache.invalidateAll(keys);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    cache.invalidateAll(keys);
+                }
+            });
+        }
+    }
+
+    private void invalidateAll() {
+        if (cache != null) {
+            cache.invalidateAll();
+        }
+    }
+
+    private enum Query {
+        HISTORY,
+        FIRST_PAGE,
+        MONTH,
+        LATEST
+    }
+
+    private record Key(String username, Query query, int month, int year) {
+    }
+
+    /**
+     * A cached query result with the snapshot and the version of the readings it was loaded for.
+     * The version is null if the result was loaded by a caller that has not read it.
+     */
+    private record Entry(ReadingSchema schema, String version, Object value) {
+
+        private boolean matches(ReadingSchema schema, String version) {
+            return this.schema == schema && (version == null || version.equals(this.version));
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package ru.erma.repository.impl;
+
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.erma.config.ReadingCacheProperties;
+import ru.erma.event.ReadingTypesChangedEvent;
+import ru.erma.event.ReadingsImportedEvent;
+import ru.erma.model.Reading;
+import ru.erma.repository.ReadingRepository;
+
+import java.time.YearMonth;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * This class keeps the latest reading of the recently active users, which new readings are checked against.
+ * The latest reading of a user is loaded from the repository the first time it is needed
+ * and replaced whenever a newer reading of the user is stored, so checking a reading usually needs no query.
+ * At most last-readings-size users are kept, the least recently used user is evicted first.
+ * Readings stored by other instances of the application are not seen until the user is evicted,
+ * so the kept reading may be older than the latest one, but never newer.
+ * A change of the reading types or a bulk import drops all kept readings.
+ */
+@Component
+public class LastReadingIndex {
+
+    private final ReadingRepository<String, Reading> readingRepository;
+
+    private final Map<String, Optional<Reading>> latest;
+
+    /**
+     * Constructs a new LastReadingIndex.
+     *
+     * @param readingRepository the repository the latest readings are loaded from.
+     * @param properties the properties of the reading caches.
+     */
+    public LastReadingIndex(ReadingRepository<String, Reading> readingRepository, ReadingCacheProperties properties) {
+        this.readingRepository = readingRepository;
+        int maximumSize = properties.getLastReadingsSize();
+        this.latest = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Optional<Reading>> eldest) {
+                return size() > maximumSize;
+            }
+        });
+    }
+
+    /**
+     * Finds the latest reading of a user, loading it from the repository if it is not kept yet.
+     *
+     * @param username the username of the user
+     * @return the latest reading, or an empty Optional if the user has no readings
+     */
+    public Optional<Reading> find(String username) {
+        Optional<Reading> reading = latest.get(username);
+        if (reading != null) {
+            return reading;
+        }
+        Optional<Reading> loaded = readingRepository.findLatestByUsername(username);
+        synchronized (latest) {
+            Optional<Reading> kept = latest.get(username);
+            if (kept == null || kept.isEmpty() || loaded.isPresent() && isNewer(loaded.get(), kept.get())) {
+                latest.put(username, loaded);
+                return loaded;
+            }
+            return kept;
+        }
+    }
+
+    /**
+     * Records a stored reading of a user, which replaces the kept reading if it is newer.
+     * Users that are not kept are left to be loaded when they are needed.
+     * If a transaction is active, the reading is recorded once the transaction is committed.
+     *
+     * @param username the username of the user
+     * @param reading  the stored reading
+     */
+    public void record(String username, Reading reading) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    keepNewer(username, reading);
+                }
+            });
+        } else {
+            keepNewer(username, reading);
+        }
+    }
+
+    /**
+     * Drops all kept readings, since their values are indexed by a reading types snapshot that is no longer current.
+     *
+     * @param event the event describing the structure change
+     */
+    @EventListener
+    public void onReadingTypesChanged(ReadingTypesChangedEvent event) {
+        latest.clear();
+    }
+
+    /**
+     * Drops all kept readings, since an import may add newer readings of any user.
+     *
+     * @param event the event describing the import
+     */
+    @EventListener
+    public void onReadingsImported(ReadingsImportedEvent event) {
+        latest.clear();
+    }
+
+    private void keepNewer(String username, Reading reading) {
+        synchronized (latest) {
+            Optional<Reading> kept = latest.get(username);
+            if (kept != null && (kept.isEmpty() || isNewer(reading, kept.get()))) {
+                latest.put(username, Optional.of(reading));
+            }
+        }
+    }
+
+    private static boolean isNewer(Reading reading, Reading other) {
+        return YearMonth.of(reading.getYear(), reading.getMonth()).isAfter(YearMonth.of(other.getYear(), other.getMonth()));
+    }
+}
@@ -0,0 +1,103 @@
+package ru.erma.repository.impl;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+import ru.erma.model.Consumption;
+import ru.erma.model.ReadingSchema;
+import ru.erma.model.ReadingValues;
+import ru.erma.repository.ReadingAnalyticsRepository;
+import ru.erma.service.ReadingStructureService;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+
+/**
+ * This class implements the ReadingAnalyticsRepository interface.
+ * The consumption is computed by the database in one pass over the readings of a user:
+ * LAG() turns every reading into the difference from the previous one,
+ * and GROUPING SETS aggregates the differences both per month and per year.
+ * Only the aggregates are transferred, values come back unscaled like the readings themselves.
+ */
+@Repository
+public class ReadingAnalyticsRepositoryImpl implements ReadingAnalyticsRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final ReadingStructureService readingStructureService;
+
+    private volatile ConsumptionQuery query;
+
+    public ReadingAnalyticsRepositoryImpl(JdbcTemplate jdbcTemplate, ReadingStructureService readingStructureService) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.readingStructureService = readingStructureService;
+    }
+
+    @Override
+    public List<Consumption> findConsumptionByUsername(String username) {
+        ReadingSchema schema = readingStructureService.getSchema();
+        ConsumptionQuery current = query;
+        if (current == null || current.schema != schema) {
+            current = new ConsumptionQuery(schema);
+            query = current;
+        }
+        return jdbcTemplate.query(current.sql, current.rowMapper, username);
+    }
+
+    /**
+     * The consumption query compiled for one schema snapshot.
+     * The select list is the year and the month, followed by the unscaled total and average of every reading type in ordinal order.
+     * The average is rounded to the scale of its reading type.
+     * The differences are named by ordinal, so no reading type name can clash with the year, month or position columns.
+     */
+    private static final class ConsumptionQuery {
+
+        private static final int FIRST_VALUE_COLUMN = 3;
+
+        private final ReadingSchema schema;
+        private final String sql;
+        private final RowMapper<Consumption> rowMapper;
+
+        private ConsumptionQuery(ReadingSchema schema) {
+            this.schema = schema;
+            StringBuilder deltas = new StringBuilder("WITH deltas AS (SELECT year, month, row_number() OVER w AS position");
+            StringBuilder aggregates = new StringBuilder(" SELECT year, month");
+            for (int i = 0; i < schema.size(); i++) {
+                String delta = "d" + i;
+                String column = schema.column(i);
+                String factor = schema.scale(i) > 0 ? " * " + schema.factor(i) : "";
+                deltas.append(", ").append(column).append(" - LAG(").append(column).append(") OVER w AS ").append(delta);
+                aggregates.append(", (SUM(").append(delta).append(")").append(factor).append(")::bigint")
+                        .append(", (ROUND(AVG(").append(delta).append("), ").append(schema.scale(i)).append(")")
+                        .append(factor).append(")::bigint");
+            }
+            this.sql = deltas.append(" FROM develop.readings WHERE username = ? WINDOW w AS (ORDER BY year, month))")
+                    .append(aggregates)
+                    .append(" FROM deltas WHERE position > 1")
+                    .append(" GROUP BY GROUPING SETS ((year, month), (year)) ORDER BY year, month NULLS LAST")
+                    .toString();
+            this.rowMapper = this::mapRow;
+        }
+
+        private Consumption mapRow(ResultSet resultSet, int i) throws SQLException {
+            int year = resultSet.getInt(1);
+            int month = resultSet.getInt(2);
+            Integer period = resultSet.wasNull() ? null : month;
+            ReadingValues total = new ReadingValues(schema);
+            ReadingValues average = new ReadingValues(schema);
+            for (int ordinal = 0; ordinal < schema.size(); ordinal++) {
+                int column = FIRST_VALUE_COLUMN + 2 * ordinal;
+                long sum = resultSet.getLong(column);
+                if (!resultSet.wasNull()) {
+                    total.set(ordinal, sum);
+                }
+                long mean = resultSet.getLong(column + 1);
+                if (!resultSet.wasNull()) {
+                    average.set(ordinal, mean);
+                }
+            }
+            return new Consumption(year, period, total, average);
+        }
+    }
+}
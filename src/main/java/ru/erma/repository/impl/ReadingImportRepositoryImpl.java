@@ -0,0 +1,285 @@
+package ru.erma.repository.impl;
+
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyManager;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import ru.erma.model.ReadingImportResult;
+import ru.erma.model.ReadingSchema;
+import ru.erma.model.ReadingTypeRules;
+import ru.erma.repository.ReadingImportRepository;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * This class implements the ReadingImportRepository interface.
+ * The rows are loaded with the COPY protocol of PostgreSQL into a temporary staging table, which is dropped on commit,
+ * and merged into the readings table with a single INSERT ... SELECT, which also adds the inserted rows to the reading summary.
+ * Before the merge the staged rows are checked against the rules of the reading types in the schema, as submitted readings are:
+ * every value must be a non-negative number of an active reading type with at most as many decimal places as its scale,
+ * within the bounds of its rules, and must follow the previous accepted reading and the next stored reading of the user
+ * if its reading type is monotonic or has a maximum monthly delta. Rows breaking a rule are deleted from the staging table
+ * together with their duplicates, so they are skipped as rejected.
+ * The rows are streamed through a fixed size buffer, so the memory use does not depend on the size of the source.
+ */
+@Repository
+public class ReadingImportRepositoryImpl implements ReadingImportRepository {
+
+    private static final int COPY_BUFFER_SIZE = 64 * 1024;
+
+    private static final Set<String> PERIOD_COLUMNS = Set.of("username", "month", "year");
+
+    /**
+     * The number of digits of the largest unscaled value that fits into the numeric(18, scale) columns of the readings table.
+     */
+    private static final int MAX_UNSCALED_DIGITS = 18;
+
+    /**
+     * The number of timeline rows fetched at a time while the progression of the staged rows is checked.
+     */
+    private static final int TIMELINE_FETCH_SIZE = 1000;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public ReadingImportRepositoryImpl(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public ReadingImportResult importReadings(ReadingSchema schema, List<String> columns, Reader rows) {
+        List<String> readingTypes = columns.stream()
+                .filter(column -> !PERIOD_COLUMNS.contains(column))
+                .toList();
+        String typeDefinitions = readingTypes.stream()
+                .map(type -> ", " + type + " numeric")
+                .collect(Collectors.joining());
+        String typeColumns = readingTypes.stream()
+                .map(type -> ", " + type)
+                .collect(Collectors.joining());
+        String storageColumns = readingTypes.stream()
+                .map(type -> ", " + schema.column(schema.ordinal(type)))
+                .collect(Collectors.joining());
+        String returnedColumns = readingTypes.stream()
+                .map(type -> ", " + schema.column(schema.ordinal(type)) + " AS " + type)
+                .collect(Collectors.joining());
+
+        String summary = readingTypes.isEmpty()
+                ? ""
+                : ", summary AS (" + ReadingSummaryRepositoryImpl.upsertFrom("inserted", readingTypes, readingTypes) + ")";
+        String valueChecks = valueChecks(schema, readingTypes);
+
+        return jdbcTemplate.execute((ConnectionCallback<ReadingImportResult>) connection -> {
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("DROP TABLE IF EXISTS pg_temp.reading_import");
+                statement.execute("CREATE TEMPORARY TABLE reading_import (line bigserial, username varchar(255), month int, year int"
+                        + typeDefinitions + ") ON COMMIT DROP");
+            }
+
+            CopyManager copyManager = connection.unwrap(PGConnection.class).getCopyAPI();
+            long rowsRead;
+            try {
+                rowsRead = copyManager.copyIn("COPY pg_temp.reading_import (" + String.join(", ", columns)
+                        + ") FROM STDIN WITH (FORMAT csv)", rows, COPY_BUFFER_SIZE);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to read the imported readings", e);
+            }
+
+            long rowsInvalid;
+            try (Statement statement = connection.createStatement()) {
+                // a condition on a missing username or period is null, which must skip the row as well
+                rowsInvalid = statement.executeUpdate("DELETE FROM pg_temp.reading_import r WHERE NOT coalesce(" +
+                        "EXISTS (SELECT 1 FROM develop.users u WHERE u.username = r.username)" +
+                        " AND r.month BETWEEN 1 AND 12 AND r.year >= 2000" + valueChecks + ", false)");
+                statement.execute("ANALYZE pg_temp.reading_import");
+            }
+
+            List<Long> rejected = findBrokenProgressions(connection, schema, readingTypes);
+            if (!rejected.isEmpty()) {
+                try (PreparedStatement statement = connection.prepareStatement(
+                        "DELETE FROM pg_temp.reading_import r USING pg_temp.reading_import j WHERE j.line = ANY (?)" +
+                        " AND r.username = j.username AND r.year = j.year AND r.month = j.month")) {
+                    statement.setArray(1, connection.createArrayOf("bigint", rejected.toArray()));
+                    statement.executeUpdate();
+                }
+            }
+
+            try (Statement statement = connection.createStatement();
+                 ResultSet resultSet = statement.executeQuery(
+                         "WITH inserted AS (" +
+                         " INSERT INTO develop.readings (username, month, year" + storageColumns + ")" +
+                         " SELECT DISTINCT ON (username, year, month) username, month, year" + typeColumns +
+                         " FROM pg_temp.reading_import ORDER BY username, year, month, line" +
+                         " ON CONFLICT (username, year, month) DO NOTHING RETURNING month, year" + returnedColumns + ")" +
+                         summary +
+                         " SELECT count(*) AS rows_imported FROM inserted")) {
+                resultSet.next();
+                return new ReadingImportResult(rowsRead, rowsRead - rowsInvalid - rejected.size(), resultSet.getLong("rows_imported"));
+            }
+        });
+    }
+
+    /**
+     * Builds the conditions every value of a staged row has to meet on its own, the same checks a submitted reading is validated with:
+     * it must not be negative, must not have more decimal places than the scale of its reading type or too many digits,
+     * its reading type must be active and it must lie within the bounds of the rules of its reading type.
+     *
+     * @param schema       the snapshot of the reading types providing the rules
+     * @param readingTypes the reading types of the staged rows
+     * @return the conditions, each prefixed with AND, or an empty string if there are no reading types
+     */
+    private static String valueChecks(ReadingSchema schema, List<String> readingTypes) {
+        StringBuilder checks = new StringBuilder();
+        for (String type : readingTypes) {
+            int ordinal = schema.ordinal(type);
+            ReadingTypeRules rules = schema.rules(ordinal);
+            String value = "r." + type;
+            checks.append(" AND (").append(value).append(" IS NULL");
+            if (rules.isActive()) {
+                int scale = schema.scale(ordinal);
+                checks.append(" OR ").append(value).append(" >= 0")
+                        .append(" AND ").append(value).append(" = round(").append(value).append(", ").append(scale).append(")")
+                        .append(" AND ").append(value).append(" < 1e").append(MAX_UNSCALED_DIGITS - scale);
+                if (rules.getMinValue() != null) {
+                    checks.append(" AND ").append(value).append(" >= ").append(rules.getMinValue().toPlainString());
+                }
+                if (rules.getMaxValue() != null) {
+                    checks.append(" AND ").append(value).append(" <= ").append(rules.getMaxValue().toPlainString());
+                }
+            }
+            checks.append(")");
+        }
+        return checks.toString();
+    }
+
+    /**
+     * Finds the staged rows that do not follow the readings of their user.
+     * The stored readings of the imported users and the first staged row of every new period are read as one timeline
+     * ordered by user and period, and every staged row is checked against the latest row of its user accepted so far,
+     * stored or staged, and against the next stored reading, as if the rows had been submitted in the order of their periods.
+     * A value of a monotonic reading type must not be lower than the previous value or higher than the next stored one,
+     * and no value may increase by more than the maximum monthly delta of its reading type per month between them.
+     * A rejected row is never the previous row of the next one. A neighbour without a value of the reading type is not checked.
+     * The timeline is fetched in chunks and only the previous row of the current user is kept.
+     *
+     * @param connection   the connection of the import transaction
+     * @param schema       the snapshot of the reading types providing the rules and the columns the stored values are kept in
+     * @param readingTypes the reading types of the staged rows
+     * @return the lines of the rejected rows, empty if none of the reading types has a progression rule
+     * @throws SQLException if the timeline cannot be read
+     */
+    private static List<Long> findBrokenProgressions(Connection connection, ReadingSchema schema, List<String> readingTypes)
+            throws SQLException {
+        List<ReadingTypeRules> rules = new ArrayList<>();
+        StringBuilder stored = new StringBuilder();
+        StringBuilder staged = new StringBuilder();
+        StringBuilder next = new StringBuilder();
+        for (String type : readingTypes) {
+            int ordinal = schema.ordinal(type);
+            ReadingTypeRules typeRules = schema.rules(ordinal);
+            if (!typeRules.isMonotonic() && typeRules.getMaxMonthlyDelta() == null) {
+                continue;
+            }
+            String value = "value_" + rules.size();
+            stored.append(", e.").append(schema.column(ordinal)).append(" AS ").append(value);
+            staged.append(", c.").append(type);
+            next.append(", a.").append(value);
+            rules.add(typeRules);
+        }
+        List<Long> rejected = new ArrayList<>();
+        if (rules.isEmpty()) {
+            return rejected;
+        }
+        String sql = "WITH candidates AS (" +
+                " SELECT DISTINCT ON (username, year, month) * FROM pg_temp.reading_import ORDER BY username, year, month, line)," +
+                " timeline AS (" +
+                " SELECT e.username, e.year * 12 + e.month AS period, 0::bigint AS line" + stored +
+                " FROM develop.readings e WHERE e.username IN (SELECT username FROM candidates)" +
+                " UNION ALL" +
+                " SELECT c.username, c.year * 12 + c.month, c.line" + staged + " FROM candidates c" +
+                " WHERE NOT EXISTS (SELECT 1 FROM develop.readings e" +
+                " WHERE e.username = c.username AND e.year = c.year AND e.month = c.month))," +
+                " neighbours AS (" +
+                " SELECT *, min(period) FILTER (WHERE line = 0) OVER later AS stored_after FROM timeline" +
+                " WINDOW later AS (PARTITION BY username ORDER BY period DESC ROWS BETWEEN UNBOUNDED PRECEDING AND 1 PRECEDING))" +
+                " SELECT n.*, a.period AS next_period" + next + " FROM neighbours n" +
+                " LEFT JOIN timeline a ON a.username = n.username AND a.period = n.stored_after AND a.line = 0" +
+                " ORDER BY n.username, n.period";
+
+        int types = rules.size();
+        try (Statement statement = connection.createStatement()) {
+            statement.setFetchSize(TIMELINE_FETCH_SIZE);
+            try (ResultSet resultSet = statement.executeQuery(sql)) {
+                String username = null;
+                int previousPeriod = 0;
+                BigDecimal[] previous = null;
+                // the columns of a row: username, period, line, the values, stored_after, next_period and the next values
+                int nextColumn = 4 + types + 2;
+                while (resultSet.next()) {
+                    String rowUsername = resultSet.getString(1);
+                    int period = resultSet.getInt(2);
+                    long line = resultSet.getLong(3);
+                    BigDecimal[] values = new BigDecimal[types];
+                    for (int i = 0; i < types; i++) {
+                        values[i] = resultSet.getBigDecimal(4 + i);
+                    }
+                    if (!rowUsername.equals(username)) {
+                        username = rowUsername;
+                        previous = null;
+                    }
+                    if (line > 0) {
+                        int nextPeriod = resultSet.getInt(nextColumn - 1);
+                        boolean hasNext = !resultSet.wasNull();
+                        boolean broken = false;
+                        for (int i = 0; i < types && !broken; i++) {
+                            BigDecimal next = hasNext ? resultSet.getBigDecimal(nextColumn + i) : null;
+                            broken = previous != null && !follows(rules.get(i), previous[i], values[i], period - previousPeriod)
+                                    || !follows(rules.get(i), values[i], next, nextPeriod - period);
+                        }
+                        if (broken) {
+                            rejected.add(line);
+                            continue;
+                        }
+                    }
+                    previous = values;
+                    previousPeriod = period;
+                }
+            }
+        }
+        return rejected;
+    }
+
+    /**
+     * Checks that a value follows an earlier value of the same reading type.
+     *
+     * @param rules   the rules of the reading type
+     * @param earlier the earlier value, or null if there is none
+     * @param later   the later value, or null if there is none
+     * @param months  the number of months between the values
+     * @return false if the later value is lower than the earlier one of a monotonic reading type,
+     * or exceeds it by more than the maximum monthly delta per month
+     */
+    private static boolean follows(ReadingTypeRules rules, BigDecimal earlier, BigDecimal later, int months) {
+        if (earlier == null || later == null) {
+            return true;
+        }
+        BigDecimal delta = later.subtract(earlier);
+        if (rules.isMonotonic() && delta.signum() < 0) {
+            return false;
+        }
+        return rules.getMaxMonthlyDelta() == null
+                || delta.compareTo(rules.getMaxMonthlyDelta().multiply(BigDecimal.valueOf(months))) <= 0;
+    }
+}
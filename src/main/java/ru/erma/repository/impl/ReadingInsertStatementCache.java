@@ -0,0 +1,115 @@
+package ru.erma.repository.impl;
+
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import ru.erma.event.ReadingTypesChangedEvent;
+import ru.erma.model.ReadingSchema;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * This class caches the INSERT statements of the readings table.
+ * A statement is keyed by the sorted set of reading type columns it writes, so the same set of types
+ * always produces the same SQL text and the driver can reuse its server-side prepared statement.
+ * Values are bound as unscaled fixed-point numbers and scaled back to decimals by the statement,
+ * with the scale and the column of every reading type taken from the schema snapshot the statement is built for.
+ * Every statement records the version of the schema it was built from, and is only reused for the same version,
+ * so a statement built from an older snapshot never replaces a newer one or gets handed out for a newer schema.
+ * The cache is cleared whenever the structure of the readings table changes.
+ */
+@Component
+public class ReadingInsertStatementCache {
+
+    private static final int MAX_SIZE = 256;
+
+    private final Map<List<String>, ReadingInsertStatement> statements = new ConcurrentHashMap<>();
+
+    /**
+     * Returns the INSERT statement for the given reading type columns.
+     *
+     * @param schema  the snapshot of the reading types providing the columns and scales, and the version of the statement
+     * @param columns the reading type columns to write, in any order
+     * @return the statement with its columns in canonical order
+     */
+    public ReadingInsertStatement forColumns(ReadingSchema schema, Collection<String> columns) {
+        String[] sorted = columns.toArray(String[]::new);
+        Arrays.sort(sorted);
+        List<String> key = List.of(sorted);
+        ReadingInsertStatement statement = statements.get(key);
+        if (statement != null && statement.version == schema.version()) {
+            return statement;
+        }
+        ReadingInsertStatement built = new ReadingInsertStatement(schema, sorted);
+        if (statement != null || statements.size() < MAX_SIZE) {
+            statements.merge(key, built, (cached, fresh) -> cached.version >= fresh.version ? cached : fresh);
+        }
+        return built;
+    }
+
+    /**
+     * Drops all cached statements, since they may reference reading type columns that no longer exist.
+     *
+     * @param event the event describing the structure change
+     */
+    @EventListener
+    public void onReadingTypesChanged(ReadingTypesChangedEvent event) {
+        statements.clear();
+    }
+
+    /**
+     * The INSERT statements for one set of reading type columns.
+     * Parameters are bound positionally: username, month, year and then the unscaled values of the columns in canonical order.
+     */
+    public static final class ReadingInsertStatement {
+
+        private final long version;
+        private final String[] columns;
+        private final String insertSql;
+        private final String batchInsertSql;
+
+        private ReadingInsertStatement(ReadingSchema schema, String[] columns) {
+            this.version = schema.version();
+            this.columns = columns;
+            StringBuilder sql = new StringBuilder("INSERT INTO develop.readings (username, month, year");
+            StringBuilder values = new StringBuilder(" VALUES (?, ?, ?");
+            for (String column : columns) {
+                int ordinal = schema.ordinal(column);
+                sql.append(", ").append(ordinal < 0 ? column : schema.column(ordinal));
+                int scale = ordinal < 0 ? 0 : schema.scale(ordinal);
+                if (scale > 0) {
+                    values.append(", ? * 0.").append("0".repeat(scale - 1)).append('1');
+                } else {
+                    values.append(", ?");
+                }
+            }
+            sql.append(")").append(values).append(") ON CONFLICT (username, year, month) DO NOTHING");
+            this.batchInsertSql = sql.toString();
+            this.insertSql = batchInsertSql + " RETURNING id";
+        }
+
+        /**
+         * @return the reading type columns in the order they are bound
+         */
+        public String[] columns() {
+            return columns;
+        }
+
+        /**
+         * @return the single-row INSERT that returns the id of the inserted reading
+         */
+        public String insertSql() {
+            return insertSql;
+        }
+
+        /**
+         * @return the INSERT used for batch updates
+         */
+        public String batchInsertSql() {
+            return batchInsertSql;
+        }
+    }
+}
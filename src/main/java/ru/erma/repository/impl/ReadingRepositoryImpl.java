@@ -2,14 +2,26 @@ package ru.erma.repository.impl;
 
 import org.springframework.dao.EmptyResultDataAccessException;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.jdbc.core.RowMapper;
 import org.springframework.stereotype.Repository;
+import ru.erma.config.ReadingExportProperties;
 import ru.erma.model.Reading;
+import ru.erma.model.ReadingSchema;
+import ru.erma.model.ReadingValues;
 import ru.erma.repository.ReadingRepository;
+import ru.erma.repository.impl.ReadingInsertStatementCache.ReadingInsertStatement;
+import ru.erma.service.ReadingStructureService;
 
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Types;
+import java.time.YearMonth;
 import java.util.*;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
 
 /**
  * This class implements the ReadingRepository interface.
@@ -19,68 +31,271 @@ import java.util.*;
 @Repository
 public class ReadingRepositoryImpl implements ReadingRepository<String, Reading> {
 
+    private static final Pattern SNAPSHOT_ID = Pattern.compile("[0-9A-F]+(-[0-9A-F]+)+");
+
     private final JdbcTemplate jdbcTemplate;
 
-    public ReadingRepositoryImpl(JdbcTemplate jdbcTemplate) {
+    private final ReadingInsertStatementCache statementCache;
+
+    private final ReadingStructureService readingStructureService;
+
+    private final ReadingExportProperties exportProperties;
+
+    private volatile QueryPlan plan;
+
+    public ReadingRepositoryImpl(JdbcTemplate jdbcTemplate, ReadingInsertStatementCache statementCache,
+                                 ReadingStructureService readingStructureService, ReadingExportProperties exportProperties) {
         this.jdbcTemplate = jdbcTemplate;
+        this.statementCache = statementCache;
+        this.readingStructureService = readingStructureService;
+        this.exportProperties = exportProperties;
+    }
+
+    /**
+     * Inserts the given reading with a single statement.
+     * A reading that already exists for the same username, month and year is left untouched.
+     *
+     * @param username the username for which to save the reading
+     * @param reading the reading to save
+     * @return true if the reading was inserted, false if it already existed
+     */
+    @Override
+    public boolean save(String username, Reading reading) {
+        ReadingValues values = reading.getValues();
+        ReadingInsertStatement statement = statementCache.forColumns(values.schema(), values.presentTypes());
+        Boolean inserted = jdbcTemplate.query(statement.insertSql(),
+                ps -> bind(ps, statement.columns(), username, reading),
+                ResultSet::next);
+        return Boolean.TRUE.equals(inserted);
     }
 
+    /**
+     * Saves all the given readings with one batched INSERT.
+     * The statement covers every reading type used in the batch, types missing from a reading are bound as null.
+     * Readings that already exist for the same username, month and year are skipped.
+     *
+     * @param username the username for which to save the readings
+     * @param readings the readings to save
+     * @return for every reading, true if it was inserted, false if it already existed
+     */
     @Override
-    public void save(String username, Reading reading) {
-        StringBuilder sql = new StringBuilder("INSERT INTO develop.readings (username, month, year");
-        StringBuilder values = new StringBuilder(" VALUES (?, ?, ?");
-        Map<String, Integer> readingValues = reading.getValues();
-        for (String key : readingValues.keySet()) {
-            sql.append(", ").append(key);
-            values.append(", ?");
+    public boolean[] saveAll(String username, List<Reading> readings) {
+        if (readings.isEmpty()) {
+            return new boolean[0];
+        }
+        Set<String> columns = new HashSet<>();
+        for (Reading reading : readings) {
+            columns.addAll(reading.getValues().presentTypes());
         }
-        sql.append(")").append(values).append(")");
-        List<Object> parameters = new ArrayList<>();
-        parameters.add(username);
-        parameters.add(reading.getMonth());
-        parameters.add(reading.getYear());
-        parameters.addAll(readingValues.values());
-        jdbcTemplate.update(sql.toString(), parameters.toArray());
+        ReadingInsertStatement statement = statementCache.forColumns(readings.get(0).getValues().schema(), columns);
+        int[][] updateCounts = jdbcTemplate.batchUpdate(statement.batchInsertSql(), readings, readings.size(),
+                (ps, reading) -> bind(ps, statement.columns(), username, reading));
+        boolean[] inserted = new boolean[readings.size()];
+        for (int i = 0; i < inserted.length; i++) {
+            inserted[i] = updateCounts[0][i] > 0;
+        }
+        return inserted;
     }
 
     @Override
     public List<Reading> findByUsername(String username) {
-        String sql = "SELECT * FROM develop.readings WHERE username = ?";
-        return jdbcTemplate.query(sql, new Object[]{username}, new ReadingRowMapper());
+        QueryPlan plan = plan();
+        return jdbcTemplate.query(plan.findByUsernameSql, new Object[]{username}, plan.rowMapper);
+    }
+
+    @Override
+    public List<Reading> findPageByUsername(String username, YearMonth after, int limit) {
+        QueryPlan plan = plan();
+        if (after == null) {
+            return jdbcTemplate.query(plan.findFirstPageSql, plan.rowMapper, username, limit);
+        }
+        return jdbcTemplate.query(plan.findPageAfterSql, plan.rowMapper,
+                username, after.getYear(), after.getMonthValue(), limit);
+    }
+
+    @Override
+    public List<Reading> findByUsernameBetween(String username, YearMonth from, YearMonth to) {
+        QueryPlan plan = plan();
+        return jdbcTemplate.query(plan.findBetweenSql, plan.rowMapper,
+                username, from.getYear(), from.getMonthValue(), to.getYear(), to.getMonthValue());
+    }
+
+    @Override
+    public void streamByUsername(String username, Consumer<Reading> action) {
+        QueryPlan plan = plan();
+        jdbcTemplate.query(connection -> {
+            PreparedStatement ps = connection.prepareStatement(plan.streamByUsernameSql);
+            ps.setFetchSize(exportProperties.getFetchSize());
+            ps.setString(1, username);
+            return ps;
+        }, (RowCallbackHandler) resultSet -> action.accept(plan.rowMapper.mapRow(resultSet, 0)));
+    }
+
+    @Override
+    public List<String> findUsernameBoundaries(YearMonth period, int chunks) {
+        return jdbcTemplate.queryForList(
+                "SELECT min(username) FROM (SELECT username, ntile(?) OVER (ORDER BY username) AS chunk" +
+                " FROM develop.readings WHERE year = ? AND month = ?) chunks GROUP BY chunk ORDER BY 1",
+                String.class, chunks, period.getYear(), period.getMonthValue());
+    }
+
+    @Override
+    public void streamByPeriod(YearMonth period, String from, String to, BiConsumer<String, Reading> action) {
+        QueryPlan plan = plan();
+        int usernameColumn = ReadingRowMapper.FIRST_VALUE_COLUMN + plan.schema.size();
+        jdbcTemplate.query(connection -> {
+            PreparedStatement ps = connection.prepareStatement(to == null ? plan.streamByPeriodSql : plan.streamByPeriodRangeSql);
+            ps.setFetchSize(exportProperties.getFetchSize());
+            ps.setInt(1, period.getYear());
+            ps.setInt(2, period.getMonthValue());
+            ps.setString(3, from);
+            if (to != null) {
+                ps.setString(4, to);
+            }
+            return ps;
+        }, (RowCallbackHandler) resultSet ->
+                action.accept(resultSet.getString(usernameColumn), plan.rowMapper.mapRow(resultSet, 0)));
+    }
+
+    @Override
+    public String exportSnapshot() {
+        return jdbcTemplate.queryForObject("SELECT pg_export_snapshot()", String.class);
+    }
+
+    @Override
+    public void importSnapshot(String snapshotId) {
+        if (!SNAPSHOT_ID.matcher(snapshotId).matches()) {
+            throw new IllegalArgumentException("Invalid snapshot identifier: " + snapshotId);
+        }
+        jdbcTemplate.execute("SET TRANSACTION SNAPSHOT '" + snapshotId + "'");
     }
 
     @Override
     public List<Reading> findByUsernameAndMonthAndYear(String username, int month, int year) {
-        String sql = "SELECT * FROM develop.readings WHERE username = ? AND month = ? AND year = ?";
-        return jdbcTemplate.query(sql, new Object[]{username, month, year}, new ReadingRowMapper());
+        QueryPlan plan = plan();
+        return jdbcTemplate.query(plan.findByPeriodSql, new Object[]{username, month, year}, plan.rowMapper);
     }
 
     @Override
     public Optional<Reading> findLatestByUsername(String username) {
-        String sql = "SELECT * FROM develop.readings WHERE username = ? ORDER BY year DESC, month DESC LIMIT 1";
+        QueryPlan plan = plan();
         try {
-            Reading reading = jdbcTemplate.queryForObject(sql, new Object[]{username}, new ReadingRowMapper());
+            Reading reading = jdbcTemplate.queryForObject(plan.findLatestSql, new Object[]{username}, plan.rowMapper);
             return Optional.ofNullable(reading);
         } catch (EmptyResultDataAccessException e) {
             return Optional.empty();
         }
     }
 
-    private static class ReadingRowMapper implements RowMapper<Reading> {
+    /**
+     * Returns the query plan for the current schema snapshot, building it when the snapshot has changed.
+     *
+     * @return the query plan
+     */
+    private QueryPlan plan() {
+        ReadingSchema schema = readingStructureService.getSchema();
+        QueryPlan current = plan;
+        if (current == null || current.schema != schema) {
+            current = new QueryPlan(schema);
+            plan = current;
+        }
+        return current;
+    }
+
+    private static void bind(PreparedStatement ps, String[] columns, String username, Reading reading) throws SQLException {
+        ReadingValues values = reading.getValues();
+        ReadingSchema schema = values.schema();
+        ps.setString(1, username);
+        ps.setInt(2, reading.getMonth());
+        ps.setInt(3, reading.getYear());
+        for (int i = 0; i < columns.length; i++) {
+            int ordinal = schema.ordinal(columns[i]);
+            if (ordinal >= 0 && values.isPresent(ordinal)) {
+                ps.setLong(i + 4, values.get(ordinal));
+            } else {
+                ps.setNull(i + 4, Types.BIGINT);
+            }
+        }
+    }
+
+    /**
+     * The queries of the readings table compiled for one schema snapshot.
+     * Every query selects the month and year, followed by the column of every reading type in ordinal order
+     * and, for the queries of a period, the username,
+     * converted by the database to its unscaled fixed-point value, so no decimal numbers are created while reading rows.
+     * The SQL text and the row mapper are built once per snapshot and shared by all queries until the reading types change.
+     */
+    private static final class QueryPlan {
+
+        private final ReadingSchema schema;
+        private final ReadingRowMapper rowMapper;
+        private final String findByUsernameSql;
+        private final String findFirstPageSql;
+        private final String findPageAfterSql;
+        private final String findBetweenSql;
+        private final String streamByUsernameSql;
+        private final String streamByPeriodSql;
+        private final String streamByPeriodRangeSql;
+        private final String findByPeriodSql;
+        private final String findLatestSql;
+
+        private QueryPlan(ReadingSchema schema) {
+            this.schema = schema;
+            this.rowMapper = new ReadingRowMapper(schema);
+            StringBuilder columns = new StringBuilder("SELECT month, year");
+            for (int i = 0; i < schema.size(); i++) {
+                columns.append(", (").append(schema.column(i));
+                if (schema.scale(i) > 0) {
+                    columns.append(" * ").append(schema.factor(i));
+                }
+                columns.append(")::bigint AS ").append(schema.type(i));
+            }
+            String byPeriod = columns + ", username FROM develop.readings WHERE year = ? AND month = ? AND username >= ?";
+            String byUsername = columns.append(" FROM develop.readings WHERE username = ?").toString();
+            String newestFirst = " ORDER BY year DESC, month DESC";
+            this.findByUsernameSql = byUsername;
+            this.findFirstPageSql = byUsername + newestFirst + " LIMIT ?";
+            this.findPageAfterSql = byUsername + " AND (year, month) < (?, ?)" + newestFirst + " LIMIT ?";
+            this.findBetweenSql = byUsername + " AND (year, month) BETWEEN (?, ?) AND (?, ?) ORDER BY year, month";
+            this.streamByUsernameSql = byUsername + newestFirst;
+            this.streamByPeriodSql = byPeriod + " ORDER BY username";
+            this.streamByPeriodRangeSql = byPeriod + " AND username < ? ORDER BY username";
+            this.findByPeriodSql = byUsername + " AND month = ? AND year = ?";
+            this.findLatestSql = byUsername + newestFirst + " LIMIT 1";
+        }
+    }
+
+    /**
+     * Maps rows selected by a query plan to readings.
+     * Columns are read by position: the month and year, followed by the unscaled value of every reading type in ordinal order.
+     * The mapper holds no per-row state and is shared by all queries of a plan.
+     * SQL NULL values are left absent.
+     */
+    private static final class ReadingRowMapper implements RowMapper<Reading> {
+
+        private static final int FIRST_VALUE_COLUMN = 3;
+
+        private final ReadingSchema schema;
+
+        private ReadingRowMapper(ReadingSchema schema) {
+            this.schema = schema;
+        }
+
         @Override
         public Reading mapRow(ResultSet resultSet, int i) throws SQLException {
             Reading reading = new Reading();
-            reading.setMonth(resultSet.getInt("month"));
-            reading.setYear(resultSet.getInt("year"));
-            Map<String, Integer> values = new HashMap<>();
-            for (int j = 1; j <= resultSet.getMetaData().getColumnCount(); j++) {
-                String columnName = resultSet.getMetaData().getColumnName(j);
-                if (!columnName.equals("id") && !columnName.equals("username") && !columnName.equals("month") && !columnName.equals("year")) {
-                    values.put(columnName, resultSet.getInt(columnName));
+            reading.setMonth(resultSet.getInt(1));
+            reading.setYear(resultSet.getInt(2));
+            ReadingValues values = new ReadingValues(schema);
+            int size = schema.size();
+            for (int ordinal = 0; ordinal < size; ordinal++) {
+                long value = resultSet.getLong(FIRST_VALUE_COLUMN + ordinal);
+                if (!resultSet.wasNull()) {
+                    values.set(ordinal, value);
                 }
             }
             reading.setValues(values);
             return reading;
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,160 @@
+package ru.erma.repository.impl;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import ru.erma.model.Reading;
+import ru.erma.model.ReadingSchema;
+import ru.erma.model.ReadingSummary;
+import ru.erma.model.ReadingValues;
+import ru.erma.repository.ReadingSummaryRepository;
+
+import java.math.BigDecimal;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.StringJoiner;
+import java.util.TreeMap;
+
+/**
+ * This class implements the ReadingSummaryRepository interface.
+ * The aggregates of a reading type and month are one row of the reading_summary table,
+ * readings are added to it with an upsert that increments the sum and the count and widens the bounds.
+ * The rows of a call are aggregated beforehand and upserted in a fixed order,
+ * so concurrent transactions lock the rows they share in the same order.
+ */
+@Repository
+public class ReadingSummaryRepositoryImpl implements ReadingSummaryRepository {
+
+    private static final String UPSERT_COLUMNS =
+            "INSERT INTO develop.reading_summary AS s (year, month, reading_type, total, reading_count, min_value, max_value) ";
+
+    private static final String ON_CONFLICT_ACCUMULATE =
+            " ON CONFLICT (year, month, reading_type) DO UPDATE SET" +
+            " total = s.total + EXCLUDED.total," +
+            " reading_count = s.reading_count + EXCLUDED.reading_count," +
+            " min_value = LEAST(s.min_value, EXCLUDED.min_value)," +
+            " max_value = GREATEST(s.max_value, EXCLUDED.max_value)";
+
+    private static final String UPSERT_SQL = UPSERT_COLUMNS + "VALUES (?, ?, ?, ?, ?, ?, ?)" + ON_CONFLICT_ACCUMULATE;
+
+    private static final Comparator<Period> PERIOD_ORDER = Comparator.comparingInt(Period::year)
+            .thenComparingInt(Period::month)
+            .thenComparing(Period::type);
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public ReadingSummaryRepositoryImpl(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Builds an upsert that adds the aggregates of a set of readings to the summary.
+     * It is shared with the bulk import, which adds the rows it inserted in the same statement.
+     *
+     * @param source  the table or common table expression with the readings, with month, year and reading type columns
+     * @param types   the reading types to aggregate, must not be empty
+     * @param columns the columns of the reading types in the source, in the order of the types
+     * @return the INSERT statement
+     */
+    static String upsertFrom(String source, List<String> types, List<String> columns) {
+        StringJoiner values = new StringJoiner(", ");
+        for (int i = 0; i < types.size(); i++) {
+            values.add("('" + types.get(i) + "', r." + columns.get(i) + ")");
+        }
+        return UPSERT_COLUMNS +
+                "SELECT r.year, r.month, v.reading_type, SUM(v.value), COUNT(*), MIN(v.value), MAX(v.value)" +
+                " FROM " + source + " r CROSS JOIN LATERAL (VALUES " + values + ") AS v(reading_type, value)" +
+                " WHERE v.value IS NOT NULL" +
+                " GROUP BY r.year, r.month, v.reading_type ORDER BY r.year, r.month, v.reading_type" +
+                ON_CONFLICT_ACCUMULATE;
+    }
+
+    @Override
+    public void addAll(List<Reading> readings) {
+        Map<Period, Aggregate> aggregates = new TreeMap<>(PERIOD_ORDER);
+        for (Reading reading : readings) {
+            ReadingValues values = reading.getValues();
+            ReadingSchema schema = values.schema();
+            for (int i = 0; i < schema.size(); i++) {
+                if (values.isPresent(i)) {
+                    aggregates.computeIfAbsent(new Period(reading.getYear(), reading.getMonth(), schema.type(i)),
+                            period -> new Aggregate()).add(values.get(i), schema.scale(i));
+                }
+            }
+        }
+        if (aggregates.isEmpty()) {
+            return;
+        }
+        List<Object[]> batch = new ArrayList<>(aggregates.size());
+        aggregates.forEach((period, aggregate) -> batch.add(new Object[]{
+                period.year(), period.month(), period.type(),
+                BigDecimal.valueOf(aggregate.total, aggregate.scale), aggregate.count,
+                BigDecimal.valueOf(aggregate.min, aggregate.scale), BigDecimal.valueOf(aggregate.max, aggregate.scale)}));
+        jdbcTemplate.batchUpdate(UPSERT_SQL, batch);
+    }
+
+    @Override
+    public int rebuild(ReadingSchema schema) {
+        jdbcTemplate.execute("LOCK TABLE develop.reading_summary IN EXCLUSIVE MODE");
+        jdbcTemplate.update("DELETE FROM develop.reading_summary");
+        if (schema.size() == 0) {
+            return 0;
+        }
+        List<String> columns = new ArrayList<>(schema.size());
+        for (int i = 0; i < schema.size(); i++) {
+            columns.add(schema.column(i));
+        }
+        return jdbcTemplate.update(upsertFrom("develop.readings", schema.types(), columns));
+    }
+
+    @Override
+    public void removeType(String type) {
+        jdbcTemplate.update("DELETE FROM develop.reading_summary WHERE reading_type = ?", type);
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return !Boolean.TRUE.equals(jdbcTemplate.queryForObject(
+                "SELECT EXISTS (SELECT 1 FROM develop.reading_summary)", Boolean.class));
+    }
+
+    @Override
+    public List<ReadingSummary> findBetween(YearMonth from, YearMonth to) {
+        return jdbcTemplate.query(
+                "SELECT reading_type, year, month, total, reading_count, min_value, max_value FROM develop.reading_summary" +
+                " WHERE (year, month) BETWEEN (?, ?) AND (?, ?) ORDER BY year, month, reading_type",
+                (resultSet, i) -> new ReadingSummary(
+                        resultSet.getString("reading_type"),
+                        resultSet.getInt("year"),
+                        resultSet.getInt("month"),
+                        resultSet.getBigDecimal("total"),
+                        resultSet.getLong("reading_count"),
+                        resultSet.getBigDecimal("min_value"),
+                        resultSet.getBigDecimal("max_value")),
+                from.getYear(), from.getMonthValue(), to.getYear(), to.getMonthValue());
+    }
+
+    private record Period(int year, int month, String type) {
+    }
+
+    /**
+     * The aggregates of the unscaled values of one reading type in one month.
+     */
+    private static final class Aggregate {
+        private long total;
+        private long count;
+        private long min = Long.MAX_VALUE;
+        private long max = Long.MIN_VALUE;
+        private int scale;
+
+        private void add(long value, int valueScale) {
+            total = Math.addExact(total, value);
+            count++;
+            min = Math.min(min, value);
+            max = Math.max(max, value);
+            scale = valueScale;
+        }
+    }
+}
@@ -2,37 +2,110 @@ package ru.erma.repository.impl;
 
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Repository;
+import ru.erma.config.ReadingStorageProperties;
+import ru.erma.config.ReadingStructureProperties;
+import ru.erma.exception.TypeNotFoundException;
+import ru.erma.model.ReadingType;
+import ru.erma.model.ReadingTypeRules;
 import ru.erma.repository.ReadingTypeRepository;
 
 import java.sql.ResultSet;
+import java.sql.SQLException;
 import java.util.List;
+import java.util.Objects;
 
 /**
- * This class implements the ReadingRepository interface.
- * It provides methods to save and retrieve reading records from the database.
+ * This class implements the ReadingTypeRepository interface.
+ * It registers the reading types and their rules in the reading_types table and manages the storage of their values
+ * according to the configured storage model.
+ * In the wide model every reading type is a column of the readings table, which is added and dropped with the type.
+ * The ALTER TABLE waits for its lock at most for the configured lock timeout, since every later query of the table
+ * waits behind it, and fails with a CannotAcquireLockException when the timeout expires.
+ * It must be called inside a transaction, which the lock timeout is limited to.
+ * In the packed model the values are elements of the reading_values array, indexed by the id of their type,
+ * so a reading type is added and removed without any DDL. Ids are never reused,
+ * the values of a removed type are left in the arrays but can never be read again.
  * It uses the JdbcTemplate to execute SQL queries.
  */
 @Repository
 public class ReadingTypeRepositoryImpl implements ReadingTypeRepository<String> {
 
+    private static final String TYPE_COLUMNS = "t.name, t.scale, t.unit, t.min_value, t.max_value, t.max_monthly_delta, t.active, t.monotonic";
+
     private final JdbcTemplate jdbcTemplate;
 
-    public ReadingTypeRepositoryImpl(JdbcTemplate jdbcTemplate) {
+    private final boolean packed;
+
+    private final long lockTimeout;
+
+    public ReadingTypeRepositoryImpl(JdbcTemplate jdbcTemplate, ReadingStorageProperties storageProperties,
+                                     ReadingStructureProperties structureProperties) {
         this.jdbcTemplate = jdbcTemplate;
+        this.packed = storageProperties.getModel() == ReadingStorageProperties.Model.PACKED;
+        this.lockTimeout = structureProperties.getLockTimeout();
+    }
+
+    @Override
+    public ReadingType addReadingType(String name, int scale) {
+        if (packed) {
+            Long id = jdbcTemplate.queryForObject("INSERT INTO develop.reading_types (name, scale) VALUES (?, ?) RETURNING id",
+                    Long.class, name, scale);
+            return new ReadingType(name, scale, packedColumn(Objects.requireNonNull(id)));
+        }
+        jdbcTemplate.update("INSERT INTO develop.reading_types (name, scale) VALUES (?, ?)", name, scale);
+        alterReadingsTable("ADD COLUMN " + name + " numeric(18, " + scale + ")");
+        return new ReadingType(name, scale);
+    }
+
+    @Override
+    public void removeReadingType(String name) {
+        if (packed) {
+            if (jdbcTemplate.update("DELETE FROM develop.reading_types WHERE name = ?", name) == 0) {
+                throw new TypeNotFoundException("Reading type not found");
+            }
+            return;
+        }
+        alterReadingsTable("DROP COLUMN " + name);
+        jdbcTemplate.update("DELETE FROM develop.reading_types WHERE name = ?", name);
+    }
+
+    @Override
+    public void updateReadingTypeRules(String name, ReadingTypeRules rules) {
+        String sql = "UPDATE develop.reading_types SET unit = ?, min_value = ?, max_value = ?, max_monthly_delta = ?, active = ?, monotonic = ? WHERE name = ?";
+        if (jdbcTemplate.update(sql, rules.getUnit(), rules.getMinValue(), rules.getMaxValue(), rules.getMaxMonthlyDelta(),
+                rules.isActive(), rules.isMonotonic(), name) == 0) {
+            throw new TypeNotFoundException("Reading type not found");
+        }
+    }
+
+    @Override
+    public List<ReadingType> getReadingTypesFromDatabase() {
+        if (packed) {
+            return jdbcTemplate.query("SELECT " + TYPE_COLUMNS + ", id FROM develop.reading_types t ORDER BY id",
+                    (ResultSet resultSet, int i) -> mapReadingType(resultSet, packedColumn(resultSet.getLong("id"))));
+        }
+        String sql = "SELECT " + TYPE_COLUMNS + " FROM develop.reading_types t JOIN information_schema.columns c ON c.column_name = t.name AND c.table_name = 'readings' AND c.table_schema = 'develop' ORDER BY c.ordinal_position";
+        return jdbcTemplate.query(sql, (ResultSet resultSet, int i) -> mapReadingType(resultSet, resultSet.getString("name")));
     }
 
-    public void addColumnToReadingsTable(String columnName) {
-        String sql = "ALTER TABLE develop.readings ADD COLUMN " + columnName + " double precision";
-        jdbcTemplate.execute(sql);
+    private static ReadingType mapReadingType(ResultSet resultSet, String column) throws SQLException {
+        ReadingTypeRules rules = new ReadingTypeRules(resultSet.getString("unit"), resultSet.getBigDecimal("min_value"),
+                resultSet.getBigDecimal("max_value"), resultSet.getBigDecimal("max_monthly_delta"), resultSet.getBoolean("active"),
+                resultSet.getBoolean("monotonic"));
+        return new ReadingType(resultSet.getString("name"), resultSet.getInt("scale"), column, rules);
     }
 
-    public void removeColumnFromReadingsTable(String columnName) {
-        String sql = "ALTER TABLE develop.readings DROP COLUMN " + columnName;
-        jdbcTemplate.execute(sql);
+    /**
+     * Alters the readings table, waiting for its lock at most for the lock timeout.
+     *
+     * @param action the action of the ALTER TABLE statement
+     */
+    private void alterReadingsTable(String action) {
+        jdbcTemplate.execute("SET LOCAL lock_timeout = " + lockTimeout);
+        jdbcTemplate.execute("ALTER TABLE develop.readings " + action);
     }
 
-    public List<String> getReadingTypesFromDatabase() {
-        String sql = "SELECT column_name FROM information_schema.columns WHERE table_name = 'readings' AND table_schema = 'develop' AND column_name NOT IN ('id', 'username', 'month', 'year')";
-        return jdbcTemplate.query(sql, (ResultSet resultSet, int i) -> resultSet.getString("column_name"));
+    private static String packedColumn(long id) {
+        return "reading_values[" + id + "]";
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,41 @@
+package ru.erma.repository.impl;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import ru.erma.repository.ReadingVersionRepository;
+
+import java.util.List;
+
+/**
+ * This class implements the ReadingVersionRepository interface.
+ * The versions are kept in the reading_versions table, which the triggers of the readings table maintain,
+ * so looking up a version never touches the readings.
+ * The schema epoch is kept in the single row of the reading_schema_epoch table.
+ */
+@Repository
+public class ReadingVersionRepositoryImpl implements ReadingVersionRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public ReadingVersionRepositoryImpl(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public long findVersion(String username) {
+        List<Long> versions = jdbcTemplate.queryForList(
+                "SELECT version FROM develop.reading_versions WHERE username = ?", Long.class, username);
+        return versions.isEmpty() ? 0 : versions.get(0);
+    }
+
+    @Override
+    public long findSchemaEpoch() {
+        Long epoch = jdbcTemplate.queryForObject("SELECT epoch FROM develop.reading_schema_epoch WHERE id = 1", Long.class);
+        return epoch == null ? 0 : epoch;
+    }
+
+    @Override
+    public void incrementSchemaEpoch() {
+        jdbcTemplate.update("UPDATE develop.reading_schema_epoch SET epoch = epoch + 1 WHERE id = 1");
+    }
+}
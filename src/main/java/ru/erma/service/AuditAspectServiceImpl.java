@@ -8,7 +8,8 @@ import ru.erma.repository.AuditRepository;
 
 /**
  * This class provides services related to Audit operations.
- * It uses an AuditRepository to perform operations on Audit data.
+ * It uses an AuditRepository to perform operations on Audit data,
+ * or hands the audit records to the AuditWriterService if they are written asynchronously.
  */
 @Service
 @RequiredArgsConstructor
@@ -16,14 +17,21 @@ public class AuditAspectServiceImpl implements AuditAspectService {
 
     private final AuditRepository<Audit> auditRepository;
 
+    private final AuditWriterService auditWriterService;
+
     /**
-     * Saves the given audit record to the AuditRepository.
+     * Saves the given audit record to the AuditRepository,
+     * or queues it for the AuditWriterService if audit records are written asynchronously.
      *
      * @param audit the audit record to save
      */
     @Override
     public void saveAudit(Audit audit) {
-        auditRepository.save(audit);
+        if (auditWriterService.isEnabled()) {
+            auditWriterService.enqueue(audit);
+        } else {
+            auditRepository.save(audit);
+        }
     }
 
 }
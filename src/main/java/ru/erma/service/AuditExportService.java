@@ -0,0 +1,94 @@
+package ru.erma.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.erma.mappers.AuditMapper;
+import ru.erma.model.Audit;
+import ru.erma.model.AuditFilter;
+import ru.erma.repository.AuditRepository;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.Objects;
+
+/**
+ * The AuditExportService class writes the audit records matching a filter as a stream.
+ * Every record is serialized as soon as its row arrives from the database and is not kept afterwards,
+ * so the memory use of an export does not depend on the number of records.
+ */
+@Service
+public class AuditExportService {
+
+    private final AuditRepository<Audit> auditRepository;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final AuditMapper mapper;
+
+    private final ObjectMapper objectMapper;
+
+    /**
+     * Constructs a new AuditExportService.
+     *
+     * @param auditRepository the repository the audit records are streamed from.
+     * @param transactionTemplate the template providing the transaction manager, every export runs in a read-only transaction
+     *                            so that the driver fetches the rows in chunks.
+     * @param mapper the mapper converting the audit records to their DTOs.
+     * @param objectMapper the mapper used to serialize the audit records.
+     */
+    public AuditExportService(AuditRepository<Audit> auditRepository,
+                              TransactionTemplate transactionTemplate,
+                              AuditMapper mapper,
+                              ObjectMapper objectMapper) {
+        this.auditRepository = auditRepository;
+        this.transactionTemplate = new TransactionTemplate(Objects.requireNonNull(transactionTemplate.getTransactionManager()));
+        this.transactionTemplate.setReadOnly(true);
+        this.mapper = mapper;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Writes the audit records matching a filter to the given stream, the most recent first.
+     * The JSON format is an object with the array of audit records, like a page of audit records without a cursor.
+     * The NDJSON format is one audit record object per line.
+     * The stream is flushed but not closed.
+     *
+     * @param filter the conditions the audit records are selected by
+     * @param format the format of the output, JSON or NDJSON
+     * @param out    the stream to write to
+     */
+    @ru.erma.aop.annotations.Audit(action = "Admin exported audits")
+    public void exportAudits(AuditFilter filter, ReadingExportService.Format format, OutputStream out) {
+        transactionTemplate.executeWithoutResult(status -> {
+            try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+                generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+                if (format == ReadingExportService.Format.JSON) {
+                    generator.writeStartObject();
+                    generator.writeArrayFieldStart("audits");
+                    auditRepository.stream(filter, audit -> write(generator, audit, false));
+                    generator.writeEndArray();
+                    generator.writeEndObject();
+                } else {
+                    generator.setRootValueSeparator(null);
+                    auditRepository.stream(filter, audit -> write(generator, audit, true));
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    private void write(JsonGenerator generator, Audit audit, boolean newLine) {
+        try {
+            generator.writeObject(mapper.toAuditDTO(audit));
+            if (newLine) {
+                generator.writeRaw('\n');
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -2,12 +2,17 @@ package ru.erma.service;
 
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
-import ru.erma.dto.AuditDTO;
+import ru.erma.dto.AuditListDTO;
 import ru.erma.exception.NoLogsFoundException;
+import ru.erma.exception.NotValidArgumentException;
 import ru.erma.mappers.AuditMapper;
 import ru.erma.model.Audit;
+import ru.erma.model.AuditCursor;
+import ru.erma.model.AuditFilter;
 import ru.erma.repository.AuditRepository;
 
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
 import java.util.List;
 
 /**
@@ -23,18 +28,80 @@ public class AuditService {
     private final AuditMapper mapper;
 
     /**
-     * This method is used to retrieve all audit records from the database.
-     * It uses the AuditRepository's findAll method to do this.
+     * Retrieves a page of the audit records matching a filter, the most recent first.
+     * The cursor is the timestamp and id of the last record of the previous page, separated by an underscore,
+     * the cursor of the following page is returned with the page if there are more records.
+     * If no records match the filter at all, it throws a NoLogsFoundException.
+     * If the cursor is not valid, it throws a NotValidArgumentException.
      *
-     * @return a list of AuditDTO objects representing all audits in the database
-     * @throws NoLogsFoundException if no audits are found in the database
+     * @param filter the conditions the audit records are selected by
+     * @param limit  the maximum number of audit records in the page
+     * @param after  the cursor of the page, or null for the first page
+     * @return a page of audit records
      */
     @ru.erma.aop.annotations.Audit(action = "Admin viewed all audits")
-    public List<AuditDTO> getAllAudits(){
-        List<Audit> audits = auditRepository.findAll();
-        if (audits.isEmpty()) {
+    public AuditListDTO getAudits(AuditFilter filter, int limit, String after) {
+        AuditCursor cursor = parseCursor(after);
+        List<Audit> audits = auditRepository.findPage(filter, cursor, limit + 1);
+        if (cursor == null && audits.isEmpty()) {
             throw new NoLogsFoundException("No audit logs found");
         }
-        return mapper.toAuditListDTO(audits);
+        String nextCursor = null;
+        if (audits.size() > limit) {
+            audits = audits.subList(0, limit);
+            Audit last = audits.get(limit - 1);
+            nextCursor = last.getTimestamp() + "_" + last.getId();
+        }
+        return new AuditListDTO(mapper.toAuditListDTO(audits), nextCursor);
+    }
+
+    /**
+     * Creates the filter of audit records from the request parameters.
+     * Blank parameters are ignored, the times are in the ISO yyyy-MM-ddTHH:mm:ss format.
+     * If a time is not valid or the time range is empty, it throws a NotValidArgumentException.
+     *
+     * @param username the username of the user who performed the action, or null
+     * @param action   the action performed by the user, or null
+     * @param from     the earliest time of the action, inclusive, or null
+     * @param to       the latest time of the action, exclusive, or null
+     * @return the filter
+     */
+    public AuditFilter parseFilter(String username, String action, String from, String to) {
+        LocalDateTime fromTime = parseTime(from);
+        LocalDateTime toTime = parseTime(to);
+        if (fromTime != null && toTime != null && !fromTime.isBefore(toTime)) {
+            throw new NotValidArgumentException("The start of the time range must be before its end.");
+        }
+        return new AuditFilter(blankToNull(username), blankToNull(action), fromTime, toTime);
+    }
+
+    private static AuditCursor parseCursor(String value) {
+        if (value == null || value.isEmpty()) {
+            return null;
+        }
+        int separator = value.lastIndexOf('_');
+        try {
+            if (separator < 0) {
+                throw new IllegalArgumentException();
+            }
+            return new AuditCursor(LocalDateTime.parse(value.substring(0, separator)), Long.parseLong(value.substring(separator + 1)));
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            throw new NotValidArgumentException("Invalid cursor: " + value + ", expected the nextCursor of the previous page.");
+        }
+    }
+
+    private static LocalDateTime parseTime(String value) {
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+        try {
+            return LocalDateTime.parse(value);
+        } catch (DateTimeParseException e) {
+            throw new NotValidArgumentException("Invalid time: " + value + ", expected the yyyy-MM-ddTHH:mm:ss format.");
+        }
+    }
+
+    private static String blankToNull(String value) {
+        return value == null || value.isBlank() ? null : value;
     }
 }
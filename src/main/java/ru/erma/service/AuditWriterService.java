@@ -0,0 +1,344 @@
+package ru.erma.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.erma.config.AuditProperties;
+import ru.erma.config.AuditProperties.OverflowPolicy;
+import ru.erma.dto.AuditWriterStatsDTO;
+import ru.erma.model.Audit;
+import ru.erma.repository.AuditRepository;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The AuditWriterService class writes audit records asynchronously.
+ * Audit records are placed in a bounded in-memory queue and a single writer thread writes them
+ * in batches of up to batch-size records or after flush-interval milliseconds, whichever comes first.
+ * A record that does not fit into the queue is handled by the overflow policy: the request thread waits for room,
+ * the record is dropped, or it is appended to the spill file.
+ * The spill file is written to the database once the writer is idle, in one transaction, and deleted afterwards.
+ * On shutdown the queue is drained, the records left once the shutdown timeout has passed are spilled.
+ */
+@Slf4j
+@Service
+public class AuditWriterService {
+
+    private final AuditRepository<Audit> auditRepository;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final ObjectMapper objectMapper;
+
+    private final AuditProperties properties;
+
+    private final BlockingQueue<Audit> queue;
+
+    private final Path spillFile;
+
+    private final Path replayFile;
+
+    private final Object spillLock = new Object();
+
+    private final AtomicLong written = new AtomicLong();
+
+    private final AtomicLong dropped = new AtomicLong();
+
+    private final AtomicLong spilled = new AtomicLong();
+
+    private final AtomicLong failed = new AtomicLong();
+
+    private volatile boolean spillPending;
+
+    private long nextReplay;
+
+    private volatile boolean running;
+
+    private Thread writer;
+
+    /**
+     * Constructs a new AuditWriterService.
+     *
+     * @param auditRepository the repository the audit records are written with.
+     * @param transactionTemplate the template the spilled records are written in.
+     * @param objectMapper the mapper the spilled records are serialized with.
+     * @param properties the properties of the asynchronous audit writer.
+     */
+    public AuditWriterService(AuditRepository<Audit> auditRepository, TransactionTemplate transactionTemplate,
+                              ObjectMapper objectMapper, AuditProperties properties) {
+        this.auditRepository = auditRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.objectMapper = objectMapper;
+        this.properties = properties;
+        this.queue = new ArrayBlockingQueue<>(properties.getQueueCapacity());
+        this.spillFile = Path.of(properties.getSpillFile());
+        this.replayFile = Path.of(properties.getSpillFile() + ".replay");
+    }
+
+    /**
+     * Starts the writer thread if the asynchronous audit writer is enabled.
+     * Records spilled before the last shutdown are written once the writer is idle.
+     */
+    @PostConstruct
+    public void start() {
+        if (!properties.isAsync()) {
+            return;
+        }
+        spillPending = Files.exists(spillFile) || Files.exists(replayFile);
+        nextReplay = System.nanoTime();
+        running = true;
+        writer = new Thread(this::writeLoop, "audit-writer");
+        writer.start();
+    }
+
+    /**
+     * Stops the writer after it has written the records left in the queue.
+     * The records still left once the shutdown timeout has passed are spilled, so they are written after the next start.
+     */
+    @PreDestroy
+    public void shutdown() {
+        if (writer == null) {
+            return;
+        }
+        running = false;
+        try {
+            writer.join(properties.getShutdownTimeout());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        List<Audit> rest = new ArrayList<>();
+        queue.drainTo(rest);
+        if (!rest.isEmpty()) {
+            log.warn("Audit writer stopped with {} records left in the queue, spilling them to {}.", rest.size(), spillFile);
+            spill(rest);
+        }
+    }
+
+    /**
+     * Checks whether audit records are written asynchronously.
+     *
+     * @return true if the asynchronous audit writer is enabled
+     */
+    public boolean isEnabled() {
+        return properties.isAsync();
+    }
+
+    /**
+     * Places an audit record in the queue.
+     * If the queue is full, the record is handled by the overflow policy.
+     * If the writer is not running, the record is written right away.
+     *
+     * @param audit the audit record to be written
+     */
+    public void enqueue(Audit audit) {
+        if (!running) {
+            auditRepository.save(audit);
+            return;
+        }
+        if (queue.offer(audit)) {
+            return;
+        }
+        switch (properties.getOverflowPolicy()) {
+            case BLOCK -> enqueueBlocking(audit);
+            case DROP -> dropped.incrementAndGet();
+            case SPILL -> spill(List.of(audit));
+        }
+    }
+
+    /**
+     * Retrieves the statistics of the audit writer.
+     *
+     * @return the current statistics
+     */
+    public AuditWriterStatsDTO getStats() {
+        return new AuditWriterStatsDTO(properties.isAsync(), properties.getOverflowPolicy().name(), queue.size(),
+                properties.getQueueCapacity(), written.get(), dropped.get(), spilled.get(), failed.get());
+    }
+
+    /**
+     * Waits until the record fits into the queue.
+     * If the writer stops in the meantime, the record is written right away.
+     */
+    private void enqueueBlocking(Audit audit) {
+        try {
+            while (!queue.offer(audit, properties.getFlushInterval(), TimeUnit.MILLISECONDS)) {
+                if (!running) {
+                    auditRepository.save(audit);
+                    return;
+                }
+            }
+        } catch (InterruptedException e) {
+            dropped.incrementAndGet();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void writeLoop() {
+        int batchSize = properties.getBatchSize();
+        long flushInterval = TimeUnit.MILLISECONDS.toNanos(properties.getFlushInterval());
+        List<Audit> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                collect(batch, batchSize, flushInterval);
+            } catch (InterruptedException e) {
+                // the interrupt only stops the waiting, the records left in the queue are still written
+                running = false;
+            }
+            flush(batch);
+            batch.clear();
+            if (running && spillPending && queue.isEmpty() && System.nanoTime() - nextReplay >= 0) {
+                replaySpill(batchSize);
+            }
+        }
+    }
+
+    /**
+     * Collects the next batch from the queue.
+     * It waits for the first record and then for up to flush-interval nanoseconds until the batch is full.
+     * Once the shutdown has started, it only takes the records already in the queue.
+     *
+     * @param batch         the list the records are added to
+     * @param batchSize     the maximum number of records in the batch
+     * @param flushInterval the maximum time to wait for the batch to fill up, in nanoseconds
+     * @throws InterruptedException if the writer is interrupted while waiting
+     */
+    private void collect(List<Audit> batch, int batchSize, long flushInterval) throws InterruptedException {
+        Audit first = queue.poll(flushInterval, TimeUnit.NANOSECONDS);
+        if (first == null) {
+            return;
+        }
+        batch.add(first);
+        long deadline = System.nanoTime() + flushInterval;
+        queue.drainTo(batch, batchSize - batch.size());
+        while (running && batch.size() < batchSize) {
+            Audit next = queue.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+            if (next == null) {
+                return;
+            }
+            batch.add(next);
+            queue.drainTo(batch, batchSize - batch.size());
+        }
+        queue.drainTo(batch, batchSize - batch.size());
+    }
+
+    /**
+     * Writes a batch of audit records.
+     * If the batch cannot be written, it is spilled with the spill policy and counted as failed otherwise.
+     *
+     * @param batch the records to be written
+     */
+    private void flush(List<Audit> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        try {
+            auditRepository.saveAll(batch);
+            written.addAndGet(batch.size());
+        } catch (RuntimeException e) {
+            log.error("Failed to write a batch of {} audit records.", batch.size(), e);
+            if (properties.getOverflowPolicy() == OverflowPolicy.SPILL) {
+                spill(batch);
+            } else {
+                failed.addAndGet(batch.size());
+            }
+        }
+    }
+
+    /**
+     * Appends audit records to the spill file, one JSON object per line.
+     *
+     * @param audits the records to be spilled
+     */
+    private void spill(List<Audit> audits) {
+        synchronized (spillLock) {
+            try (BufferedWriter out = Files.newBufferedWriter(spillFile, StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+                for (Audit audit : audits) {
+                    out.write(objectMapper.writeValueAsString(new SpilledAudit(audit.getUsername(), audit.getTimestamp(), audit.getAction())));
+                    out.newLine();
+                }
+                spilled.addAndGet(audits.size());
+                spillPending = true;
+            } catch (IOException e) {
+                log.error("Failed to spill {} audit records to {}.", audits.size(), spillFile, e);
+                dropped.addAndGet(audits.size());
+            }
+        }
+    }
+
+    /**
+     * Writes the spilled audit records to the database in one transaction.
+     * The spill file is renamed first, so records spilled in the meantime go to a new spill file.
+     * If the records cannot be written, the renamed file is kept and written again after spill-retry-delay milliseconds.
+     * Lines that are not valid records, such as a line cut off by a crash, are skipped and counted as dropped.
+     *
+     * @param batchSize the maximum number of records written in one batch
+     */
+    private void replaySpill(int batchSize) {
+        try {
+            synchronized (spillLock) {
+                spillPending = false;
+                if (!Files.exists(replayFile)) {
+                    if (!Files.exists(spillFile)) {
+                        return;
+                    }
+                    Files.move(spillFile, replayFile, StandardCopyOption.ATOMIC_MOVE);
+                }
+            }
+            List<Audit> audits = readSpilled(replayFile);
+            transactionTemplate.executeWithoutResult(status -> {
+                for (int from = 0; from < audits.size(); from += batchSize) {
+                    auditRepository.saveAll(audits.subList(from, Math.min(from + batchSize, audits.size())));
+                }
+            });
+            Files.delete(replayFile);
+            written.addAndGet(audits.size());
+            log.info("Wrote {} spilled audit records.", audits.size());
+        } catch (IOException | RuntimeException e) {
+            log.error("Failed to write the spilled audit records, retrying in {} ms.", properties.getSpillRetryDelay(), e);
+            spillPending = true;
+            nextReplay = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(properties.getSpillRetryDelay());
+        }
+    }
+
+    private List<Audit> readSpilled(Path file) throws IOException {
+        List<Audit> audits = new ArrayList<>();
+        try (BufferedReader in = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = in.readLine()) != null) {
+                if (line.isBlank()) {
+                    continue;
+                }
+                try {
+                    SpilledAudit spilledAudit = objectMapper.readValue(line, SpilledAudit.class);
+                    audits.add(new Audit(spilledAudit.username(), spilledAudit.timestamp(), spilledAudit.action()));
+                } catch (JsonProcessingException e) {
+                    log.warn("Skipping a malformed line of the audit spill file {}.", file);
+                    dropped.incrementAndGet();
+                }
+            }
+        }
+        return audits;
+    }
+
+    private record SpilledAudit(String username, LocalDateTime timestamp, String action) {
+    }
+}
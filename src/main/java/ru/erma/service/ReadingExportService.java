@@ -0,0 +1,138 @@
+package ru.erma.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.erma.aop.annotations.Audit;
+import ru.erma.dto.ReadingColumnsDTO;
+import ru.erma.model.Reading;
+import ru.erma.repository.ReadingRepository;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * The ReadingExportService class writes the whole reading history of a user as a stream.
+ * Every reading is serialized as soon as its row arrives from the database and is not kept afterwards,
+ * so the memory use of an export does not depend on the length of the history.
+ * The columnar format is the exception, it keeps one block of readings at a time.
+ */
+@Service
+public class ReadingExportService {
+
+    private final ReadingRepository<String, Reading> readingRepository;
+
+    private final TransactionTemplate transactionTemplate;
+
+    /**
+     * The number of readings of a block of the columnar format.
+     */
+    static final int COLUMNAR_BLOCK_SIZE = 1000;
+
+    private final ObjectMapper objectMapper;
+
+    private final ObjectMapper cborMapper;
+
+    /**
+     * Constructs a new ReadingExportService.
+     *
+     * @param readingRepository the repository the readings are streamed from.
+     * @param transactionTemplate the template providing the transaction manager, every export runs in a read-only transaction
+     *                            so that the driver fetches the rows in chunks.
+     * @param objectMapper the mapper used to serialize the readings.
+     */
+    public ReadingExportService(ReadingRepository<String, Reading> readingRepository,
+                                TransactionTemplate transactionTemplate,
+                                ObjectMapper objectMapper) {
+        this.readingRepository = readingRepository;
+        this.transactionTemplate = new TransactionTemplate(Objects.requireNonNull(transactionTemplate.getTransactionManager()));
+        this.transactionTemplate.setReadOnly(true);
+        this.objectMapper = objectMapper;
+        this.cborMapper = objectMapper.copyWith(new CBORFactory());
+    }
+
+    /**
+     * The supported formats of an export.
+     */
+    public enum Format {
+        JSON,
+        NDJSON,
+        CBOR,
+        COLUMNAR
+    }
+
+    /**
+     * Writes all readings of a user to the given stream, the most recent period first.
+     * The JSON format is an object with the array of readings, like the reading history,
+     * the CBOR format is the same object in the binary CBOR encoding.
+     * The NDJSON format is one reading object per line.
+     * The columnar format is an object with an array of blocks, every block is a list of readings in columns.
+     * The stream is flushed but not closed.
+     *
+     * @param username the username of the user
+     * @param format   the format of the output
+     * @param out      the stream to write to
+     */
+    @Audit(action = "User exported readings")
+    public void exportReadings(String username, Format format, OutputStream out) {
+        transactionTemplate.executeWithoutResult(status -> {
+            ObjectMapper mapper = format == Format.CBOR ? cborMapper : objectMapper;
+            try (JsonGenerator generator = mapper.getFactory().createGenerator(out)) {
+                generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+                if (format == Format.JSON || format == Format.CBOR) {
+                    generator.writeStartObject();
+                    generator.writeArrayFieldStart("readings");
+                    readingRepository.streamByUsername(username, reading -> write(generator, reading));
+                    generator.writeEndArray();
+                    generator.writeEndObject();
+                } else if (format == Format.COLUMNAR) {
+                    generator.writeStartObject();
+                    generator.writeArrayFieldStart("blocks");
+                    List<Reading> block = new ArrayList<>(COLUMNAR_BLOCK_SIZE);
+                    readingRepository.streamByUsername(username, reading -> {
+                        block.add(reading);
+                        if (block.size() == COLUMNAR_BLOCK_SIZE) {
+                            write(generator, new ReadingColumnsDTO(block, null));
+                            block.clear();
+                        }
+                    });
+                    if (!block.isEmpty()) {
+                        write(generator, new ReadingColumnsDTO(block, null));
+                    }
+                    generator.writeEndArray();
+                    generator.writeEndObject();
+                } else {
+                    generator.setRootValueSeparator(null);
+                    readingRepository.streamByUsername(username, reading -> {
+                        write(generator, reading);
+                        writeLineSeparator(generator);
+                    });
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    private void write(JsonGenerator generator, Object value) {
+        try {
+            generator.writeObject(value);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void writeLineSeparator(JsonGenerator generator) {
+        try {
+            generator.writeRaw('\n');
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,344 @@
+package ru.erma.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.erma.aop.annotations.Audit;
+import ru.erma.dto.ReadingImportDTO;
+import ru.erma.dto.ReadingImportDTO.Status;
+import ru.erma.event.ReadingsImportedEvent;
+import ru.erma.exception.NotValidArgumentException;
+import ru.erma.model.ReadingImportResult;
+import ru.erma.model.ReadingSchema;
+import ru.erma.repository.ReadingImportRepository;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The ReadingImportService class provides the bulk import of historical readings.
+ * The uploaded CSV or NDJSON body is streamed row by row into a ReadingImportRepository,
+ * so the memory use stays constant regardless of the size of the upload.
+ * The progress of the recent imports is kept in memory and can be queried while an import is running.
+ */
+@Service
+public class ReadingImportService {
+
+    private static final int MAX_TRACKED_IMPORTS = 100;
+
+    private static final List<String> PERIOD_COLUMNS = List.of("username", "month", "year");
+
+    private final ReadingImportRepository readingImportRepository;
+
+    private final ReadingStructureService readingStructureService;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final ObjectMapper objectMapper;
+
+    private final ApplicationEventPublisher eventPublisher;
+
+    private final Map<String, ImportProgress> imports = Collections.synchronizedMap(new LinkedHashMap<>() {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, ImportProgress> eldest) {
+            return size() > MAX_TRACKED_IMPORTS;
+        }
+    });
+
+    /**
+     * Constructs a new ReadingImportService.
+     *
+     * @param readingImportRepository the repository the rows are imported with.
+     * @param readingStructureService the service providing the current reading types.
+     * @param transactionTemplate the template every import runs in.
+     * @param objectMapper the mapper used to parse NDJSON rows.
+     * @param eventPublisher the publisher used to announce committed imports.
+     */
+    public ReadingImportService(ReadingImportRepository readingImportRepository,
+                                ReadingStructureService readingStructureService,
+                                TransactionTemplate transactionTemplate,
+                                ObjectMapper objectMapper,
+                                ApplicationEventPublisher eventPublisher) {
+        this.readingImportRepository = readingImportRepository;
+        this.readingStructureService = readingStructureService;
+        this.transactionTemplate = transactionTemplate;
+        this.objectMapper = objectMapper;
+        this.eventPublisher = eventPublisher;
+    }
+
+    /**
+     * The supported formats of an import.
+     */
+    public enum Format {
+        CSV,
+        NDJSON
+    }
+
+    /**
+     * Imports readings from an uploaded body in one transaction.
+     * A CSV body starts with a header naming the username, month and year columns and any of the current reading types.
+     * An NDJSON body contains one object per line with the same fields.
+     * If the header or a row references an unknown column or the data cannot be loaded, it throws a NotValidArgumentException
+     * and nothing is imported.
+     *
+     * @param format the format of the body
+     * @param body   the uploaded body
+     * @return the outcome of the import
+     */
+    @Audit(action = "Admin imported readings")
+    public ReadingImportDTO importReadings(Format format, InputStream body) {
+        ImportProgress progress = new ImportProgress(UUID.randomUUID().toString(), format);
+        imports.put(progress.importId, progress);
+        try {
+            BufferedReader source = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8));
+            ReadingSchema schema = readingStructureService.getSchema();
+            Set<String> readingTypes = new HashSet<>(schema.types());
+            List<String> columns;
+            Reader rows;
+            if (format == Format.CSV) {
+                columns = readHeader(source, readingTypes);
+                rows = source;
+            } else {
+                columns = new ArrayList<>(PERIOD_COLUMNS);
+                columns.addAll(readingTypes);
+                rows = new NdjsonRowReader(source, columns, objectMapper);
+            }
+            Reader countedRows = new RowCountingReader(rows, progress.rowsRead);
+            ReadingImportResult result = transactionTemplate.execute(status ->
+                    readingImportRepository.importReadings(schema, columns, countedRows));
+            progress.complete(Objects.requireNonNull(result));
+            if (result.getRowsImported() > 0) {
+                eventPublisher.publishEvent(new ReadingsImportedEvent(result.getRowsImported()));
+            }
+        } catch (NotValidArgumentException e) {
+            progress.fail(e.getMessage());
+            throw e;
+        } catch (DataAccessException e) {
+            String message = "Readings could not be imported: " + e.getMostSpecificCause().getMessage();
+            progress.fail(message);
+            throw new NotValidArgumentException(message);
+        } catch (RuntimeException e) {
+            progress.fail(e.getMessage());
+            throw e;
+        }
+        return progress.toDTO();
+    }
+
+    /**
+     * Retrieves the progress of the recent imports, the most recent first.
+     *
+     * @return a list of imports
+     */
+    public List<ReadingImportDTO> getImports() {
+        List<ReadingImportDTO> result = new ArrayList<>();
+        synchronized (imports) {
+            imports.values().forEach(progress -> result.add(progress.toDTO()));
+        }
+        Collections.reverse(result);
+        return result;
+    }
+
+    /**
+     * Reads and validates the CSV header.
+     *
+     * @param source       the CSV source positioned at the header
+     * @param readingTypes the current reading types
+     * @return the columns named by the header in order
+     */
+    private List<String> readHeader(BufferedReader source, Set<String> readingTypes) {
+        String header;
+        try {
+            header = source.readLine();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        if (header == null || header.isBlank()) {
+            throw new NotValidArgumentException("CSV header is missing.");
+        }
+        if (header.startsWith("\uFEFF")) {
+            header = header.substring(1);
+        }
+        List<String> columns = Arrays.stream(header.split(",", -1))
+                .map(String::trim)
+                .toList();
+        Set<String> seen = new HashSet<>();
+        for (String column : columns) {
+            if (!PERIOD_COLUMNS.contains(column) && !readingTypes.contains(column)) {
+                throw new NotValidArgumentException("Invalid reading type: " + column);
+            }
+            if (!seen.add(column)) {
+                throw new NotValidArgumentException("Column " + column + " is duplicated in the CSV header.");
+            }
+        }
+        if (!seen.containsAll(PERIOD_COLUMNS)) {
+            throw new NotValidArgumentException("CSV header must contain the username, month and year columns.");
+        }
+        return columns;
+    }
+
+    /**
+     * The state of a single import.
+     */
+    private static final class ImportProgress {
+        private final String importId;
+        private final Format format;
+        private final LocalDateTime startedAt = LocalDateTime.now();
+        private final AtomicLong rowsRead = new AtomicLong();
+        private volatile Status status = Status.RUNNING;
+        private volatile ReadingImportResult result;
+        private volatile String message;
+        private volatile LocalDateTime finishedAt;
+
+        private ImportProgress(String importId, Format format) {
+            this.importId = importId;
+            this.format = format;
+        }
+
+        private void complete(ReadingImportResult result) {
+            this.result = result;
+            this.rowsRead.set(result.getRowsRead());
+            this.finishedAt = LocalDateTime.now();
+            this.status = Status.COMPLETED;
+        }
+
+        private void fail(String message) {
+            this.message = message;
+            this.finishedAt = LocalDateTime.now();
+            this.status = Status.FAILED;
+        }
+
+        private ReadingImportDTO toDTO() {
+            ReadingImportResult current = result;
+            long imported = current == null ? 0 : current.getRowsImported();
+            long duplicates = current == null ? 0 : current.getRowsValid() - current.getRowsImported();
+            long rejected = current == null ? 0 : current.getRowsRead() - current.getRowsValid();
+            return new ReadingImportDTO(importId, format.name(), status, rowsRead.get(), imported, duplicates, rejected,
+                    message, startedAt, finishedAt);
+        }
+    }
+
+    /**
+     * A reader that counts the rows passing through it.
+     */
+    private static final class RowCountingReader extends FilterReader {
+        private final AtomicLong rows;
+
+        private RowCountingReader(Reader in, AtomicLong rows) {
+            super(in);
+            this.rows = rows;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int c = super.read();
+            if (c == '\n') {
+                rows.incrementAndGet();
+            }
+            return c;
+        }
+
+        @Override
+        public int read(char[] buffer, int offset, int length) throws IOException {
+            int read = super.read(buffer, offset, length);
+            long lines = 0;
+            for (int i = offset; i < offset + read; i++) {
+                if (buffer[i] == '\n') {
+                    lines++;
+                }
+            }
+            if (lines > 0) {
+                rows.addAndGet(lines);
+            }
+            return read;
+        }
+    }
+
+    /**
+     * A reader that converts NDJSON lines into CSV rows one line at a time.
+     */
+    private static final class NdjsonRowReader extends Reader {
+        private final BufferedReader source;
+        private final List<String> columns;
+        private final Set<String> columnSet;
+        private final ObjectMapper objectMapper;
+        private String row = "";
+        private int position;
+        private long lineNumber;
+
+        private NdjsonRowReader(BufferedReader source, List<String> columns, ObjectMapper objectMapper) {
+            this.source = source;
+            this.columns = columns;
+            this.columnSet = new HashSet<>(columns);
+            this.objectMapper = objectMapper;
+        }
+
+        @Override
+        public int read(char[] buffer, int offset, int length) throws IOException {
+            if (length == 0) {
+                return 0;
+            }
+            while (position == row.length()) {
+                String line = source.readLine();
+                if (line == null) {
+                    return -1;
+                }
+                lineNumber++;
+                if (!line.isBlank()) {
+                    row = toCsvRow(line);
+                    position = 0;
+                }
+            }
+            int count = Math.min(length, row.length() - position);
+            row.getChars(position, position + count, buffer, offset);
+            position += count;
+            return count;
+        }
+
+        @Override
+        public void close() throws IOException {
+            source.close();
+        }
+
+        private String toCsvRow(String line) {
+            JsonNode node;
+            try {
+                node = objectMapper.readTree(line);
+            } catch (JsonProcessingException e) {
+                throw new NotValidArgumentException("Invalid JSON at line " + lineNumber + ".");
+            }
+            if (node == null || !node.isObject()) {
+                throw new NotValidArgumentException("Invalid JSON at line " + lineNumber + ".");
+            }
+            node.fieldNames().forEachRemaining(field -> {
+                if (!columnSet.contains(field)) {
+                    throw new NotValidArgumentException("Invalid reading type: " + field);
+                }
+            });
+            StringBuilder csv = new StringBuilder();
+            for (String column : columns) {
+                if (csv.length() > 0) {
+                    csv.append(',');
+                }
+                JsonNode value = node.get(column);
+                if (value == null || value.isNull()) {
+                    continue;
+                }
+                if ("username".equals(column)) {
+                    csv.append('"').append(value.asText().replace("\"", "\"\"")).append('"');
+                } else if (value.isNumber()) {
+                    csv.append(value.asText());
+                } else {
+                    throw new NotValidArgumentException("Value of " + column + " at line " + lineNumber + " must be a number.");
+                }
+            }
+            return csv.append('\n').toString();
+        }
+    }
+}
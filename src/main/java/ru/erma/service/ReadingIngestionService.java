@@ -0,0 +1,381 @@
+package ru.erma.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.erma.config.ReadingIngestionProperties;
+import ru.erma.dto.ReadingReceiptDTO;
+import ru.erma.dto.ReadingReceiptDTO.Status;
+import ru.erma.exception.IngestionQueueFullException;
+import ru.erma.exception.ReceiptNotFoundException;
+import ru.erma.model.Reading;
+import ru.erma.repository.ReadingRepository;
+import ru.erma.repository.ReadingSummaryRepository;
+import ru.erma.repository.impl.LastReadingIndex;
+
+import java.time.YearMonth;
+import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+/**
+ * The ReadingIngestionService class stores submitted readings asynchronously.
+ * Readings are placed in a bounded in-memory queue and a single flusher thread writes them
+ * in group-commit batches of up to batch-size readings or after flush-interval milliseconds, whichever comes first.
+ * If a batch cannot be stored, its readings are stored again per user and then one by one, each in its own transaction,
+ * so a single bad reading does not fail the readings it was batched with.
+ * The outcome of every reading is kept as a receipt that can be queried by its owner.
+ * The latest queued reading of every user is kept until it has been stored,
+ * so a new reading can be checked against the readings still waiting in the queue.
+ * On shutdown no new readings are accepted and the queue is drained before the application stops.
+ * An interrupted flusher stores the batch it has collected and hands over to a new flusher thread.
+ */
+@Slf4j
+@Service
+public class ReadingIngestionService {
+
+    private final ReadingRepository<String, Reading> readingRepository;
+
+    private final ReadingSummaryRepository readingSummaryRepository;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final LastReadingIndex lastReadingIndex;
+
+    private final ReadingIngestionProperties properties;
+
+    private final BlockingQueue<PendingReading> queue;
+
+    private final Map<String, Receipt> receipts;
+
+    private final ConcurrentMap<String, Reading> latestQueued = new ConcurrentHashMap<>();
+
+    private final ReadWriteLock runningLock = new ReentrantReadWriteLock();
+
+    private volatile boolean running;
+
+    private volatile Thread flusher;
+
+    /**
+     * Constructs a new ReadingIngestionService.
+     *
+     * @param readingRepository the repository the queued readings are stored with.
+     * @param readingSummaryRepository the repository the stored readings are added to the summary with.
+     * @param transactionTemplate the template every batch is stored in.
+     * @param lastReadingIndex the index the stored readings are recorded in.
+     * @param properties the properties of the asynchronous ingestion.
+     */
+    public ReadingIngestionService(ReadingRepository<String, Reading> readingRepository,
+                                   ReadingSummaryRepository readingSummaryRepository,
+                                   TransactionTemplate transactionTemplate,
+                                   LastReadingIndex lastReadingIndex,
+                                   ReadingIngestionProperties properties) {
+        this.readingRepository = readingRepository;
+        this.readingSummaryRepository = readingSummaryRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.lastReadingIndex = lastReadingIndex;
+        this.properties = properties;
+        this.queue = new ArrayBlockingQueue<>(properties.getQueueCapacity());
+        int receiptCapacity = properties.getReceiptCapacity();
+        this.receipts = Collections.synchronizedMap(new LinkedHashMap<>() {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Receipt> eldest) {
+                return size() > receiptCapacity;
+            }
+        });
+    }
+
+    /**
+     * Starts the flusher thread if the asynchronous ingestion is enabled.
+     */
+    @PostConstruct
+    public void start() {
+        if (!properties.isAsync()) {
+            return;
+        }
+        running = true;
+        startFlusher();
+    }
+
+    /**
+     * Stops accepting readings and waits until the flusher has stored the readings left in the queue.
+     * Readings the flusher has not taken by the time it stops are stored by the calling thread.
+     */
+    @PreDestroy
+    public void shutdown() {
+        Thread current;
+        runningLock.writeLock().lock();
+        try {
+            running = false;
+            current = flusher;
+        } finally {
+            runningLock.writeLock().unlock();
+        }
+        if (current == null) {
+            return;
+        }
+        try {
+            current.join(properties.getShutdownTimeout());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (!current.isAlive()) {
+            List<PendingReading> batch = new ArrayList<>(properties.getBatchSize());
+            while (queue.drainTo(batch, properties.getBatchSize()) > 0) {
+                flush(batch);
+                batch.clear();
+            }
+        }
+        if (!queue.isEmpty()) {
+            log.warn("Reading ingestion stopped with {} readings left in the queue.", queue.size());
+        }
+    }
+
+    /**
+     * Checks whether submitted readings are stored asynchronously.
+     *
+     * @return true if the asynchronous ingestion is enabled
+     */
+    public boolean isEnabled() {
+        return properties.isAsync();
+    }
+
+    /**
+     * Places a reading in the ingestion queue without checking it against the queued readings of its user.
+     * If the queue is full or the ingestion is shutting down, it throws an IngestionQueueFullException.
+     *
+     * @param username the username of the owner of the reading
+     * @param reading  the reading to be stored
+     * @return the receipt of the queued reading
+     */
+    public ReadingReceiptDTO enqueue(String username, Reading reading) {
+        return enqueue(username, reading, latest -> {
+        });
+    }
+
+    /**
+     * Places a reading in the ingestion queue after the given check has accepted it.
+     * The check receives the latest reading of the user that is still queued, or null if there is none,
+     * and throws an exception to reject the reading. The readings of one user are checked and queued one at a time,
+     * so two readings submitted together cannot both be checked against the same previous reading.
+     * If the queue is full or the ingestion is shutting down, it throws an IngestionQueueFullException.
+     *
+     * @param username the username of the owner of the reading
+     * @param reading  the reading to be stored
+     * @param check    the check of the reading against the latest queued reading of the user
+     * @return the receipt of the queued reading
+     */
+    public ReadingReceiptDTO enqueue(String username, Reading reading, Consumer<Reading> check) {
+        // the read lock keeps the shutdown from starting between the check and the offer
+        runningLock.readLock().lock();
+        try {
+            if (!running) {
+                throw new IngestionQueueFullException("Reading ingestion is not accepting readings, please retry later.");
+            }
+            String receiptId = UUID.randomUUID().toString();
+            ReadingReceiptDTO receipt = new ReadingReceiptDTO(receiptId, reading.getMonth(), reading.getYear(), Status.PENDING, null);
+            // computing the entry of the user locks it, an exception leaves the entry unchanged
+            latestQueued.compute(username, (user, latest) -> {
+                check.accept(latest);
+                receipts.put(receiptId, new Receipt(username, receipt));
+                if (!queue.offer(new PendingReading(receiptId, username, reading))) {
+                    receipts.remove(receiptId);
+                    throw new IngestionQueueFullException("Reading queue is full, please retry later.");
+                }
+                return latest == null || period(reading).isAfter(period(latest)) ? reading : latest;
+            });
+            return receipt;
+        } finally {
+            runningLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Retrieves the receipt of a queued reading.
+     * Receipts of other users are reported as not found.
+     *
+     * @param receiptId the identifier of the receipt
+     * @param username  the username of the owner of the reading
+     * @return the current state of the receipt
+     */
+    public ReadingReceiptDTO getReceipt(String receiptId, String username) {
+        Receipt receipt = receipts.get(receiptId);
+        if (receipt == null || !receipt.username().equals(username)) {
+            throw new ReceiptNotFoundException("No receipt found with id " + receiptId);
+        }
+        return receipt.receipt();
+    }
+
+    private void startFlusher() {
+        flusher = new Thread(this::flushLoop, "reading-ingestion-flusher");
+        flusher.start();
+    }
+
+    private void flushLoop() {
+        int batchSize = properties.getBatchSize();
+        long flushInterval = TimeUnit.MILLISECONDS.toNanos(properties.getFlushInterval());
+        List<PendingReading> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            boolean interrupted = false;
+            try {
+                collect(batch, batchSize, flushInterval);
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+            flush(batch);
+            batch.clear();
+            if (interrupted) {
+                restartFlusher();
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    /**
+     * Replaces the interrupted flusher with a new thread, so the ingestion keeps accepting readings.
+     * Once the shutdown has started, no new flusher is started and the shutdown stores the readings left in the queue.
+     */
+    private void restartFlusher() {
+        runningLock.writeLock().lock();
+        try {
+            if (running) {
+                log.warn("Reading ingestion flusher was interrupted, starting a new one.");
+                startFlusher();
+            }
+        } finally {
+            runningLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Collects the next batch from the queue.
+     * It waits for the first reading and then for up to flush-interval nanoseconds until the batch is full.
+     * Once the shutdown has started, it only takes the readings already in the queue.
+     *
+     * @param batch         the list the readings are added to
+     * @param batchSize     the maximum number of readings in the batch
+     * @param flushInterval the maximum time to wait for the batch to fill up, in nanoseconds
+     * @throws InterruptedException if the flusher is interrupted while waiting
+     */
+    private void collect(List<PendingReading> batch, int batchSize, long flushInterval) throws InterruptedException {
+        PendingReading first = queue.poll(flushInterval, TimeUnit.NANOSECONDS);
+        if (first == null) {
+            return;
+        }
+        batch.add(first);
+        long deadline = System.nanoTime() + flushInterval;
+        queue.drainTo(batch, batchSize - batch.size());
+        while (running && batch.size() < batchSize) {
+            PendingReading next = queue.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+            if (next == null) {
+                return;
+            }
+            batch.add(next);
+            queue.drainTo(batch, batchSize - batch.size());
+        }
+        queue.drainTo(batch, batchSize - batch.size());
+    }
+
+    /**
+     * Stores a batch of queued readings in one transaction and updates their receipts once the transaction is committed.
+     * If the batch cannot be stored, the readings of every user are stored in a transaction of their own,
+     * and the readings of a user that still fail are stored one by one before they are reported as failed.
+     *
+     * @param batch the readings to be stored
+     */
+    private void flush(List<PendingReading> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        Map<String, List<PendingReading>> byUsername = new LinkedHashMap<>();
+        for (PendingReading pending : batch) {
+            byUsername.computeIfAbsent(pending.username(), username -> new ArrayList<>()).add(pending);
+        }
+        try {
+            store(byUsername);
+            return;
+        } catch (RuntimeException e) {
+            log.warn("Failed to store a batch of {} queued readings, storing them per user.", batch.size(), e);
+        }
+        byUsername.forEach((username, readings) -> {
+            if (byUsername.size() > 1) {
+                try {
+                    store(Map.of(username, readings));
+                    return;
+                } catch (RuntimeException e) {
+                    log.warn("Failed to store {} queued readings of user {}, storing them one by one.", readings.size(), username, e);
+                }
+            }
+            for (PendingReading pending : readings) {
+                try {
+                    store(Map.of(username, List.of(pending)));
+                } catch (RuntimeException e) {
+                    log.error("Failed to store a queued reading of user {}.", username, e);
+                    complete(pending, Status.FAILED, "Reading could not be stored, please submit it again.");
+                }
+            }
+        });
+    }
+
+    /**
+     * Stores the readings of the given users in one transaction and completes their receipts once it is committed.
+     *
+     * @param byUsername the readings to be stored, grouped by the username of their owner
+     * @throws RuntimeException if the readings cannot be stored, the receipts are left pending then
+     */
+    private void store(Map<String, List<PendingReading>> byUsername) {
+        Map<PendingReading, Boolean> outcomes = new IdentityHashMap<>();
+        transactionTemplate.executeWithoutResult(status -> {
+            List<Reading> insertedReadings = new ArrayList<>();
+            byUsername.forEach((username, readings) -> {
+                boolean[] inserted = readingRepository.saveAll(username, readings.stream().map(PendingReading::reading).toList());
+                for (int i = 0; i < readings.size(); i++) {
+                    outcomes.put(readings.get(i), inserted[i]);
+                    if (inserted[i]) {
+                        insertedReadings.add(readings.get(i).reading());
+                        lastReadingIndex.record(username, readings.get(i).reading());
+                    }
+                }
+            });
+            readingSummaryRepository.addAll(insertedReadings);
+        });
+        outcomes.forEach((pending, inserted) -> {
+            if (inserted) {
+                complete(pending, Status.ACCEPTED, null);
+            } else {
+                complete(pending, Status.DUPLICATE, "Reading for the specified month and year already exists!");
+            }
+        });
+    }
+
+    /**
+     * Completes the receipt of a reading that has left the queue.
+     * If it was the latest queued reading of its user, it is forgotten,
+     * since an accepted reading is found in the LastReadingIndex from now on.
+     */
+    private void complete(PendingReading pending, Status status, String message) {
+        Reading reading = pending.reading();
+        receipts.computeIfPresent(pending.receiptId(), (receiptId, receipt) -> new Receipt(receipt.username(),
+                new ReadingReceiptDTO(receiptId, reading.getMonth(), reading.getYear(), status, message)));
+        latestQueued.remove(pending.username(), reading);
+    }
+
+    private static YearMonth period(Reading reading) {
+        return YearMonth.of(reading.getYear(), reading.getMonth());
+    }
+
+    private record PendingReading(String receiptId, String username, Reading reading) {
+    }
+
+    private record Receipt(String username, ReadingReceiptDTO receipt) {
+    }
+}
@@ -2,17 +2,33 @@ package ru.erma.service;
 
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import ru.erma.aop.annotations.Audit;
-import ru.erma.dto.ReadingDTO;
-import ru.erma.dto.ReadingListDTO;
-import ru.erma.dto.ReadingRequest;
+import ru.erma.dto.*;
+import ru.erma.dto.ReadingBatchItemResult.Status;
+import ru.erma.exception.NotValidArgumentException;
 import ru.erma.exception.ReadingAlreadyExistsException;
 import ru.erma.exception.ReadingNotFoundException;
 import ru.erma.mappers.ReadingMapper;
+import ru.erma.model.Consumption;
 import ru.erma.model.Reading;
+import ru.erma.model.ReadingCacheStats;
+import ru.erma.model.ReadingSchema;
+import ru.erma.model.ReadingTypeRules;
+import ru.erma.model.ReadingValues;
+import ru.erma.repository.ReadingAnalyticsRepository;
 import ru.erma.repository.ReadingRepository;
+import ru.erma.repository.ReadingSummaryRepository;
+import ru.erma.repository.ReadingVersionRepository;
+import ru.erma.repository.impl.CachingReadingRepository;
+import ru.erma.repository.impl.LastReadingIndex;
+import ru.erma.validation.validator.ReadingRequestValidator;
 
-import java.util.List;
+import java.math.BigDecimal;
+import java.time.YearMonth;
+import java.time.temporal.ChronoUnit;
+import java.time.format.DateTimeParseException;
+import java.util.*;
 
 
 /**
@@ -28,24 +44,173 @@ public class ReadingService {
 
     private final ReadingMapper readingMapper;
 
+    private final ReadingRequestValidator readingRequestValidator;
+
+    private final ReadingIngestionService readingIngestionService;
+
+    private final ReadingStructureService readingStructureService;
+
+    private final CachingReadingRepository readingCache;
+
+    private final ReadingAnalyticsRepository readingAnalyticsRepository;
+
+    private final ReadingSummaryRepository readingSummaryRepository;
+
+    private final ReadingVersionRepository readingVersionRepository;
+
+    private final LastReadingIndex lastReadingIndex;
+
     /**
      * Submits readings for a user.
-     * It validates the input, checks if readings for the specified month and year already exist, and saves the new readings.
-     * If readings for the specified month and year already exist, it throws a ReadingAlreadyExistsException.
-     * If the input is not valid, it throws a NotValidArgumentException.
+     * The reading is inserted with a single statement, the unique index on username, year and month
+     * decides whether a reading for the specified month and year already exists.
+     * If readings for the specified month and year already exist, it throws a ReadingAlreadyExistsException,
+     * if they do not follow the previous readings of the user, it throws a NotValidArgumentException.
+     * The reading is added to the reading summary in the same transaction.
      *
      * @param request the ReadingRequest containing the readings to be submitted
      */
     @Audit(action = "User submitted readings")
+    @Transactional
     public void submitReadings(ReadingRequest request) {
-        List<Reading> existingReading = readingRepository.findByUsernameAndMonthAndYear(request.username(),request.month(),request.year());
-
-        if (existingReading != null && !existingReading.isEmpty()) {
+        Reading newReading = readingMapper.toReading(request, readingStructureService.getSchema());
+        String violation = checkProgression(request.username(), newReading, request.resetTypes());
+        if (violation != null) {
+            throw new NotValidArgumentException(violation);
+        }
+        if (!readingRepository.save(request.username(), newReading)) {
             throw new ReadingAlreadyExistsException("Reading for the specified month and year already exists!");
         }
+        readingSummaryRepository.addAll(List.of(newReading));
+        lastReadingIndex.record(request.username(), newReading);
+    }
+
+    /**
+     * Checks whether submitted readings are queued and stored asynchronously.
+     *
+     * @return true if the asynchronous ingestion is enabled
+     */
+    public boolean isAsyncIngestion() {
+        return readingIngestionService.isEnabled();
+    }
+
+    /**
+     * Queues readings of a user to be stored asynchronously in a group-commit batch.
+     * The outcome of the submission is available later through the returned receipt.
+     * The readings are checked against the later of the stored readings and the readings of the user still in the queue.
+     * If the readings do not follow the previous readings of the user, it throws a NotValidArgumentException,
+     * if the ingestion queue is full, it throws an IngestionQueueFullException.
+     *
+     * @param request the ReadingRequest containing the readings to be submitted
+     * @return the receipt of the queued reading
+     */
+    @Audit(action = "User queued readings")
+    public ReadingReceiptDTO queueReadings(ReadingRequest request) {
+        Reading newReading = readingMapper.toReading(request, readingStructureService.getSchema());
+        return readingIngestionService.enqueue(request.username(), newReading, queued -> {
+            Reading stored = lastReadingIndex.find(request.username()).orElse(null);
+            String violation = checkProgression(later(stored, queued), newReading, request.resetTypes());
+            if (violation != null) {
+                throw new NotValidArgumentException(violation);
+            }
+        });
+    }
+
+    /**
+     * Retrieves the receipt of readings queued by a user.
+     *
+     * @param receiptId the identifier of the receipt
+     * @param username  the username of the user
+     * @return the current state of the receipt
+     */
+    public ReadingReceiptDTO getReceipt(String receiptId, String username) {
+        return readingIngestionService.getReceipt(receiptId, username);
+    }
+
+    /**
+     * Submits a batch of readings.
+     * Every reading is validated on its own, so a bad item does not reject the whole batch.
+     * The readings of a user are checked in the order of their periods, the first one against the latest reading
+     * of the user stored before the batch and every later one against the latest reading of the user accepted so far,
+     * so the batch cannot store a decrease that the same readings submitted one by one would be rejected for.
+     * All valid readings of a user are written with one batched INSERT in one transaction,
+     * readings that already exist are skipped by the database and reported as duplicates.
+     * The inserted readings are added to the reading summary in the same transaction.
+     *
+     * @param request the ReadingBatchRequest containing the readings to be submitted
+     * @return the outcome of every reading in the order they were submitted
+     */
+    @Audit(action = "User submitted readings batch")
+    @Transactional
+    public ReadingBatchResponse submitReadingsBatch(ReadingBatchRequest request) {
+        List<ReadingRequest> items = request.readings();
+        ReadingSchema schema = readingStructureService.getSchema();
+        ReadingBatchItemResult[] results = new ReadingBatchItemResult[items.size()];
+        Reading[] newReadings = new Reading[items.size()];
+        Map<String, Map<YearMonth, Integer>> candidates = new LinkedHashMap<>();
+
+        for (int i = 0; i < items.size(); i++) {
+            ReadingRequest item = items.get(i);
+            String violations = validate(item);
+            if (violations != null) {
+                results[i] = result(i, item, Status.INVALID, violations);
+                continue;
+            }
+            Map<YearMonth, Integer> periods = candidates.computeIfAbsent(item.username(), username -> new LinkedHashMap<>());
+            YearMonth period = YearMonth.of(item.year(), item.month());
+            if (periods.putIfAbsent(period, i) != null) {
+                results[i] = result(i, item, Status.DUPLICATE, "Reading for the specified month and year is duplicated in the batch!");
+                continue;
+            }
+            newReadings[i] = readingMapper.toReading(item, schema);
+        }
+
+        candidates.forEach((username, periods) -> {
+            Reading previous = lastReadingIndex.find(username).orElse(null);
+            List<YearMonth> ordered = new ArrayList<>(periods.keySet());
+            Collections.sort(ordered);
+            for (YearMonth period : ordered) {
+                int i = periods.get(period);
+                String violation = checkProgression(previous, newReadings[i], items.get(i).resetTypes());
+                if (violation != null) {
+                    results[i] = result(i, items.get(i), Status.INVALID, violation);
+                    periods.remove(period);
+                } else if (previous == null || period.isAfter(YearMonth.of(previous.getYear(), previous.getMonth()))) {
+                    previous = newReadings[i];
+                }
+            }
+        });
+
+        List<Reading> insertedReadings = new ArrayList<>();
+        candidates.forEach((username, periods) -> {
+            if (periods.isEmpty()) {
+                return;
+            }
+            List<Integer> indexes = new ArrayList<>(periods.values());
+            List<Reading> userReadings = indexes.stream()
+                    .map(i -> newReadings[i])
+                    .toList();
+            boolean[] inserted = readingRepository.saveAll(username, userReadings);
+            for (int j = 0; j < indexes.size(); j++) {
+                int i = indexes.get(j);
+                if (inserted[j]) {
+                    insertedReadings.add(userReadings.get(j));
+                    lastReadingIndex.record(username, userReadings.get(j));
+                }
+                results[i] = inserted[j]
+                        ? result(i, items.get(i), Status.ACCEPTED, null)
+                        : result(i, items.get(i), Status.DUPLICATE, "Reading for the specified month and year already exists!");
+            }
+        });
 
-        Reading newReading = readingMapper.toReading(request);
-        readingRepository.save(request.username(), newReading);
+        readingSummaryRepository.addAll(insertedReadings);
+
+        List<ReadingBatchItemResult> resultList = Arrays.asList(results);
+        return new ReadingBatchResponse(
+                count(resultList, Status.ACCEPTED),
+                count(resultList, Status.DUPLICATE),
+                count(resultList, Status.INVALID),
+                resultList);
     }
 
     /**
@@ -66,15 +231,57 @@ public class ReadingService {
     }
 
     /**
-     * Retrieves the reading history for a user.
+     * Retrieves the readings of a user from one period to another, both inclusive, the oldest period first.
+     * The periods are in the yyyy-MM format.
+     * If a period is not valid or the range is reversed, it throws a NotValidArgumentException.
      *
      * @param username the username of the user
-     * @return a list of all readings for the specified username
+     * @param from     the first period of the range
+     * @param to       the last period of the range
+     * @return the readings of the range, possibly none
+     */
+    @Audit(action = "User viewed readings for period")
+    public ReadingListDTO getReadingsBetween(String username, String from, String to) {
+        YearMonth first = parsePeriod(from);
+        YearMonth last = parsePeriod(to);
+        if (first == null || last == null) {
+            throw new NotValidArgumentException("Both from and to periods are required.");
+        }
+        if (first.isAfter(last)) {
+            throw new NotValidArgumentException("Period from should not be after period to.");
+        }
+        return readingMapper.toReadingListDTO(readingRepository.findByUsernameBetween(username, first, last));
+    }
+
+    /**
+     * Retrieves a page of the reading history for a user, the most recent period first.
+     * The cursor is the period of the last reading of the previous page in the yyyy-MM format,
+     * the cursor of the following page is returned with the page if there are more readings.
+     * If the user has no readings at all, it throws a ReadingNotFoundException.
+     * If the cursor is not a valid period, it throws a NotValidArgumentException.
+     *
+     * @param username the username of the user
+     * @param limit    the maximum number of readings in the page
+     * @param after    the cursor of the page, or null for the first page
+     * @param version  the version of the readings the page is tagged with, see getReadingsVersion
+     * @return a page of readings for the specified username
      */
     @Audit(action = "User viewed reading history")
-    public ReadingListDTO getReadingHistory(String username) {
-        List<Reading> readings = getUserReadings(username);
-        return readingMapper.toReadingListDTO(readings);
+    public ReadingListDTO getReadingHistory(String username, int limit, String after, String version) {
+        YearMonth cursor = parsePeriod(after);
+        List<Reading> readings = readingRepository.findPageByUsername(username, cursor, limit + 1, version);
+        if (cursor == null && (readings == null || readings.isEmpty())) {
+            throw new ReadingNotFoundException("No readings found for user with username " + username);
+        }
+        String nextCursor = null;
+        if (readings.size() > limit) {
+            readings = readings.subList(0, limit);
+            Reading last = readings.get(limit - 1);
+            nextCursor = YearMonth.of(last.getYear(), last.getMonth()).toString();
+        }
+        ReadingListDTO readingListDTO = readingMapper.toReadingListDTO(readings);
+        readingListDTO.setNextCursor(nextCursor);
+        return readingListDTO;
     }
 
 
@@ -82,29 +289,189 @@ public class ReadingService {
      * Retrieves the most recent readings for a user.
      *
      * @param username the username of the user
+     * @param version  the version of the readings the response is tagged with, see getReadingsVersion
      * @return the most recent Reading object for the specified username, or null if no readings exist
      */
     @Audit(action = "User viewed actual readings")
-    public ReadingDTO getActualReadings(String username) {
-        Reading reading = readingRepository.findLatestByUsername(username)
+    public ReadingDTO getActualReadings(String username, String version) {
+        Reading reading = readingRepository.findLatestByUsername(username, version)
                 .orElseThrow(()->new ReadingNotFoundException("No readings found for user with username " + username));
         return readingMapper.toReadingDTO(reading);
     }
 
     /**
-     * Retrieves all readings for a user.
-     * If no readings are found, it throws a ReadingNotFoundException.
+     * Retrieves the version of the readings of a user, without reading the readings themselves.
+     * It combines the schema epoch, which changes with every change of the reading types,
+     * with the reading version of the user, which changes with every change of the readings.
+     * It has to be retrieved before the readings and passed to their query, so a response never carries a tag newer than its data,
+     * even if a cached result was not yet invalidated or the readings were changed by another instance.
      *
      * @param username the username of the user
-     * @return a list of all readings for the specified username
+     * @return the version of the readings
      */
-    private List<Reading> getUserReadings(String username) {
-        List<Reading> userReadings = readingRepository.findByUsername(username);
-        if (userReadings == null || userReadings.isEmpty()) {
-            throw new ReadingNotFoundException("No readings found for user with username " + username);
+    public String getReadingsVersion(String username) {
+        return readingVersionRepository.findSchemaEpoch() + "." + readingVersionRepository.findVersion(username);
+    }
+
+    /**
+     * Builds the entity tag of readings of the given version.
+     * Every representation of the same readings gets its own tag through the variant.
+     *
+     * @param version the version of the readings, see getReadingsVersion
+     * @param variant the identifier of the representation, or null for the default one
+     * @return a strong entity tag, quoted
+     */
+    public String getReadingsTag(String version, String variant) {
+        return variant == null ? "\"" + version + "\"" : "\"" + version + "-" + variant + "\"";
+    }
+
+    /**
+     * Retrieves the consumption of a user computed by the database from the reading history.
+     * The consumption of a month is the difference between its reading and the previous one,
+     * the consumption of a year is the sum and the average of its monthly consumption.
+     *
+     * @param username the username of the user
+     * @return the monthly and yearly consumption, empty if the user has less than two readings
+     */
+    @Audit(action = "User viewed consumption analytics")
+    public ConsumptionReportDTO getConsumption(String username) {
+        List<MonthlyConsumptionDTO> months = new ArrayList<>();
+        List<YearlyConsumptionDTO> years = new ArrayList<>();
+        for (Consumption consumption : readingAnalyticsRepository.findConsumptionByUsername(username)) {
+            if (consumption.getMonth() == null) {
+                years.add(new YearlyConsumptionDTO(consumption.getYear(), consumption.getTotal(), consumption.getAverage()));
+            } else {
+                months.add(new MonthlyConsumptionDTO(consumption.getMonth(), consumption.getYear(), consumption.getTotal()));
+            }
         }
-        return userReadings;
+        return new ConsumptionReportDTO(months, years);
     }
 
+    /**
+     * Retrieves the statistics of the cache of reading queries.
+     *
+     * @return the number of cached results, hits, misses and evictions
+     */
+    public ReadingCacheStatsDTO getCacheStats() {
+        ReadingCacheStats stats = readingCache.getStats();
+        long requests = stats.getHits() + stats.getMisses();
+        double hitRate = requests == 0 ? 0 : (double) stats.getHits() / requests;
+        return new ReadingCacheStatsDTO(stats.isEnabled(), stats.getSize(), stats.getHits(), stats.getMisses(),
+                stats.getEvictions(), hitRate);
+    }
+
+    /**
+     * Parses a period in the yyyy-MM format.
+     * If the value is not a valid period, it throws a NotValidArgumentException.
+     *
+     * @param value the period, or null
+     * @return the period, or null if there is no value
+     */
+    static YearMonth parsePeriod(String value) {
+        if (value == null || value.isEmpty()) {
+            return null;
+        }
+        try {
+            return YearMonth.parse(value);
+        } catch (DateTimeParseException e) {
+            throw new NotValidArgumentException("Invalid period: " + value + ", expected the yyyy-MM format.");
+        }
+    }
+
+    /**
+     * Checks a new reading of a user against the latest reading of the user,
+     * which is taken from the LastReadingIndex, so it usually needs no query.
+     * A value of a monotonic reading type must not be lower than the previous value,
+     * and no value may increase by more than the maximum monthly delta of its type per month since the previous reading.
+     * Readings of a period before the latest one are not checked, and neither are the values of reset meters.
+     *
+     * @param username   the username of the user
+     * @param reading    the new reading
+     * @param resetTypes the reading types whose meter was reset since the previous reading, or null
+     * @return the violation message, or null if the reading follows the previous one
+     */
+    private String checkProgression(String username, Reading reading, Set<String> resetTypes) {
+        return checkProgression(lastReadingIndex.find(username).orElse(null), reading, resetTypes);
+    }
+
+    /**
+     * Returns the reading of the later period of the two, either of which may be null.
+     */
+    private static Reading later(Reading first, Reading second) {
+        if (first == null || second == null) {
+            return first == null ? second : first;
+        }
+        return YearMonth.of(second.getYear(), second.getMonth()).isAfter(YearMonth.of(first.getYear(), first.getMonth()))
+                ? second : first;
+    }
+
+    /**
+     * Checks that a new reading follows the given previous reading, as described above.
+     *
+     * @param previous   the latest reading of the user before the new one, or null if there is none
+     * @param reading    the new reading
+     * @param resetTypes the reading types whose meter was reset since the previous reading, or null
+     * @return the violation message, or null if the reading follows the previous one
+     */
+    private String checkProgression(Reading previous, Reading reading, Set<String> resetTypes) {
+        if (previous == null) {
+            return null;
+        }
+        YearMonth previousPeriod = YearMonth.of(previous.getYear(), previous.getMonth());
+        YearMonth period = YearMonth.of(reading.getYear(), reading.getMonth());
+        if (!period.isAfter(previousPeriod)) {
+            return null;
+        }
+        ReadingValues values = reading.getValues();
+        ReadingValues previousValues = previous.getValues();
+        ReadingSchema schema = values.schema();
+        ReadingSchema previousSchema = previousValues.schema();
+        for (int ordinal = 0; ordinal < schema.size(); ordinal++) {
+            String type = schema.type(ordinal);
+            int previousOrdinal = previousSchema.ordinal(type);
+            if (!values.isPresent(ordinal) || previousOrdinal < 0 || !previousValues.isPresent(previousOrdinal)
+                    || previousSchema.scale(previousOrdinal) != schema.scale(ordinal)
+                    || resetTypes != null && resetTypes.contains(type)) {
+                continue;
+            }
+            ReadingTypeRules rules = schema.rules(ordinal);
+            long delta = values.get(ordinal) - previousValues.get(previousOrdinal);
+            if (rules.isMonotonic() && delta < 0) {
+                return "Reading " + type + " must not be lower than the previous reading "
+                        + BigDecimal.valueOf(previousValues.get(previousOrdinal), schema.scale(ordinal)).toPlainString()
+                        + ", unless its meter was reset.";
+            }
+            BigDecimal maxMonthlyDelta = rules.getMaxMonthlyDelta();
+            if (maxMonthlyDelta != null && BigDecimal.valueOf(delta, schema.scale(ordinal))
+                    .compareTo(maxMonthlyDelta.multiply(BigDecimal.valueOf(previousPeriod.until(period, ChronoUnit.MONTHS)))) > 0) {
+                return "Reading " + type + " must not increase by more than " + maxMonthlyDelta.toPlainString()
+                        + " per month since the previous reading.";
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Validates a single reading of a batch.
+     *
+     * @param item the reading to validate
+     * @return the violation messages joined with "; ", or null if the reading is valid
+     */
+    private String validate(ReadingRequest item) {
+        if (item == null) {
+            return "Reading should not be null";
+        }
+        return readingRequestValidator.validate(item);
+    }
+
+    private ReadingBatchItemResult result(int index, ReadingRequest item, Status status, String message) {
+        return item == null
+                ? new ReadingBatchItemResult(index, null, null, status, message)
+                : new ReadingBatchItemResult(index, item.month(), item.year(), status, message);
+    }
+
+    private int count(List<ReadingBatchItemResult> results, Status status) {
+        return (int) results.stream().filter(result -> result.status() == status).count();
+    }
 }
 
@@ -0,0 +1,226 @@
+package ru.erma.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.erma.aop.annotations.Audit;
+import ru.erma.config.ReadingSnapshotProperties;
+import ru.erma.dto.UserReadingDTO;
+import ru.erma.exception.NotValidArgumentException;
+import ru.erma.model.Reading;
+import ru.erma.repository.ReadingRepository;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The ReadingSnapshotService class writes the readings of all users for one period as a stream ordered by username.
+ * The usernames of the period are split into ranges which are scanned in parallel, every range on its own connection,
+ * by a pool of a fixed number of threads shared by all exports.
+ * Every range is buffered in a bounded queue and the ranges are written one after another in username order,
+ * so the output is ordered and the memory use does not depend on the number of readings.
+ * All ranges read the snapshot exported by the transaction of the export, so together they see one consistent state
+ * of the readings, as a single query would.
+ */
+@Service
+public class ReadingSnapshotService {
+
+    private static final long OFFER_TIMEOUT_MILLIS = 100;
+
+    private static final Object END_OF_RANGE = new Object();
+
+    private final ReadingRepository<String, Reading> readingRepository;
+
+    private final TransactionTemplate snapshotTransaction;
+
+    private final ObjectMapper objectMapper;
+
+    private final ReadingSnapshotProperties properties;
+
+    private final ExecutorService executor;
+
+    /**
+     * Constructs a new ReadingSnapshotService.
+     *
+     * @param readingRepository the repository the readings are streamed from.
+     * @param transactionTemplate the template providing the transaction manager, the export and every range run in
+     *                            a read-only repeatable read transaction.
+     * @param objectMapper the mapper used to serialize the readings.
+     * @param properties the properties of the export.
+     */
+    public ReadingSnapshotService(ReadingRepository<String, Reading> readingRepository,
+                                  TransactionTemplate transactionTemplate,
+                                  ObjectMapper objectMapper,
+                                  ReadingSnapshotProperties properties) {
+        this.readingRepository = readingRepository;
+        this.snapshotTransaction = new TransactionTemplate(Objects.requireNonNull(transactionTemplate.getTransactionManager()));
+        this.snapshotTransaction.setReadOnly(true);
+        this.snapshotTransaction.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+        this.objectMapper = objectMapper;
+        this.properties = properties;
+        AtomicInteger threads = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(properties.getParallelism(), runnable -> {
+            Thread thread = new Thread(runnable, "reading-snapshot-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Stops the scanning threads, running scans are interrupted.
+     */
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Parses the period of an export, so that an invalid period is rejected before the output is started.
+     * If the period is missing or not in the yyyy-MM format, it throws a NotValidArgumentException.
+     *
+     * @param period the period in the yyyy-MM format
+     * @return the parsed period
+     */
+    public YearMonth parsePeriod(String period) {
+        YearMonth yearMonth = ReadingService.parsePeriod(period);
+        if (yearMonth == null) {
+            throw new NotValidArgumentException("Period is required.");
+        }
+        return yearMonth;
+    }
+
+    /**
+     * Writes the readings of all users for a period to the given stream, ordered by username.
+     * The JSON format is an object with the array of readings, the NDJSON format is one reading object per line.
+     * The stream is flushed but not closed.
+     *
+     * @param period the period of the readings
+     * @param format the format of the output
+     * @param out    the stream to write to
+     */
+    @Audit(action = "Admin exported readings of all users for period")
+    public void exportPeriod(YearMonth period, ReadingExportService.Format format, OutputStream out) {
+        snapshotTransaction.executeWithoutResult(status -> {
+            String snapshotId = readingRepository.exportSnapshot();
+            List<String> boundaries = readingRepository.findUsernameBoundaries(period, properties.getChunks());
+            List<Range> ranges = new ArrayList<>(boundaries.size());
+            for (int i = 0; i < boundaries.size(); i++) {
+                Range range = new Range(boundaries.get(i), i + 1 < boundaries.size() ? boundaries.get(i + 1) : null,
+                        new ArrayBlockingQueue<>(properties.getBufferSize()));
+                ranges.add(range);
+            }
+            Export export = new Export(period, snapshotId);
+            List<Future<?>> scans = new ArrayList<>(ranges.size());
+            try {
+                for (Range range : ranges) {
+                    scans.add(executor.submit(() -> scan(export, range)));
+                }
+                write(ranges, format, out);
+            } finally {
+                export.cancelled = true;
+                scans.forEach(scan -> scan.cancel(true));
+            }
+        });
+    }
+
+    /**
+     * Scans one range of usernames in its own transaction on the snapshot of the export
+     * and passes its readings to the writer through the queue of the range.
+     * A failure is passed to the writer as well.
+     *
+     * @param export the export the range belongs to
+     * @param range  the range to scan
+     */
+    private void scan(Export export, Range range) {
+        try {
+            snapshotTransaction.executeWithoutResult(status -> {
+                readingRepository.importSnapshot(export.snapshotId);
+                readingRepository.streamByPeriod(export.period, range.from, range.to, (username, reading) ->
+                        put(export, range, new UserReadingDTO(username, reading.getMonth(), reading.getYear(), reading.getValues())));
+            });
+            put(export, range, END_OF_RANGE);
+        } catch (CancellationException e) {
+            // the export was stopped, nobody is waiting for the range any more
+        } catch (RuntimeException e) {
+            range.queue.clear();
+            range.queue.offer(e);
+        }
+    }
+
+    private void put(Export export, Range range, Object item) {
+        try {
+            while (!range.queue.offer(item, OFFER_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)) {
+                if (export.cancelled) {
+                    throw new CancellationException();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException();
+        }
+    }
+
+    /**
+     * Writes the ranges one after another, every range is written as its readings arrive.
+     *
+     * @param ranges the ranges in username order
+     * @param format the format of the output
+     * @param out    the stream to write to
+     */
+    private void write(List<Range> ranges, ReadingExportService.Format format, OutputStream out) {
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            if (format == ReadingExportService.Format.JSON) {
+                generator.writeStartObject();
+                generator.writeArrayFieldStart("readings");
+            } else {
+                generator.setRootValueSeparator(null);
+            }
+            for (Range range : ranges) {
+                Object item;
+                while ((item = range.queue.take()) != END_OF_RANGE) {
+                    if (item instanceof RuntimeException e) {
+                        throw e;
+                    }
+                    generator.writeObject(item);
+                    if (format == ReadingExportService.Format.NDJSON) {
+                        generator.writeRaw('\n');
+                    }
+                }
+            }
+            if (format == ReadingExportService.Format.JSON) {
+                generator.writeEndArray();
+                generator.writeEndObject();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException("Export of readings was interrupted");
+        }
+    }
+
+    private static final class Export {
+        private final YearMonth period;
+        private final String snapshotId;
+        private volatile boolean cancelled;
+
+        private Export(YearMonth period, String snapshotId) {
+            this.period = period;
+            this.snapshotId = snapshotId;
+        }
+    }
+
+    private record Range(String from, String to, BlockingQueue<Object> queue) {
+    }
+}
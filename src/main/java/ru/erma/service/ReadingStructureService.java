@@ -1,74 +1,263 @@
 package ru.erma.service;
 
-import lombok.Getter;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
 import ru.erma.aop.annotations.Audit;
+import ru.erma.dto.ReadingTypeDTO;
+import ru.erma.event.ReadingTypesChangedEvent;
 import ru.erma.exception.NotValidArgumentException;
+import ru.erma.exception.TypeNotFoundException;
+import ru.erma.model.ReadingSchema;
+import ru.erma.model.ReadingType;
+import ru.erma.model.ReadingTypeRules;
 import ru.erma.repository.ReadingTypeRepository;
+import ru.erma.repository.ReadingVersionRepository;
 
-import java.util.ArrayList;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.regex.Pattern;
 
 /**
  * The ReadingStructureService class provides methods to manage the structure of the readings in the database.
  * It uses a ReadingTypeRepository to add and remove reading types, and to get the reading types from the database.
- * It maintains a list of the current reading types.
+ * It maintains an immutable ReadingSchema snapshot of the current reading types, which is replaced on every change,
+ * and publishes a ReadingTypesChangedEvent after every change.
+ * The storage of a reading type and its registration are changed in one transaction,
+ * so a change that fails, for example because the readings table stayed locked, leaves nothing behind and can be retried.
+ * Every change then increments the schema epoch, since it changes the representation of the readings of all users.
+ * It is incremented after the transaction has committed, so the lock of the readings table is never held
+ * for longer than the change of its structure.
+ * Changes made by other instances of the application are picked up by refreshing the snapshot from the database.
  */
 @Service
 public class ReadingStructureService {
 
+    /**
+     * The scale of a new reading type if none is specified.
+     */
+    public static final int DEFAULT_SCALE = 3;
+
+    /**
+     * The names a reading type may have. They are used as column names and aliases in the queries of the readings,
+     * so they must be valid unquoted PostgreSQL identifiers.
+     */
+    private static final Pattern TYPE_NAME = Pattern.compile("[a-z_][a-z0-9_]{0,62}");
+
     private final ReadingTypeRepository<String> readingTypeRepository;
 
-    @Getter
-    private List<String> readingTypes = new ArrayList<>();
+    private final ReadingVersionRepository readingVersionRepository;
+
+    private final ApplicationEventPublisher eventPublisher;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private volatile ReadingSchema schema = new ReadingSchema(0, List.of());
 
     /**
      * Constructs a new ReadingStructureService with the specified reading type repository.
      * It updates the list of reading types from the database.
      *
      * @param readingTypeRepository the repository for reading types.
+     * @param readingVersionRepository the repository for the schema epoch of the readings.
+     * @param eventPublisher the publisher used to announce changes of the reading types.
+     * @param transactionTemplate the template every change runs in.
      */
-    public ReadingStructureService(ReadingTypeRepository<String> readingTypeRepository) {
+    public ReadingStructureService(ReadingTypeRepository<String> readingTypeRepository,
+                                   ReadingVersionRepository readingVersionRepository,
+                                   ApplicationEventPublisher eventPublisher,
+                                   TransactionTemplate transactionTemplate) {
         this.readingTypeRepository = readingTypeRepository;
+        this.readingVersionRepository = readingVersionRepository;
+        this.eventPublisher = eventPublisher;
+        this.transactionTemplate = transactionTemplate;
         updateReadingTypes();
     }
 
     /**
      * Adds a reading type to the list and the database.
-     * It adds the reading type to the list and calls the repository's method to add a column to the readings table.
+     * It calls the repository's method to register the reading type and prepare the storage of its values
+     * and then adds the registered reading type to the list.
+     * If the name of the reading type is not valid or the reading type already exists, it throws a NotValidArgumentException.
      *
      * @param type the reading type to add.
+     * @param scale the number of decimal places of the values of the reading type, or null for the default scale.
      */
     @Audit(action = "Admin added new reading type")
-    public void addReadingType(String type) {
-        if (readingTypes.contains(type)) {
+    public synchronized void addReadingType(String type, Integer scale) {
+        checkTypeName(type);
+        if (schema.contains(type)) {
             throw new NotValidArgumentException("Reading type " + type + " already exists.");
         }
-        readingTypes.add(type);
-        readingTypeRepository.addColumnToReadingsTable(type);
+        int typeScale = scale == null ? DEFAULT_SCALE : scale;
+        ReadingType readingType = transactionTemplate.execute(status -> readingTypeRepository.addReadingType(type, typeScale));
+        List<ReadingType> readingTypes = schema.readingTypes();
+        readingTypes.add(readingType);
+        schema = new ReadingSchema(schema.version() + 1, readingTypes);
+        readingVersionRepository.incrementSchemaEpoch();
+        eventPublisher.publishEvent(new ReadingTypesChangedEvent(type));
     }
 
     /**
      * Removes a reading type from the list and the database.
-     * It removes the reading type from the list and, if successful, calls the repository's method to remove a column from the readings table.
+     * It removes the reading type from the list and, if successful, calls the repository's method to unregister it
+     * and remove the storage of its values.
+     * The reading type is taken out of the schema snapshot first, so no new query selects it while its storage is removed.
+     * If the removal fails, the reading type is put back into a new snapshot.
      *
      * @param type the reading type to remove.
      * @return true if the reading type was removed from the list, false otherwise.
      */
     @Audit(action = "Admin removed reading type")
-    public boolean removeReadingType(String type) {
-        boolean removed = readingTypes.remove(type);
+    public synchronized boolean removeReadingType(String type) {
+        List<ReadingType> readingTypes = schema.readingTypes();
+        boolean removed = readingTypes.removeIf(readingType -> readingType.getName().equals(type));
         if (removed) {
-            readingTypeRepository.removeColumnFromReadingsTable(type);
+            ReadingSchema previous = schema;
+            schema = new ReadingSchema(previous.version() + 1, readingTypes);
+            try {
+                transactionTemplate.executeWithoutResult(status -> readingTypeRepository.removeReadingType(type));
+            } catch (RuntimeException e) {
+                schema = new ReadingSchema(schema.version() + 1, previous.readingTypes());
+                throw e;
+            }
+            readingVersionRepository.incrementSchemaEpoch();
+            eventPublisher.publishEvent(new ReadingTypesChangedEvent(type));
         }
         return removed;
     }
 
+    /**
+     * Replaces the rules submitted values of a reading type are checked against.
+     * If the reading type does not exist, it throws a TypeNotFoundException,
+     * if the minimum is greater than the maximum or the monthly delta is negative, it throws a NotValidArgumentException.
+     * The rules do not change how readings are stored, so the schema epoch is kept.
+     *
+     * @param type the reading type.
+     * @param rules the new rules of the reading type.
+     */
+    @Audit(action = "Admin changed reading type rules")
+    public synchronized void updateReadingTypeRules(String type, ReadingTypeRules rules) {
+        if (!schema.contains(type)) {
+            throw new TypeNotFoundException("Reading type not found");
+        }
+        if (rules.getMinValue() != null && rules.getMaxValue() != null && rules.getMinValue().compareTo(rules.getMaxValue()) > 0) {
+            throw new NotValidArgumentException("Minimum value should not be greater than maximum value.");
+        }
+        if (rules.getMaxMonthlyDelta() != null && rules.getMaxMonthlyDelta().signum() < 0) {
+            throw new NotValidArgumentException("Maximum monthly delta should not be negative.");
+        }
+        readingTypeRepository.updateReadingTypeRules(type, rules);
+        List<ReadingType> readingTypes = schema.readingTypes();
+        readingTypes.replaceAll(readingType -> readingType.getName().equals(type)
+                ? new ReadingType(type, readingType.getScale(), readingType.getColumn(), rules)
+                : readingType);
+        schema = new ReadingSchema(schema.version() + 1, readingTypes);
+    }
+
+    /**
+     * Reloads the reading types from the database and replaces the snapshot if they differ from it,
+     * which happens when another instance of the application changed them.
+     * A ReadingTypesChangedEvent is published for every reading type that was added, removed or stored differently,
+     * so the components deriving anything from the reading types drop it just like after a local change.
+     *
+     * @return true if the snapshot was replaced, false if it was up to date.
+     */
+    public synchronized boolean refreshReadingTypes() {
+        List<ReadingType> readingTypes = readingTypeRepository.getReadingTypesFromDatabase();
+        ReadingSchema current = schema;
+        if (sameReadingTypes(current.readingTypes(), readingTypes)) {
+            return false;
+        }
+        ReadingSchema refreshed = new ReadingSchema(current.version() + 1, readingTypes);
+        schema = refreshed;
+        Set<String> changed = new LinkedHashSet<>();
+        for (String type : current.types()) {
+            int ordinal = refreshed.ordinal(type);
+            int previous = current.ordinal(type);
+            if (ordinal < 0 || refreshed.scale(ordinal) != current.scale(previous)
+                    || !refreshed.column(ordinal).equals(current.column(previous))) {
+                changed.add(type);
+            }
+        }
+        for (String type : refreshed.types()) {
+            if (!current.contains(type)) {
+                changed.add(type);
+            }
+        }
+        changed.forEach(type -> eventPublisher.publishEvent(new ReadingTypesChangedEvent(type)));
+        return true;
+    }
+
+    /**
+     * Checks the name of a new reading type.
+     * If it is not a lowercase identifier of at most 63 characters, it throws a NotValidArgumentException,
+     * before the name can reach any statement.
+     *
+     * @param type the name of the reading type.
+     */
+    public static void checkTypeName(String type) {
+        if (type == null || !TYPE_NAME.matcher(type).matches()) {
+            throw new NotValidArgumentException("Reading type should consist of lowercase letters, digits and underscores, "
+                    + "start with a letter or an underscore and be at most 63 characters long.");
+        }
+    }
+
+    /**
+     * Returns the current reading types.
+     *
+     * @return an unmodifiable list of the reading types in ordinal order.
+     */
+    public List<String> getReadingTypes() {
+        return schema.types();
+    }
+
+    /**
+     * Returns the current reading types with their rules.
+     *
+     * @return a list of the reading types in ordinal order.
+     */
+    public List<ReadingTypeDTO> getReadingTypeDetails() {
+        return schema.readingTypes().stream()
+                .map(readingType -> {
+                    ReadingTypeRules rules = readingType.getRules();
+                    return new ReadingTypeDTO(readingType.getName(), readingType.getScale(), rules.getUnit(),
+                            rules.getMinValue(), rules.getMaxValue(), rules.getMaxMonthlyDelta(), rules.isActive(), rules.isMonotonic());
+                })
+                .toList();
+    }
+
+    /**
+     * Returns the current snapshot of the reading types.
+     * The values of readings are indexed by the ordinals of this snapshot.
+     *
+     * @return the current ReadingSchema.
+     */
+    public ReadingSchema getSchema() {
+        return schema;
+    }
+
     /**
      * Updates the list of reading types from the database.
-     * It calls the repository's method to get the reading types from the database and sets the list to the returned value.
+     * It calls the repository's method to get the reading types from the database and replaces the snapshot with them.
      */
     private void updateReadingTypes() {
-        readingTypes = readingTypeRepository.getReadingTypesFromDatabase();
+        schema = new ReadingSchema(schema.version() + 1, readingTypeRepository.getReadingTypesFromDatabase());
+    }
+
+    private static boolean sameReadingTypes(List<ReadingType> current, List<ReadingType> loaded) {
+        if (current.size() != loaded.size()) {
+            return false;
+        }
+        for (int i = 0; i < current.size(); i++) {
+            ReadingType a = current.get(i);
+            ReadingType b = loaded.get(i);
+            if (!a.getName().equals(b.getName()) || a.getScale() != b.getScale() || !a.getColumn().equals(b.getColumn())
+                    || !a.getRules().equals(b.getRules())) {
+                return false;
+            }
+        }
+        return true;
     }
 }
\ No newline at end of file
@@ -0,0 +1,105 @@
+package ru.erma.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import ru.erma.aop.annotations.Audit;
+import ru.erma.dto.ReadingSummaryDTO;
+import ru.erma.event.ReadingTypesChangedEvent;
+import ru.erma.exception.NotValidArgumentException;
+import ru.erma.model.ReadingSummary;
+import ru.erma.repository.ReadingSummaryRepository;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.YearMonth;
+import java.util.List;
+
+/**
+ * The ReadingSummaryService class provides the monthly aggregates of the readings of all users.
+ * The reports read only the summary table, which is maintained together with every insert of readings,
+ * so their cost does not depend on the number of readings.
+ * The summary is rebuilt from the readings on startup if it is empty and on request of an admin.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ReadingSummaryService {
+
+    private static final int AVERAGE_SCALE = 6;
+
+    private static final YearMonth FIRST_PERIOD = YearMonth.of(0, 1);
+
+    private static final YearMonth LAST_PERIOD = YearMonth.of(9999, 12);
+
+    private final ReadingSummaryRepository readingSummaryRepository;
+
+    private final ReadingStructureService readingStructureService;
+
+    /**
+     * Retrieves the aggregates of all reading types from one period to another, both inclusive.
+     * The periods are in the yyyy-MM format, a missing period leaves that end of the range open.
+     * If a period is not valid or the range is reversed, it throws a NotValidArgumentException.
+     *
+     * @param from the first period of the range, or null
+     * @param to   the last period of the range, or null
+     * @return the aggregates ordered by year, month and reading type
+     */
+    @Audit(action = "Admin viewed reading summary")
+    public List<ReadingSummaryDTO> getSummary(String from, String to) {
+        YearMonth first = from == null ? FIRST_PERIOD : ReadingService.parsePeriod(from);
+        YearMonth last = to == null ? LAST_PERIOD : ReadingService.parsePeriod(to);
+        if (first.isAfter(last)) {
+            throw new NotValidArgumentException("Period from should not be after period to.");
+        }
+        return readingSummaryRepository.findBetween(first, last).stream()
+                .map(this::toDto)
+                .toList();
+    }
+
+    /**
+     * Recomputes the summary from all readings.
+     *
+     * @return the number of aggregates of reading types and months
+     */
+    @Audit(action = "Admin rebuilt reading summary")
+    @Transactional
+    public int rebuild() {
+        return readingSummaryRepository.rebuild(readingStructureService.getSchema());
+    }
+
+    /**
+     * Backfills the summary on startup if it is empty, for readings stored before it was introduced.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional
+    public void backfill() {
+        if (readingSummaryRepository.isEmpty()) {
+            int rows = readingSummaryRepository.rebuild(readingStructureService.getSchema());
+            log.info("Reading summary backfilled with {} rows.", rows);
+        }
+    }
+
+    /**
+     * Removes the aggregates of a removed reading type, so it starts from zero if it is added again.
+     *
+     * @param event the event describing the structure change
+     */
+    @EventListener
+    public void onReadingTypesChanged(ReadingTypesChangedEvent event) {
+        if (!readingStructureService.getSchema().contains(event.type())) {
+            readingSummaryRepository.removeType(event.type());
+        }
+    }
+
+    private ReadingSummaryDTO toDto(ReadingSummary summary) {
+        BigDecimal average = summary.getTotal()
+                .divide(BigDecimal.valueOf(summary.getCount()), AVERAGE_SCALE, RoundingMode.HALF_UP)
+                .stripTrailingZeros();
+        return new ReadingSummaryDTO(summary.getType(), summary.getMonth(), summary.getYear(),
+                summary.getTotal(), summary.getCount(), average, summary.getMin(), summary.getMax());
+    }
+}
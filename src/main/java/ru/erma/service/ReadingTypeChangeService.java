@@ -0,0 +1,207 @@
+package ru.erma.service;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.dao.PessimisticLockingFailureException;
+import org.springframework.security.concurrent.DelegatingSecurityContextExecutorService;
+import org.springframework.stereotype.Service;
+import ru.erma.config.ReadingStructureProperties;
+import ru.erma.dto.ReadingTypeChangeDTO;
+import ru.erma.dto.ReadingTypeChangeDTO.Operation;
+import ru.erma.dto.ReadingTypeChangeDTO.Status;
+import ru.erma.exception.NotValidArgumentException;
+import ru.erma.exception.TypeNotFoundException;
+
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The ReadingTypeChangeService class runs the changes of the reading types in the background.
+ * A change is validated against the current reading types, queued and answered right away,
+ * so an HTTP request never waits for the lock of the readings table.
+ * The changes run one at a time in the order they were requested, with the security context of the requesting admin.
+ * A change that gives up waiting for the lock of the readings table is retried with an exponential backoff.
+ * The progress of the recent changes is kept in memory and can be queried while a change is running.
+ */
+@Service
+public class ReadingTypeChangeService {
+
+    private static final int MAX_TRACKED_CHANGES = 100;
+
+    private final ReadingStructureService readingStructureService;
+
+    private final ReadingStructureProperties properties;
+
+    private final ExecutorService executor;
+
+    private final Map<String, ChangeProgress> changes = Collections.synchronizedMap(new LinkedHashMap<>() {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, ChangeProgress> eldest) {
+            return size() > MAX_TRACKED_CHANGES;
+        }
+    });
+
+    /**
+     * Constructs a new ReadingTypeChangeService.
+     *
+     * @param readingStructureService the service applying the changes.
+     * @param properties the properties of the changes.
+     */
+    public ReadingTypeChangeService(ReadingStructureService readingStructureService, ReadingStructureProperties properties) {
+        this.readingStructureService = readingStructureService;
+        this.properties = properties;
+        this.executor = new DelegatingSecurityContextExecutorService(Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "reading-type-changes");
+            thread.setDaemon(true);
+            return thread;
+        }));
+    }
+
+    /**
+     * Stops the background thread after the queued changes, waiting at most for one lock timeout.
+     */
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(properties.getLockTimeout(), TimeUnit.MILLISECONDS)) {
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Queues the addition of a reading type.
+     * If the name of the reading type is not valid or the reading type already exists, it throws a NotValidArgumentException.
+     *
+     * @param type  the reading type to add
+     * @param scale the number of decimal places of its values, or null for the default scale
+     * @return the progress of the queued change
+     */
+    public ReadingTypeChangeDTO addReadingType(String type, Integer scale) {
+        ReadingStructureService.checkTypeName(type);
+        if (readingStructureService.getSchema().contains(type)) {
+            throw new NotValidArgumentException("Reading type " + type + " already exists.");
+        }
+        return submit(type, Operation.ADD, () -> readingStructureService.addReadingType(type, scale));
+    }
+
+    /**
+     * Queues the removal of a reading type.
+     * If the reading type does not exist, it throws a TypeNotFoundException.
+     *
+     * @param type the reading type to remove
+     * @return the progress of the queued change
+     */
+    public ReadingTypeChangeDTO removeReadingType(String type) {
+        if (!readingStructureService.getSchema().contains(type)) {
+            throw new TypeNotFoundException("Reading type not found");
+        }
+        return submit(type, Operation.REMOVE, () -> {
+            if (!readingStructureService.removeReadingType(type)) {
+                throw new TypeNotFoundException("Reading type not found");
+            }
+        });
+    }
+
+    /**
+     * Retrieves the progress of the recent changes, the most recent first.
+     *
+     * @return a list of changes
+     */
+    public List<ReadingTypeChangeDTO> getChanges() {
+        List<ReadingTypeChangeDTO> result = new ArrayList<>();
+        synchronized (changes) {
+            changes.values().forEach(progress -> result.add(progress.toDTO()));
+        }
+        Collections.reverse(result);
+        return result;
+    }
+
+    private ReadingTypeChangeDTO submit(String type, Operation operation, Runnable change) {
+        ChangeProgress progress = new ChangeProgress(UUID.randomUUID().toString(), type, operation);
+        changes.put(progress.changeId, progress);
+        executor.execute(() -> run(progress, change));
+        return progress.toDTO();
+    }
+
+    /**
+     * Applies a change, retrying it while it cannot acquire the lock of the readings table.
+     *
+     * @param progress the progress of the change
+     * @param change   the change to apply
+     */
+    private void run(ChangeProgress progress, Runnable change) {
+        long backoff = properties.getRetryBackoff();
+        while (true) {
+            progress.attempt();
+            try {
+                change.run();
+                progress.complete();
+                return;
+            } catch (PessimisticLockingFailureException e) {
+                if (progress.attempts >= properties.getMaxAttempts()) {
+                    progress.fail("The readings table stayed locked after " + progress.attempts + " attempts.");
+                    return;
+                }
+            } catch (RuntimeException e) {
+                progress.fail(e.getMessage());
+                return;
+            }
+            try {
+                Thread.sleep(ThreadLocalRandom.current().nextLong(backoff / 2, backoff + 1));
+            } catch (InterruptedException e) {
+                progress.fail("The change was interrupted.");
+                Thread.currentThread().interrupt();
+                return;
+            }
+            backoff *= 2;
+        }
+    }
+
+    /**
+     * The state of a single change.
+     */
+    private static final class ChangeProgress {
+        private final String changeId;
+        private final String type;
+        private final Operation operation;
+        private final LocalDateTime requestedAt = LocalDateTime.now();
+        private volatile Status status = Status.PENDING;
+        private volatile int attempts;
+        private volatile String message;
+        private volatile LocalDateTime finishedAt;
+
+        private ChangeProgress(String changeId, String type, Operation operation) {
+            this.changeId = changeId;
+            this.type = type;
+            this.operation = operation;
+        }
+
+        private void attempt() {
+            this.attempts++;
+            this.status = Status.RUNNING;
+        }
+
+        private void complete() {
+            this.finishedAt = LocalDateTime.now();
+            this.status = Status.COMPLETED;
+        }
+
+        private void fail(String message) {
+            this.message = message;
+            this.finishedAt = LocalDateTime.now();
+            this.status = Status.FAILED;
+        }
+
+        private ReadingTypeChangeDTO toDTO() {
+            return new ReadingTypeChangeDTO(changeId, type, operation, status, attempts, message, requestedAt, finishedAt);
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package ru.erma.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import ru.erma.config.ReadingStructureProperties;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * The ReadingTypeNotificationListener class keeps the reading types of this instance in sync with the other instances.
+ * A trigger of the reading_types table notifies the reading_types_changed channel when a change commits.
+ * A background thread listens to the channel on a dedicated connection and refreshes the reading types on every notification,
+ * and once more whenever it starts listening, since notifications sent while it was not listening are lost.
+ * The reading types are also reconciled with the database periodically, in case the listener misses a notification anyway.
+ */
+@Slf4j
+@Service
+public class ReadingTypeNotificationListener {
+
+    private static final String CHANNEL = "reading_types_changed";
+
+    private static final int POLL_TIMEOUT = 500;
+
+    private final DataSource dataSource;
+
+    private final ReadingStructureService readingStructureService;
+
+    private final ReadingStructureProperties properties;
+
+    private volatile boolean running;
+
+    private Thread listener;
+
+    /**
+     * Constructs a new ReadingTypeNotificationListener.
+     *
+     * @param dataSource the data source the listening connection is taken from.
+     * @param readingStructureService the service whose reading types are refreshed.
+     * @param properties the properties of the changes of the reading types.
+     */
+    public ReadingTypeNotificationListener(DataSource dataSource, ReadingStructureService readingStructureService,
+                                           ReadingStructureProperties properties) {
+        this.dataSource = dataSource;
+        this.readingStructureService = readingStructureService;
+        this.properties = properties;
+    }
+
+    /**
+     * Starts the listener thread.
+     */
+    @PostConstruct
+    public void start() {
+        running = true;
+        listener = new Thread(this::listenLoop, "reading-type-notifications");
+        listener.setDaemon(true);
+        listener.start();
+    }
+
+    /**
+     * Stops the listener thread and releases its connection.
+     */
+    @PreDestroy
+    public void shutdown() {
+        running = false;
+        try {
+            listener.join(POLL_TIMEOUT * 4L);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Reconciles the reading types with the database.
+     */
+    @Scheduled(initialDelayString = "${readings.structure.reconcile-interval:60000}",
+            fixedDelayString = "${readings.structure.reconcile-interval:60000}")
+    public void reconcile() {
+        if (readingStructureService.refreshReadingTypes()) {
+            log.info("Reading types reconciled with the database, a change notification was missed.");
+        }
+    }
+
+    private void listenLoop() {
+        while (running) {
+            try {
+                listen();
+            } catch (SQLException | DataAccessException e) {
+                if (!running) {
+                    return;
+                }
+                log.warn("Listening for changes of the reading types failed, retrying in {} ms.", properties.getReconnectDelay(), e);
+                try {
+                    Thread.sleep(properties.getReconnectDelay());
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Listens to the channel until the listener is stopped or the connection fails.
+     * The connection stops listening before it is returned to the pool, so no other user receives the notifications.
+     */
+    private void listen() throws SQLException {
+        try (Connection connection = dataSource.getConnection()) {
+            PGConnection pgConnection = connection.unwrap(PGConnection.class);
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("LISTEN " + CHANNEL);
+            }
+            try {
+                readingStructureService.refreshReadingTypes();
+                while (running) {
+                    PGNotification[] notifications = pgConnection.getNotifications(POLL_TIMEOUT);
+                    if (notifications != null && notifications.length > 0) {
+                        readingStructureService.refreshReadingTypes();
+                    }
+                }
+            } finally {
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("UNLISTEN " + CHANNEL);
+                }
+            }
+        }
+    }
+}
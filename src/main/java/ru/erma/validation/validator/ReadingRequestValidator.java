@@ -0,0 +1,208 @@
+package ru.erma.validation.validator;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import ru.erma.dto.ReadingRequest;
+import ru.erma.model.ReadingSchema;
+import ru.erma.model.ReadingTypeRules;
+import ru.erma.service.ReadingStructureService;
+
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Map;
+
+/**
+ * This class validates a ReadingRequest on the ingest path without Bean Validation.
+ * It checks the same constraints as the annotations of ReadingRequest, with the same messages,
+ * in the order the fields are declared, followed by the date of the reading.
+ * The values are checked in a single pass against the per-ordinal rules of the current ReadingSchema snapshot,
+ * and the current month is kept until the clock reaches the next month,
+ * so a valid request is checked without reflection and without allocating anything.
+ */
+@Component
+public class ReadingRequestValidator {
+
+    /**
+     * The number of digits of the largest unscaled value that fits into the numeric(18, scale) columns of the readings table.
+     */
+    private static final int MAX_UNSCALED_DIGITS = 18;
+
+    private static final int VALID = 0;
+    private static final int INVALID_TYPE = 1;
+    private static final int TOO_PRECISE = 2;
+    private static final int TOO_LARGE = 3;
+    private static final int INACTIVE = 4;
+    private static final int BELOW_MIN = 5;
+    private static final int ABOVE_MAX = 6;
+
+    private final ReadingStructureService readingStructureService;
+
+    private final Clock clock;
+
+    private volatile CurrentMonth currentMonth;
+
+    /**
+     * Constructs a new ReadingRequestValidator with the system clock.
+     *
+     * @param readingStructureService the service providing the current reading types.
+     */
+    @Autowired
+    public ReadingRequestValidator(ReadingStructureService readingStructureService) {
+        this(readingStructureService, Clock.systemDefaultZone());
+    }
+
+    /**
+     * Constructs a new ReadingRequestValidator.
+     *
+     * @param readingStructureService the service providing the current reading types.
+     * @param clock the clock the current month is taken from.
+     */
+    public ReadingRequestValidator(ReadingStructureService readingStructureService, Clock clock) {
+        this.readingStructureService = readingStructureService;
+        this.clock = clock;
+    }
+
+    /**
+     * Validates a reading request.
+     *
+     * @param request the reading request
+     * @return the violation messages joined with "; ", or null if the request is valid
+     */
+    public String validate(ReadingRequest request) {
+        StringBuilder violations = null;
+        String username = request.username();
+        if (username == null || username.isBlank()) {
+            violations = append(violations, "Username must be not blank.");
+        }
+        Integer month = request.month();
+        if (month == null) {
+            violations = append(violations, "Month should not be null");
+        } else if (month < 1) {
+            violations = append(violations, "Month should be not less than 1");
+        } else if (month > 12) {
+            violations = append(violations, "Month should be not greater than 12");
+        }
+        Integer year = request.year();
+        if (year == null) {
+            violations = append(violations, "Year should not be null");
+        } else if (year < 2000) {
+            violations = append(violations, "Year should be not less than 2000");
+        }
+        String valuesViolation = checkValues(request.values(), readingStructureService.getSchema());
+        if (valuesViolation != null) {
+            violations = append(violations, valuesViolation);
+        }
+        if (year != null && month != null) {
+            if (month < 1 || month > 12) {
+                violations = append(violations, "Invalid date");
+            } else if (isInFuture(year, month)) {
+                violations = append(violations, "Date should not be in the future");
+            }
+        }
+        return violations == null ? null : violations.toString();
+    }
+
+    /**
+     * Checks the values of a reading against a ReadingSchema snapshot.
+     * Every value must be a non-negative number of a known, active reading type with at most as many decimal places
+     * as the type's scale, within the bounds of the type's rules if it has any.
+     * A negative value is reported before any other violation, otherwise the first violating value is reported.
+     *
+     * @param values the values of the reading types, or null
+     * @param schema the snapshot of the reading types
+     * @return the violation message, or null if the values are valid
+     */
+    public static String checkValues(Map<String, BigDecimal> values, ReadingSchema schema) {
+        if (values == null) {
+            return null;
+        }
+        int violation = VALID;
+        String violatingType = null;
+        int violatingOrdinal = -1;
+        for (Map.Entry<String, BigDecimal> entry : values.entrySet()) {
+            BigDecimal value = entry.getValue();
+            if (value == null || value.signum() < 0) {
+                return "Readings must be positive numbers.";
+            }
+            if (violation != VALID) {
+                continue;
+            }
+            int ordinal = schema.ordinal(entry.getKey());
+            violation = ordinal < 0 ? INVALID_TYPE : checkValue(value, schema, ordinal);
+            if (violation != VALID) {
+                violatingType = entry.getKey();
+                violatingOrdinal = ordinal;
+            }
+        }
+        return violation == VALID ? null : message(violation, violatingType, violatingOrdinal, schema);
+    }
+
+    private static int checkValue(BigDecimal value, ReadingSchema schema, int ordinal) {
+        int scale = schema.scale(ordinal);
+        if (value.scale() > scale && value.stripTrailingZeros().scale() > scale) {
+            return TOO_PRECISE;
+        }
+        if (value.signum() != 0 && value.precision() - value.scale() + scale > MAX_UNSCALED_DIGITS) {
+            return TOO_LARGE;
+        }
+        ReadingTypeRules rules = schema.rules(ordinal);
+        if (!rules.isActive()) {
+            return INACTIVE;
+        }
+        if (rules.getMinValue() != null && value.compareTo(rules.getMinValue()) < 0) {
+            return BELOW_MIN;
+        }
+        if (rules.getMaxValue() != null && value.compareTo(rules.getMaxValue()) > 0) {
+            return ABOVE_MAX;
+        }
+        return VALID;
+    }
+
+    private static String message(int violation, String type, int ordinal, ReadingSchema schema) {
+        return switch (violation) {
+            case INVALID_TYPE -> "Invalid reading type: " + type;
+            case TOO_PRECISE -> "Reading " + type + " must have at most " + schema.scale(ordinal) + " decimal places.";
+            case TOO_LARGE -> "Reading " + type + " is too large.";
+            case INACTIVE -> "Reading type " + type + " is no longer active.";
+            case BELOW_MIN -> "Reading " + type + " must be at least " + schema.rules(ordinal).getMinValue().toPlainString() + ".";
+            case ABOVE_MAX -> "Reading " + type + " must be at most " + schema.rules(ordinal).getMaxValue().toPlainString() + ".";
+            default -> throw new IllegalStateException("Unknown violation " + violation);
+        };
+    }
+
+    /**
+     * Checks whether a month is after the current month.
+     * The current month is computed again only once the clock has reached the first day of the next month.
+     */
+    private boolean isInFuture(int year, int month) {
+        long now = clock.millis();
+        CurrentMonth current = currentMonth;
+        if (current == null || now >= current.nextMonthStart()) {
+            current = CurrentMonth.at(now, clock.getZone());
+            currentMonth = current;
+        }
+        return year > current.year() || year == current.year() && month > current.month();
+    }
+
+    private static StringBuilder append(StringBuilder violations, String message) {
+        if (violations == null) {
+            return new StringBuilder(message);
+        }
+        return violations.append("; ").append(message);
+    }
+
+    /**
+     * The current month and the instant the next month starts at.
+     */
+    private record CurrentMonth(int year, int month, long nextMonthStart) {
+
+        private static CurrentMonth at(long millis, ZoneId zone) {
+            LocalDate today = LocalDate.ofInstant(Instant.ofEpochMilli(millis), zone);
+            long nextMonthStart = today.withDayOfMonth(1).plusMonths(1).atStartOfDay(zone).toInstant().toEpochMilli();
+            return new CurrentMonth(today.getYear(), today.getMonthValue(), nextMonthStart);
+        }
+    }
+}
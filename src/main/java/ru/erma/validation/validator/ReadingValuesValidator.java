@@ -6,38 +6,33 @@ import lombok.RequiredArgsConstructor;
 import ru.erma.service.ReadingStructureService;
 import ru.erma.validation.annotation.ValidReadingValues;
 
-import java.util.List;
+import java.math.BigDecimal;
 import java.util.Map;
 
 /**
  * This class validates that the values in a reading are valid.
  * It implements the ConstraintValidator interface provided by Jakarta Validation.
- * The ValidReadingValues annotation is used to apply this validator to a Map<String, Integer>.
+ * The ValidReadingValues annotation is used to apply this validator to a Map<String, BigDecimal>.
+ * Every value must be a non-negative number of a known, active reading type with at most as many decimal places
+ * as the type's scale, within the bounds of the type's rules if it has any.
+ * The reading type and its rules are looked up by hash in the current ReadingSchema snapshot,
+ * so the cost of a check does not depend on the number of reading types.
+ * The values are checked by ReadingRequestValidator, so both validation paths report the same messages.
  */
 @RequiredArgsConstructor
-public class ReadingValuesValidator implements ConstraintValidator<ValidReadingValues, Map<String, Integer>> {
+public class ReadingValuesValidator implements ConstraintValidator<ValidReadingValues, Map<String, BigDecimal>> {
 
     private final ReadingStructureService readingStructureService;
 
     @Override
-    public boolean isValid(Map<String, Integer> values, ConstraintValidatorContext context) {
-        for (Integer value : values.values()) {
-            if (value == null || value < 0) {
-                context.disableDefaultConstraintViolation();
-                context.buildConstraintViolationWithTemplate("Readings must be positive numbers.")
-                        .addConstraintViolation();
-                return false;
-            }
+    public boolean isValid(Map<String, BigDecimal> values, ConstraintValidatorContext context) {
+        String message = ReadingRequestValidator.checkValues(values, readingStructureService.getSchema());
+        if (message == null) {
+            return true;
         }
-        List<String> validTypes = readingStructureService.getReadingTypes();
-        for (String key : values.keySet()) {
-            if (!validTypes.contains(key)) {
-                context.disableDefaultConstraintViolation();
-                context.buildConstraintViolationWithTemplate("Invalid reading type: " + key)
-                        .addConstraintViolation();
-                return false;
-            }
-        }
-        return true;
+        context.disableDefaultConstraintViolation();
+        context.buildConstraintViolationWithTemplate(message)
+                .addConstraintViolation();
+        return false;
     }
-}
\ No newline at end of file
+}
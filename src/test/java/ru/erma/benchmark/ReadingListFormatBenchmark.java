@@ -0,0 +1,96 @@
+package ru.erma.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import ru.erma.dto.ReadingColumnsDTO;
+import ru.erma.dto.ReadingListDTO;
+import ru.erma.model.Reading;
+import ru.erma.model.ReadingSchema;
+import ru.erma.model.ReadingType;
+import ru.erma.model.ReadingValues;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * This benchmark compares the formats of a list of readings: the JSON objects of the readings,
+ * the same objects in CBOR and the columnar JSON.
+ * It serializes the history of a user with 20 years of monthly readings and 10 reading types with a scale of 3.
+ * The payload size of every format is printed once during the setup.
+ * Run it with the main method after test-compile.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ReadingListFormatBenchmark {
+
+    private static final int READINGS = 20 * 12;
+
+    private static final int TYPES = 10;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final ObjectMapper cborMapper = objectMapper.copyWith(new CBORFactory());
+
+    private ReadingListDTO history;
+
+    private ReadingColumnsDTO columns;
+
+    @Setup
+    public void setUp() throws Exception {
+        List<ReadingType> types = new ArrayList<>();
+        for (int i = 0; i < TYPES; i++) {
+            types.add(new ReadingType("type_" + i, 3));
+        }
+        ReadingSchema schema = new ReadingSchema(1, types);
+        Random random = new Random(42);
+        List<Reading> readings = new ArrayList<>(READINGS);
+        for (int i = 0; i < READINGS; i++) {
+            Reading reading = new Reading();
+            reading.setMonth(i % 12 + 1);
+            reading.setYear(2000 + i / 12);
+            ReadingValues values = new ReadingValues(schema);
+            for (int j = 0; j < TYPES; j++) {
+                values.set(j, random.nextInt(100_000_000));
+            }
+            reading.setValues(values);
+            readings.add(reading);
+        }
+        history = new ReadingListDTO();
+        history.setReadings(readings);
+        columns = ReadingColumnsDTO.of(history);
+        System.out.printf("%nPayload sizes: json %d bytes, cbor %d bytes, columnar %d bytes%n",
+                serializeJson().length, serializeCbor().length, serializeColumnar().length);
+    }
+
+    @Benchmark
+    public byte[] serializeJson() throws Exception {
+        return objectMapper.writeValueAsBytes(history);
+    }
+
+    @Benchmark
+    public byte[] serializeCbor() throws Exception {
+        return cborMapper.writeValueAsBytes(history);
+    }
+
+    @Benchmark
+    public byte[] serializeColumnar() throws Exception {
+        return objectMapper.writeValueAsBytes(columns);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(ReadingListFormatBenchmark.class.getSimpleName())
+                .addProfiler("gc")
+                .build()).run();
+    }
+}
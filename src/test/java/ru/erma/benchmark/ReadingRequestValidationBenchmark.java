@@ -0,0 +1,111 @@
+package ru.erma.benchmark;
+
+import jakarta.validation.ConstraintValidator;
+import jakarta.validation.ConstraintValidatorFactory;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validation;
+import jakarta.validation.Validator;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.erma.dto.ReadingRequest;
+import ru.erma.model.ReadingType;
+import ru.erma.repository.ReadingTypeRepository;
+import ru.erma.repository.ReadingVersionRepository;
+import ru.erma.service.ReadingStructureService;
+import ru.erma.validation.validator.ReadingRequestValidator;
+import ru.erma.validation.validator.ReadingValuesValidator;
+
+import java.math.BigDecimal;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * This benchmark compares Bean Validation of a ReadingRequest with the ReadingRequestValidator.
+ * It validates a valid request with 10 reading types, as the ingest path does for almost every request.
+ * Run it with the main method after test-compile.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ReadingRequestValidationBenchmark {
+
+    private static final int TYPES = 10;
+
+    private Validator beanValidator;
+
+    private ReadingRequestValidator readingRequestValidator;
+
+    private ReadingRequest request;
+
+    @Setup
+    public void setUp() {
+        List<ReadingType> types = new ArrayList<>();
+        Map<String, BigDecimal> values = new LinkedHashMap<>();
+        for (int i = 0; i < TYPES; i++) {
+            types.add(new ReadingType("type_" + i, 3));
+            values.put("type_" + i, new BigDecimal("1234.567"));
+        }
+        @SuppressWarnings("unchecked")
+        ReadingTypeRepository<String> readingTypeRepository = mock(ReadingTypeRepository.class);
+        when(readingTypeRepository.getReadingTypesFromDatabase()).thenReturn(types);
+        ReadingStructureService readingStructureService = new ReadingStructureService(readingTypeRepository,
+                mock(ReadingVersionRepository.class), mock(ApplicationEventPublisher.class), mock(TransactionTemplate.class));
+        beanValidator = Validation.byDefaultProvider().configure()
+                .constraintValidatorFactory(new ReadingValuesValidatorFactory(readingStructureService))
+                .buildValidatorFactory()
+                .getValidator();
+        readingRequestValidator = new ReadingRequestValidator(readingStructureService);
+        request = new ReadingRequest("user", 1, 2024, values);
+    }
+
+    @Benchmark
+    public Set<ConstraintViolation<ReadingRequest>> beanValidation() {
+        return beanValidator.validate(request);
+    }
+
+    @Benchmark
+    public String readingRequestValidator() {
+        return readingRequestValidator.validate(request);
+    }
+
+    /**
+     * Creates the ReadingValuesValidator with the ReadingStructureService, as Spring does.
+     */
+    private record ReadingValuesValidatorFactory(ReadingStructureService readingStructureService)
+            implements ConstraintValidatorFactory {
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public <T extends ConstraintValidator<?, ?>> T getInstance(Class<T> key) {
+            if (key == ReadingValuesValidator.class) {
+                return (T) new ReadingValuesValidator(readingStructureService);
+            }
+            try {
+                return key.getDeclaredConstructor().newInstance();
+            } catch (ReflectiveOperationException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        @Override
+        public void releaseInstance(ConstraintValidator<?, ?> instance) {
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(ReadingRequestValidationBenchmark.class.getSimpleName())
+                .addProfiler("gc")
+                .build()).run();
+    }
+}
@@ -0,0 +1,121 @@
+package ru.erma.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import ru.erma.model.Reading;
+import ru.erma.model.ReadingSchema;
+import ru.erma.model.ReadingType;
+import ru.erma.model.ReadingValues;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * This benchmark compares the map based values of a reading with the primitive ReadingValues.
+ * It maps the history of a user with 20 years of monthly readings and 10 reading types, as the row mapper does,
+ * copies it to the response the way the mappers do, and serializes it to JSON.
+ * Run it with the main method after test-compile.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ReadingValuesBenchmark {
+
+    private static final int READINGS = 20 * 12;
+
+    private static final int TYPES = 10;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private ReadingSchema schema;
+
+    private long[][] rows;
+
+    private List<MapReading> mapHistory;
+
+    private List<Reading> primitiveHistory;
+
+    @Setup
+    public void setUp() {
+        List<ReadingType> types = new ArrayList<>();
+        for (int i = 0; i < TYPES; i++) {
+            types.add(new ReadingType("type_" + i, 0));
+        }
+        schema = new ReadingSchema(1, types);
+        rows = new long[READINGS][TYPES];
+        Random random = new Random(42);
+        for (long[] row : rows) {
+            for (int j = 0; j < TYPES; j++) {
+                row[j] = random.nextInt(100_000);
+            }
+        }
+        mapHistory = mapWithMaps();
+        primitiveHistory = mapWithPrimitives();
+    }
+
+    @Benchmark
+    public List<MapReading> mapWithMaps() {
+        List<MapReading> history = new ArrayList<>(READINGS);
+        for (int i = 0; i < READINGS; i++) {
+            MapReading reading = new MapReading();
+            reading.month = i % 12 + 1;
+            reading.year = 2000 + i / 12;
+            Map<String, Integer> values = new HashMap<>();
+            for (int j = 0; j < TYPES; j++) {
+                values.put(schema.type(j), (int) rows[i][j]);
+            }
+            reading.values = new HashMap<>(values);
+            history.add(reading);
+        }
+        return history;
+    }
+
+    @Benchmark
+    public List<Reading> mapWithPrimitives() {
+        List<Reading> history = new ArrayList<>(READINGS);
+        for (int i = 0; i < READINGS; i++) {
+            Reading reading = new Reading();
+            reading.setMonth(i % 12 + 1);
+            reading.setYear(2000 + i / 12);
+            ReadingValues values = new ReadingValues(schema);
+            for (int j = 0; j < TYPES; j++) {
+                values.set(j, rows[i][j]);
+            }
+            reading.setValues(values);
+            history.add(reading);
+        }
+        return history;
+    }
+
+    @Benchmark
+    public byte[] serializeMaps() throws Exception {
+        return objectMapper.writeValueAsBytes(mapHistory);
+    }
+
+    @Benchmark
+    public byte[] serializePrimitives() throws Exception {
+        return objectMapper.writeValueAsBytes(primitiveHistory);
+    }
+
+    /**
+     * The reading with map based values, as it was before ReadingValues.
+     */
+    public static class MapReading {
+        public Integer month;
+        public Integer year;
+        public Map<String, Integer> values;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(ReadingValuesBenchmark.class.getSimpleName())
+                .addProfiler("gc")
+                .build()).run();
+    }
+}
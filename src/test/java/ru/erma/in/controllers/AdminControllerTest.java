@@ -11,6 +11,9 @@ import org.springframework.test.web.servlet.MockMvc;
 import ru.erma.config.AbstractTestContainerConfig;
 import ru.erma.dto.AdminRequest;
 import ru.erma.dto.AssignDTO;
+import ru.erma.dto.ReadingTypeRulesRequest;
+
+import java.math.BigDecimal;
 
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
@@ -47,19 +50,21 @@ class AdminControllerTest extends AbstractTestContainerConfig {
     /**
      * This test checks if the addReadingType method of the AdminController adds a reading type successfully.
      * It creates an AdminRequest, converts it to JSON, performs a POST request to "/admin" with the JSON as the request body,
-     * and expects the status to be OK and the response body to contain the message "Reading type added successfully!".
+     * and expects the status to be Accepted and the response body to describe the queued addition of the type.
      */
     @Test
-    @DisplayName("AddReadingType adds a reading type successfully")
+    @DisplayName("AddReadingType queues the addition of a reading type")
     void addReadingType_addsReadingTypeSuccessfully() throws Exception {
-        AdminRequest adminRequest = new AdminRequest("solyara");
+        AdminRequest adminRequest = new AdminRequest("solyara", null);
         String adminJson = objectMapper.writeValueAsString(adminRequest);
 
         mockMvc.perform(post("/admin")
                         .contentType(MediaType.APPLICATION_JSON)
                         .content(adminJson))
-                .andExpect(status().isOk())
-                .andExpect(jsonPath("$.message").value("Reading type added successfully!"));
+                .andExpect(status().isAccepted())
+                .andExpect(jsonPath("$.type").value("solyara"))
+                .andExpect(jsonPath("$.operation").value("ADD"))
+                .andExpect(jsonPath("$.changeId").exists());
     }
 
     /**
@@ -78,6 +83,20 @@ class AdminControllerTest extends AbstractTestContainerConfig {
                 .andExpect(status().isBadRequest());
     }
 
+    /**
+     * This test checks if the addReadingType method of the AdminController returns a 400 status for a scale above the supported maximum.
+     */
+    @Test
+    @DisplayName("AddReadingType returns 400 for unsupported scale")
+    void addReadingType_returns400ForUnsupportedScale() throws Exception {
+        String adminJson = objectMapper.writeValueAsString(new AdminRequest("solyara", 7));
+
+        mockMvc.perform(post("/admin")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(adminJson))
+                .andExpect(status().isBadRequest());
+    }
+
     /**
      * This test checks if the removeReadingType method of the AdminController returns a 404 status for a non-existing type.
      * It creates a string for a non-existing type, performs a DELETE request to "/admin/{type}",
@@ -95,16 +114,43 @@ class AdminControllerTest extends AbstractTestContainerConfig {
     /**
      * This test checks if the removeReadingType method of the AdminController removes a reading type successfully.
      * It creates a string for a type, performs a DELETE request to "/admin/{type}",
-     * and expects the status to be OK and the response body to contain the message "Reading type removed successfully!".
+     * and expects the status to be Accepted and the response body to describe the queued removal of the type.
      */
     @Test
-    @DisplayName("RemoveReadingType removes a reading type successfully")
+    @DisplayName("RemoveReadingType queues the removal of a reading type")
     void removeReadingType_removesReadingTypeSuccessfully() throws Exception {
         String type = "heating";
 
         mockMvc.perform(delete("/admin/" + type))
+                .andExpect(status().isAccepted())
+                .andExpect(jsonPath("$.type").value(type))
+                .andExpect(jsonPath("$.operation").value("REMOVE"));
+    }
+
+    /**
+     * This test checks that the rules of a reading type are changed and listed with the reading types,
+     * and that a minimum value greater than the maximum value is rejected.
+     */
+    @Test
+    @DisplayName("UpdateReadingTypeRules changes the rules of a reading type")
+    void updateReadingTypeRules_changesRules() throws Exception {
+        String rules = objectMapper.writeValueAsString(new ReadingTypeRulesRequest("m3", BigDecimal.ZERO,
+                new BigDecimal("5000"), new BigDecimal("40"), true, true));
+        String invalidRules = objectMapper.writeValueAsString(new ReadingTypeRulesRequest(null, BigDecimal.TEN,
+                BigDecimal.ONE, null, null, null));
+
+        mockMvc.perform(put("/admin/types/cold_water")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(rules))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/admin/types"))
                 .andExpect(status().isOk())
-                .andExpect(jsonPath("$.message").value("Reading type removed successfully!"));
+                .andExpect(jsonPath("$[?(@.type == 'cold_water')].unit").value("m3"))
+                .andExpect(jsonPath("$[?(@.type == 'cold_water')].maxValue").value(5000));
+        mockMvc.perform(put("/admin/types/cold_water")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(invalidRules))
+                .andExpect(status().isBadRequest());
     }
 
     /**
@@ -151,7 +197,7 @@ class AdminControllerTest extends AbstractTestContainerConfig {
     @WithMockUser(roles = "USER")
     @DisplayName("AddReadingType returns 403 for non-admin user")
     void addReadingType_returns403ForNonAdminUser() throws Exception {
-        AdminRequest adminRequest = new AdminRequest("solyara");
+        AdminRequest adminRequest = new AdminRequest("solyara", null);
         String adminJson = objectMapper.writeValueAsString(adminRequest);
 
         mockMvc.perform(post("/admin")
@@ -159,4 +205,18 @@ class AdminControllerTest extends AbstractTestContainerConfig {
                         .content(adminJson))
                 .andExpect(status().isForbidden());
     }
-}
\ No newline at end of file
+
+    /**
+     * This test checks if the importCsvReadings method of the AdminController rejects a CSV header with an unknown reading type.
+     * It performs a POST request to "/admin/readings/import" with a CSV body and expects the status to be 400 (Bad Request).
+     */
+    @Test
+    @DisplayName("ImportCsvReadings returns 400 for unknown reading type")
+    void importCsvReadings_returnsBadRequestForUnknownReadingType() throws Exception {
+        mockMvc.perform(post("/admin/readings/import")
+                        .contentType("text/csv")
+                        .content("username,month,year,unknown_type\ntest_user,1,2019,5\n"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value("Invalid reading type: unknown_type"));
+    }
+}
@@ -9,13 +9,21 @@ import org.springframework.http.MediaType;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.web.servlet.MockMvc;
 import ru.erma.config.AbstractTestContainerConfig;
+import ru.erma.dto.ReadingBatchRequest;
+import ru.erma.dto.ReadingColumnsDTO;
 import ru.erma.dto.ReadingRequest;
 
+import java.math.BigDecimal;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.not;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
@@ -49,6 +57,45 @@ class ReadingControllerTest extends AbstractTestContainerConfig {
                 .andExpect(jsonPath("$").exists());
     }
 
+    /**
+     * This test checks that the actual readings carry an entity tag and that a request with the same tag
+     * in If-None-Match is answered with 304 and without a body.
+     */
+    @Test
+    @DisplayName("GetActualReadings returns 304 for a matching entity tag")
+    void getActualReadings_returnsNotModifiedForMatchingETag() throws Exception {
+        String eTag = mockMvc.perform(get("/readings/actual/test_user"))
+                .andExpect(status().isOk())
+                .andExpect(header().exists("ETag"))
+                .andReturn().getResponse().getHeader("ETag");
+
+        mockMvc.perform(get("/readings/actual/test_user").header("If-None-Match", eTag))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string("ETag", eTag))
+                .andExpect(content().string(""));
+    }
+
+    /**
+     * This test checks that the readings history is written in columns only when the client accepts the columnar media type,
+     * and that its entity tag differs from the tag of the JSON representation.
+     */
+    @Test
+    @DisplayName("GetReadingsHistory returns columns for the columnar media type")
+    void getReadingsHistory_returnsColumnsForColumnarMediaType() throws Exception {
+        String jsonTag = mockMvc.perform(get("/readings/history/test_user").accept(MediaType.ALL))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_JSON))
+                .andReturn().getResponse().getHeader("ETag");
+
+        mockMvc.perform(get("/readings/history/test_user").accept(ReadingColumnsDTO.MEDIA_TYPE))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(ReadingColumnsDTO.MEDIA_TYPE))
+                .andExpect(jsonPath("$.months").isArray())
+                .andExpect(jsonPath("$.values").exists())
+                .andExpect(header().string("Vary", containsString("Accept")))
+                .andExpect(header().string("ETag", not(jsonTag)));
+    }
+
     /**
      * This test checks if the getActualReadings method of the ReadingController returns a 401 status for a non-authorized user.
      * It performs a GET request to "/readings/actual/{username}" and expects the status to be 401 (Unauthorized) and the response body to contain the message "Username in the request does not match the username in the token.".
@@ -126,7 +173,7 @@ class ReadingControllerTest extends AbstractTestContainerConfig {
     @Test
     @DisplayName("SubmitReadings submits readings for a user")
     void submitReadings_submitsReadingsForUser() throws Exception {
-        Map<String, Integer> values = new HashMap<>();
+        Map<String, BigDecimal> values = new HashMap<>();
         ReadingRequest readingRequest = new ReadingRequest("test_user", 2, 2022, values);
         String readingJson = objectMapper.writeValueAsString(readingRequest);
 
@@ -162,7 +209,7 @@ class ReadingControllerTest extends AbstractTestContainerConfig {
     @WithMockUser(roles = "UnknownRole")
     @DisplayName("SubmitReadings returns forbidden")
     void submitReadings_returns403ForNotUser() throws Exception {
-        Map<String, Integer> values = new HashMap<>();
+        Map<String, BigDecimal> values = new HashMap<>();
         ReadingRequest readingRequest = new ReadingRequest("test_user", 2, 2022, values);
         String readingJson = objectMapper.writeValueAsString(readingRequest);
 
@@ -171,4 +218,57 @@ class ReadingControllerTest extends AbstractTestContainerConfig {
                         .content(readingJson))
                 .andExpect(status().isForbidden());
     }
-}
\ No newline at end of file
+
+    /**
+     * This test checks if the submitReadingsBatch method of the ReadingController reports the outcome of every reading.
+     * It submits a new reading, an already existing reading and an invalid reading in one batch
+     * and expects the status to be OK and the results to be ACCEPTED, DUPLICATE and INVALID respectively.
+     */
+    @Test
+    @DisplayName("SubmitReadingsBatch reports the outcome of every reading")
+    void submitReadingsBatch_reportsOutcomeOfEveryReading() throws Exception {
+        ReadingBatchRequest batchRequest = new ReadingBatchRequest(List.of(
+                new ReadingRequest("test_user", 5, 2020, new HashMap<>()),
+                new ReadingRequest("test_user", 1, 2022, new HashMap<>()),
+                new ReadingRequest("test_user", 13, 2020, new HashMap<>())));
+        String batchJson = objectMapper.writeValueAsString(batchRequest);
+
+        mockMvc.perform(post("/readings/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(batchJson))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.results[0].status").value("ACCEPTED"))
+                .andExpect(jsonPath("$.results[1].status").value("DUPLICATE"))
+                .andExpect(jsonPath("$.results[2].status").value("INVALID"))
+                .andExpect(jsonPath("$.results[2].message").value("Month should be not greater than 12"));
+    }
+
+    /**
+     * This test checks if the submitReadingsBatch method of the ReadingController returns a 401 status
+     * when a reading in the batch belongs to another user.
+     */
+    @Test
+    @DisplayName("SubmitReadingsBatch returns 401 for readings of another user")
+    void submitReadingsBatch_returnsUnauthorized() throws Exception {
+        ReadingBatchRequest batchRequest = new ReadingBatchRequest(List.of(
+                new ReadingRequest("non_existing_user", 5, 2020, new HashMap<>())));
+        String batchJson = objectMapper.writeValueAsString(batchRequest);
+
+        mockMvc.perform(post("/readings/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(batchJson))
+                .andExpect(status().isUnauthorized());
+    }
+
+    /**
+     * This test checks if the getReceipt method of the ReadingController returns a 404 status for an unknown receipt.
+     * It performs a GET request to "/readings/receipts/{receiptId}" and expects the status to be 404 (Not Found).
+     */
+    @Test
+    @DisplayName("GetReceipt returns 404 for unknown receipt")
+    void getReceipt_returnsNotFound() throws Exception {
+        mockMvc.perform(get("/readings/receipts/unknown"))
+                .andExpect(status().isNotFound())
+                .andExpect(jsonPath("$.message").value("No receipt found with id unknown"));
+    }
+}
@@ -3,8 +3,11 @@ package ru.erma.repository.impl;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.transaction.annotation.Transactional;
 import ru.erma.config.AbstractTestContainerConfig;
 import ru.erma.model.Audit;
+import ru.erma.model.AuditCursor;
+import ru.erma.model.AuditFilter;
 import ru.erma.repository.AuditRepository;
 
 import java.time.LocalDateTime;
@@ -78,4 +81,29 @@ public class AuditRepositoryImplTest extends AbstractTestContainerConfig {
 
         assertThat(audits).isEmpty();
     }
-}
\ No newline at end of file
+
+    /**
+     * Tests that the findPage method returns the audits matching the filter one page at a time, most recent first.
+     * Audits with the same timestamp are ordered by their id, so no audit is skipped or repeated between pages.
+     * The test runs in a transaction that is rolled back, so the other tests do not see its audits.
+     */
+    @Test
+    @Transactional
+    @DisplayName("Audits are retrieved one page at a time")
+    void shouldFindPagesOfAudits() {
+        LocalDateTime timestamp = LocalDateTime.of(2024, 1, 1, 12, 0);
+        auditRepository.saveAll(List.of(
+                new Audit("keyset", timestamp, "first"),
+                new Audit("keyset", timestamp, "second"),
+                new Audit("keyset", timestamp.plusMinutes(1), "third"),
+                new Audit("other", timestamp.plusMinutes(2), "other")));
+        AuditFilter filter = new AuditFilter("keyset", null, timestamp, timestamp.plusHours(1));
+
+        List<Audit> firstPage = auditRepository.findPage(filter, null, 2);
+        Audit last = firstPage.get(1);
+        List<Audit> secondPage = auditRepository.findPage(filter, new AuditCursor(last.getTimestamp(), last.getId()), 2);
+
+        assertThat(firstPage).extracting(Audit::getAction).containsExactly("third", "second");
+        assertThat(secondPage).extracting(Audit::getAction).containsExactly("first");
+    }
+}
@@ -0,0 +1,180 @@
+package ru.erma.repository.impl;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import ru.erma.config.ReadingCacheProperties;
+import ru.erma.event.ReadingTypesChangedEvent;
+import ru.erma.model.Reading;
+import ru.erma.model.ReadingSchema;
+import ru.erma.model.ReadingValues;
+import ru.erma.service.ReadingStructureService;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+/**
+ * This class is responsible for testing the CachingReadingRepository class.
+ * It uses a mock ReadingRepositoryImpl to count the queries reaching the database.
+ */
+class CachingReadingRepositoryTest {
+
+    private ReadingRepositoryImpl delegate;
+
+    private ReadingStructureService readingStructureService;
+
+    private ReadingCacheProperties properties;
+
+    private CachingReadingRepository cachingReadingRepository;
+
+    @BeforeEach
+    void setUp() {
+        delegate = mock(ReadingRepositoryImpl.class);
+        readingStructureService = mock(ReadingStructureService.class);
+        when(readingStructureService.getSchema()).thenReturn(new ReadingSchema(1, List.of()));
+        properties = new ReadingCacheProperties();
+        properties.setEnabled(true);
+        properties.setMaximumSize(100);
+        properties.setExpireAfterWrite(60_000);
+        cachingReadingRepository = new CachingReadingRepository(delegate, readingStructureService, properties);
+    }
+
+    /**
+     * This test checks that a repeated query is answered from the cache and that the hit is counted.
+     */
+    @Test
+    @DisplayName("Repeated query is answered from the cache")
+    void findLatestByUsername_returnsCachedResult() {
+        Reading reading = reading(1, 2023);
+        when(delegate.findLatestByUsername("user")).thenReturn(Optional.of(reading));
+
+        cachingReadingRepository.findLatestByUsername("user");
+        Optional<Reading> result = cachingReadingRepository.findLatestByUsername("user");
+
+        assertThat(result).containsSame(reading);
+        verify(delegate, times(1)).findLatestByUsername("user");
+        assertThat(cachingReadingRepository.getStats().getHits()).isEqualTo(1);
+        assertThat(cachingReadingRepository.getStats().getMisses()).isEqualTo(1);
+    }
+
+    /**
+     * This test checks that a query made with another version of the readings than the cached result is loaded again,
+     * as after a write on another instance, while a query without a version is answered from the cache.
+     */
+    @Test
+    @DisplayName("Query with another version of the readings bypasses the cached result")
+    void findLatestByUsername_reloadsResultOfAnotherVersion() {
+        Reading stale = reading(1, 2023);
+        Reading fresh = reading(2, 2023);
+        when(delegate.findLatestByUsername("user")).thenReturn(Optional.of(stale), Optional.of(fresh));
+
+        cachingReadingRepository.findLatestByUsername("user", "1.1");
+        Optional<Reading> result = cachingReadingRepository.findLatestByUsername("user", "1.2");
+
+        assertThat(result).containsSame(fresh);
+        assertThat(cachingReadingRepository.findLatestByUsername("user", "1.2")).containsSame(fresh);
+        assertThat(cachingReadingRepository.findLatestByUsername("user")).containsSame(fresh);
+        verify(delegate, times(2)).findLatestByUsername("user");
+    }
+
+    /**
+     * This test checks that the results of different users are cached separately.
+     */
+    @Test
+    @DisplayName("Results of different users are cached separately")
+    void findByUsername_cachesPerUser() {
+        Reading first = reading(1, 2023);
+        Reading second = reading(2, 2023);
+        when(delegate.findByUsername("first")).thenReturn(List.of(first));
+        when(delegate.findByUsername("second")).thenReturn(List.of(second));
+
+        cachingReadingRepository.findByUsername("first");
+
+        assertThat(cachingReadingRepository.findByUsername("second")).containsExactly(second);
+        assertThat(cachingReadingRepository.findByUsername("first")).containsExactly(first);
+    }
+
+    /**
+     * This test checks that saving a reading drops the cached queries of its owner only.
+     */
+    @Test
+    @DisplayName("Saving a reading invalidates the queries of its owner only")
+    void save_invalidatesQueriesOfOwner() {
+        when(delegate.findByUsername(anyString())).thenReturn(List.of());
+        when(delegate.save(eq("first"), any())).thenReturn(true);
+        cachingReadingRepository.findByUsername("first");
+        cachingReadingRepository.findByUsername("second");
+
+        cachingReadingRepository.save("first", reading(3, 2023));
+        cachingReadingRepository.findByUsername("first");
+        cachingReadingRepository.findByUsername("second");
+
+        verify(delegate, times(2)).findByUsername("first");
+        verify(delegate, times(1)).findByUsername("second");
+    }
+
+    /**
+     * This test checks that first history pages of any limit are sliced from one cached page of the user,
+     * which is dropped when a reading of the user is saved.
+     */
+    @Test
+    @DisplayName("First history pages of any limit share one cached page")
+    void findPageByUsername_slicesCachedFirstPage() {
+        Reading march = reading(3, 2023);
+        Reading february = reading(2, 2023);
+        Reading january = reading(1, 2023);
+        when(delegate.findPageByUsername("user", null, CachingReadingRepository.FIRST_PAGE_LIMIT))
+                .thenReturn(List.of(march, february, january));
+        when(delegate.save(eq("user"), any())).thenReturn(true);
+
+        assertThat(cachingReadingRepository.findPageByUsername("user", null, 2)).containsExactly(march, february);
+        assertThat(cachingReadingRepository.findPageByUsername("user", null, 11)).containsExactly(march, february, january);
+        cachingReadingRepository.save("user", reading(4, 2023));
+        cachingReadingRepository.findPageByUsername("user", null, 2);
+
+        verify(delegate, times(2)).findPageByUsername("user", null, CachingReadingRepository.FIRST_PAGE_LIMIT);
+    }
+
+    /**
+     * This test checks that a change of the reading types drops all cached queries.
+     */
+    @Test
+    @DisplayName("Reading types change invalidates all queries")
+    void onReadingTypesChanged_invalidatesAllQueries() {
+        when(delegate.findByUsernameAndMonthAndYear("user", 1, 2023)).thenReturn(List.of());
+        cachingReadingRepository.findByUsernameAndMonthAndYear("user", 1, 2023);
+
+        cachingReadingRepository.onReadingTypesChanged(new ReadingTypesChangedEvent("gas"));
+        cachingReadingRepository.findByUsernameAndMonthAndYear("user", 1, 2023);
+
+        verify(delegate, times(2)).findByUsernameAndMonthAndYear("user", 1, 2023);
+    }
+
+    /**
+     * This test checks that every query reaches the database when the cache is disabled.
+     */
+    @Test
+    @DisplayName("Disabled cache sends every query to the database")
+    void findByUsername_bypassesDisabledCache() {
+        properties.setEnabled(false);
+        cachingReadingRepository = new CachingReadingRepository(delegate, readingStructureService, properties);
+        when(delegate.findByUsername("user")).thenReturn(List.of());
+
+        cachingReadingRepository.findByUsername("user");
+        cachingReadingRepository.findByUsername("user");
+
+        verify(delegate, times(2)).findByUsername("user");
+        assertThat(cachingReadingRepository.getStats().isEnabled()).isFalse();
+    }
+
+    private Reading reading(int month, int year) {
+        Reading reading = new Reading();
+        reading.setMonth(month);
+        reading.setYear(year);
+        reading.setValues(new ReadingValues(new ReadingSchema(1, List.of())));
+        return reading;
+    }
+}
@@ -0,0 +1,107 @@
+package ru.erma.repository.impl;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import ru.erma.config.ReadingCacheProperties;
+import ru.erma.event.ReadingTypesChangedEvent;
+import ru.erma.model.Reading;
+import ru.erma.model.ReadingSchema;
+import ru.erma.model.ReadingValues;
+import ru.erma.repository.ReadingRepository;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+/**
+ * This class is responsible for testing the LastReadingIndex class.
+ * It uses a mock ReadingRepository to count the queries reaching the database.
+ */
+class LastReadingIndexTest {
+
+    private ReadingRepository<String, Reading> readingRepository;
+
+    private LastReadingIndex lastReadingIndex;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        readingRepository = mock(ReadingRepository.class);
+        ReadingCacheProperties properties = new ReadingCacheProperties();
+        properties.setLastReadingsSize(2);
+        lastReadingIndex = new LastReadingIndex(readingRepository, properties);
+    }
+
+    /**
+     * This test checks that the latest reading of a user is loaded once and then taken from the index.
+     */
+    @Test
+    @DisplayName("Latest reading is loaded once")
+    void find_loadsLatestReadingOnce() {
+        Reading reading = reading(1, 2023);
+        when(readingRepository.findLatestByUsername("user")).thenReturn(Optional.of(reading));
+
+        lastReadingIndex.find("user");
+        Optional<Reading> result = lastReadingIndex.find("user");
+
+        assertThat(result).containsSame(reading);
+        verify(readingRepository, times(1)).findLatestByUsername("user");
+    }
+
+    /**
+     * This test checks that a recorded reading replaces the kept reading only if it is newer,
+     * and that a user who is not kept is left to be loaded.
+     */
+    @Test
+    @DisplayName("Recorded reading replaces only an older reading")
+    void record_replacesOlderReading() {
+        Reading january = reading(1, 2023);
+        Reading march = reading(3, 2023);
+        when(readingRepository.findLatestByUsername("user")).thenReturn(Optional.of(january));
+        when(readingRepository.findLatestByUsername("other")).thenReturn(Optional.empty());
+        lastReadingIndex.find("user");
+
+        lastReadingIndex.record("user", march);
+        lastReadingIndex.record("user", reading(2, 2023));
+        lastReadingIndex.record("other", march);
+
+        assertThat(lastReadingIndex.find("user")).containsSame(march);
+        assertThat(lastReadingIndex.find("other")).isEmpty();
+    }
+
+    /**
+     * This test checks that the least recently used user is evicted once the index is full,
+     * and that a change of the reading types drops all kept readings.
+     */
+    @Test
+    @DisplayName("Least recently used user is evicted")
+    void find_evictsLeastRecentlyUsedUser() {
+        when(readingRepository.findLatestByUsername(anyString())).thenReturn(Optional.empty());
+
+        lastReadingIndex.find("first");
+        lastReadingIndex.find("second");
+        lastReadingIndex.find("first");
+        lastReadingIndex.find("third");
+        lastReadingIndex.find("first");
+        lastReadingIndex.find("second");
+
+        verify(readingRepository, times(1)).findLatestByUsername("first");
+        verify(readingRepository, times(2)).findLatestByUsername("second");
+
+        lastReadingIndex.onReadingTypesChanged(new ReadingTypesChangedEvent("gas"));
+        lastReadingIndex.find("first");
+
+        verify(readingRepository, times(2)).findLatestByUsername("first");
+    }
+
+    private static Reading reading(int month, int year) {
+        Reading reading = new Reading();
+        reading.setMonth(month);
+        reading.setYear(year);
+        reading.setValues(new ReadingValues(new ReadingSchema(1, List.of())));
+        return reading;
+    }
+}
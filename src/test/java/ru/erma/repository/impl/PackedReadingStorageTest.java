@@ -0,0 +1,75 @@
+package ru.erma.repository.impl;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+import ru.erma.config.AbstractTestContainerConfig;
+import ru.erma.model.Reading;
+import ru.erma.model.ReadingValues;
+import ru.erma.repository.ReadingRepository;
+import ru.erma.service.ReadingStructureService;
+
+import java.math.BigDecimal;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * This class is responsible for testing the packed storage model of the reading values.
+ * It extends AbstractTestContainerConfig to use a PostgreSQL test container, migrated to the packed model.
+ */
+@TestPropertySource(properties = "readings.storage.model=packed")
+public class PackedReadingStorageTest extends AbstractTestContainerConfig {
+
+    private static final String COUNT_READINGS_COLUMNS = "SELECT count(*) FROM information_schema.columns" +
+            " WHERE table_schema = 'develop' AND table_name = 'readings'";
+
+    @Autowired
+    private ReadingRepository<String, Reading> readingRepository;
+
+    @Autowired
+    private ReadingStructureService readingStructureService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * This test checks that the migration moved the values of the initial readings into the array of values.
+     */
+    @Test
+    @DisplayName("Test that existing readings are migrated to the packed values")
+    void shouldReadMigratedReadings() {
+        assertThat(jdbcTemplate.queryForObject(COUNT_READINGS_COLUMNS, Integer.class)).isEqualTo(5);
+        assertThat(readingRepository.findByUsernameAndMonthAndYear("test_user", 1, 2022))
+                .singleElement()
+                .satisfies(reading -> assertThat(reading.getValues().get("heating")).isEqualByComparingTo("100"));
+    }
+
+    /**
+     * This test checks that a reading type is added without altering the readings table,
+     * and that the values of the new type are saved and read back.
+     */
+    @Test
+    @DisplayName("Test that a reading type is added without altering the readings table")
+    void shouldAddReadingTypeWithoutAlteringReadingsTable() {
+        Integer columns = jdbcTemplate.queryForObject(COUNT_READINGS_COLUMNS, Integer.class);
+
+        readingStructureService.addReadingType("gas", 2);
+        Reading reading = new Reading();
+        reading.setMonth(7);
+        reading.setYear(2023);
+        reading.setValues(ReadingValues.of(readingStructureService.getSchema(),
+                Map.of("gas", new BigDecimal("3.25"), "heating", new BigDecimal("12.5"))));
+        readingRepository.save("test_user", reading);
+
+        assertThat(jdbcTemplate.queryForObject(COUNT_READINGS_COLUMNS, Integer.class)).isEqualTo(columns);
+        assertThat(readingRepository.findByUsernameAndMonthAndYear("test_user", 7, 2023))
+                .singleElement()
+                .satisfies(saved -> {
+                    assertThat(saved.getValues().get("gas")).isEqualByComparingTo("3.25");
+                    assertThat(saved.getValues().get("heating")).isEqualByComparingTo("12.5");
+                });
+    }
+}
@@ -0,0 +1,82 @@
+package ru.erma.repository.impl;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import ru.erma.config.AbstractTestContainerConfig;
+import ru.erma.model.Consumption;
+import ru.erma.model.Reading;
+import ru.erma.model.ReadingValues;
+import ru.erma.repository.ReadingAnalyticsRepository;
+import ru.erma.repository.ReadingRepository;
+import ru.erma.service.ReadingStructureService;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+/**
+ * This class is responsible for testing the ReadingAnalyticsRepositoryImpl class.
+ * It extends AbstractTestContainerConfig to use a PostgreSQL test container.
+ */
+public class ReadingAnalyticsRepositoryImplTest extends AbstractTestContainerConfig {
+
+    @Autowired
+    private ReadingAnalyticsRepository readingAnalyticsRepository;
+
+    @Autowired
+    private ReadingRepository<String, Reading> readingRepository;
+
+    @Autowired
+    private ReadingStructureService readingStructureService;
+
+    /**
+     * This test checks that the consumption of every month is the difference from the previous reading,
+     * including the first month of a year, and that every year is followed by its total and average.
+     */
+    @Test
+    @DisplayName("Test that monthly and yearly consumption is computed from the readings")
+    void shouldComputeMonthlyAndYearlyConsumption() {
+        String username = "analytics_user";
+        readingRepository.save(username, reading(11, 2022, "100"));
+        readingRepository.save(username, reading(12, 2022, "110.5"));
+        readingRepository.save(username, reading(1, 2023, "120"));
+        readingRepository.save(username, reading(2, 2023, "132"));
+
+        List<Consumption> consumption = readingAnalyticsRepository.findConsumptionByUsername(username);
+
+        assertThat(consumption).extracting(Consumption::getYear, Consumption::getMonth)
+                .containsExactly(
+                        tuple(2022, 12),
+                        tuple(2022, null),
+                        tuple(2023, 1),
+                        tuple(2023, 2),
+                        tuple(2023, null));
+        assertThat(consumption.get(0).getTotal().get("heating")).isEqualByComparingTo("10.5");
+        assertThat(consumption.get(2).getTotal().get("heating")).isEqualByComparingTo("9.5");
+        assertThat(consumption.get(4).getTotal().get("heating")).isEqualByComparingTo("21.5");
+        assertThat(consumption.get(4).getAverage().get("heating")).isEqualByComparingTo("10.75");
+    }
+
+    /**
+     * This test checks that a user with a single reading has no consumption yet.
+     */
+    @Test
+    @DisplayName("Test that a single reading has no consumption")
+    void shouldReturnNoConsumptionForSingleReading() {
+        readingRepository.save("single_reading_user", reading(1, 2023, "100"));
+
+        assertThat(readingAnalyticsRepository.findConsumptionByUsername("single_reading_user")).isEmpty();
+    }
+
+    private Reading reading(int month, int year, String heating) {
+        Reading reading = new Reading();
+        reading.setMonth(month);
+        reading.setYear(year);
+        reading.setValues(ReadingValues.of(readingStructureService.getSchema(), Map.of("heating", new BigDecimal(heating))));
+        return reading;
+    }
+}
@@ -0,0 +1,118 @@
+package ru.erma.repository.impl;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.erma.config.AbstractTestContainerConfig;
+import ru.erma.model.Reading;
+import ru.erma.model.ReadingImportResult;
+import ru.erma.model.ReadingValues;
+import ru.erma.repository.ReadingImportRepository;
+import ru.erma.repository.ReadingRepository;
+import ru.erma.service.ReadingStructureService;
+
+import java.io.StringReader;
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * This class is responsible for testing the ReadingImportRepositoryImpl class.
+ * It extends AbstractTestContainerConfig to use a PostgreSQL test container.
+ */
+public class ReadingImportRepositoryImplTest extends AbstractTestContainerConfig {
+
+    @Autowired
+    private ReadingImportRepository readingImportRepository;
+
+    @Autowired
+    private ReadingRepository<String, Reading> readingRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private ReadingStructureService readingStructureService;
+
+    /**
+     * This test checks that the importReadings method imports new rows and skips duplicates, unknown users and invalid periods.
+     * The reading for January 2022 already exists and the reading for May 2019 is repeated in the source.
+     */
+    @Test
+    @DisplayName("Test that readings are imported and duplicates are skipped")
+    void shouldImportReadingsAndSkipDuplicates() {
+        String rows = "test_user,2019,5,10\n" +
+                "test_user,2019,5,20\n" +
+                "test_user,2022,1,30\n" +
+                "unknown_user,2019,6,40\n" +
+                "test_user,2019,13,50\n";
+
+        ReadingImportResult result = transactionTemplate.execute(status -> readingImportRepository.importReadings(
+                readingStructureService.getSchema(), List.of("username", "year", "month", "heating"), new StringReader(rows)));
+
+        assertThat(result).isNotNull();
+        assertThat(result.getRowsRead()).isEqualTo(5);
+        assertThat(result.getRowsValid()).isEqualTo(3);
+        assertThat(result.getRowsImported()).isEqualTo(1);
+        assertThat(readingRepository.findByUsernameAndMonthAndYear("test_user", 5, 2019))
+                .singleElement()
+                .satisfies(reading -> assertThat(reading.getValues().get("heating")).isEqualByComparingTo("10"));
+    }
+
+    /**
+     * This test checks that the importReadings method skips rows breaking the rules of their reading types.
+     * The negative value is rejected on its own, the value for December 2021 is higher than the stored reading for January 2022,
+     * which breaks the monotonic heating meter.
+     */
+    @Test
+    @DisplayName("Test that readings breaking the reading type rules are not imported")
+    void shouldSkipReadingsBreakingRules() {
+        String rows = "test_user,2021,11,-5\n" +
+                "test_user,2021,12,150\n" +
+                "test_user,2020,3,50\n";
+
+        ReadingImportResult result = transactionTemplate.execute(status -> readingImportRepository.importReadings(
+                readingStructureService.getSchema(), List.of("username", "year", "month", "heating"), new StringReader(rows)));
+
+        assertThat(result).isNotNull();
+        assertThat(result.getRowsRead()).isEqualTo(3);
+        assertThat(result.getRowsValid()).isEqualTo(1);
+        assertThat(result.getRowsImported()).isEqualTo(1);
+        assertThat(readingRepository.findByUsernameAndMonthAndYear("test_user", 12, 2021)).isEmpty();
+        assertThat(readingRepository.findByUsernameAndMonthAndYear("test_user", 3, 2020))
+                .singleElement()
+                .satisfies(reading -> assertThat(reading.getValues().get("heating")).isEqualByComparingTo("50"));
+    }
+
+    /**
+     * This test checks that every imported row is checked against the previous accepted reading, not the previous staged row.
+     * With December stored as 90, January as 100 is imported and February as 95 is rejected,
+     * so March as 99 is checked against January and rejected too.
+     */
+    @Test
+    @DisplayName("Test that imported readings are checked against the previous accepted reading")
+    void shouldCheckReadingsAgainstPreviousAcceptedReading() {
+        Reading december = new Reading();
+        december.setMonth(12);
+        december.setYear(2040);
+        december.setValues(ReadingValues.of(readingStructureService.getSchema(), Map.of("heating", new BigDecimal("90"))));
+        readingRepository.save("test_user", december);
+        String rows = "test_user,2041,1,100\n" +
+                "test_user,2041,2,95\n" +
+                "test_user,2041,3,99\n";
+
+        ReadingImportResult result = transactionTemplate.execute(status -> readingImportRepository.importReadings(
+                readingStructureService.getSchema(), List.of("username", "year", "month", "heating"), new StringReader(rows)));
+
+        assertThat(result).isNotNull();
+        assertThat(result.getRowsRead()).isEqualTo(3);
+        assertThat(result.getRowsValid()).isEqualTo(1);
+        assertThat(result.getRowsImported()).isEqualTo(1);
+        assertThat(readingRepository.findByUsernameAndMonthAndYear("test_user", 1, 2041)).hasSize(1);
+        assertThat(readingRepository.findByUsernameAndMonthAndYear("test_user", 2, 2041)).isEmpty();
+        assertThat(readingRepository.findByUsernameAndMonthAndYear("test_user", 3, 2041)).isEmpty();
+    }
+}
@@ -0,0 +1,86 @@
+package ru.erma.repository.impl;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import ru.erma.event.ReadingTypesChangedEvent;
+import ru.erma.model.ReadingSchema;
+import ru.erma.model.ReadingType;
+import ru.erma.repository.impl.ReadingInsertStatementCache.ReadingInsertStatement;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * This class is responsible for testing the ReadingInsertStatementCache class.
+ */
+class ReadingInsertStatementCacheTest {
+
+    private final ReadingInsertStatementCache statementCache = new ReadingInsertStatementCache();
+
+    private final ReadingSchema schema = new ReadingSchema(1, List.of(new ReadingType("heating", 3),
+            new ReadingType("cold_water", 3), new ReadingType("hot_water", 0)));
+
+    /**
+     * This test checks that the same set of reading types in any order resolves to the same cached statement
+     * with its columns in canonical order and the values scaled by the scales of their reading types.
+     */
+    @Test
+    @DisplayName("Same set of reading types resolves to the same statement")
+    void forColumns_returnsSameStatementForSameColumns() {
+        ReadingInsertStatement first = statementCache.forColumns(schema, List.of("hot_water", "cold_water", "heating"));
+        ReadingInsertStatement second = statementCache.forColumns(schema, List.of("heating", "hot_water", "cold_water"));
+
+        assertThat(second).isSameAs(first);
+        assertThat(first.columns()).containsExactly("cold_water", "heating", "hot_water");
+        assertThat(first.insertSql()).isEqualTo("INSERT INTO develop.readings (username, month, year, cold_water, heating, hot_water)"
+                + " VALUES (?, ?, ?, ? * 0.001, ? * 0.001, ?) ON CONFLICT (username, year, month) DO NOTHING RETURNING id");
+    }
+
+    /**
+     * This test checks that the statement writes the values of the packed storage model into the elements
+     * of the array of values, and keeps binding them in the canonical order of the reading types.
+     */
+    @Test
+    @DisplayName("Statement writes packed reading types into the array of values")
+    void forColumns_writesPackedColumns() {
+        ReadingSchema packed = new ReadingSchema(1, List.of(new ReadingType("heating", 3, "reading_values[1]"),
+                new ReadingType("gas", 2, "reading_values[4]")));
+
+        ReadingInsertStatement statement = statementCache.forColumns(packed, List.of("heating", "gas"));
+
+        assertThat(statement.columns()).containsExactly("gas", "heating");
+        assertThat(statement.batchInsertSql()).isEqualTo("INSERT INTO develop.readings (username, month, year, reading_values[4], reading_values[1])"
+                + " VALUES (?, ?, ?, ? * 0.01, ? * 0.001) ON CONFLICT (username, year, month) DO NOTHING");
+    }
+
+    /**
+     * This test checks that a change of the reading types drops the cached statements.
+     */
+    @Test
+    @DisplayName("Cached statements are dropped when reading types change")
+    void onReadingTypesChanged_dropsCachedStatements() {
+        ReadingInsertStatement before = statementCache.forColumns(schema, List.of("heating"));
+
+        statementCache.onReadingTypesChanged(new ReadingTypesChangedEvent("gas"));
+
+        assertThat(statementCache.forColumns(schema, List.of("heating"))).isNotSameAs(before);
+    }
+
+    /**
+     * This test checks that a statement is only reused for the schema version it was built from,
+     * and that a statement built from an older snapshot does not replace the statement of a newer one.
+     */
+    @Test
+    @DisplayName("Statements are only reused for the schema version they were built from")
+    void forColumns_keepsStatementOfNewestSchemaVersion() {
+        ReadingSchema newer = new ReadingSchema(2, List.of(new ReadingType("heating", 2)));
+        ReadingInsertStatement current = statementCache.forColumns(newer, List.of("heating"));
+
+        ReadingInsertStatement stale = statementCache.forColumns(schema, List.of("heating"));
+
+        assertThat(stale).isNotSameAs(current);
+        assertThat(stale.insertSql()).contains("? * 0.001");
+        assertThat(statementCache.forColumns(newer, List.of("heating"))).isSameAs(current);
+    }
+}
@@ -3,14 +3,17 @@ package ru.erma.repository.impl;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
 import ru.erma.config.AbstractTestContainerConfig;
 import ru.erma.model.Reading;
+import ru.erma.model.ReadingValues;
 import ru.erma.repository.ReadingRepository;
+import ru.erma.service.ReadingStructureService;
 
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
-import java.util.Optional;
+import java.math.BigDecimal;
+import java.time.YearMonth;
+import java.util.*;
 
 import static org.assertj.core.api.Assertions.*;
 
@@ -23,6 +26,15 @@ public class ReadingRepositoryImplTest extends AbstractTestContainerConfig {
     @Autowired
     private ReadingRepository<String, Reading> readingRepository;
 
+    @Autowired
+    private ReadingStructureService readingStructureService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
     /**
      * This test checks that the save method correctly saves a reading to the database.
      * It creates a reading, sets its month and year, and then saves it to the database.
@@ -31,11 +43,11 @@ public class ReadingRepositoryImplTest extends AbstractTestContainerConfig {
     @Test
     @DisplayName("Test that reading is saved correctly")
     void shouldSaveReading() {
-        Map<String, Integer> values = new HashMap<>();
+        Map<String, BigDecimal> values = new HashMap<>();
         Reading reading = new Reading();
         reading.setMonth(1);
         reading.setYear(2022);
-        reading.setValues(values);
+        reading.setValues(values(values));
 
 
         assertThatCode(() -> readingRepository.save("test_user", reading)).doesNotThrowAnyException();
@@ -66,9 +78,9 @@ public class ReadingRepositoryImplTest extends AbstractTestContainerConfig {
         Reading reading = readings.get(0);
         assertThat(reading.getMonth()).isEqualTo(1);
         assertThat(reading.getYear()).isEqualTo(2022);
-        assertThat(reading.getValues().get("heating")).isEqualTo(100);
-        assertThat(reading.getValues().get("cold_water")).isEqualTo(200);
-        assertThat(reading.getValues().get("hot_water")).isEqualTo(300);
+        assertThat(reading.getValues().get("heating")).isEqualByComparingTo("100");
+        assertThat(reading.getValues().get("cold_water")).isEqualByComparingTo("200");
+        assertThat(reading.getValues().get("hot_water")).isEqualByComparingTo("300");
     }
 
     /**
@@ -97,9 +109,9 @@ public class ReadingRepositoryImplTest extends AbstractTestContainerConfig {
         Reading reading = readings.get(0);
         assertThat(reading.getMonth()).isEqualTo(1);
         assertThat(reading.getYear()).isEqualTo(2022);
-        assertThat(reading.getValues().get("heating")).isEqualTo(100);
-        assertThat(reading.getValues().get("cold_water")).isEqualTo(200);
-        assertThat(reading.getValues().get("hot_water")).isEqualTo(300);
+        assertThat(reading.getValues().get("heating")).isEqualByComparingTo("100");
+        assertThat(reading.getValues().get("cold_water")).isEqualByComparingTo("200");
+        assertThat(reading.getValues().get("hot_water")).isEqualByComparingTo("300");
     }
 
     /**
@@ -128,9 +140,9 @@ public class ReadingRepositoryImplTest extends AbstractTestContainerConfig {
         assertThat(result).isNotEmpty();
         assertThat(reading.getMonth()).isEqualTo(1);
         assertThat(reading.getYear()).isEqualTo(2022);
-        assertThat(reading.getValues().get("heating")).isEqualTo(100);
-        assertThat(reading.getValues().get("cold_water")).isEqualTo(200);
-        assertThat(reading.getValues().get("hot_water")).isEqualTo(300);
+        assertThat(reading.getValues().get("heating")).isEqualByComparingTo("100");
+        assertThat(reading.getValues().get("cold_water")).isEqualByComparingTo("200");
+        assertThat(reading.getValues().get("hot_water")).isEqualByComparingTo("300");
     }
 
     /**
@@ -145,4 +157,168 @@ public class ReadingRepositoryImplTest extends AbstractTestContainerConfig {
 
         assertThat(result).isEmpty();
     }
-}
\ No newline at end of file
+
+    /**
+     * Tests that the saveAll method correctly saves a batch of readings, including readings with different reading types.
+     * Saves two readings with one call and asserts that both can be retrieved by username, month and year.
+     */
+    @Test
+    @DisplayName("Readings batch is saved correctly")
+    void shouldSaveAllReadings() {
+        Reading first = new Reading();
+        first.setMonth(3);
+        first.setYear(2021);
+        first.setValues(values(Map.of("heating", BigDecimal.TEN)));
+        Reading second = new Reading();
+        second.setMonth(4);
+        second.setYear(2021);
+        second.setValues(values(Map.of("cold_water", new BigDecimal("20.125"), "hot_water", BigDecimal.valueOf(30))));
+
+        boolean[] inserted = readingRepository.saveAll("test_user", List.of(first, second));
+
+        assertThat(inserted).containsExactly(true, true);
+        assertThat(readingRepository.findByUsernameAndMonthAndYear("test_user", 3, 2021)).isNotEmpty();
+        List<Reading> saved = readingRepository.findByUsernameAndMonthAndYear("test_user", 4, 2021);
+        assertThat(saved).isNotEmpty();
+        assertThat(saved.get(0).getValues().get("hot_water")).isEqualByComparingTo("30");
+    }
+
+    /**
+     * Tests that the save method does not insert a second reading for the same username, month and year.
+     * Attempts to save a reading for a period that already has one and asserts that it is reported as not saved.
+     */
+    @Test
+    @DisplayName("Reading is not saved when reading for the same month and year exists")
+    void shouldNotSaveDuplicateReading() {
+        Reading reading = new Reading();
+        reading.setMonth(1);
+        reading.setYear(2022);
+        reading.setValues(values(Map.of("heating", BigDecimal.ONE)));
+
+        assertThat(readingRepository.save("test_user", reading)).isFalse();
+        assertThat(readingRepository.findByUsernameAndMonthAndYear("test_user", 1, 2022)).hasSize(1);
+    }
+
+    /**
+     * Tests that the saveAll method skips readings that already exist and reports them as not saved.
+     */
+    @Test
+    @DisplayName("Existing readings are skipped when saving a batch")
+    void shouldSkipExistingReadingsWhenSavingAll() {
+        Reading existing = new Reading();
+        existing.setMonth(1);
+        existing.setYear(2022);
+        existing.setValues(values(Map.of()));
+        Reading fresh = new Reading();
+        fresh.setMonth(8);
+        fresh.setYear(2021);
+        fresh.setValues(values(Map.of()));
+
+        boolean[] inserted = readingRepository.saveAll("test_user", List.of(existing, fresh));
+
+        assertThat(inserted).containsExactly(false, true);
+    }
+
+    /**
+     * Tests that the findPageByUsername method returns the readings of a user page by page, the most recent period first.
+     */
+    @Test
+    @DisplayName("Readings history is returned page by page")
+    void shouldFindPageByUsername() {
+        List<Reading> readings = new ArrayList<>();
+        for (int month = 1; month <= 3; month++) {
+            Reading reading = new Reading();
+            reading.setMonth(month);
+            reading.setYear(2019);
+            reading.setValues(values(Map.of()));
+            readings.add(reading);
+        }
+        readingRepository.saveAll("test_user", readings);
+
+        List<Reading> firstPage = readingRepository.findPageByUsername("test_user", YearMonth.of(2019, 4), 2);
+        List<Reading> secondPage = readingRepository.findPageByUsername("test_user", YearMonth.of(2019, 2), 2);
+
+        assertThat(firstPage).extracting(Reading::getMonth).containsExactly(3, 2);
+        assertThat(secondPage).extracting(Reading::getMonth).containsExactly(1);
+    }
+
+    /**
+     * Tests that the findByUsernameBetween method returns only the readings of the range, the oldest period first.
+     */
+    @Test
+    @DisplayName("Readings of a range of periods are returned in order")
+    void shouldFindByUsernameBetween() {
+        List<Reading> readings = new ArrayList<>();
+        for (int month = 10; month <= 12; month++) {
+            Reading reading = new Reading();
+            reading.setMonth(month);
+            reading.setYear(2017);
+            reading.setValues(values(Map.of()));
+            readings.add(reading);
+        }
+        readingRepository.saveAll("test_user", readings);
+
+        List<Reading> range = readingRepository.findByUsernameBetween("test_user", YearMonth.of(2017, 11), YearMonth.of(2018, 1));
+
+        assertThat(range).extracting(Reading::getMonth).containsExactly(11, 12);
+    }
+
+    /**
+     * Tests that the streamByUsername method passes a million readings to the callback one at a time.
+     * The rows are inserted and streamed in a transaction that is rolled back, so other tests do not see them.
+     */
+    @Test
+    @DisplayName("A million readings are streamed row by row")
+    void shouldStreamMillionReadings() {
+        long[] streamed = new long[1];
+        int[] lastYear = {Integer.MAX_VALUE};
+        transactionTemplate.executeWithoutResult(status -> {
+            jdbcTemplate.update("INSERT INTO develop.users (username, password, role) VALUES ('stream_user', 'password', 'USER')");
+            jdbcTemplate.update("INSERT INTO develop.readings (username, month, year, heating) "
+                    + "SELECT 'stream_user', i % 12 + 1, 3000 + i / 12, i FROM generate_series(0, 999999) i");
+
+            readingRepository.streamByUsername("stream_user", reading -> {
+                assertThat(reading.getYear()).isLessThanOrEqualTo(lastYear[0]);
+                lastYear[0] = reading.getYear();
+                streamed[0]++;
+            });
+            status.setRollbackOnly();
+        });
+
+        assertThat(streamed[0]).isEqualTo(1_000_000);
+    }
+
+    /**
+     * Tests that the ranges returned by findUsernameBoundaries cover every reading of a period exactly once
+     * when they are streamed by streamByPeriod, each in username order.
+     * The rows are inserted in a transaction that is rolled back, so other tests do not see them.
+     */
+    @Test
+    @DisplayName("Username ranges of a period cover every reading once")
+    void shouldStreamPeriodByUsernameRanges() {
+        List<String> streamed = new ArrayList<>();
+        transactionTemplate.executeWithoutResult(status -> {
+            jdbcTemplate.update("INSERT INTO develop.users (username, password, role) "
+                    + "SELECT 'range_user_' || i, 'password', 'USER' FROM generate_series(10, 99) i");
+            jdbcTemplate.update("INSERT INTO develop.readings (username, month, year, heating) "
+                    + "SELECT 'range_user_' || i, 5, 2016, i FROM generate_series(10, 99) i");
+
+            List<String> boundaries = readingRepository.findUsernameBoundaries(YearMonth.of(2016, 5), 4);
+            assertThat(boundaries).hasSize(4).isSorted();
+            for (int i = 0; i < boundaries.size(); i++) {
+                String to = i + 1 < boundaries.size() ? boundaries.get(i + 1) : null;
+                readingRepository.streamByPeriod(YearMonth.of(2016, 5), boundaries.get(i), to, (username, reading) -> {
+                    assertThat(reading.getValues().get("heating")).isEqualByComparingTo(username.substring("range_user_".length()));
+                    streamed.add(username);
+                });
+            }
+            status.setRollbackOnly();
+        });
+
+        assertThat(streamed).hasSize(90).isSorted().doesNotHaveDuplicates();
+    }
+
+    private ReadingValues values(Map<String, BigDecimal> values) {
+        return ReadingValues.of(readingStructureService.getSchema(), values);
+    }
+}
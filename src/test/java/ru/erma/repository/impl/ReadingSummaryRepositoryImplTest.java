@@ -0,0 +1,89 @@
+package ru.erma.repository.impl;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.erma.config.AbstractTestContainerConfig;
+import ru.erma.model.Reading;
+import ru.erma.model.ReadingSummary;
+import ru.erma.model.ReadingValues;
+import ru.erma.repository.ReadingRepository;
+import ru.erma.repository.ReadingSummaryRepository;
+import ru.erma.service.ReadingStructureService;
+
+import java.math.BigDecimal;
+import java.time.YearMonth;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * This class is responsible for testing the ReadingSummaryRepositoryImpl class.
+ * It extends AbstractTestContainerConfig to use a PostgreSQL test container.
+ */
+public class ReadingSummaryRepositoryImplTest extends AbstractTestContainerConfig {
+
+    @Autowired
+    private ReadingSummaryRepository readingSummaryRepository;
+
+    @Autowired
+    private ReadingRepository<String, Reading> readingRepository;
+
+    @Autowired
+    private ReadingStructureService readingStructureService;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    /**
+     * This test checks that added readings are accumulated into the aggregates of their reading type and month.
+     */
+    @Test
+    @DisplayName("Test that added readings are accumulated per reading type and month")
+    void shouldAccumulateAddedReadings() {
+        readingSummaryRepository.addAll(List.of(reading(5, 1990, "10.5"), reading(5, 1990, "2")));
+        readingSummaryRepository.addAll(List.of(reading(5, 1990, "20")));
+
+        List<ReadingSummary> summary = readingSummaryRepository.findBetween(YearMonth.of(1990, 5), YearMonth.of(1990, 5));
+
+        assertThat(summary).singleElement().satisfies(heating -> {
+            assertThat(heating.getType()).isEqualTo("heating");
+            assertThat(heating.getTotal()).isEqualByComparingTo("32.5");
+            assertThat(heating.getCount()).isEqualTo(3);
+            assertThat(heating.getMin()).isEqualByComparingTo("2");
+            assertThat(heating.getMax()).isEqualByComparingTo("20");
+        });
+    }
+
+    /**
+     * This test checks that a rebuild replaces the aggregates with the ones computed from the stored readings.
+     * The rebuild is rolled back, so the summary of the other tests is kept.
+     */
+    @Test
+    @DisplayName("Test that rebuild recomputes the aggregates from the readings")
+    void shouldRebuildFromReadings() {
+        transactionTemplate.executeWithoutResult(status -> {
+            readingRepository.save("summary_user", reading(7, 1991, "15"));
+            readingSummaryRepository.addAll(List.of(reading(7, 1991, "999")));
+
+            readingSummaryRepository.rebuild(readingStructureService.getSchema());
+
+            List<ReadingSummary> summary = readingSummaryRepository.findBetween(YearMonth.of(1991, 7), YearMonth.of(1991, 7));
+            assertThat(summary).singleElement().satisfies(heating -> {
+                assertThat(heating.getTotal()).isEqualByComparingTo("15");
+                assertThat(heating.getCount()).isEqualTo(1);
+            });
+            status.setRollbackOnly();
+        });
+    }
+
+    private Reading reading(int month, int year, String heating) {
+        Reading reading = new Reading();
+        reading.setMonth(month);
+        reading.setYear(year);
+        reading.setValues(ReadingValues.of(readingStructureService.getSchema(), Map.of("heating", new BigDecimal(heating))));
+        return reading;
+    }
+}
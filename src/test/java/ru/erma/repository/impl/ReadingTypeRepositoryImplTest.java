@@ -19,50 +19,50 @@ public class ReadingTypeRepositoryImplTest extends AbstractTestContainerConfig {
     private ReadingTypeRepository<String> readingTypeRepository;
 
     /**
-     * This test checks that the addColumnToReadingsTable method correctly adds a column to the readings table.
+     * This test checks that the addReadingType method correctly adds a column to the readings table.
      * It attempts to add a column to the readings table and asserts that no exception is thrown.
      */
     @Test
     @DisplayName("Test that column is added correctly to readings table")
     void shouldAddColumnToReadingsTable() {
-        assertThatCode(() -> readingTypeRepository.addColumnToReadingsTable("testColumn"))
+        assertThatCode(() -> readingTypeRepository.addReadingType("testColumn", 3))
                 .doesNotThrowAnyException();
     }
 
     /**
-     * This test checks that the addColumnToReadingsTable method correctly handles the case where the column already exists.
+     * This test checks that the addReadingType method correctly handles the case where the column already exists.
      * It adds a column to the readings table and then attempts to add the same column again.
      * It asserts that a DatabaseException is thrown.
      */
     @Test
     @DisplayName("Test that exception is thrown when adding existing column")
     void shouldThrowExceptionWhenAddingExistingColumn() {
-        readingTypeRepository.addColumnToReadingsTable("existingColumn");
-        assertThatThrownBy(() -> readingTypeRepository.addColumnToReadingsTable("existingColumn"))
+        readingTypeRepository.addReadingType("existingColumn", 3);
+        assertThatThrownBy(() -> readingTypeRepository.addReadingType("existingColumn", 3))
                 .isInstanceOf(RuntimeException.class);
     }
 
     /**
-     * This test checks that the removeColumnFromReadingsTable method correctly removes a column from the readings table.
+     * This test checks that the removeReadingType method correctly removes a column from the readings table.
      * It adds a column to the readings table, removes it, and asserts that no exception is thrown.
      */
     @Test
     @DisplayName("Test that column is removed correctly from readings table")
     void shouldRemoveColumnFromReadingsTable() {
-        readingTypeRepository.addColumnToReadingsTable("testColumn");
-        assertThatCode(() -> readingTypeRepository.removeColumnFromReadingsTable("testColumn"))
+        readingTypeRepository.addReadingType("testColumn", 3);
+        assertThatCode(() -> readingTypeRepository.removeReadingType("testColumn"))
                 .doesNotThrowAnyException();
     }
 
     /**
-     * This test checks that the removeColumnFromReadingsTable method correctly handles the case where the column does not exist.
+     * This test checks that the removeReadingType method correctly handles the case where the column does not exist.
      * It attempts to remove a column that does not exist from the readings table.
      * It asserts that a DatabaseException is thrown.
      */
     @Test
     @DisplayName("Test that exception is thrown when removing non-existing column")
     void shouldThrowExceptionWhenRemovingNonExistingColumn() {
-        assertThatThrownBy(() -> readingTypeRepository.removeColumnFromReadingsTable("nonExistingColumn"))
+        assertThatThrownBy(() -> readingTypeRepository.removeReadingType("nonExistingColumn"))
                 .isInstanceOf(RuntimeException.class);
     }
 }
\ No newline at end of file
@@ -0,0 +1,82 @@
+package ru.erma.repository.impl;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import ru.erma.config.AbstractTestContainerConfig;
+import ru.erma.model.Reading;
+import ru.erma.model.ReadingValues;
+import ru.erma.repository.ReadingRepository;
+import ru.erma.repository.ReadingVersionRepository;
+import ru.erma.service.ReadingStructureService;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * This class is responsible for testing the ReadingVersionRepositoryImpl class together with the triggers of the readings table.
+ * It extends AbstractTestContainerConfig to use a PostgreSQL test container.
+ */
+public class ReadingVersionRepositoryImplTest extends AbstractTestContainerConfig {
+
+    @Autowired
+    private ReadingVersionRepository readingVersionRepository;
+
+    @Autowired
+    private ReadingRepository<String, Reading> readingRepository;
+
+    @Autowired
+    private ReadingStructureService readingStructureService;
+
+    /**
+     * This test checks that inserting readings increments the version of their user once per statement
+     * and that an insert skipped as a duplicate leaves it unchanged.
+     */
+    @Test
+    @DisplayName("Test that inserted readings increment the version of their user")
+    void shouldIncrementVersionOnInsert() {
+        long before = readingVersionRepository.findVersion("test_user");
+
+        readingRepository.saveAll("test_user", List.of(reading(1, 2015), reading(2, 2015)));
+        long afterInsert = readingVersionRepository.findVersion("test_user");
+        readingRepository.save("test_user", reading(1, 2015));
+
+        assertThat(afterInsert).isGreaterThan(before);
+        assertThat(readingVersionRepository.findVersion("test_user")).isEqualTo(afterInsert);
+    }
+
+    /**
+     * This test checks that incrementSchemaEpoch increments the schema epoch and leaves the versions of the users unchanged.
+     */
+    @Test
+    @DisplayName("Test that incrementSchemaEpoch increments only the schema epoch")
+    void shouldIncrementSchemaEpoch() {
+        readingRepository.save("test_user", reading(3, 2015));
+        long version = readingVersionRepository.findVersion("test_user");
+        long before = readingVersionRepository.findSchemaEpoch();
+
+        readingVersionRepository.incrementSchemaEpoch();
+
+        assertThat(readingVersionRepository.findSchemaEpoch()).isEqualTo(before + 1);
+        assertThat(readingVersionRepository.findVersion("test_user")).isEqualTo(version);
+    }
+
+    /**
+     * This test checks that a user whose readings never changed has the version 0.
+     */
+    @Test
+    @DisplayName("Test that a user without changes has the version 0")
+    void shouldReturnZeroWithoutChanges() {
+        assertThat(readingVersionRepository.findVersion("unknown_user")).isZero();
+    }
+
+    private Reading reading(int month, int year) {
+        Reading reading = new Reading();
+        reading.setMonth(month);
+        reading.setYear(year);
+        reading.setValues(ReadingValues.of(readingStructureService.getSchema(), Map.of()));
+        return reading;
+    }
+}
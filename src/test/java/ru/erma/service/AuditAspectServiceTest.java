@@ -26,6 +26,12 @@ class AuditAspectServiceTest {
     @Mock
     private AuditRepository<Audit> auditRepository;
 
+    /**
+     * Mock of AuditWriterService used in the tests.
+     */
+    @Mock
+    private AuditWriterService auditWriterService;
+
     /**
      * The AuditService instance under test, with mocked dependencies.
      */
@@ -49,4 +55,19 @@ class AuditAspectServiceTest {
 
         verify(auditRepository, times(1)).save(audit);
     }
-}
\ No newline at end of file
+
+    /**
+     * Tests that the saveAudit method queues the audit when audits are written asynchronously.
+     */
+    @Test
+    @DisplayName("SaveAudit method queues the audit when the audit writer is enabled")
+    void saveAudit_queuesAuditWhenWriterEnabled() {
+        Audit audit = new Audit("test", LocalDateTime.now(), "action");
+        when(auditWriterService.isEnabled()).thenReturn(true);
+
+        auditService.saveAudit(audit);
+
+        verify(auditWriterService).enqueue(audit);
+        verifyNoInteractions(auditRepository);
+    }
+}
@@ -7,9 +7,13 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import ru.erma.dto.AuditDTO;
+import ru.erma.dto.AuditListDTO;
 import ru.erma.exception.NoLogsFoundException;
+import ru.erma.exception.NotValidArgumentException;
 import ru.erma.mappers.AuditMapper;
 import ru.erma.model.Audit;
+import ru.erma.model.AuditCursor;
+import ru.erma.model.AuditFilter;
 import ru.erma.repository.AuditRepository;
 
 import java.time.LocalDateTime;
@@ -18,6 +22,7 @@ import java.util.List;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
@@ -30,51 +35,91 @@ public class AuditServiceTest {
     private AuditService auditService;
 
     /**
-     * Tests that the getAllAudits method correctly retrieves all audits.
-     * It creates two audits, saves them to the AuditRepository, and calls the getAllAudits method.
-     * Asserts that the returned AuditListDTO is not null, that it contains two audits, and that the audits match the expected audits.
+     * Tests that the getAudits method returns a page of audits with the cursor of the following page.
+     * The repository is asked for one audit more than the limit, which tells that there is a following page.
      */
     @Test
-    @DisplayName("GetAllAudits method returns all Audits from the repository")
-    void getAllAudits_returnsAllAuditLogsFromRepository() {
-        Audit audit1 = new Audit();
-        audit1.setAction("action1");
-        audit1.setUsername("test");
-        audit1.setTimestamp(LocalDateTime.now());
-        Audit audit2 = new Audit();
-        audit2.setAction("action2");
-        audit1.setUsername("test");
-        audit1.setTimestamp(LocalDateTime.now());
+    @DisplayName("GetAudits method returns a page with the cursor of the next page")
+    void getAudits_returnsPageWithNextCursor() {
+        AuditFilter filter = new AuditFilter("test", null, null, null);
+        Audit audit1 = audit(3L, LocalDateTime.of(2024, 1, 1, 12, 0, 30, 123_000), "action1");
+        Audit audit2 = audit(2L, LocalDateTime.of(2024, 1, 1, 12, 0), "action2");
+        Audit audit3 = audit(1L, LocalDateTime.of(2024, 1, 1, 11, 0), "action3");
+        when(auditRepository.findPage(filter, null, 3)).thenReturn(List.of(audit1, audit2, audit3));
+        List<AuditDTO> auditDTOs = List.of(
+                new AuditDTO(audit1.getUsername(), audit1.getTimestamp(), audit1.getAction()),
+                new AuditDTO(audit2.getUsername(), audit2.getTimestamp(), audit2.getAction()));
+        when(auditMapper.toAuditListDTO(List.of(audit1, audit2))).thenReturn(auditDTOs);
 
-        List<Audit> audits = List.of(audit1,audit2);
+        AuditListDTO page = auditService.getAudits(filter, 2, null);
 
-        when(auditRepository.findAll()).thenReturn(audits);
-
-        AuditDTO auditDTO1 = new AuditDTO(audit1.getUsername(), audit1.getTimestamp(), audit1.getAction());
-        AuditDTO auditDTO2 = new AuditDTO(audit2.getUsername(), audit2.getTimestamp(), audit2.getAction());
-        List<AuditDTO> auditDTOs = List.of(auditDTO1, auditDTO2);
+        assertThat(page.audits()).isEqualTo(auditDTOs);
+        assertThat(page.nextCursor()).isEqualTo("2024-01-01T12:00_2");
+    }
 
-        when(auditMapper.toAuditListDTO(audits)).thenReturn(auditDTOs);
+    /**
+     * Tests that the getAudits method passes the position of the cursor to the repository
+     * and returns no cursor on the last page.
+     */
+    @Test
+    @DisplayName("GetAudits method continues after the cursor")
+    void getAudits_continuesAfterCursor() {
+        AuditFilter filter = new AuditFilter(null, null, null, null);
+        Audit audit = audit(1L, LocalDateTime.of(2024, 1, 1, 11, 0), "action");
+        AuditCursor cursor = new AuditCursor(LocalDateTime.of(2024, 1, 1, 12, 0, 30, 123_000), 3L);
+        when(auditRepository.findPage(filter, cursor, 3)).thenReturn(List.of(audit));
 
-        List<AuditDTO> allAudits = auditService.getAllAudits();
+        AuditListDTO page = auditService.getAudits(filter, 2, "2024-01-01T12:00:30.000123_3");
 
-        assertThat(allAudits).isNotNull();
-        assertThat(allAudits.size()).isEqualTo(2);
-        assertThat(allAudits.get(0)).isEqualTo(auditDTO1);
-        assertThat(allAudits.get(1)).isEqualTo(auditDTO2);
+        assertThat(page.nextCursor()).isNull();
     }
 
     /**
-     * Tests that the getAllAudits method correctly handles the case where there are no audits.
-     * It calls the getAllAudits method and asserts that a NoLogsFoundException is thrown with the message "No audit logs found".
+     * Tests that the getAudits method throws a NoLogsFoundException if no audits match the filter.
      */
     @Test
-    @DisplayName("GetAllAudits method returns empty list when no audits are found")
-    void getAllAudits_throwsNoLogsFoundException() {
-        when(auditRepository.findAll()).thenReturn(Collections.emptyList());
+    @DisplayName("GetAudits method throws exception when no audits are found")
+    void getAudits_throwsNoLogsFoundException() {
+        AuditFilter filter = new AuditFilter(null, null, null, null);
+        when(auditRepository.findPage(filter, null, 101)).thenReturn(Collections.emptyList());
 
-        assertThatThrownBy(()->auditService.getAllAudits())
+        assertThatThrownBy(() -> auditService.getAudits(filter, 100, null))
                 .isInstanceOf(NoLogsFoundException.class)
                 .hasMessage("No audit logs found");
     }
+
+    /**
+     * Tests that the getAudits method rejects a cursor that is not the cursor of a page.
+     */
+    @Test
+    @DisplayName("GetAudits method throws exception for an invalid cursor")
+    void getAudits_throwsExceptionForInvalidCursor() {
+        AuditFilter filter = new AuditFilter(null, null, null, null);
+
+        assertThatThrownBy(() -> auditService.getAudits(filter, 100, "2024-01-01T12:00"))
+                .isInstanceOf(NotValidArgumentException.class)
+                .hasMessage("Invalid cursor: 2024-01-01T12:00, expected the nextCursor of the previous page.");
+        verifyNoInteractions(auditRepository);
+    }
+
+    /**
+     * Tests that the parseFilter method ignores blank parameters and rejects an empty time range.
+     */
+    @Test
+    @DisplayName("ParseFilter method ignores blank parameters and rejects an empty time range")
+    void parseFilter_validatesParameters() {
+        assertThat(auditService.parseFilter(" ", "action", "2024-01-01T00:00:00", null))
+                .isEqualTo(new AuditFilter(null, "action", LocalDateTime.of(2024, 1, 1, 0, 0), null));
+        assertThatThrownBy(() -> auditService.parseFilter(null, null, "2024-02-01T00:00:00", "2024-01-01T00:00:00"))
+                .isInstanceOf(NotValidArgumentException.class)
+                .hasMessage("The start of the time range must be before its end.");
+        assertThatThrownBy(() -> auditService.parseFilter(null, null, "yesterday", null))
+                .isInstanceOf(NotValidArgumentException.class);
+    }
+
+    private static Audit audit(Long id, LocalDateTime timestamp, String action) {
+        Audit audit = new Audit("test", timestamp, action);
+        audit.setId(id);
+        return audit;
+    }
 }
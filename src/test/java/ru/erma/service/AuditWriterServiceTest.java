@@ -0,0 +1,190 @@
+package ru.erma.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.erma.config.AuditProperties;
+import ru.erma.config.AuditProperties.OverflowPolicy;
+import ru.erma.model.Audit;
+import ru.erma.repository.AuditRepository;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+/**
+ * This class is used to test the AuditWriterService class.
+ * The repository records the actions of every written batch, the first batch can be held to fill up the queue.
+ */
+class AuditWriterServiceTest {
+
+    @TempDir
+    Path tempDir;
+
+    private AuditRepository<Audit> auditRepository;
+
+    private AuditProperties properties;
+
+    private AuditWriterService auditWriterService;
+
+    private final List<List<String>> batches = new CopyOnWriteArrayList<>();
+
+    private final CountDownLatch flushing = new CountDownLatch(1);
+
+    private volatile CountDownLatch release = new CountDownLatch(0);
+
+    /**
+     * The setUp method creates the properties of an AuditWriterService with a queue of two records.
+     * The writer itself is created by the tests, once they have chosen the overflow policy.
+     */
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        auditRepository = mock(AuditRepository.class);
+        doAnswer(invocation -> {
+            List<Audit> audits = invocation.getArgument(0);
+            batches.add(audits.stream().map(Audit::getAction).toList());
+            flushing.countDown();
+            release.await();
+            return null;
+        }).when(auditRepository).saveAll(anyList());
+        properties = new AuditProperties();
+        properties.setAsync(true);
+        properties.setQueueCapacity(2);
+        properties.setBatchSize(10);
+        properties.setFlushInterval(100);
+        properties.setSpillFile(tempDir.resolve("audit-spill.ndjson").toString());
+        properties.setSpillRetryDelay(100);
+        properties.setShutdownTimeout(5000);
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (auditWriterService != null) {
+            auditWriterService.shutdown();
+        }
+    }
+
+    /**
+     * This test verifies that records queued together are written in one batch and counted as written.
+     */
+    @Test
+    @DisplayName("Enqueue writes the queued records in one batch")
+    void enqueue_writesRecordsInOneBatch() {
+        startWriter(OverflowPolicy.BLOCK);
+
+        auditWriterService.enqueue(audit("first"));
+        auditWriterService.enqueue(audit("second"));
+        auditWriterService.shutdown();
+
+        assertThat(batches).containsExactly(List.of("first", "second"));
+        assertThat(auditWriterService.getStats().written()).isEqualTo(2);
+        verify(auditRepository, never()).save(any());
+    }
+
+    /**
+     * This test verifies that records are dropped and counted once the queue is full with the drop policy.
+     */
+    @Test
+    @DisplayName("Enqueue drops records when the queue is full")
+    void enqueue_dropsRecordsWhenQueueIsFull() throws InterruptedException {
+        startWriter(OverflowPolicy.DROP);
+        fillQueue();
+
+        auditWriterService.enqueue(audit("dropped"));
+        release.countDown();
+        auditWriterService.shutdown();
+
+        assertThat(batches).containsExactly(List.of("held"), List.of("first", "second"));
+        assertThat(auditWriterService.getStats()).satisfies(stats -> {
+            assertThat(stats.dropped()).isEqualTo(1);
+            assertThat(stats.written()).isEqualTo(3);
+        });
+    }
+
+    /**
+     * This test verifies that records are spilled once the queue is full with the spill policy,
+     * and that the spilled records are written and the spill file is deleted once the writer is idle.
+     */
+    @Test
+    @DisplayName("Enqueue spills records when the queue is full and writes them later")
+    void enqueue_spillsRecordsWhenQueueIsFull() throws Exception {
+        startWriter(OverflowPolicy.SPILL);
+        fillQueue();
+
+        auditWriterService.enqueue(audit("spilled"));
+        assertThat(tempDir.resolve("audit-spill.ndjson")).exists();
+        release.countDown();
+
+        verify(auditRepository, timeout(5000).times(3)).saveAll(anyList());
+        auditWriterService.shutdown();
+
+        assertThat(batches).containsExactly(List.of("held"), List.of("first", "second"), List.of("spilled"));
+        assertThat(auditWriterService.getStats()).satisfies(stats -> {
+            assertThat(stats.spilled()).isEqualTo(1);
+            assertThat(stats.written()).isEqualTo(4);
+        });
+        try (var files = Files.list(tempDir)) {
+            assertThat(files).isEmpty();
+        }
+    }
+
+    /**
+     * This test verifies that records are written right away when the writer is not running.
+     */
+    @Test
+    @DisplayName("Enqueue writes the record right away when the writer is not running")
+    void enqueue_writesRightAwayWhenNotRunning() {
+        properties.setAsync(false);
+        auditWriterService = new AuditWriterService(auditRepository, transactionTemplate(), objectMapper(), properties);
+        auditWriterService.start();
+        Audit audit = audit("sync");
+
+        auditWriterService.enqueue(audit);
+
+        verify(auditRepository).save(audit);
+    }
+
+    private void startWriter(OverflowPolicy overflowPolicy) {
+        properties.setOverflowPolicy(overflowPolicy);
+        auditWriterService = new AuditWriterService(auditRepository, transactionTemplate(), objectMapper(), properties);
+        auditWriterService.start();
+    }
+
+    /**
+     * Holds the first batch in the repository and fills the queue behind it.
+     */
+    private void fillQueue() throws InterruptedException {
+        release = new CountDownLatch(1);
+        auditWriterService.enqueue(audit("held"));
+        assertThat(flushing.await(5, TimeUnit.SECONDS)).isTrue();
+        auditWriterService.enqueue(audit("first"));
+        auditWriterService.enqueue(audit("second"));
+        assertThat(auditWriterService.getStats().queueDepth()).isEqualTo(2);
+    }
+
+    private static TransactionTemplate transactionTemplate() {
+        return new TransactionTemplate(mock(PlatformTransactionManager.class));
+    }
+
+    private static ObjectMapper objectMapper() {
+        return new ObjectMapper().findAndRegisterModules();
+    }
+
+    private static Audit audit(String action) {
+        return new Audit("admin", LocalDateTime.of(2024, 1, 1, 12, 0), action);
+    }
+}
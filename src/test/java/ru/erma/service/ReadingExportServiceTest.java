@@ -0,0 +1,200 @@
+package ru.erma.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.erma.model.Reading;
+import ru.erma.model.ReadingSchema;
+import ru.erma.model.ReadingType;
+import ru.erma.model.ReadingValues;
+import ru.erma.repository.ReadingRepository;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+/**
+ * The ReadingExportServiceTest class tests the functionality of the ReadingExportService class.
+ * It uses a mock ReadingRepository that produces readings one at a time, as the database rows would arrive.
+ */
+class ReadingExportServiceTest {
+
+    private static final ReadingSchema SCHEMA = new ReadingSchema(1, List.of(new ReadingType("heating", 3)));
+
+    private ReadingRepository<String, Reading> readingRepository;
+
+    private ReadingExportService readingExportService;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        readingRepository = mock(ReadingRepository.class);
+        readingExportService = new ReadingExportService(readingRepository,
+                new TransactionTemplate(mock(PlatformTransactionManager.class)), new ObjectMapper());
+    }
+
+    /**
+     * This test checks that the JSON export has the shape of the reading history.
+     */
+    @Test
+    @DisplayName("JSON export is an object with the array of readings")
+    void exportReadings_writesJsonObject() {
+        streamReadings(2);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        readingExportService.exportReadings("user", ReadingExportService.Format.JSON, out);
+
+        assertThat(out.toString(StandardCharsets.UTF_8)).isEqualTo("{\"readings\":["
+                + "{\"month\":1,\"year\":2000,\"values\":{\"heating\":0.5}},"
+                + "{\"month\":2,\"year\":2000,\"values\":{\"heating\":1.5}}]}");
+    }
+
+    /**
+     * This test checks that the NDJSON export writes one reading per line.
+     */
+    @Test
+    @DisplayName("NDJSON export writes one reading per line")
+    void exportReadings_writesNdjsonLines() {
+        streamReadings(2);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        readingExportService.exportReadings("user", ReadingExportService.Format.NDJSON, out);
+
+        assertThat(out.toString(StandardCharsets.UTF_8)).isEqualTo(
+                "{\"month\":1,\"year\":2000,\"values\":{\"heating\":0.5}}\n"
+                        + "{\"month\":2,\"year\":2000,\"values\":{\"heating\":1.5}}\n");
+    }
+
+    /**
+     * This test checks that the CBOR export has the shape of the JSON export
+     * and keeps the fractions of the values as decimal numbers.
+     */
+    @Test
+    @DisplayName("CBOR export decodes to the JSON export")
+    void exportReadings_writesCborObject() throws Exception {
+        streamReadings(2);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        readingExportService.exportReadings("user", ReadingExportService.Format.CBOR, out);
+
+        JsonNode export = new CBORMapper().readTree(out.toByteArray());
+        assertThat(export.path("readings")).hasSize(2);
+        assertThat(export.path("readings").get(1).path("values").path("heating").decimalValue()).isEqualByComparingTo("1.5");
+        assertThat(export.path("readings").get(1).path("month").intValue()).isEqualTo(2);
+    }
+
+    /**
+     * This test checks that the columnar export writes the periods once and the values of every type in one array,
+     * split into blocks of a fixed number of readings.
+     */
+    @Test
+    @DisplayName("Columnar export writes blocks of columns")
+    void exportReadings_writesColumnarBlocks() throws Exception {
+        streamReadings(ReadingExportService.COLUMNAR_BLOCK_SIZE + 2);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        readingExportService.exportReadings("user", ReadingExportService.Format.COLUMNAR, out);
+
+        JsonNode blocks = new ObjectMapper().readTree(out.toByteArray()).path("blocks");
+        assertThat(blocks).hasSize(2);
+        assertThat(blocks.get(0).path("months")).hasSize(ReadingExportService.COLUMNAR_BLOCK_SIZE);
+        assertThat(blocks.get(1).toString()).isEqualTo(
+                "{\"months\":[\"2083-05\",\"2083-06\"],\"values\":{\"heating\":[1000.5,1001.5]}}");
+    }
+
+    /**
+     * This test streams a million readings and checks that the output reaches the stream while the rows are still arriving
+     * and that the heap retained during the export does not grow with the number of readings.
+     */
+    @Test
+    @DisplayName("Exporting a million readings uses constant memory")
+    void exportReadings_streamsMillionReadingsInConstantMemory() {
+        int rows = 1_000_000;
+        long baseline = usedHeapAfterGc();
+        long[] heapAtEnd = new long[1];
+        long[] bytesAtHalf = new long[1];
+        CountingOutputStream out = new CountingOutputStream();
+        doAnswer(invocation -> {
+            Consumer<Reading> action = invocation.getArgument(1);
+            for (int i = 0; i < rows; i++) {
+                action.accept(reading(i));
+                if (i == rows / 2) {
+                    bytesAtHalf[0] = out.count;
+                }
+            }
+            heapAtEnd[0] = usedHeapAfterGc();
+            return null;
+        }).when(readingRepository).streamByUsername(eq("user"), any());
+
+        readingExportService.exportReadings("user", ReadingExportService.Format.NDJSON, out);
+
+        assertThat(out.lines).isEqualTo(rows);
+        assertThat(bytesAtHalf[0]).isGreaterThan(out.count / 4);
+        assertThat(heapAtEnd[0] - baseline).isLessThan(32L * 1024 * 1024);
+    }
+
+    private void streamReadings(int count) {
+        doAnswer(invocation -> {
+            Consumer<Reading> action = invocation.getArgument(1);
+            for (int i = 0; i < count; i++) {
+                action.accept(reading(i));
+            }
+            return null;
+        }).when(readingRepository).streamByUsername(eq("user"), any());
+    }
+
+    private static Reading reading(int i) {
+        Reading reading = new Reading();
+        reading.setMonth(i % 12 + 1);
+        reading.setYear(2000 + i / 12);
+        ReadingValues values = new ReadingValues(SCHEMA);
+        values.set(0, 500 + 1000L * i);
+        reading.setValues(values);
+        return reading;
+    }
+
+    private static long usedHeapAfterGc() {
+        Runtime runtime = Runtime.getRuntime();
+        System.gc();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    /**
+     * An output stream that only counts the bytes and lines written to it.
+     */
+    private static final class CountingOutputStream extends OutputStream {
+        private long count;
+        private long lines;
+
+        @Override
+        public void write(int b) {
+            count++;
+            if (b == '\n') {
+                lines++;
+            }
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            count += len;
+            for (int i = off; i < off + len; i++) {
+                if (b[i] == '\n') {
+                    lines++;
+                }
+            }
+        }
+    }
+}
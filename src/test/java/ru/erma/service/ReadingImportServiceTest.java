@@ -0,0 +1,131 @@
+package ru.erma.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.erma.dto.ReadingImportDTO;
+import ru.erma.exception.NotValidArgumentException;
+import ru.erma.model.ReadingImportResult;
+import ru.erma.model.ReadingSchema;
+import ru.erma.model.ReadingType;
+import ru.erma.repository.ReadingImportRepository;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.io.Reader;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * This class is used to test the ReadingImportService class.
+ * The repository is mocked and captures the CSV rows it receives.
+ */
+class ReadingImportServiceTest {
+
+    private ReadingImportRepository readingImportRepository;
+
+    private ReadingImportService readingImportService;
+
+    private final List<String> importedColumns = new ArrayList<>();
+
+    private final StringWriter importedRows = new StringWriter();
+
+    /**
+     * The setUp method creates the ReadingImportService with the heating, cold_water and hot_water reading types.
+     */
+    @BeforeEach
+    void setUp() {
+        readingImportRepository = mock(ReadingImportRepository.class);
+        ReadingStructureService readingStructureService = mock(ReadingStructureService.class);
+        when(readingStructureService.getSchema()).thenReturn(new ReadingSchema(1, List.of(new ReadingType("heating", 3),
+                new ReadingType("cold_water", 3), new ReadingType("hot_water", 3))));
+        when(readingImportRepository.importReadings(any(ReadingSchema.class), anyList(), any(Reader.class))).thenAnswer(invocation -> {
+            importedColumns.addAll(invocation.getArgument(1));
+            invocation.<Reader>getArgument(2).transferTo(importedRows);
+            return new ReadingImportResult(3, 2, 1);
+        });
+        readingImportService = new ReadingImportService(readingImportRepository, readingStructureService,
+                new TransactionTemplate(mock(PlatformTransactionManager.class)), new ObjectMapper(),
+                mock(ApplicationEventPublisher.class));
+    }
+
+    /**
+     * This test verifies that a CSV body is passed to the repository with the columns of its header.
+     */
+    @Test
+    @DisplayName("Import readings passes CSV rows with header columns")
+    void importReadings_passesCsvRowsWithHeaderColumns() {
+        ReadingImportDTO result = readingImportService.importReadings(ReadingImportService.Format.CSV,
+                body("username,year,month,heating\ntest_user,2020,1,5\ntest_user,2020,2,6\ntest_user,2020,2,7\n"));
+
+        assertThat(importedColumns).containsExactly("username", "year", "month", "heating");
+        assertThat(importedRows.toString()).isEqualTo("test_user,2020,1,5\ntest_user,2020,2,6\ntest_user,2020,2,7\n");
+        assertThat(result.status()).isEqualTo(ReadingImportDTO.Status.COMPLETED);
+        assertThat(result.imported()).isEqualTo(1);
+        assertThat(result.duplicates()).isEqualTo(1);
+        assertThat(result.rejected()).isEqualTo(1);
+    }
+
+    /**
+     * This test verifies that NDJSON lines are converted into CSV rows in the order of the columns.
+     */
+    @Test
+    @DisplayName("Import readings converts NDJSON lines into CSV rows")
+    void importReadings_convertsNdjsonLinesIntoCsvRows() {
+        readingImportService.importReadings(ReadingImportService.Format.NDJSON,
+                body("{\"username\":\"test_user\",\"month\":1,\"year\":2020,\"heating\":5}\n\n{\"year\":2020,\"month\":2,\"username\":\"test_user\",\"hot_water\":7}\n"));
+
+        String rows = importedRows.toString();
+        int heating = importedColumns.indexOf("heating");
+        int hotWater = importedColumns.indexOf("hot_water");
+        assertThat(importedColumns.subList(0, 3)).containsExactly("username", "month", "year");
+        assertThat(rows.lines().map(row -> row.split(",", -1)[heating])).containsExactly("5", "");
+        assertThat(rows.lines().map(row -> row.split(",", -1)[hotWater])).containsExactly("", "7");
+        assertThat(rows).startsWith("\"test_user\",1,2020,");
+    }
+
+    /**
+     * This test verifies that a CSV header with an unknown reading type is rejected and reported as a failed import.
+     */
+    @Test
+    @DisplayName("Import readings rejects unknown reading type in CSV header")
+    void importReadings_rejectsUnknownReadingType() {
+        assertThatThrownBy(() -> readingImportService.importReadings(ReadingImportService.Format.CSV,
+                body("username,month,year,gas\ntest_user,1,2020,5\n")))
+                .isInstanceOf(NotValidArgumentException.class)
+                .hasMessage("Invalid reading type: gas");
+
+        assertThat(readingImportService.getImports()).first()
+                .extracting(ReadingImportDTO::status)
+                .isEqualTo(ReadingImportDTO.Status.FAILED);
+    }
+
+    /**
+     * This test verifies that a CSV header without the period columns is rejected.
+     */
+    @Test
+    @DisplayName("Import readings rejects CSV header without period columns")
+    void importReadings_rejectsHeaderWithoutPeriodColumns() {
+        assertThatThrownBy(() -> readingImportService.importReadings(ReadingImportService.Format.CSV,
+                body("username,heating\ntest_user,5\n")))
+                .isInstanceOf(NotValidArgumentException.class)
+                .hasMessage("CSV header must contain the username, month and year columns.");
+    }
+
+    private InputStream body(String content) {
+        return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,224 @@
+package ru.erma.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.erma.config.ReadingIngestionProperties;
+import ru.erma.dto.ReadingReceiptDTO;
+import ru.erma.dto.ReadingReceiptDTO.Status;
+import ru.erma.exception.IngestionQueueFullException;
+import ru.erma.exception.ReceiptNotFoundException;
+import ru.erma.model.Reading;
+import ru.erma.model.ReadingSchema;
+import ru.erma.model.ReadingValues;
+import ru.erma.repository.ReadingRepository;
+import ru.erma.repository.ReadingSummaryRepository;
+import ru.erma.repository.impl.LastReadingIndex;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * This class is used to test the ReadingIngestionService class.
+ * The flusher thread is started with a flush interval long enough for readings queued together to share one batch.
+ */
+class ReadingIngestionServiceTest {
+
+    private ReadingRepository<String, Reading> readingRepository;
+
+    private ReadingIngestionProperties properties;
+
+    private ReadingIngestionService readingIngestionService;
+
+    /**
+     * The setUp method creates the ReadingIngestionService with a mock repository and a queue of two readings.
+     */
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        readingRepository = mock(ReadingRepository.class);
+        properties = new ReadingIngestionProperties();
+        properties.setAsync(true);
+        properties.setQueueCapacity(2);
+        properties.setBatchSize(10);
+        properties.setFlushInterval(500);
+        properties.setReceiptCapacity(10);
+        properties.setShutdownTimeout(5000);
+        TransactionTemplate transactionTemplate = new TransactionTemplate(mock(PlatformTransactionManager.class));
+        readingIngestionService = new ReadingIngestionService(readingRepository, mock(ReadingSummaryRepository.class), transactionTemplate,
+                mock(LastReadingIndex.class), properties);
+    }
+
+    @AfterEach
+    void tearDown() {
+        readingIngestionService.shutdown();
+    }
+
+    /**
+     * This test verifies that readings are rejected when the ingestion is not running.
+     */
+    @Test
+    @DisplayName("Enqueue throws exception when ingestion is not running")
+    void enqueue_throwsExceptionWhenNotRunning() {
+        assertThatThrownBy(() -> readingIngestionService.enqueue("testUser", reading(1)))
+                .isInstanceOf(IngestionQueueFullException.class);
+    }
+
+    /**
+     * This test verifies that readings are rejected once the queue is full.
+     * The first batch is held in the repository, so the following readings stay in the queue.
+     */
+    @Test
+    @DisplayName("Enqueue throws exception when queue is full")
+    void enqueue_throwsExceptionWhenQueueIsFull() throws InterruptedException {
+        CountDownLatch flushing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(readingRepository.saveAll(eq("testUser"), anyList())).thenAnswer(invocation -> {
+            flushing.countDown();
+            release.await();
+            return new boolean[invocation.<List<Reading>>getArgument(1).size()];
+        });
+        readingIngestionService.start();
+        readingIngestionService.enqueue("testUser", reading(1));
+        assertThat(flushing.await(5, TimeUnit.SECONDS)).isTrue();
+        readingIngestionService.enqueue("testUser", reading(2));
+        readingIngestionService.enqueue("testUser", reading(3));
+
+        assertThatThrownBy(() -> readingIngestionService.enqueue("testUser", reading(4)))
+                .isInstanceOf(IngestionQueueFullException.class)
+                .hasMessage("Reading queue is full, please retry later.");
+        release.countDown();
+    }
+
+    /**
+     * This test verifies that the shutdown stores the queued readings in one batch and completes their receipts.
+     */
+    @Test
+    @DisplayName("Shutdown drains the queue and completes receipts")
+    void shutdown_drainsQueueAndCompletesReceipts() {
+        Reading fresh = reading(1);
+        Reading existing = reading(2);
+        when(readingRepository.saveAll("testUser", List.of(fresh, existing))).thenReturn(new boolean[]{true, false});
+        readingIngestionService.start();
+        ReadingReceiptDTO first = readingIngestionService.enqueue("testUser", fresh);
+        ReadingReceiptDTO second = readingIngestionService.enqueue("testUser", existing);
+        assertThat(first.status()).isEqualTo(Status.PENDING);
+
+        readingIngestionService.shutdown();
+
+        verify(readingRepository).saveAll("testUser", List.of(fresh, existing));
+        assertThat(readingIngestionService.getReceipt(first.receiptId(), "testUser").status()).isEqualTo(Status.ACCEPTED);
+        assertThat(readingIngestionService.getReceipt(second.receiptId(), "testUser").status()).isEqualTo(Status.DUPLICATE);
+    }
+
+    /**
+     * This test verifies that a failed batch is stored again per user,
+     * so the readings of one user are accepted while the reading that keeps failing is reported as failed.
+     */
+    @Test
+    @DisplayName("Flush retries a failed batch per user and fails only the failing readings")
+    void flush_retriesFailedBatchPerUser() {
+        Reading stored = reading(1);
+        Reading failing = reading(2);
+        when(readingRepository.saveAll("testUser", List.of(stored))).thenReturn(new boolean[]{true});
+        when(readingRepository.saveAll("otherUser", List.of(failing))).thenThrow(new IllegalStateException("constraint violated"));
+        readingIngestionService.start();
+        ReadingReceiptDTO first = readingIngestionService.enqueue("testUser", stored);
+        ReadingReceiptDTO second = readingIngestionService.enqueue("otherUser", failing);
+
+        readingIngestionService.shutdown();
+
+        assertThat(readingIngestionService.getReceipt(first.receiptId(), "testUser").status()).isEqualTo(Status.ACCEPTED);
+        assertThat(readingIngestionService.getReceipt(second.receiptId(), "otherUser").status()).isEqualTo(Status.FAILED);
+    }
+
+    /**
+     * This test verifies that an interrupted flusher is replaced by a new one, so readings are still accepted and stored.
+     */
+    @Test
+    @DisplayName("Interrupted flusher is replaced and readings are still stored")
+    void flusher_isReplacedWhenInterrupted() throws InterruptedException {
+        Reading reading = reading(1);
+        when(readingRepository.saveAll("testUser", List.of(reading))).thenReturn(new boolean[]{true});
+        readingIngestionService.start();
+        Thread interrupted = Thread.getAllStackTraces().keySet().stream()
+                .filter(thread -> thread.getName().equals("reading-ingestion-flusher"))
+                .findFirst().orElseThrow();
+
+        interrupted.interrupt();
+        interrupted.join(5000);
+        ReadingReceiptDTO receipt = readingIngestionService.enqueue("testUser", reading);
+
+        verify(readingRepository, timeout(5000)).saveAll("testUser", List.of(reading));
+        assertThat(interrupted.isAlive()).isFalse();
+        assertThat(receipt.status()).isEqualTo(Status.PENDING);
+    }
+
+    /**
+     * This test verifies that the check of a reading receives the latest reading of its user that is not stored yet,
+     * including a reading the flusher is storing, and that a rejected reading is not queued.
+     */
+    @Test
+    @DisplayName("Enqueue checks a reading against the latest queued reading of its user")
+    void enqueue_checksAgainstLatestQueuedReading() throws InterruptedException {
+        CountDownLatch flushing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(readingRepository.saveAll(eq("testUser"), anyList())).thenAnswer(invocation -> {
+            flushing.countDown();
+            release.await();
+            return new boolean[invocation.<List<Reading>>getArgument(1).size()];
+        });
+        Reading february = reading(2);
+        List<Reading> checked = new ArrayList<>();
+        readingIngestionService.start();
+        readingIngestionService.enqueue("testUser", february);
+        assertThat(flushing.await(5, TimeUnit.SECONDS)).isTrue();
+        readingIngestionService.enqueue("testUser", reading(1));
+
+        readingIngestionService.enqueue("testUser", reading(3), checked::add);
+        assertThatThrownBy(() -> readingIngestionService.enqueue("otherUser", reading(3), latest -> {
+            checked.add(latest);
+            throw new IllegalStateException("rejected");
+        })).isInstanceOf(IllegalStateException.class);
+
+        assertThat(checked).containsExactly(february, null);
+        assertThatThrownBy(() -> readingIngestionService.enqueue("testUser", reading(4)))
+                .isInstanceOf(IngestionQueueFullException.class);
+        release.countDown();
+    }
+
+    /**
+     * This test verifies that a receipt cannot be read by another user.
+     */
+    @Test
+    @DisplayName("Get receipt throws exception for another user")
+    void getReceipt_throwsExceptionForAnotherUser() {
+        readingIngestionService.start();
+        ReadingReceiptDTO receipt = readingIngestionService.enqueue("testUser", reading(1));
+
+        assertThatThrownBy(() -> readingIngestionService.getReceipt(receipt.receiptId(), "otherUser"))
+                .isInstanceOf(ReceiptNotFoundException.class);
+    }
+
+    private Reading reading(int month) {
+        Reading reading = new Reading();
+        reading.setMonth(month);
+        reading.setYear(2022);
+        reading.setValues(new ReadingValues(new ReadingSchema(1, List.of())));
+        return reading;
+    }
+}
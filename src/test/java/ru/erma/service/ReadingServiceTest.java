@@ -6,23 +6,36 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
-import ru.erma.dto.ReadingDTO;
-import ru.erma.dto.ReadingListDTO;
-import ru.erma.dto.ReadingRequest;
+import ru.erma.dto.*;
+import ru.erma.dto.ReadingBatchItemResult.Status;
+import ru.erma.exception.NotValidArgumentException;
+import ru.erma.exception.ReadingAlreadyExistsException;
 import ru.erma.exception.ReadingNotFoundException;
 import ru.erma.mappers.ReadingMapper;
+import ru.erma.model.Consumption;
 import ru.erma.model.Reading;
+import ru.erma.model.ReadingSchema;
+import ru.erma.model.ReadingType;
+import ru.erma.model.ReadingTypeRules;
+import ru.erma.model.ReadingValues;
+import ru.erma.repository.ReadingAnalyticsRepository;
 import ru.erma.repository.ReadingRepository;
+import ru.erma.repository.ReadingSummaryRepository;
+import ru.erma.repository.ReadingVersionRepository;
+import ru.erma.repository.impl.LastReadingIndex;
+import ru.erma.validation.validator.ReadingRequestValidator;
 
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
-import java.util.Optional;
+import java.math.BigDecimal;
+import java.time.YearMonth;
+import java.util.*;
+import java.util.function.Consumer;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 import static org.mockito.internal.verification.VerificationModeFactory.times;
 
@@ -45,6 +58,27 @@ class ReadingServiceTest {
     @Mock
     private ReadingMapper readingMapper;
 
+    @Mock
+    private ReadingRequestValidator readingRequestValidator;
+
+    @Mock
+    private ReadingIngestionService readingIngestionService;
+
+    @Mock
+    private ReadingStructureService readingStructureService;
+
+    @Mock
+    private ReadingAnalyticsRepository readingAnalyticsRepository;
+
+    @Mock
+    private ReadingSummaryRepository readingSummaryRepository;
+
+    @Mock
+    private ReadingVersionRepository readingVersionRepository;
+
+    @Mock
+    private LastReadingIndex lastReadingIndex;
+
     @InjectMocks
     private ReadingService readingService;
 
@@ -55,19 +89,83 @@ class ReadingServiceTest {
     @Test
     @DisplayName("Submit readings adds a reading to user readings")
     void submitReadings_addsReadingToUserReadings() {
-        Map<String, Integer> values = new HashMap<>();
-        values.put("heating", 20);
-        values.put("cold water", 30);
-        values.put("hot water", 40);
+        Map<String, BigDecimal> values = new HashMap<>();
+        values.put("heating", BigDecimal.valueOf(20));
+        values.put("cold water", BigDecimal.valueOf(30));
+        values.put("hot water", BigDecimal.valueOf(40));
         ReadingRequest readingRequest = new ReadingRequest("testUser", 1, 2022, values);
 
         Reading reading = new Reading();
-        when(readingMapper.toReading(readingRequest)).thenReturn(reading);
-
+        when(readingMapper.toReading(eq(readingRequest), any())).thenReturn(reading);
+        when(readingRepository.save("testUser", reading)).thenReturn(true);
 
         readingService.submitReadings(readingRequest);
 
         verify(readingRepository, times(1)).save(eq("testUser"), eq(reading));
+        verify(readingSummaryRepository).addAll(List.of(reading));
+    }
+
+    /**
+     * This test verifies that a value of a monotonic reading type lower than the previous reading is rejected
+     * without storing it, and that it is accepted once the meter is reported as reset.
+     */
+    @Test
+    @DisplayName("Submit readings rejects a value lower than the previous reading unless the meter was reset")
+    void submitReadings_rejectsDecreasingValueUnlessReset() {
+        ReadingSchema schema = new ReadingSchema(1, List.of(new ReadingType("heating", 3)));
+        when(lastReadingIndex.find("testUser")).thenReturn(Optional.of(reading(schema, 1, 2022, "120")));
+        ReadingRequest decreasing = new ReadingRequest("testUser", 2, 2022, Map.of("heating", new BigDecimal("100")));
+        ReadingRequest reset = new ReadingRequest("testUser", 2, 2022, Map.of("heating", new BigDecimal("100")), Set.of("heating"));
+        Reading reading = reading(schema, 2, 2022, "100");
+        when(readingMapper.toReading(any(), any())).thenReturn(reading);
+        when(readingRepository.save("testUser", reading)).thenReturn(true);
+
+        assertThatThrownBy(() -> readingService.submitReadings(decreasing))
+                .isInstanceOf(NotValidArgumentException.class)
+                .hasMessage("Reading heating must not be lower than the previous reading 120.000, unless its meter was reset.");
+        readingService.submitReadings(reset);
+
+        verify(readingRepository, times(1)).save("testUser", reading);
+        verify(lastReadingIndex).record("testUser", reading);
+    }
+
+    /**
+     * This test verifies that a value increasing by more than the maximum monthly delta of its type
+     * per month since the previous reading is rejected.
+     */
+    @Test
+    @DisplayName("Submit readings rejects a value increasing faster than the maximum monthly delta")
+    void submitReadings_rejectsImplausibleIncrease() {
+        ReadingTypeRules rules = new ReadingTypeRules(null, null, null, new BigDecimal("10"), true, true);
+        ReadingSchema schema = new ReadingSchema(1, List.of(new ReadingType("heating", 3, "heating", rules)));
+        when(lastReadingIndex.find("testUser")).thenReturn(Optional.of(reading(schema, 1, 2022, "100")));
+        when(readingMapper.toReading(any(), any()))
+                .thenReturn(reading(schema, 3, 2022, "120"))
+                .thenReturn(reading(schema, 3, 2022, "121"));
+        when(readingRepository.save(eq("testUser"), any())).thenReturn(true);
+
+        readingService.submitReadings(new ReadingRequest("testUser", 3, 2022, Map.of()));
+
+        assertThatThrownBy(() -> readingService.submitReadings(new ReadingRequest("testUser", 3, 2022, Map.of())))
+                .isInstanceOf(NotValidArgumentException.class)
+                .hasMessage("Reading heating must not increase by more than 10 per month since the previous reading.");
+    }
+
+    /**
+     * This test verifies that the submitReadings method throws a ReadingAlreadyExistsException
+     * when the repository reports that a reading for the same month and year already exists.
+     */
+    @Test
+    @DisplayName("Submit readings throws exception when reading already exists")
+    void submitReadings_throwsExceptionWhenReadingAlreadyExists() {
+        ReadingRequest readingRequest = new ReadingRequest("testUser", 1, 2022, new HashMap<>());
+
+        Reading reading = new Reading();
+        when(readingMapper.toReading(eq(readingRequest), any())).thenReturn(reading);
+        when(readingRepository.save("testUser", reading)).thenReturn(false);
+
+        assertThatThrownBy(() -> readingService.submitReadings(readingRequest))
+                .isInstanceOf(ReadingAlreadyExistsException.class);
     }
 
 
@@ -114,7 +212,7 @@ class ReadingServiceTest {
 
     /**
      * This test verifies that when the getReadingHistory method is called,
-     * it returns all Readings for the user.
+     * it returns all Readings for the user that fit into the page without a next cursor.
      */
     @Test
     @DisplayName("Get reading history returns all readings for user")
@@ -124,21 +222,77 @@ class ReadingServiceTest {
         reading1.setYear(2022);
 
         List<Reading> readings = List.of(reading1);
-        when(readingRepository.findByUsername("testUser")).thenReturn(readings);
+        when(readingRepository.findPageByUsername("testUser", null, 11, "1.1")).thenReturn(readings);
 
         ReadingListDTO readingListDTO = new ReadingListDTO();
         when(readingMapper.toReadingListDTO(readings)).thenReturn(readingListDTO);
 
-        ReadingListDTO userReadings = readingService.getReadingHistory("testUser");
+        ReadingListDTO userReadings = readingService.getReadingHistory("testUser", 10, null, "1.1");
 
         assertThat(userReadings).isNotNull();
         assertThat(userReadings).isEqualTo(readingListDTO);
+        assertThat(userReadings.getNextCursor()).isNull();
+    }
+
+    /**
+     * This test verifies that the getReadingHistory method returns at most limit readings
+     * and the cursor of the next page when there are more readings.
+     */
+    @Test
+    @DisplayName("Get reading history returns the cursor of the next page")
+    void getReadingHistory_returnsNextCursor() {
+        Reading newer = new Reading();
+        newer.setMonth(2);
+        newer.setYear(2022);
+        Reading older = new Reading();
+        older.setMonth(1);
+        older.setYear(2022);
+        when(readingRepository.findPageByUsername("testUser", YearMonth.of(2022, 3), 2, "1.1")).thenReturn(List.of(newer, older));
+        when(readingMapper.toReadingListDTO(List.of(newer))).thenReturn(new ReadingListDTO());
+
+        ReadingListDTO page = readingService.getReadingHistory("testUser", 1, "2022-03", "1.1");
+
+        assertThat(page.getNextCursor()).isEqualTo("2022-02");
+    }
+
+    /**
+     * This test verifies that the getReadingsBetween method returns the readings of the requested range.
+     */
+    @Test
+    @DisplayName("Get readings between returns readings of the range")
+    void getReadingsBetween_returnsReadingsOfRange() {
+        List<Reading> readings = List.of(new Reading());
+        when(readingRepository.findByUsernameBetween("testUser", YearMonth.of(2021, 7), YearMonth.of(2023, 6))).thenReturn(readings);
+        ReadingListDTO readingListDTO = new ReadingListDTO();
+        when(readingMapper.toReadingListDTO(readings)).thenReturn(readingListDTO);
+
+        assertThat(readingService.getReadingsBetween("testUser", "2021-07", "2023-06")).isEqualTo(readingListDTO);
+    }
+
+    /**
+     * This test verifies that the getReadingsBetween method rejects a range that ends before it starts.
+     */
+    @Test
+    @DisplayName("Get readings between throws exception for reversed range")
+    void getReadingsBetween_throwsExceptionForReversedRange() {
+        assertThatThrownBy(() -> readingService.getReadingsBetween("testUser", "2023-06", "2021-07"))
+                .isInstanceOf(NotValidArgumentException.class);
+    }
+
+    /**
+     * This test verifies that the getReadingHistory method rejects a cursor that is not a period.
+     */
+    @Test
+    @DisplayName("Get reading history throws exception for invalid cursor")
+    void getReadingHistory_throwsExceptionForInvalidCursor() {
+        assertThatThrownBy(() -> readingService.getReadingHistory("testUser", 10, "yesterday", "1.1"))
+                .isInstanceOf(NotValidArgumentException.class);
     }
 
     /**
      * This test verifies that the getReadingHistory method throws a ReadingNotFoundException
      * when no readings are found for a user.
-     * The test sets up the readingRepository mock to return an empty list when findByUsername is called.
+     * The test sets up the readingRepository mock to return an empty list when findPageByUsername is called.
      * It then asserts that a ReadingNotFoundException is thrown when getReadingHistory is called with this username.
      */
     @Test
@@ -146,9 +300,9 @@ class ReadingServiceTest {
     void getReadingHistory_throwsExceptionWhenNoReadingsFound() {
         String username = "testUser";
 
-        when(readingRepository.findByUsername(username)).thenReturn(List.of());
+        when(readingRepository.findPageByUsername(username, null, 11, "1.1")).thenReturn(List.of());
 
-        assertThatThrownBy(() -> readingService.getReadingHistory(username))
+        assertThatThrownBy(() -> readingService.getReadingHistory(username, 10, null, "1.1"))
                 .isInstanceOf(ReadingNotFoundException.class);
     }
 
@@ -167,10 +321,10 @@ class ReadingServiceTest {
         readingDTO.setMonth(1);
         readingDTO.setYear(2022);
 
-        when(readingRepository.findLatestByUsername("testUser")).thenReturn(Optional.of(reading));
+        when(readingRepository.findLatestByUsername("testUser", "1.1")).thenReturn(Optional.of(reading));
         when(readingMapper.toReadingDTO(reading)).thenReturn(readingDTO);
 
-        ReadingDTO actualReading = readingService.getActualReadings("testUser");
+        ReadingDTO actualReading = readingService.getActualReadings("testUser", "1.1");
 
         assertThat(actualReading).isNotNull();
         assertThat(actualReading).usingRecursiveComparison().isEqualTo(readingDTO);
@@ -187,7 +341,172 @@ class ReadingServiceTest {
     void getActualReadings_throwsExceptionWhenNoReadingsFound() {
         String username = "testUser";
 
-        assertThatThrownBy(() -> readingService.getActualReadings(username))
+        assertThatThrownBy(() -> readingService.getActualReadings(username, "1.1"))
                 .isInstanceOf(ReadingNotFoundException.class);
     }
-}
\ No newline at end of file
+
+    /**
+     * This test verifies that the submitReadingsBatch method saves the readings with one batch
+     * and reports readings that already exist or are repeated within the batch as duplicates.
+     */
+    @Test
+    @DisplayName("Submit readings batch saves new readings and reports duplicates")
+    void submitReadingsBatch_savesNewReadingsAndReportsDuplicates() {
+        ReadingRequest existing = new ReadingRequest("testUser", 1, 2022, new HashMap<>());
+        ReadingRequest fresh = new ReadingRequest("testUser", 2, 2022, new HashMap<>());
+        ReadingRequest repeated = new ReadingRequest("testUser", 2, 2022, new HashMap<>());
+        ReadingBatchRequest request = new ReadingBatchRequest(List.of(existing, fresh, repeated));
+
+        ReadingSchema schema = new ReadingSchema(1, List.of(new ReadingType("heating", 3)));
+        Reading existingReading = reading(schema, 1, 2022, "100");
+        Reading freshReading = reading(schema, 2, 2022, "110");
+        when(readingMapper.toReading(eq(existing), any())).thenReturn(existingReading);
+        when(readingMapper.toReading(eq(fresh), any())).thenReturn(freshReading);
+        when(readingRepository.saveAll("testUser", List.of(existingReading, freshReading)))
+                .thenReturn(new boolean[]{false, true});
+
+        ReadingBatchResponse response = readingService.submitReadingsBatch(request);
+
+        assertThat(response.accepted()).isEqualTo(1);
+        assertThat(response.duplicates()).isEqualTo(2);
+        assertThat(response.results()).extracting(ReadingBatchItemResult::status)
+                .containsExactly(Status.DUPLICATE, Status.ACCEPTED, Status.DUPLICATE);
+        verify(readingSummaryRepository).addAll(List.of(freshReading));
+    }
+
+    /**
+     * This test verifies that the submitReadingsBatch method checks every reading of a user against the reading
+     * of the previous period accepted in the same batch, in the order of the periods, and not only against the stored one.
+     * With December stored as 90, January as 100 is accepted, while February as 95 is a decrease from January.
+     */
+    @Test
+    @DisplayName("Submit readings batch rejects a decrease from an earlier reading of the same batch")
+    void submitReadingsBatch_rejectsDecreaseWithinBatch() {
+        ReadingSchema schema = new ReadingSchema(1, List.of(new ReadingType("heating", 3)));
+        when(lastReadingIndex.find("testUser")).thenReturn(Optional.of(reading(schema, 12, 2021, "90")));
+        ReadingRequest february = new ReadingRequest("testUser", 2, 2022, Map.of("heating", new BigDecimal("95")));
+        ReadingRequest january = new ReadingRequest("testUser", 1, 2022, Map.of("heating", new BigDecimal("100")));
+        Reading februaryReading = reading(schema, 2, 2022, "95");
+        Reading januaryReading = reading(schema, 1, 2022, "100");
+        when(readingMapper.toReading(eq(february), any())).thenReturn(februaryReading);
+        when(readingMapper.toReading(eq(january), any())).thenReturn(januaryReading);
+        when(readingRepository.saveAll("testUser", List.of(januaryReading))).thenReturn(new boolean[]{true});
+
+        ReadingBatchResponse response = readingService.submitReadingsBatch(new ReadingBatchRequest(List.of(february, january)));
+
+        assertThat(response.results()).extracting(ReadingBatchItemResult::status)
+                .containsExactly(Status.INVALID, Status.ACCEPTED);
+        assertThat(response.results().get(0).message())
+                .isEqualTo("Reading heating must not be lower than the previous reading 100.000, unless its meter was reset.");
+        verify(readingRepository).saveAll("testUser", List.of(januaryReading));
+    }
+
+    /**
+     * This test verifies that the submitReadingsBatch method marks readings that fail validation as invalid
+     * without rejecting the rest of the batch.
+     */
+    @Test
+    @DisplayName("Submit readings batch marks invalid readings without rejecting the batch")
+    void submitReadingsBatch_marksInvalidReadings() {
+        ReadingRequest valid = new ReadingRequest("testUser", 2, 2022, new HashMap<>());
+        ReadingBatchRequest request = new ReadingBatchRequest(Arrays.asList(valid, null));
+
+        Reading reading = new Reading();
+        when(readingMapper.toReading(eq(valid), any())).thenReturn(reading);
+        when(readingRepository.saveAll("testUser", List.of(reading))).thenReturn(new boolean[]{true});
+
+        ReadingBatchResponse response = readingService.submitReadingsBatch(request);
+
+        assertThat(response.accepted()).isEqualTo(1);
+        assertThat(response.invalid()).isEqualTo(1);
+        assertThat(response.results().get(1).message()).isEqualTo("Reading should not be null");
+    }
+
+    /**
+     * This test verifies that the queueReadings method hands the reading over to the ingestion queue
+     * and returns the pending receipt.
+     */
+    @Test
+    @DisplayName("Queue readings returns a pending receipt")
+    void queueReadings_returnsPendingReceipt() {
+        ReadingRequest request = new ReadingRequest("testUser", 3, 2022, new HashMap<>());
+        Reading reading = new Reading();
+        ReadingReceiptDTO receipt = new ReadingReceiptDTO("receipt", 3, 2022, ReadingReceiptDTO.Status.PENDING, null);
+        when(readingMapper.toReading(eq(request), any())).thenReturn(reading);
+        when(readingIngestionService.enqueue(eq("testUser"), eq(reading), any())).thenReturn(receipt);
+
+        assertThat(readingService.queueReadings(request)).isEqualTo(receipt);
+    }
+
+    /**
+     * This test verifies that a queued reading is checked against the latest reading of the user still in the queue
+     * when it is later than the stored reading, so a reading lower than a pending one is rejected.
+     */
+    @Test
+    @DisplayName("Queue readings rejects a value lower than the latest queued reading")
+    void queueReadings_rejectsDecreasingValueAgainstQueuedReading() {
+        ReadingSchema schema = new ReadingSchema(1, List.of(new ReadingType("heating", 3)));
+        Reading queued = reading(schema, 1, 2022, "100");
+        when(lastReadingIndex.find("testUser")).thenReturn(Optional.of(reading(schema, 12, 2021, "90")));
+        when(readingMapper.toReading(any(), any())).thenReturn(reading(schema, 2, 2022, "95"));
+        when(readingIngestionService.enqueue(eq("testUser"), any(), any())).thenAnswer(invocation -> {
+            invocation.<Consumer<Reading>>getArgument(2).accept(queued);
+            return null;
+        });
+
+        assertThatThrownBy(() -> readingService.queueReadings(new ReadingRequest("testUser", 2, 2022, Map.of())))
+                .isInstanceOf(NotValidArgumentException.class)
+                .hasMessage("Reading heating must not be lower than the previous reading 100.000, unless its meter was reset.");
+    }
+
+    /**
+     * This test verifies that the getConsumption method splits the consumption computed by the database
+     * into the monthly consumption and the yearly totals and averages.
+     */
+    @Test
+    @DisplayName("Get consumption splits monthly and yearly consumption")
+    void getConsumption_splitsMonthlyAndYearlyConsumption() {
+        ReadingSchema schema = new ReadingSchema(1, List.of(new ReadingType("heating", 3)));
+        ReadingValues february = ReadingValues.of(schema, Map.of("heating", new BigDecimal("2.5")));
+        ReadingValues march = ReadingValues.of(schema, Map.of("heating", new BigDecimal("3.5")));
+        ReadingValues total = ReadingValues.of(schema, Map.of("heating", new BigDecimal("6")));
+        ReadingValues average = ReadingValues.of(schema, Map.of("heating", new BigDecimal("3")));
+        when(readingAnalyticsRepository.findConsumptionByUsername("testUser")).thenReturn(List.of(
+                new Consumption(2023, 2, february, february),
+                new Consumption(2023, 3, march, march),
+                new Consumption(2023, null, total, average)));
+
+        ConsumptionReportDTO report = readingService.getConsumption("testUser");
+
+        assertThat(report.months()).containsExactly(
+                new MonthlyConsumptionDTO(2, 2023, february),
+                new MonthlyConsumptionDTO(3, 2023, march));
+        assertThat(report.years()).containsExactly(new YearlyConsumptionDTO(2023, total, average));
+    }
+
+    /**
+     * This test verifies that the version of the readings combines the schema epoch and the reading version of the user
+     * and is computed without querying the readings, and that the entity tag quotes it, followed by the variant of the representation.
+     */
+    @Test
+    @DisplayName("Get readings tag quotes the schema epoch and the reading version")
+    void getReadingsTag_quotesReadingVersion() {
+        when(readingVersionRepository.findSchemaEpoch()).thenReturn(3L);
+        when(readingVersionRepository.findVersion("testUser")).thenReturn(42L);
+
+        String version = readingService.getReadingsVersion("testUser");
+
+        assertThat(version).isEqualTo("3.42");
+        assertThat(readingService.getReadingsTag(version, null)).isEqualTo("\"3.42\"");
+        assertThat(readingService.getReadingsTag(version, "1f")).isEqualTo("\"3.42-1f\"");
+        verifyNoInteractions(readingRepository);
+    }
+
+    private static Reading reading(ReadingSchema schema, int month, int year, String heating) {
+        Reading reading = new Reading();
+        reading.setMonth(month);
+        reading.setYear(year);
+        reading.setValues(ReadingValues.of(schema, Map.of("heating", new BigDecimal(heating))));
+        return reading;
+    }
+}
@@ -0,0 +1,162 @@
+package ru.erma.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.erma.config.ReadingSnapshotProperties;
+import ru.erma.exception.NotValidArgumentException;
+import ru.erma.model.Reading;
+import ru.erma.model.ReadingSchema;
+import ru.erma.model.ReadingType;
+import ru.erma.model.ReadingValues;
+import ru.erma.repository.ReadingRepository;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BiConsumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * The ReadingSnapshotServiceTest class tests the functionality of the ReadingSnapshotService class.
+ * It uses a mock ReadingRepository that streams the readings of a username range with a delay
+ * that makes later ranges finish before earlier ones.
+ */
+class ReadingSnapshotServiceTest {
+
+    private static final ReadingSchema SCHEMA = new ReadingSchema(1, List.of(new ReadingType("heating", 3)));
+
+    private static final YearMonth PERIOD = YearMonth.of(2023, 6);
+
+    private static final String SNAPSHOT_ID = "00000003-0000001B-1";
+
+    private ReadingRepository<String, Reading> readingRepository;
+
+    private ReadingSnapshotService readingSnapshotService;
+
+    private List<String> usernames;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        readingRepository = mock(ReadingRepository.class);
+        ReadingSnapshotProperties properties = new ReadingSnapshotProperties();
+        properties.setParallelism(3);
+        properties.setChunks(4);
+        properties.setBufferSize(2);
+        readingSnapshotService = new ReadingSnapshotService(readingRepository,
+                new TransactionTemplate(mock(PlatformTransactionManager.class)), new ObjectMapper(), properties);
+
+        usernames = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            usernames.add(String.format("user%02d", i));
+        }
+        when(readingRepository.exportSnapshot()).thenReturn(SNAPSHOT_ID);
+        when(readingRepository.findUsernameBoundaries(eq(PERIOD), anyInt()))
+                .thenReturn(List.of("user00", "user10", "user20", "user30"));
+    }
+
+    @AfterEach
+    void tearDown() {
+        readingSnapshotService.shutdown();
+    }
+
+    /**
+     * This test checks that the ranges scanned in parallel are merged into one stream ordered by username,
+     * although the later ranges are scanned faster, and that every range reads the exported snapshot.
+     */
+    @Test
+    @DisplayName("Export merges the parallel ranges in username order")
+    void exportPeriod_mergesRangesInUsernameOrder() {
+        streamReadings();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        readingSnapshotService.exportPeriod(PERIOD, ReadingExportService.Format.NDJSON, out);
+
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+        assertThat(lines).hasSize(usernames.size());
+        for (int i = 0; i < lines.length; i++) {
+            assertThat(lines[i]).isEqualTo("{\"username\":\"" + usernames.get(i) + "\",\"month\":6,\"year\":2023,\"values\":{\"heating\":" + i + "}}");
+        }
+        verify(readingRepository, times(4)).importSnapshot(SNAPSHOT_ID);
+        verify(readingRepository).streamByPeriod(eq(PERIOD), eq("user30"), eq(null), any());
+    }
+
+    /**
+     * This test checks that the JSON export is an object with the array of readings.
+     */
+    @Test
+    @DisplayName("JSON export is an object with the array of readings")
+    void exportPeriod_writesJsonObject() {
+        usernames = List.of("user00");
+        when(readingRepository.findUsernameBoundaries(eq(PERIOD), anyInt())).thenReturn(List.of("user00"));
+        streamReadings();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        readingSnapshotService.exportPeriod(PERIOD, ReadingExportService.Format.JSON, out);
+
+        assertThat(out.toString(StandardCharsets.UTF_8)).isEqualTo(
+                "{\"readings\":[{\"username\":\"user00\",\"month\":6,\"year\":2023,\"values\":{\"heating\":0}}]}");
+    }
+
+    /**
+     * This test checks that a failing range fails the whole export.
+     */
+    @Test
+    @DisplayName("Export fails when a range fails")
+    void exportPeriod_failsWhenRangeFails() {
+        streamReadings();
+        doThrow(new DataAccessResourceFailureException("connection lost"))
+                .when(readingRepository).streamByPeriod(eq(PERIOD), eq("user20"), eq("user30"), any());
+
+        assertThatThrownBy(() -> readingSnapshotService.exportPeriod(PERIOD, ReadingExportService.Format.NDJSON, new ByteArrayOutputStream()))
+                .isInstanceOf(DataAccessResourceFailureException.class);
+    }
+
+    /**
+     * This test checks that a missing or invalid period is rejected.
+     */
+    @Test
+    @DisplayName("Parse period rejects a missing or invalid period")
+    void parsePeriod_rejectsInvalidPeriod() {
+        assertThat(readingSnapshotService.parsePeriod("2023-06")).isEqualTo(PERIOD);
+        assertThatThrownBy(() -> readingSnapshotService.parsePeriod(null)).isInstanceOf(NotValidArgumentException.class);
+        assertThatThrownBy(() -> readingSnapshotService.parsePeriod("06.2023")).isInstanceOf(NotValidArgumentException.class);
+    }
+
+    @SuppressWarnings("unchecked")
+    private void streamReadings() {
+        doAnswer(invocation -> {
+            String from = invocation.getArgument(1);
+            String to = invocation.getArgument(2);
+            BiConsumer<String, Reading> action = invocation.getArgument(3);
+            Thread.sleep(to == null ? 0 : 100);
+            for (int i = 0; i < usernames.size(); i++) {
+                String username = usernames.get(i);
+                if (username.compareTo(from) >= 0 && (to == null || username.compareTo(to) < 0)) {
+                    Reading reading = new Reading();
+                    reading.setMonth(6);
+                    reading.setYear(2023);
+                    ReadingValues values = new ReadingValues(SCHEMA);
+                    values.set(0, i * 1000L);
+                    reading.setValues(values);
+                    action.accept(username, reading);
+                }
+            }
+            return null;
+        }).when(readingRepository).streamByPeriod(eq(PERIOD), any(), any(), any());
+    }
+}
@@ -3,10 +3,33 @@ package ru.erma.service;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.CannotAcquireLockException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.erma.event.ReadingTypesChangedEvent;
+import ru.erma.model.ReadingSchema;
+import ru.erma.exception.NotValidArgumentException;
+import ru.erma.exception.TypeNotFoundException;
+import ru.erma.model.ReadingType;
+import ru.erma.model.ReadingTypeRules;
 import ru.erma.repository.ReadingTypeRepository;
+import ru.erma.repository.ReadingVersionRepository;
+
+import java.math.BigDecimal;
+import java.util.List;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 
 /**
  * The ReadingStructureServiceTest class tests the functionality of the ReadingStructureService class.
@@ -15,14 +38,26 @@ import static org.mockito.Mockito.mock;
 class ReadingStructureServiceTest {
     private ReadingStructureService readingStructureService;
 
+    private ApplicationEventPublisher eventPublisher;
+
+    private ReadingTypeRepository<String> readingTypeRepository;
+
+    private ReadingVersionRepository readingVersionRepository;
+
     /**
      * The setUp method initializes the ReadingStructureService instance before each test.
-     * It creates a mock ReadingTypeRepository and passes it to the ReadingStructureService constructor.
+     * It creates a mock ReadingTypeRepository, a mock ReadingVersionRepository and a mock ApplicationEventPublisher
+     * and passes them to the ReadingStructureService constructor.
      */
     @BeforeEach
     void setUp() {
-        ReadingTypeRepository readingTypeRepository = mock(ReadingTypeRepository.class);
-        readingStructureService = new ReadingStructureService(readingTypeRepository);
+        readingTypeRepository = mock(ReadingTypeRepository.class);
+        readingVersionRepository = mock(ReadingVersionRepository.class);
+        eventPublisher = mock(ApplicationEventPublisher.class);
+        when(readingTypeRepository.addReadingType(anyString(), anyInt())).thenAnswer(invocation ->
+                new ReadingType(invocation.getArgument(0), invocation.getArgument(1)));
+        readingStructureService = new ReadingStructureService(readingTypeRepository, readingVersionRepository, eventPublisher,
+                new TransactionTemplate(mock(PlatformTransactionManager.class)));
     }
 
     /**
@@ -32,11 +67,35 @@ class ReadingStructureServiceTest {
     @Test
     @DisplayName("AddReadingType method adds a new type to the list")
     void addReadingType_addsNewTypeToList() {
-        readingStructureService.addReadingType("gas");
+        readingStructureService.addReadingType("gas", null);
 
         assertThat(readingStructureService.getReadingTypes()).contains("gas");
     }
 
+    /**
+     * This test checks that the addReadingType method announces the change of the reading types.
+     */
+    @Test
+    @DisplayName("AddReadingType method publishes a ReadingTypesChangedEvent")
+    void addReadingType_publishesReadingTypesChangedEvent() {
+        readingStructureService.addReadingType("gas", null);
+
+        verify(eventPublisher).publishEvent(new ReadingTypesChangedEvent("gas"));
+    }
+
+    /**
+     * This test checks that adding and removing a reading type increments the schema epoch after the change has committed,
+     * so no client keeps readings in the previous representation.
+     */
+    @Test
+    @DisplayName("Changing the reading types increments the schema epoch")
+    void changingReadingTypes_incrementsSchemaEpoch() {
+        readingStructureService.addReadingType("gas", null);
+        readingStructureService.removeReadingType("gas");
+
+        verify(readingVersionRepository, times(2)).incrementSchemaEpoch();
+    }
+
     /**
      * This test checks that the removeReadingType method correctly removes an existing type from the list.
      * It removes a type from the list and then asserts that the list does not contain the removed type.
@@ -47,4 +106,140 @@ class ReadingStructureServiceTest {
         readingStructureService.removeReadingType("heating");
         assertThat(readingStructureService.getReadingTypes()).doesNotContain("heating");
     }
-}
\ No newline at end of file
+
+    /**
+     * This test checks that a removal failing in the database, for example because the readings table stayed locked,
+     * puts the reading type back into the schema snapshot, so the removal can be retried.
+     */
+    @Test
+    @DisplayName("RemoveReadingType method restores the reading type when the removal fails")
+    void removeReadingType_restoresTypeWhenRemovalFails() {
+        readingStructureService.addReadingType("gas", null);
+        doThrow(new CannotAcquireLockException("lock timeout")).when(readingTypeRepository).removeReadingType("gas");
+
+        assertThatThrownBy(() -> readingStructureService.removeReadingType("gas"))
+                .isInstanceOf(CannotAcquireLockException.class);
+
+        assertThat(readingStructureService.getReadingTypes()).contains("gas");
+        verify(eventPublisher, times(1)).publishEvent(new ReadingTypesChangedEvent("gas"));
+    }
+
+    /**
+     * This test checks that the addReadingType method replaces the schema snapshot with a newer one
+     * and leaves the previous snapshot untouched.
+     */
+    @Test
+    @DisplayName("AddReadingType method replaces the schema snapshot")
+    void addReadingType_replacesSchemaSnapshot() {
+        ReadingSchema before = readingStructureService.getSchema();
+
+        readingStructureService.addReadingType("gas", null);
+
+        ReadingSchema after = readingStructureService.getSchema();
+        assertThat(after.version()).isGreaterThan(before.version());
+        assertThat(after.ordinal("gas")).isEqualTo(after.size() - 1);
+        assertThat(before.contains("gas")).isFalse();
+    }
+
+    /**
+     * This test checks that the addReadingType method rejects names that are not plain lowercase identifiers,
+     * since the names end up in the queries of the readings, and that they never reach the repository.
+     */
+    @Test
+    @DisplayName("AddReadingType method rejects invalid reading type names")
+    void addReadingType_rejectsInvalidNames() {
+        for (String type : List.of("Gas", "gas water", "gas'; DROP TABLE develop.readings; --", "1gas", "g".repeat(64))) {
+            assertThatThrownBy(() -> readingStructureService.addReadingType(type, null))
+                    .isInstanceOf(NotValidArgumentException.class);
+        }
+
+        verify(readingTypeRepository, never()).addReadingType(anyString(), anyInt());
+    }
+
+    /**
+     * This test checks that a reading type added without a scale gets the default scale
+     * and that the scale is passed to the repository.
+     */
+    @Test
+    @DisplayName("AddReadingType method uses the default scale when none is specified")
+    void addReadingType_usesDefaultScale() {
+        readingStructureService.addReadingType("gas", null);
+        readingStructureService.addReadingType("electricity", 1);
+
+        ReadingSchema schema = readingStructureService.getSchema();
+        assertThat(schema.scale(schema.ordinal("gas"))).isEqualTo(ReadingStructureService.DEFAULT_SCALE);
+        assertThat(schema.scale(schema.ordinal("electricity"))).isEqualTo(1);
+        verify(readingTypeRepository).addReadingType("electricity", 1);
+    }
+
+    /**
+     * This test checks that refreshing the reading types adopts the changes made by another instance
+     * and announces every added or removed reading type.
+     */
+    @Test
+    @DisplayName("RefreshReadingTypes method adopts the reading types changed by another instance")
+    void refreshReadingTypes_adoptsChangedReadingTypes() {
+        readingStructureService.addReadingType("gas", 2);
+        when(readingTypeRepository.getReadingTypesFromDatabase())
+                .thenReturn(List.of(new ReadingType("heating", 3), new ReadingType("gas", 2)));
+        long version = readingStructureService.getSchema().version();
+
+        assertThat(readingStructureService.refreshReadingTypes()).isTrue();
+
+        assertThat(readingStructureService.getReadingTypes()).containsExactly("heating", "gas");
+        assertThat(readingStructureService.getSchema().version()).isGreaterThan(version);
+        verify(eventPublisher).publishEvent(new ReadingTypesChangedEvent("heating"));
+        verify(eventPublisher, times(1)).publishEvent(new ReadingTypesChangedEvent("gas"));
+    }
+
+    /**
+     * This test checks that refreshing reading types that are up to date keeps the schema snapshot.
+     */
+    @Test
+    @DisplayName("RefreshReadingTypes method keeps an up to date schema snapshot")
+    void refreshReadingTypes_keepsUpToDateSnapshot() {
+        readingStructureService.addReadingType("gas", 2);
+        when(readingTypeRepository.getReadingTypesFromDatabase()).thenReturn(List.of(new ReadingType("gas", 2)));
+        ReadingSchema schema = readingStructureService.getSchema();
+
+        assertThat(readingStructureService.refreshReadingTypes()).isFalse();
+
+        assertThat(readingStructureService.getSchema()).isSameAs(schema);
+        verify(eventPublisher, times(1)).publishEvent(new ReadingTypesChangedEvent("gas"));
+    }
+
+    /**
+     * This test checks that the updateReadingTypeRules method stores the rules and puts them into the schema snapshot,
+     * without touching the schema epoch.
+     */
+    @Test
+    @DisplayName("UpdateReadingTypeRules method replaces the rules of a reading type")
+    void updateReadingTypeRules_replacesRules() {
+        readingStructureService.addReadingType("gas", 2);
+        ReadingTypeRules rules = new ReadingTypeRules("m3", BigDecimal.ZERO, new BigDecimal("1000"), BigDecimal.TEN, false, true);
+
+        readingStructureService.updateReadingTypeRules("gas", rules);
+
+        ReadingSchema schema = readingStructureService.getSchema();
+        assertThat(schema.rules(schema.ordinal("gas"))).isEqualTo(rules);
+        verify(readingTypeRepository).updateReadingTypeRules("gas", rules);
+        verify(readingVersionRepository, times(1)).incrementSchemaEpoch();
+    }
+
+    /**
+     * This test checks that the updateReadingTypeRules method rejects a minimum value greater than the maximum value
+     * and an unknown reading type.
+     */
+    @Test
+    @DisplayName("UpdateReadingTypeRules method rejects invalid rules")
+    void updateReadingTypeRules_rejectsInvalidRules() {
+        readingStructureService.addReadingType("gas", 2);
+
+        assertThatThrownBy(() -> readingStructureService.updateReadingTypeRules("gas",
+                new ReadingTypeRules(null, BigDecimal.TEN, BigDecimal.ONE, null, true, true)))
+                .isInstanceOf(NotValidArgumentException.class);
+        assertThatThrownBy(() -> readingStructureService.updateReadingTypeRules("steam", ReadingTypeRules.DEFAULT))
+                .isInstanceOf(TypeNotFoundException.class);
+        verify(readingTypeRepository, never()).updateReadingTypeRules(anyString(), any());
+    }
+}
@@ -0,0 +1,85 @@
+package ru.erma.service;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import ru.erma.dto.ReadingSummaryDTO;
+import ru.erma.event.ReadingTypesChangedEvent;
+import ru.erma.exception.NotValidArgumentException;
+import ru.erma.model.ReadingSchema;
+import ru.erma.model.ReadingSummary;
+import ru.erma.model.ReadingType;
+import ru.erma.repository.ReadingSummaryRepository;
+
+import java.math.BigDecimal;
+import java.time.YearMonth;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * This class is used to test the ReadingSummaryService class.
+ * It uses the Mockito framework for mocking objects and JUnit for running the tests.
+ */
+@ExtendWith(MockitoExtension.class)
+class ReadingSummaryServiceTest {
+
+    @Mock
+    private ReadingSummaryRepository readingSummaryRepository;
+
+    @Mock
+    private ReadingStructureService readingStructureService;
+
+    @InjectMocks
+    private ReadingSummaryService readingSummaryService;
+
+    /**
+     * This test verifies that the getSummary method reads the requested range and computes the averages.
+     */
+    @Test
+    @DisplayName("Get summary returns the aggregates of the range with their averages")
+    void getSummary_returnsAggregatesWithAverages() {
+        when(readingSummaryRepository.findBetween(YearMonth.of(2023, 1), YearMonth.of(2023, 3))).thenReturn(List.of(
+                new ReadingSummary("heating", 2023, 2, new BigDecimal("10.500"), 4, new BigDecimal("1.000"), new BigDecimal("4.000"))));
+
+        List<ReadingSummaryDTO> summary = readingSummaryService.getSummary("2023-01", "2023-03");
+
+        assertThat(summary).containsExactly(new ReadingSummaryDTO("heating", 2, 2023, new BigDecimal("10.500"), 4,
+                new BigDecimal("2.625"), new BigDecimal("1.000"), new BigDecimal("4.000")));
+    }
+
+    /**
+     * This test verifies that the getSummary method rejects a reversed range without querying the summary.
+     */
+    @Test
+    @DisplayName("Get summary throws exception for a reversed range")
+    void getSummary_throwsExceptionForReversedRange() {
+        assertThatThrownBy(() -> readingSummaryService.getSummary("2023-03", "2023-01"))
+                .isInstanceOf(NotValidArgumentException.class);
+        verify(readingSummaryRepository, never()).findBetween(any(), any());
+    }
+
+    /**
+     * This test verifies that the aggregates of a removed reading type are removed
+     * and the aggregates of an added reading type are kept.
+     */
+    @Test
+    @DisplayName("Removing a reading type removes its aggregates")
+    void onReadingTypesChanged_removesAggregatesOfRemovedType() {
+        when(readingStructureService.getSchema()).thenReturn(new ReadingSchema(2, List.of(new ReadingType("heating", 3))));
+
+        readingSummaryService.onReadingTypesChanged(new ReadingTypesChangedEvent("gas"));
+        readingSummaryService.onReadingTypesChanged(new ReadingTypesChangedEvent("heating"));
+
+        verify(readingSummaryRepository).removeType("gas");
+        verify(readingSummaryRepository, never()).removeType("heating");
+    }
+}
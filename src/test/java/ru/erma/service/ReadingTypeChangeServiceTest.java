@@ -0,0 +1,107 @@
+package ru.erma.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.CannotAcquireLockException;
+import ru.erma.config.ReadingStructureProperties;
+import ru.erma.dto.ReadingTypeChangeDTO;
+import ru.erma.dto.ReadingTypeChangeDTO.Status;
+import ru.erma.exception.NotValidArgumentException;
+import ru.erma.exception.TypeNotFoundException;
+import ru.erma.model.ReadingSchema;
+import ru.erma.model.ReadingType;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.*;
+
+/**
+ * This class is used to test the ReadingTypeChangeService class.
+ * The ReadingStructureService is mocked, the changes are awaited by shutting the service down.
+ */
+class ReadingTypeChangeServiceTest {
+
+    private ReadingStructureService readingStructureService;
+
+    private ReadingTypeChangeService readingTypeChangeService;
+
+    /**
+     * The setUp method creates the ReadingTypeChangeService with the heating reading type,
+     * at most three attempts per change and a backoff of a few milliseconds.
+     */
+    @BeforeEach
+    void setUp() {
+        readingStructureService = mock(ReadingStructureService.class);
+        when(readingStructureService.getSchema()).thenReturn(new ReadingSchema(1, List.of(new ReadingType("heating", 3))));
+        ReadingStructureProperties properties = new ReadingStructureProperties();
+        properties.setLockTimeout(5000);
+        properties.setMaxAttempts(3);
+        properties.setRetryBackoff(2);
+        readingTypeChangeService = new ReadingTypeChangeService(readingStructureService, properties);
+    }
+
+    @AfterEach
+    void tearDown() {
+        readingTypeChangeService.shutdown();
+    }
+
+    /**
+     * This test verifies that a change which cannot acquire the lock of the readings table is retried until it succeeds.
+     */
+    @Test
+    @DisplayName("Add reading type is retried while the readings table is locked")
+    void addReadingType_retriesWhileLocked() {
+        doThrow(new CannotAcquireLockException("lock timeout"))
+                .doNothing()
+                .when(readingStructureService).addReadingType("gas", 2);
+
+        ReadingTypeChangeDTO queued = readingTypeChangeService.addReadingType("gas", 2);
+        readingTypeChangeService.shutdown();
+
+        assertThat(queued.operation()).isEqualTo(ReadingTypeChangeDTO.Operation.ADD);
+        assertThat(readingTypeChangeService.getChanges()).singleElement().satisfies(change -> {
+            assertThat(change.changeId()).isEqualTo(queued.changeId());
+            assertThat(change.status()).isEqualTo(Status.COMPLETED);
+            assertThat(change.attempts()).isEqualTo(2);
+            assertThat(change.finishedAt()).isNotNull();
+        });
+        verify(readingStructureService, times(2)).addReadingType("gas", 2);
+    }
+
+    /**
+     * This test verifies that a change fails once the readings table stayed locked for all attempts.
+     */
+    @Test
+    @DisplayName("Remove reading type fails after the last attempt")
+    void removeReadingType_failsAfterLastAttempt() {
+        when(readingStructureService.removeReadingType("heating")).thenThrow(new CannotAcquireLockException("lock timeout"));
+
+        readingTypeChangeService.removeReadingType("heating");
+        readingTypeChangeService.shutdown();
+
+        assertThat(readingTypeChangeService.getChanges()).singleElement().satisfies(change -> {
+            assertThat(change.status()).isEqualTo(Status.FAILED);
+            assertThat(change.attempts()).isEqualTo(3);
+            assertThat(change.message()).isEqualTo("The readings table stayed locked after 3 attempts.");
+        });
+    }
+
+    /**
+     * This test verifies that a change of an existing or unknown reading type is rejected before it is queued.
+     */
+    @Test
+    @DisplayName("Invalid changes are rejected right away")
+    void changes_areValidatedBeforeQueued() {
+        assertThatThrownBy(() -> readingTypeChangeService.addReadingType("heating", null))
+                .isInstanceOf(NotValidArgumentException.class);
+        assertThatThrownBy(() -> readingTypeChangeService.removeReadingType("gas"))
+                .isInstanceOf(TypeNotFoundException.class);
+
+        assertThat(readingTypeChangeService.getChanges()).isEmpty();
+        verifyNoMoreInteractions(ignoreStubs(readingStructureService));
+    }
+}
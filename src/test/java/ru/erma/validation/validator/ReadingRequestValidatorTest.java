@@ -0,0 +1,157 @@
+package ru.erma.validation.validator;
+
+import jakarta.validation.ConstraintValidator;
+import jakarta.validation.ConstraintValidatorFactory;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validation;
+import jakarta.validation.Validator;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import ru.erma.dto.ReadingRequest;
+import ru.erma.model.ReadingSchema;
+import ru.erma.model.ReadingType;
+import ru.erma.model.ReadingTypeRules;
+import ru.erma.service.ReadingStructureService;
+
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.*;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * This class is used to test the ReadingRequestValidator class.
+ * The messages of the validator are compared with the messages of Bean Validation for the same requests.
+ */
+class ReadingRequestValidatorTest {
+
+    private ReadingStructureService readingStructureService;
+
+    private MutableClock clock;
+
+    private ReadingRequestValidator readingRequestValidator;
+
+    private Validator beanValidator;
+
+    @BeforeEach
+    void setUp() {
+        readingStructureService = mock(ReadingStructureService.class);
+        ReadingTypeRules rules = new ReadingTypeRules("Gcal", BigDecimal.ONE, new BigDecimal("500"), null, true, true);
+        ReadingTypeRules inactive = new ReadingTypeRules(null, null, null, null, false, true);
+        when(readingStructureService.getSchema()).thenReturn(new ReadingSchema(1, List.of(
+                new ReadingType("heating", 3, "heating", rules),
+                new ReadingType("cold_water", 1),
+                new ReadingType("hot_water", 2, "hot_water", inactive))));
+        clock = new MutableClock(Instant.parse("2024-01-31T23:59:59Z"));
+        readingRequestValidator = new ReadingRequestValidator(readingStructureService, clock);
+        beanValidator = Validation.byDefaultProvider().configure()
+                .constraintValidatorFactory(new ReadingValuesValidatorFactory(readingStructureService))
+                .buildValidatorFactory()
+                .getValidator();
+    }
+
+    /**
+     * This test verifies that every request is reported with the same messages as Bean Validation reports.
+     */
+    @Test
+    @DisplayName("Validate reports the same messages as Bean Validation")
+    void validate_reportsSameMessagesAsBeanValidation() {
+        List<ReadingRequest> requests = List.of(
+                request("user", 1, 2024, Map.of("heating", new BigDecimal("12.5"))),
+                request(" ", 0, 1999, null),
+                request(null, null, null, Map.of()),
+                request("user", 13, 2023, Map.of()),
+                request("user", 1, 2999, Map.of()),
+                request("user", 1, 2023, Map.of("heating", new BigDecimal("-1"))),
+                request("user", 1, 2023, Map.of("gas", BigDecimal.ONE)),
+                request("user", 1, 2023, Map.of("cold_water", new BigDecimal("1.25"))),
+                request("user", 1, 2023, Map.of("cold_water", new BigDecimal("1.2500"))),
+                request("user", 1, 2023, Map.of("cold_water", new BigDecimal("100000000000000000"))),
+                request("user", 1, 2023, Map.of("cold_water", new BigDecimal("99999999999999999.9"))),
+                request("user", 1, 2023, Map.of("hot_water", BigDecimal.ONE)),
+                request("user", 1, 2023, Map.of("heating", new BigDecimal("0.5"))),
+                request("user", 1, 2023, Map.of("heating", new BigDecimal("500.001"))),
+                request("user", 1, 2023, Map.of("cold_water", new BigDecimal("0E+30"))));
+
+        for (ReadingRequest request : requests) {
+            Set<String> expected = beanValidator.validate(request).stream()
+                    .map(ConstraintViolation::getMessage)
+                    .collect(Collectors.toSet());
+            String violations = readingRequestValidator.validate(request);
+            Set<String> actual = violations == null ? Set.of() : Set.of(violations.split("; "));
+            assertThat(actual).as(request.toString()).isEqualTo(expected);
+        }
+    }
+
+    /**
+     * This test verifies that the current month is computed again once the clock reaches the next month.
+     */
+    @Test
+    @DisplayName("Validate moves to the next month with the clock")
+    void validate_movesToNextMonthWithClock() {
+        ReadingRequest february = request("user", 2, 2024, Map.of());
+
+        assertThat(readingRequestValidator.validate(february)).isEqualTo("Date should not be in the future");
+        clock.instant = Instant.parse("2024-02-01T00:00:00Z");
+        assertThat(readingRequestValidator.validate(february)).isNull();
+    }
+
+    private static ReadingRequest request(String username, Integer month, Integer year, Map<String, BigDecimal> values) {
+        return new ReadingRequest(username, month, year, values == null ? null : new LinkedHashMap<>(values));
+    }
+
+    /**
+     * Creates the ReadingValuesValidator with the mocked ReadingStructureService, as Spring does.
+     */
+    private record ReadingValuesValidatorFactory(ReadingStructureService readingStructureService)
+            implements ConstraintValidatorFactory {
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public <T extends ConstraintValidator<?, ?>> T getInstance(Class<T> key) {
+            if (key == ReadingValuesValidator.class) {
+                return (T) new ReadingValuesValidator(readingStructureService);
+            }
+            try {
+                return key.getDeclaredConstructor().newInstance();
+            } catch (ReflectiveOperationException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        @Override
+        public void releaseInstance(ConstraintValidator<?, ?> instance) {
+        }
+    }
+
+    private static final class MutableClock extends Clock {
+
+        private Instant instant;
+
+        private MutableClock(Instant instant) {
+            this.instant = instant;
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Instant instant() {
+            return instant;
+        }
+    }
+}